@@ -0,0 +1,116 @@
+package com.diplomatic.actors.infrastructure;
+
+import com.diplomatic.benchmarks.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The two tiers behind {@link ConversationHistoryActor}: appending a turn and reading a
+ * session's history, from the in-heap {@link SessionHistoryCache} and from the
+ * memory-mapped {@link ConversationLog}. The log is recreated every iteration so its
+ * size, and the disk it uses, stays bounded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ConversationHistoryBenchmark {
+
+    private static final int SESSIONS = 1000;
+    private static final int TURNS_PER_SESSION = 10;
+    // Same group-commit batch as diplomatic-assistant.history.flush-batch
+    private static final int FLUSH_BATCH = 64;
+
+    private String[] sessionIds;
+    private String[] queries;
+    private String answer;
+    private int next;
+
+    private SessionHistoryCache cache;
+    private Path directory;
+    private ConversationLog log;
+
+    @Setup(Level.Trial)
+    public void setupData() {
+        sessionIds = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionIds[i] = "session-" + i;
+        }
+        queries = BenchmarkData.queries();
+        answer = BenchmarkData.answer(1200);
+    }
+
+    @Setup(Level.Iteration)
+    public void setupStores() throws IOException {
+        cache = new SessionHistoryCache(TURNS_PER_SESSION, 256L * 1024 * 1024);
+        directory = Files.createTempDirectory("history-bench");
+        log = new ConversationLog(directory, 64L * 1024 * 1024, TURNS_PER_SESSION);
+        long timestamp = 1_700_000_000_000L;
+        for (int turn = 0; turn < TURNS_PER_SESSION; turn++) {
+            for (int s = 0; s < SESSIONS; s++) {
+                String query = queries[(s + turn) % queries.length];
+                cache.add(sessionIds[s], new ConversationLog.Turn(timestamp, query, answer));
+                log.append(sessionIds[s], timestamp, query, answer);
+            }
+        }
+        log.flush();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownStores() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) % (SESSIONS * queries.length);
+        return i;
+    }
+
+    @Benchmark
+    public int cacheAppend() {
+        int i = nextIndex();
+        String sessionId = sessionIds[i % SESSIONS];
+        cache.add(sessionId, new ConversationLog.Turn(i, queries[i % queries.length], answer));
+        return cache.turnCount(sessionId);
+    }
+
+    @Benchmark
+    public List<ConversationLog.Turn> cacheLookup() {
+        return cache.get(sessionIds[nextIndex() % SESSIONS]);
+    }
+
+    @Benchmark
+    public int logAppend() {
+        int i = nextIndex();
+        log.append(sessionIds[i % SESSIONS], i, queries[i % queries.length], answer);
+        if (log.unflushedRecords() >= FLUSH_BATCH) {
+            log.flush();
+        }
+        return log.unflushedRecords();
+    }
+
+    @Benchmark
+    public List<ConversationLog.Turn> logRead() {
+        return log.read(sessionIds[nextIndex() % SESSIONS]);
+    }
+}
@@ -0,0 +1,85 @@
+package com.diplomatic.actors.intelligence;
+
+import akka.actor.testkit.typed.javadsl.BehaviorTestKit;
+import akka.actor.testkit.typed.javadsl.TestInbox;
+import com.diplomatic.benchmarks.BenchmarkData;
+import com.diplomatic.messages.ClassificationResultMessage;
+import com.diplomatic.messages.RouteToClassifierMessage;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query classification: the keyword scan, the n-gram model, and a whole
+ * {@link ScenarioClassifierActor} message (both plus building the reply) driven
+ * synchronously through {@link BehaviorTestKit}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ClassifierBenchmark {
+
+    private String[] queries;
+    private int next;
+
+    private KeywordAutomaton.Hits hits;
+    private NgramClassifier model;
+    private final int[] features = new int[NgramClassifier.MAX_FEATURES];
+    private final float[] probabilities = new float[NgramClassifier.LABELS.length];
+
+    private BehaviorTestKit<RouteToClassifierMessage> actor;
+    private TestInbox<ClassificationResultMessage> replies;
+
+    @Setup
+    public void setup() throws IOException {
+        queries = BenchmarkData.queries();
+        hits = ScenarioClassifierActor.KEYWORDS.newHits();
+
+        Config classifier = ConfigFactory.load().getConfig("diplomatic-assistant.classifier");
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(classifier.getString("training-data"))) {
+            model = NgramClassifier.train(
+                    NgramClassifier.readTsv(new InputStreamReader(in, StandardCharsets.UTF_8)),
+                    classifier.getInt("hash-bits"),
+                    new NgramClassifier.TrainingParams(
+                            classifier.getInt("epochs"),
+                            (float) classifier.getDouble("learning-rate"),
+                            (float) classifier.getDouble("l2"),
+                            42L));
+        }
+
+        actor = BehaviorTestKit.create(ScenarioClassifierActor.create(classifier));
+        replies = TestInbox.create();
+    }
+
+    private String nextQuery() {
+        String query = queries[next];
+        next = (next + 1) % queries.length;
+        return query;
+    }
+
+    @Benchmark
+    public boolean keywordScan() {
+        ScenarioClassifierActor.KEYWORDS.scan(nextQuery(), hits);
+        return hits.found(0);
+    }
+
+    @Benchmark
+    public int ngramPredict() {
+        return model.predict(nextQuery(), features, probabilities);
+    }
+
+    @Benchmark
+    public ClassificationResultMessage classifyMessage() {
+        actor.run(new RouteToClassifierMessage("bench", "session", nextQuery(), replies.getRef()));
+        return replies.receiveMessage();
+    }
+}
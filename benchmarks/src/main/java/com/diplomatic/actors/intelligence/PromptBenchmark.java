@@ -0,0 +1,83 @@
+package com.diplomatic.actors.intelligence;
+
+import com.diplomatic.benchmarks.BenchmarkData;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done on every LLM call before it leaves the process: building the cultural
+ * and primitive prompts, then escaping the prompt into the UTF-8 request body.
+ * Run with {@code -prof gc} to see the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class PromptBenchmark {
+
+    private static final String[] COUNTRIES = {"Japan", "Morocco", "General", "Germany"};
+    private static final String[] PRIMITIVES = {"PROPOSE", "CLARIFY", "CONSTRAIN", "REVISE", "AGREE", "ESCALATE", "DEFER", "GENERAL"};
+
+    private String[] queries;
+    private String[] prompts;
+    private int next;
+    private LLMHttpClient client;
+    private byte[] escaped;
+
+    @Setup
+    public void setup() {
+        queries = BenchmarkData.queries();
+        prompts = new String[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            prompts[i] = i % 2 == 0
+                    ? CulturalContextActor.buildCulturalPrompt(queries[i], COUNTRIES[i % COUNTRIES.length])
+                    : DiplomaticPrimitivesActor.buildPrimitivePrompt(queries[i], PRIMITIVES[i % PRIMITIVES.length]);
+        }
+        int longest = 0;
+        for (String prompt : prompts) {
+            longest = Math.max(longest, JsonUtf8.escapedLength(prompt));
+        }
+        escaped = new byte[longest];
+        client = new LLMHttpClient(ConfigFactory.load().getConfig("diplomatic-assistant.llm"), "benchmark-key");
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) % queries.length;
+        return i;
+    }
+
+    @Benchmark
+    public String culturalPrompt() {
+        int i = nextIndex();
+        return CulturalContextActor.buildCulturalPrompt(queries[i], COUNTRIES[i % COUNTRIES.length]);
+    }
+
+    @Benchmark
+    public String primitivePrompt() {
+        int i = nextIndex();
+        return DiplomaticPrimitivesActor.buildPrimitivePrompt(queries[i], PRIMITIVES[i % PRIMITIVES.length]);
+    }
+
+    /** Sizing and escaping alone, into a reused array, as buildRequestBody does per prompt. */
+    @Benchmark
+    public int escapeJson() {
+        String prompt = prompts[nextIndex()];
+        JsonUtf8.escapedLength(prompt);
+        return JsonUtf8.writeEscaped(prompt, escaped, 0);
+    }
+
+    @Benchmark
+    public byte[] requestBody() {
+        return client.buildRequestBody(prompts[nextIndex()], true);
+    }
+}
@@ -0,0 +1,116 @@
+package com.diplomatic.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files (-rf json) and exits with status 1 if any
+ * benchmark regressed.
+ *
+ * A benchmark regresses when it is slower than the baseline by more than the
+ * threshold (default 10%) and the difference is also larger than the two runs'
+ * combined 99.9% error, so noisy benchmarks don't fail the comparison on jitter.
+ * Benchmarks present in only one file are listed but don't fail it.
+ *
+ * Usage: BaselineComparator baseline.json current.json [--threshold 0.10]
+ */
+public final class BaselineComparator {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator baseline.json current.json [--threshold 0.10]");
+            System.exit(2);
+        }
+        double threshold = 0.10;
+        for (int i = 2; i < args.length - 1; i++) {
+            if ("--threshold".equals(args[i])) {
+                threshold = Double.parseDouble(args[i + 1]);
+            }
+        }
+
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-80s %12s %12s %8s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-80s %12s %12.1f %8s  new%n", entry.getKey(), "-", now.score, "");
+                continue;
+            }
+            // Positive change = worse, whichever direction the mode counts
+            double change = now.lowerIsBetter
+                    ? (now.score - before.score) / before.score
+                    : (before.score - now.score) / before.score;
+            boolean significant = Math.abs(now.score - before.score) > before.error + now.error;
+            String verdict = "";
+            if (significant && change > threshold) {
+                verdict = "  REGRESSION";
+                regressions++;
+            } else if (significant && change < -threshold) {
+                verdict = "  improved";
+            }
+            System.out.printf("%-80s %12.1f %12.1f %+7.1f%%%s%n",
+                    entry.getKey(), before.score, now.score, change * 100, verdict);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-80s %12.1f %12s %8s  missing%n", key, baseline.get(key).score, "-", "");
+            }
+        }
+        System.out.printf("%d regression(s) beyond %.0f%%%n", regressions, threshold * 100);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(shortName(run.get("benchmark").asText()));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                Map<String, String> sorted = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    sorted.put(field.getKey(), field.getValue().asText());
+                }
+                key.append(sorted);
+            }
+            JsonNode metric = run.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble();
+            String mode = run.get("mode").asText();
+            results.put(key.toString(), new Result(
+                    metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error,
+                    !"thrpt".equals(mode)));
+        }
+        return results;
+    }
+
+    private static String shortName(String benchmark) {
+        int method = benchmark.lastIndexOf('.');
+        int type = benchmark.lastIndexOf('.', method - 1);
+        return benchmark.substring(type + 1);
+    }
+
+    private static final class Result {
+        final double score;
+        final double error;
+        final boolean lowerIsBetter;
+
+        Result(double score, double error, boolean lowerIsBetter) {
+            this.score = score;
+            this.error = error;
+            this.lowerIsBetter = lowerIsBetter;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.diplomatic.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed inputs shared by the benchmarks, so runs on different commits measure the
+ * same work. Queries come from the classifier training set in a stable order.
+ */
+public final class BenchmarkData {
+
+    /** Number of distinct queries benchmarks cycle through, defeating constant folding. */
+    public static final int QUERY_COUNT = 64;
+
+    private static final List<String> QUERIES = loadQueries();
+
+    private BenchmarkData() {
+    }
+
+    public static String query(int i) {
+        return QUERIES.get(Math.floorMod(i, QUERIES.size()));
+    }
+
+    public static String[] queries() {
+        return QUERIES.toArray(new String[0]);
+    }
+
+    /** Deterministic English text of about {@code chars} chars, standing in for an LLM answer. */
+    public static String answer(int chars) {
+        StringBuilder text = new StringBuilder(chars + 200);
+        for (int i = 0; text.length() < chars; i++) {
+            text.append(query(i * 7)).append(i % 5 == 4 ? "\n\n" : " ");
+        }
+        return text.toString();
+    }
+
+    private static List<String> loadQueries() {
+        List<String> queries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                BenchmarkData.class.getClassLoader().getResourceAsStream("classifier/training.tsv"),
+                StandardCharsets.UTF_8))) {
+            String line;
+            // Every sixth line spreads the sample over all labels
+            for (int n = 0; queries.size() < QUERY_COUNT && (line = reader.readLine()) != null; n++) {
+                int tab = line.indexOf('\t');
+                if (!line.startsWith("#") && tab >= 0 && n % 6 == 0) {
+                    queries.add(line.substring(tab + 1));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,127 @@
+package com.diplomatic.serialization;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.Serialization$;
+import akka.serialization.SerializerWithStringManifest;
+import akka.serialization.jackson.JacksonCborSerializer;
+import com.diplomatic.benchmarks.BenchmarkData;
+import com.diplomatic.messages.*;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.NotSerializableException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of every message class that crosses between the nodes, with the
+ * binary {@link DiplomaticMessageSerializer} that is bound in production and with
+ * jackson-cbor for comparison. Answers are 2,000 chars, so the LLM text compression
+ * threshold applies to the response types. Session commands such as ProcessQuery have
+ * no Jackson creator, so there is nothing to compare them with; their round trip is
+ * covered by DiplomaticMessageSerializerTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class SerializerBenchmark {
+
+    @Param({"diplomatic", "jackson-cbor"})
+    public String serializer;
+
+    @Param({
+            "RouteToClassifier", "ClassificationResult", "CulturalAnalysisRequest", "CulturalAnalysisResponse",
+            "PrimitiveRequest", "PrimitiveResponse", "LLMRequest", "LLMResponse", "StreamChunk",
+            "SaveConversation"
+    })
+    public String message;
+
+    private ActorTestKit testKit;
+    private SerializerWithStringManifest target;
+    private Object value;
+    private String manifest;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        testKit = ActorTestKit.create("SerializerBenchmark", ConfigFactory.parseString(
+                // Messages are bound to the binary serializer; jackson has to be told they are safe too
+                "akka.serialization.jackson.allowed-class-prefix = [\"com.diplomatic.\"]")
+                .withFallback(ConfigFactory.load()));
+        ExtendedActorSystem system = (ExtendedActorSystem) Adapter.toClassic(testKit.system());
+        // Both serializers write actor refs through the transport information, as remoting sets it
+        Serialization$.MODULE$.currentTransportInformation().value_$eq(system.provider().serializationInformation());
+
+        target = "diplomatic".equals(serializer)
+                ? new DiplomaticMessageSerializer(system)
+                : new JacksonCborSerializer(system, "jackson-cbor");
+        value = message(message);
+        manifest = target.manifest(value);
+        bytes = target.toBinary(value);
+    }
+
+    @TearDown
+    public void tearDown() {
+        testKit.shutdownTestKit();
+    }
+
+    private Object message(String name) {
+        ActorRef<ClassificationResultMessage> classificationReply = testKit.<ClassificationResultMessage>createTestProbe().getRef();
+        ActorRef<CulturalAnalysisResponseMessage> culturalReply = testKit.<CulturalAnalysisResponseMessage>createTestProbe().getRef();
+        ActorRef<DiplomaticPrimitiveResponseMessage> primitiveReply = testKit.<DiplomaticPrimitiveResponseMessage>createTestProbe().getRef();
+        ActorRef<LLMResponseMessage> llmReply = testKit.<LLMResponseMessage>createTestProbe().getRef();
+        ActorRef<LLMStreamMessage> stream = testKit.<LLMStreamMessage>createTestProbe().getRef();
+        String correlationId = "4f1c2a8e-0d7b-4a55-9e9f-3c2b1a0d9e8f";
+        String query = BenchmarkData.query(0);
+        String answer = BenchmarkData.answer(2000);
+
+        switch (name) {
+            case "RouteToClassifier":
+                return new RouteToClassifierMessage(correlationId, "session-42", query, classificationReply);
+            case "ClassificationResult": {
+                Map<String, Double> probabilities = new LinkedHashMap<>();
+                for (String label : new String[]{"CULTURAL", "PROPOSE", "CLARIFY", "CONSTRAIN", "REVISE",
+                        "AGREE", "ESCALATE", "DEFER", "GENERAL"}) {
+                    probabilities.put(label, 1.0 / 9);
+                }
+                return new ClassificationResultMessage(correlationId, "CULTURAL", "CulturalContextActor", 0.93,
+                        "Japan", null, probabilities);
+            }
+            case "CulturalAnalysisRequest":
+                return new CulturalAnalysisRequest(correlationId, query, "Japan", culturalReply, stream);
+            case "CulturalAnalysisResponse":
+                return new CulturalAnalysisResponseMessage(correlationId, answer, LLMContext.cultural("Japan", null));
+            case "PrimitiveRequest":
+                return new DiplomaticPrimitiveRequestMessage(correlationId, "PROPOSE", query, primitiveReply, stream);
+            case "PrimitiveResponse":
+                return new DiplomaticPrimitiveResponseMessage(correlationId, "PROPOSE", answer);
+            case "LLMRequest":
+                return new LLMRequestMessage(correlationId, query, LLMContext.cultural("Japan", query), llmReply, stream);
+            case "LLMResponse":
+                return new LLMResponseMessage(correlationId, answer, true);
+            case "StreamChunk":
+                return new LLMStreamChunkMessage(17, " delegation");
+            case "SaveConversation":
+                return new SaveConversationMessage("session-42", query, answer);
+            default:
+                throw new IllegalArgumentException("Unknown message " + name);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return target.toBinary(value);
+    }
+
+    @Benchmark
+    public Object deserialize() throws NotSerializableException {
+        return target.fromBinary(bytes, manifest);
+    }
+}
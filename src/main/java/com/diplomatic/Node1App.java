@@ -6,7 +6,10 @@ import akka.actor.typed.Behavior;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.cluster.typed.Cluster;
 import com.diplomatic.actors.infrastructure.ClusterSupervisorActor;
+import com.diplomatic.messages.LLMStreamChunkMessage;
+import com.diplomatic.messages.LLMStreamEndMessage;
 import com.diplomatic.messages.SessionCreatedMessage;
+import com.diplomatic.metrics.MetricsEndpoint;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -20,6 +23,7 @@ public class Node1App {
     private static ActorRef<ClusterSupervisorActor.Command> supervisorRef;
     private static ActorSystem<Void> system;
     private static volatile boolean clusterReady = false;
+    private static boolean streaming = false;
 
     public static void main(String[] args) {
         Config config = ConfigFactory.parseFile(
@@ -35,6 +39,9 @@ public class Node1App {
         System.out.println("✓ Provider: " + config.getString("akka.actor.provider"));
         System.out.println("✓ Port: " + config.getInt("akka.remote.artery.canonical.port"));
 
+        streaming = config.getBoolean("diplomatic-assistant.streaming");
+        System.out.println("✓ Streaming responses: " + (streaming ? "on" : "off"));
+
         system = ActorSystem.create(
                 Behaviors.setup(context -> {
                     supervisorRef = context.spawn(
@@ -52,10 +59,14 @@ public class Node1App {
         );
 
         Cluster cluster = Cluster.get(system);
+        MetricsEndpoint metrics = MetricsEndpoint.start(system);
 
         System.out.println("\n🚀 Node 1 starting...");
         System.out.println("📍 Address: " + cluster.selfMember().address());
         System.out.println("🎭 Roles: " + cluster.selfMember().roles());
+        if (metrics != null) {
+            System.out.println("📊 Metrics: " + metrics.url());
+        }
         System.out.println("⏳ Waiting for cluster formation (need 2 nodes)...\n");
 
         // Monitor cluster readiness
@@ -127,9 +138,17 @@ public class Node1App {
 
             Behavior<SessionCreatedMessage> responseHandlerBehavior = Behaviors.receive(
                     (context, msg) -> {
-                        System.out.println("✅ Session created: " + msg.getSessionId());
-                        System.out.println("👤 User: " + msg.getUserId());
-                        sessionFuture.complete(msg.getSessionId());
+                        if ("rejected".equals(msg.getSessionId())) {
+                            System.err.println("❌ The assistant is at capacity. Please try again later.");
+                            sessionFuture.complete(null);
+                        } else if ("pending".equals(msg.getSessionId())) {
+                            System.err.println("❌ Cluster not ready yet!");
+                            sessionFuture.complete(null);
+                        } else {
+                            System.out.println("✅ Session created: " + msg.getSessionId());
+                            System.out.println("👤 User: " + msg.getUserId());
+                            sessionFuture.complete(msg.getSessionId());
+                        }
                         return Behaviors.stopped();
                     }
             );
@@ -176,27 +195,48 @@ public class Node1App {
 
         try {
             CompletableFuture<String> responseFuture = new CompletableFuture<>();
+            StringBuilder streamed = new StringBuilder();
 
-            Behavior<String> responseHandlerBehavior = Behaviors.receive(
+            // Receives the final answer (String) and, when streaming, the LLM chunks before it
+            Behavior<Object> responseHandlerBehavior = Behaviors.receive(
                     (context, msg) -> {
-                        responseFuture.complete(msg);
+                        if (msg instanceof LLMStreamChunkMessage) {
+                            if (streamed.isEmpty()) {
+                                printResponseHeader();
+                            }
+                            String text = ((LLMStreamChunkMessage) msg).getText();
+                            streamed.append(text);
+                            System.out.print(text);
+                            System.out.flush();
+                            return Behaviors.same();
+                        }
+                        if (msg instanceof LLMStreamEndMessage) {
+                            return Behaviors.same();
+                        }
+                        responseFuture.complete((String) msg);
                         return Behaviors.stopped();
                     }
             );
 
-            ActorRef<String> responseHandler =
+            ActorRef<Object> responseHandler =
                     system.systemActorOf(responseHandlerBehavior,
                             "query-response-" + System.currentTimeMillis(),
                             akka.actor.typed.Props.empty());
 
-            supervisorRef.tell(new ClusterSupervisorActor.RouteQuery(sessionId, query, responseHandler));
+            supervisorRef.tell(new ClusterSupervisorActor.RouteQuery(
+                    sessionId, query, responseHandler.narrow(), streaming ? responseHandler.narrow() : null));
 
             String response = responseFuture.get(30, TimeUnit.SECONDS);
 
-            System.out.println("\n╔═══════════════════════════════════════════════════════════════╗");
-            System.out.println("║  DIPLOMATIC ASSISTANT RESPONSE                                ║");
-            System.out.println("╚═══════════════════════════════════════════════════════════════╝\n");
-            System.out.println(response);
+            if (streamed.length() == 0) {
+                printResponseHeader();
+                System.out.println(response);
+            } else if (response.startsWith(streamed.toString())) {
+                // Anything the session appended after the LLM text, e.g. the primitive tag
+                System.out.println(response.substring(streamed.length()));
+            } else {
+                System.out.println("\n\n" + response);
+            }
             System.out.println("\n" + "─".repeat(63) + "\n");
 
         } catch (Exception e) {
@@ -205,6 +245,12 @@ public class Node1App {
         }
     }
 
+    private static void printResponseHeader() {
+        System.out.println("\n╔═══════════════════════════════════════════════════════════════╗");
+        System.out.println("║  DIPLOMATIC ASSISTANT RESPONSE                                ║");
+        System.out.println("╚═══════════════════════════════════════════════════════════════╝\n");
+    }
+
     private static void printHelp() {
         System.out.println("\n╔═══════════════════════════════════════════════════════════════╗");
         System.out.println("║  EXAMPLE QUERIES                                              ║");
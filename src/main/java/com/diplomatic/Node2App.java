@@ -3,6 +3,7 @@ package com.diplomatic;
 import akka.actor.typed.ActorSystem;
 import akka.cluster.typed.Cluster;
 import com.diplomatic.actors.intelligence.IntelligenceNodeSupervisor;
+import com.diplomatic.metrics.MetricsEndpoint;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -39,7 +40,7 @@ public class Node2App {
         System.out.println("✓ Provider: " + config.getString("akka.actor.provider"));
         System.out.println("✓ Port: " + config.getInt("akka.remote.artery.canonical.port"));
 
-        // Create actor system (apiProvider parameter is ignored now)
+        // The LLM backend comes from diplomatic-assistant.llm.backend; the provider applies to http and record
         ActorSystem<IntelligenceNodeSupervisor.Command> system = ActorSystem.create(
                 IntelligenceNodeSupervisor.create(apiKey, "CLAUDE"),
                 "DiplomaticAssistantSystem",
@@ -47,10 +48,14 @@ public class Node2App {
         );
 
         Cluster cluster = Cluster.get(system);
+        MetricsEndpoint metrics = MetricsEndpoint.start(system);
 
         System.out.println("\n🚀 Node 2 starting...");
         System.out.println("📍 Address: " + cluster.selfMember().address());
         System.out.println("🎭 Roles: " + cluster.selfMember().roles());
+        if (metrics != null) {
+            System.out.println("📊 Metrics: " + metrics.url());
+        }
         System.out.println("⏳ Waiting for cluster formation (need 2 nodes)...\n");
 
         // Initialize intelligence actors after a delay to ensure cluster is formed
@@ -0,0 +1,179 @@
+package com.diplomatic.actors.infrastructure;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.Routers;
+import akka.actor.typed.javadsl.TimerScheduler;
+import akka.actor.typed.receptionist.ServiceKey;
+import com.diplomatic.messages.BatchProtocol;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node 1 side of request batching. Accepts single requests like a router would,
+ * collects them for up to {@code batching.linger} or {@code batching.max-batch-size}
+ * items, and sends them to an intelligence node as one envelope. Batched results
+ * coming back are unpacked and each result is delivered to the original replyTo by
+ * correlation id.
+ *
+ * Requests without a correlation id cannot be matched in a batch and are routed
+ * individually instead.
+ */
+public class BatchingGateway<Q, B, R, BR> extends AbstractBehavior<Object> {
+
+    private static final Object FLUSH_TIMER = "flush";
+
+    private final Logger logger = LoggerFactory.getLogger(BatchingGateway.class);
+    private final BatchProtocol<Q, B, R, BR> protocol;
+    private final TimerScheduler<Object> timers;
+    private final ActorRef<B> batchTarget;
+    private final ActorRef<Q> singleTarget;
+    private final ActorRef<BR> resultAdapter;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final long replyTimeoutNanos;
+
+    private final List<Q> buffer = new ArrayList<>();
+    private final Map<String, Pending<R>> pending = new HashMap<>();
+    private long batchesSent = 0;
+    private long requestsBatched = 0;
+
+    private enum Flush { INSTANCE }
+
+    private enum ExpirePending { INSTANCE }
+
+    private static final class WrappedResults {
+        final Object batch;
+        WrappedResults(Object batch) {
+            this.batch = batch;
+        }
+    }
+
+    private static final class Pending<R> {
+        final ActorRef<R> replyTo;
+        final long deadlineNanos;
+
+        Pending(ActorRef<R> replyTo, long deadlineNanos) {
+            this.replyTo = replyTo;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    public static <Q, B, R, BR> Behavior<Q> create(
+            BatchProtocol<Q, B, R, BR> protocol,
+            ServiceKey<B> batchKey,
+            ServiceKey<Q> singleKey,
+            Config config) {
+        return Behaviors.<Object>setup(context -> Behaviors.withTimers(timers ->
+                new BatchingGateway<>(context, timers, protocol, batchKey, singleKey, config))).narrow();
+    }
+
+    private BatchingGateway(
+            ActorContext<Object> context,
+            TimerScheduler<Object> timers,
+            BatchProtocol<Q, B, R, BR> protocol,
+            ServiceKey<B> batchKey,
+            ServiceKey<Q> singleKey,
+            Config config) {
+        super(context);
+        this.protocol = protocol;
+        this.timers = timers;
+        Config batching = config.getConfig("diplomatic-assistant.batching");
+        this.maxBatchSize = batching.getInt("max-batch-size");
+        this.linger = batching.getDuration("linger");
+        Duration replyTimeout = config.getDuration("diplomatic-assistant.routing.reply-timeout");
+        this.replyTimeoutNanos = replyTimeout.toNanos();
+
+        this.batchTarget = context.spawn(Routers.group(batchKey).withRoundRobinRouting(), "batches");
+        this.singleTarget = context.spawn(Routers.group(singleKey).withRoundRobinRouting(), "singles");
+        this.resultAdapter = context.messageAdapter(protocol.batchResultType(), WrappedResults::new);
+
+        timers.startTimerWithFixedDelay(ExpirePending.INSTANCE, replyTimeout);
+        logger.info("Batching '{}' requests: up to {} per envelope, linger {}", protocol.name(), maxBatchSize, linger);
+    }
+
+    @Override
+    public Receive<Object> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(protocol.requestType(), this::onRequest)
+                .onMessage(WrappedResults.class, this::onResults)
+                .onMessageEquals(Flush.INSTANCE, this::onFlush)
+                .onMessageEquals(ExpirePending.INSTANCE, this::onExpirePending)
+                .build();
+    }
+
+    private Behavior<Object> onRequest(Q request) {
+        String correlationId = protocol.correlationId(request);
+        if (correlationId == null) {
+            singleTarget.tell(request);
+            return this;
+        }
+
+        pending.put(correlationId, new Pending<>(protocol.replyTo(request), System.nanoTime() + replyTimeoutNanos));
+        buffer.add(protocol.withReplyTo(request, null));
+        if (buffer.size() >= maxBatchSize) {
+            flush();
+        } else if (buffer.size() == 1) {
+            timers.startSingleTimer(FLUSH_TIMER, Flush.INSTANCE, linger);
+        }
+        return this;
+    }
+
+    private Behavior<Object> onFlush() {
+        flush();
+        return this;
+    }
+
+    private void flush() {
+        timers.cancel(FLUSH_TIMER);
+        if (buffer.isEmpty()) {
+            return;
+        }
+        batchTarget.tell(protocol.toBatch(new ArrayList<>(buffer), resultAdapter));
+        batchesSent++;
+        requestsBatched += buffer.size();
+        logger.debug("Sent '{}' batch of {} (average {})",
+                protocol.name(), buffer.size(), String.format("%.1f", (double) requestsBatched / batchesSent));
+        buffer.clear();
+    }
+
+    private Behavior<Object> onResults(WrappedResults wrapped) {
+        BR batch = protocol.batchResultType().cast(wrapped.batch);
+        for (R result : protocol.resultsOf(batch)) {
+            Pending<R> waiter = pending.remove(protocol.resultCorrelationId(result));
+            if (waiter == null) {
+                logger.warn("Dropping late '{}' result {}", protocol.name(), protocol.resultCorrelationId(result));
+            } else if (waiter.replyTo != null) {
+                waiter.replyTo.tell(result);
+            }
+        }
+        return this;
+    }
+
+    private Behavior<Object> onExpirePending() {
+        long now = System.nanoTime();
+        int before = pending.size();
+        Iterator<Pending<R>> it = pending.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().deadlineNanos - now < 0) {
+                it.remove();
+            }
+        }
+        if (pending.size() < before) {
+            logger.warn("Gave up on {} '{}' requests without a result", before - pending.size(), protocol.name());
+        }
+        return this;
+    }
+}
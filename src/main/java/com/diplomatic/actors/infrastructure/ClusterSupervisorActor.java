@@ -12,7 +12,9 @@ import akka.cluster.typed.Cluster;
 import akka.cluster.typed.Subscribe;
 import akka.cluster.ClusterEvent;
 import com.diplomatic.actors.intelligence.IntelligenceNodeSupervisor;
+import com.diplomatic.jfr.JfrEvents;
 import com.diplomatic.messages.*;
+import com.diplomatic.metrics.PipelineDispatchers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,9 +30,14 @@ public class ClusterSupervisorActor extends AbstractBehavior<ClusterSupervisorAc
     private final ActorRef<SessionManagerActor.Command> sessionManager;
     private boolean clusterReady = false;
 
-    private ActorRef<RouteToClassifierMessage> discoveredClassifier;
-    private ActorRef<CulturalAnalysisRequestMessage> discoveredCultural;
-    private ActorRef<DiplomaticPrimitiveRequestMessage> discoveredPrimitives;
+    // Group routers over every registered instance of each intelligence actor
+    private final ActorRef<RouteToClassifierMessage> classifierRouter;
+    private final ActorRef<CulturalAnalysisRequestMessage> culturalRouter;
+    private final ActorRef<DiplomaticPrimitiveRequestMessage> primitivesRouter;
+    private int classifierInstances = 0;
+    private int culturalInstances = 0;
+    private int primitivesInstances = 0;
+    private boolean intelligenceConfigured = false;
 
     public static final ServiceKey<Command> SUPERVISOR_KEY =
             ServiceKey.create(Command.class, "cluster-supervisor");
@@ -57,11 +64,19 @@ public class ClusterSupervisorActor extends AbstractBehavior<ClusterSupervisorAc
         public final String sessionId;
         public final String query;
         public final ActorRef<String> replyTo;
+        // Optional: receives LLM output chunks before the complete answer arrives on replyTo
+        public final ActorRef<LLMStreamMessage> streamTo;
 
-        public RouteQuery(String sessionId, String query, ActorRef<String> replyTo) {
+        public RouteQuery(String sessionId, String query, ActorRef<String> replyTo,
+                          ActorRef<LLMStreamMessage> streamTo) {
             this.sessionId = sessionId;
             this.query = query;
             this.replyTo = replyTo;
+            this.streamTo = streamTo;
+        }
+
+        public RouteQuery(String sessionId, String query, ActorRef<String> replyTo) {
+            this(sessionId, query, replyTo, null);
         }
     }
 
@@ -97,6 +112,7 @@ public class ClusterSupervisorActor extends AbstractBehavior<ClusterSupervisorAc
     private ClusterSupervisorActor(ActorContext<Command> context) {
         super(context);
         this.cluster = Cluster.get(context.getSystem());
+        JfrEvents.registerIfEnabled(context.getSystem());
 
         context.getSystem().receptionist().tell(
                 Receptionist.register(SUPERVISOR_KEY, context.getSelf())
@@ -104,15 +120,23 @@ public class ClusterSupervisorActor extends AbstractBehavior<ClusterSupervisorAc
 
         this.sessionManager = context.spawn(
                 SessionManagerActor.create(),
-                "session-manager"
+                "session-manager",
+                PipelineDispatchers.select(context.getSystem(), PipelineDispatchers.SUPERVISOR)
         );
 
+        var config = context.getSystem().settings().config();
+        this.classifierRouter = context.spawn(IntelligenceRouters.classifier(config), "classifier-router");
+        this.culturalRouter = context.spawn(IntelligenceRouters.cultural(config), "cultural-router");
+        this.primitivesRouter = context.spawn(IntelligenceRouters.primitives(config), "primitives-router");
+
         System.out.println("╔══════════════════════════════════════════════════════════╗");
         System.out.println("║  NODE 1: Infrastructure Supervisor Started              ║");
         System.out.println("║  Actors: SessionManager, ConversationHistory             ║");
         System.out.println("╚══════════════════════════════════════════════════════════╝");
         logger.info("ClusterSupervisor registered with receptionist");
         logger.info("SessionManager spawned as regular actor");
+        logger.info("Intelligence routers spawned with strategy: {}",
+                config.getString("diplomatic-assistant.routing.strategy"));
     }
 
     // ========================================================================
@@ -157,29 +181,22 @@ public class ClusterSupervisorActor extends AbstractBehavior<ClusterSupervisorAc
 
     private Behavior<Command> onActorsRegistered(ActorsRegistered msg) {
         if (msg.listing.isForKey(IntelligenceNodeSupervisor.CLASSIFIER_KEY)) {
-            var instances = msg.listing.getServiceInstances(IntelligenceNodeSupervisor.CLASSIFIER_KEY);
-            if (!instances.isEmpty()) {
-                discoveredClassifier = instances.iterator().next();
-                logger.info("✅ Classifier actor discovered: {}", discoveredClassifier);
-            }
+            classifierInstances = msg.listing.getServiceInstances(IntelligenceNodeSupervisor.CLASSIFIER_KEY).size();
+            logger.info("✅ Classifier instances available: {}", classifierInstances);
         } else if (msg.listing.isForKey(IntelligenceNodeSupervisor.CULTURAL_KEY)) {
-            var instances = msg.listing.getServiceInstances(IntelligenceNodeSupervisor.CULTURAL_KEY);
-            if (!instances.isEmpty()) {
-                discoveredCultural = instances.iterator().next();
-                logger.info("✅ Cultural actor discovered: {}", discoveredCultural);
-            }
+            culturalInstances = msg.listing.getServiceInstances(IntelligenceNodeSupervisor.CULTURAL_KEY).size();
+            logger.info("✅ Cultural instances available: {}", culturalInstances);
         } else if (msg.listing.isForKey(IntelligenceNodeSupervisor.PRIMITIVES_KEY)) {
-            var instances = msg.listing.getServiceInstances(IntelligenceNodeSupervisor.PRIMITIVES_KEY);
-            if (!instances.isEmpty()) {
-                discoveredPrimitives = instances.iterator().next();
-                logger.info("✅ Primitives actor discovered: {}", discoveredPrimitives);
-            }
+            primitivesInstances = msg.listing.getServiceInstances(IntelligenceNodeSupervisor.PRIMITIVES_KEY).size();
+            logger.info("✅ Primitives instances available: {}", primitivesInstances);
         }
 
-        if (discoveredClassifier != null && discoveredCultural != null && discoveredPrimitives != null) {
+        // Routers track membership themselves, so SessionManager only needs them once
+        if (!intelligenceConfigured && classifierInstances > 0 && culturalInstances > 0 && primitivesInstances > 0) {
+            intelligenceConfigured = true;
             logger.info("🔗 All intelligence actors discovered - configuring SessionManager");
             sessionManager.tell(new SessionManagerActor.SetIntelligenceActors(
-                    discoveredClassifier, discoveredCultural, discoveredPrimitives));
+                    classifierRouter, culturalRouter, primitivesRouter));
         }
 
         return this;
@@ -259,7 +276,8 @@ public class ClusterSupervisorActor extends AbstractBehavior<ClusterSupervisorAc
         sessionManager.tell(new SessionManagerActor.RouteToSession(
                 cmd.sessionId,
                 cmd.query,
-                cmd.replyTo
+                cmd.replyTo,
+                cmd.streamTo
         ));
 
         return this;
@@ -1,23 +1,48 @@
 package com.diplomatic.actors.infrastructure;
 import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import com.diplomatic.jfr.HistoryAppendEvent;
+import com.diplomatic.jfr.JfrEvents;
 import com.diplomatic.messages.SaveConversationMessage;
+import com.diplomatic.metrics.LatencyHistogram;
+import com.diplomatic.metrics.MetricsRegistry;
+import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+
+/**
+ * Stores conversation turns in a durable {@link ConversationLog}. Saves are appended to
+ * the mapped log and acknowledged at once; the log is forced to disk when flush-batch
+ * records have accumulated or every flush-interval, whichever comes first.
+ *
+ * Recent turns are also held in a {@link SessionHistoryCache}: a ring buffer per session
+ * under a global byte budget. With persistence off the cache is the only store and
+ * sessions it evicts are gone.
+ */
 public class ConversationHistoryActor extends AbstractBehavior<ConversationHistoryActor.Command> {
 
     private final Logger logger = LoggerFactory.getLogger(ConversationHistoryActor.class);
-    private final Map<String, List<ConversationTurn>> conversationHistory;
+    private final ConversationLog conversationLog;
+    private final SessionHistoryCache recentTurns;
+    private final int flushBatch;
     private int totalConversationsSaved = 0;
+    private final LatencyHistogram saveLatency;
+    private final LatencyHistogram readLatency;
+    private final LatencyHistogram flushLatency;
 
     public interface Command {}
 
+    private enum Flush implements Command { INSTANCE }
+
     public static final class SaveConversation implements Command {
         public final SaveConversationMessage message;
         public SaveConversation(SaveConversationMessage message) {
@@ -37,6 +62,14 @@ public class ConversationHistoryActor extends AbstractBehavior<ConversationHisto
         private GetStats() {}
     }
 
+    /** Drops a finished session from memory and the log's index; its turns age out with their segments. */
+    public static final class EvictSession implements Command {
+        public final String sessionId;
+        public EvictSession(String sessionId) {
+            this.sessionId = sessionId;
+        }
+    }
+
     public static final class ClearHistory implements Command {
         public final String sessionId;
         public ClearHistory(String sessionId) {
@@ -44,14 +77,38 @@ public class ConversationHistoryActor extends AbstractBehavior<ConversationHisto
         }
     }
 
-    private ConversationHistoryActor(ActorContext<Command> context) {
+    private ConversationHistoryActor(ActorContext<Command> context, TimerScheduler<Command> timers, Config historyConfig) {
         super(context);
-        this.conversationHistory = new HashMap<>();
-        logger.info("ConversationHistoryActor initialized");
+        int turnsPerSession = historyConfig.getInt("memory.turns-per-session");
+        this.recentTurns = new SessionHistoryCache(turnsPerSession, historyConfig.getBytes("memory.max-bytes"));
+        this.flushBatch = historyConfig.getInt("flush-batch");
+        MetricsRegistry metrics = MetricsRegistry.forSystem(context.getSystem());
+        this.saveLatency = metrics.stage("history_save");
+        this.readLatency = metrics.stage("history_read");
+        this.flushLatency = metrics.stage("history_flush");
+        if (historyConfig.getBoolean("persistent")) {
+            this.conversationLog = new ConversationLog(
+                    Paths.get(historyConfig.getString("directory")),
+                    historyConfig.getBytes("segment-bytes"),
+                    turnsPerSession,
+                    historyConfig.getInt("max-segments"));
+            timers.startTimerWithFixedDelay(Flush.INSTANCE, historyConfig.getDuration("flush-interval"));
+            logger.info("ConversationHistoryActor initialized with {} recovered sessions",
+                    conversationLog.sessionCount());
+        } else {
+            this.conversationLog = null;
+            logger.info("ConversationHistoryActor initialized (in-memory only)");
+        }
     }
 
     public static Behavior<Command> create() {
-        return Behaviors.setup(ConversationHistoryActor::new);
+        return Behaviors.setup(context -> create(
+                context.getSystem().settings().config().getConfig("diplomatic-assistant.history")));
+    }
+
+    public static Behavior<Command> create(Config historyConfig) {
+        return Behaviors.setup(context -> Behaviors.withTimers(timers ->
+                new ConversationHistoryActor(context, timers, historyConfig)));
     }
 
     @Override
@@ -61,6 +118,9 @@ public class ConversationHistoryActor extends AbstractBehavior<ConversationHisto
                 .onMessage(GetHistory.class, this::onGetHistory)
                 .onMessage(GetStats.class, this::onGetStats)
                 .onMessage(ClearHistory.class, this::onClearHistory)
+                .onMessage(EvictSession.class, this::onEvictSession)
+                .onMessage(Flush.class, msg -> onFlush())
+                .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
@@ -70,17 +130,46 @@ public class ConversationHistoryActor extends AbstractBehavior<ConversationHisto
         String response = cmd.message.getResponse();
         logger.info("Saving conversation for session {}: query length={}, response length={}",
                 sessionId, query.length(), response.length());
-        ConversationTurn turn = new ConversationTurn(Instant.now(), query, response);
-        conversationHistory.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(turn);
+        long start = System.nanoTime();
+        HistoryAppendEvent event = JfrEvents.begin(HistoryAppendEvent::new);
+        boolean flushed = false;
+        long timestamp = System.currentTimeMillis();
+        if (conversationLog != null) {
+            if (!recentTurns.contains(sessionId)) {
+                // Warm the ring from disk first so it doesn't start over with this one turn
+                recentTurns.load(sessionId, conversationLog.read(sessionId));
+            }
+            conversationLog.append(sessionId, timestamp, query, response);
+            if (conversationLog.unflushedRecords() >= flushBatch) {
+                flush();
+                flushed = true;
+            }
+        }
+        recentTurns.add(sessionId, new ConversationLog.Turn(timestamp, query, response));
+        saveLatency.recordSince(start);
+        if (JfrEvents.end(event)) {
+            event.sessionId = sessionId;
+            event.turnBytes = JfrEvents.utf8Length(query) + JfrEvents.utf8Length(response);
+            event.flushed = flushed;
+            event.commit();
+        }
         totalConversationsSaved++;
-        int turnCount = conversationHistory.get(sessionId).size();
+        int turnCount = recentTurns.turnCount(sessionId);
         logger.info("Conversation saved. Session {} now has {} turns. Total conversations: {}",
                 sessionId, turnCount, totalConversationsSaved);
         return this;
     }
 
     private Behavior<Command> onGetHistory(GetHistory cmd) {
-        List<ConversationTurn> history = conversationHistory.get(cmd.sessionId);
+        long start = System.nanoTime();
+        List<ConversationLog.Turn> history = recentTurns.get(cmd.sessionId);
+        if (history == null && conversationLog != null) {
+            history = conversationLog.read(cmd.sessionId);
+            if (!history.isEmpty()) {
+                recentTurns.load(cmd.sessionId, history);
+            }
+        }
+        readLatency.recordSince(start);
         if (history == null || history.isEmpty()) {
             logger.info("No conversation history found for session: {}", cmd.sessionId);
         } else {
@@ -93,31 +182,71 @@ public class ConversationHistoryActor extends AbstractBehavior<ConversationHisto
 
     private Behavior<Command> onGetStats(GetStats cmd) {
         logger.info("=== Conversation History Statistics ===");
-        logger.info("Total sessions: {}", conversationHistory.size());
         logger.info("Total conversations saved: {}", totalConversationsSaved);
-        for (Map.Entry<String, List<ConversationTurn>> entry : conversationHistory.entrySet()) {
-            logger.info("  Session {}: {} turns", entry.getKey(), entry.getValue().size());
+        logger.info("Sessions in memory: {} ({} bytes, {} evicted)",
+                recentTurns.sessionCount(), recentTurns.bytes(), recentTurns.evictions());
+        for (String sessionId : recentTurns.sessions()) {
+            logger.info("  Session {}: {} recent turns", sessionId, recentTurns.turnCount(sessionId));
+        }
+        if (conversationLog != null) {
+            logger.info("Sessions in log: {}, segments: {}, flushes: {}",
+                    conversationLog.sessionCount(), conversationLog.segmentCount(), conversationLog.flushes());
         }
         return this;
     }
 
     private Behavior<Command> onClearHistory(ClearHistory cmd) {
-        List<ConversationTurn> removed = conversationHistory.remove(cmd.sessionId);
-        if (removed != null) {
+        int removed = Math.max(recentTurns.turnCount(cmd.sessionId),
+                conversationLog == null ? 0 : conversationLog.turnCount(cmd.sessionId));
+        recentTurns.remove(cmd.sessionId);
+        if (removed > 0) {
+            if (conversationLog != null) {
+                conversationLog.clear(cmd.sessionId);
+            }
             logger.info("Cleared {} conversation turns for session: {}",
-                    removed.size(), cmd.sessionId);
+                    removed, cmd.sessionId);
         } else {
             logger.info("No history to clear for session: {}", cmd.sessionId);
         }
         return this;
     }
 
-    private void printConversationHistory(String sessionId, List<ConversationTurn> history) {
+    private Behavior<Command> onEvictSession(EvictSession cmd) {
+        if (conversationLog != null) {
+            conversationLog.evict(cmd.sessionId);
+        }
+        if (recentTurns.remove(cmd.sessionId)) {
+            logger.info("Evicted session {} from memory ({} bytes still held)", cmd.sessionId, recentTurns.bytes());
+        }
+        return this;
+    }
+
+    private Behavior<Command> onFlush() {
+        if (conversationLog.unflushedRecords() > 0) {
+            flush();
+        }
+        return this;
+    }
+
+    private void flush() {
+        long start = System.nanoTime();
+        conversationLog.flush();
+        flushLatency.recordSince(start);
+    }
+
+    private Behavior<Command> onPostStop() {
+        if (conversationLog != null) {
+            conversationLog.close();
+        }
+        return this;
+    }
+
+    private void printConversationHistory(String sessionId, List<ConversationLog.Turn> history) {
         logger.info("=== Conversation History for Session: {} ===", sessionId);
         DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
         for (int i = 0; i < history.size(); i++) {
-            ConversationTurn turn = history.get(i);
-            logger.info("Turn {}: [{}]", i + 1, turn.timestamp);
+            ConversationLog.Turn turn = history.get(i);
+            logger.info("Turn {}: [{}]", i + 1, Instant.ofEpochMilli(turn.timestamp));
             logger.info("  Query: {}", truncate(turn.query, 100));
             logger.info("  Response: {}", truncate(turn.response, 100));
         }
@@ -129,15 +258,4 @@ public class ConversationHistoryActor extends AbstractBehavior<ConversationHisto
         }
         return text.substring(0, maxLength) + "...";
     }
-
-    private static class ConversationTurn {
-        final Instant timestamp;
-        final String query;
-        final String response;
-        ConversationTurn(Instant timestamp, String query, String response) {
-            this.timestamp = timestamp;
-            this.query = query;
-            this.response = response;
-        }
-    }
 }
@@ -0,0 +1,432 @@
+package com.diplomatic.actors.infrastructure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented, append-only log of conversation turns behind {@link ConversationHistoryActor}.
+ *
+ * Records are written into fixed-size memory-mapped segments ({@code conversation-N.log})
+ * and read back straight from the mapping. Appends only touch memory; {@link #flush()}
+ * forces the active segment to disk and is called in batches by the owner (group commit).
+ * When a segment fills up it is forced, sealed and a sparse index ({@code conversation-N.idx})
+ * listing each session's record offsets is written next to it, so recovery only has to
+ * scan the active segment.
+ *
+ * Record layout: magic, crc32(body), bodyLength, body. Body: type, timestamp, session,
+ * query, response. Clearing a session appends a tombstone. Only the newest
+ * maxIndexedTurns of a session stay indexed in heap; older ones remain on disk.
+ *
+ * At most maxSegments segments are kept: when a roll goes past that, the oldest sealed
+ * segments are deleted along with the turns they hold. {@link #evict(String)} drops a
+ * finished session from the heap index without writing anything; its records age out
+ * with their segments. Not thread-safe.
+ */
+public class ConversationLog implements AutoCloseable {
+
+    private static final int RECORD_MAGIC = 0x434F4E56;
+    private static final int RECORD_HEADER = 4 + 4 + 4;
+    private static final int INDEX_MAGIC = 0x49445831;
+    private static final byte TURN = 1;
+    private static final byte CLEAR = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(ConversationLog.class);
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxIndexedTurns;
+    private final int maxSegments;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    /** Session -> positions of its live turns, packed as (segment << 32 | offset). */
+    private final Map<String, List<Long>> index = new HashMap<>();
+    /** Session -> record offsets in the active segment, written out as its .idx on seal. */
+    private final Map<String, List<Integer>> activeEntries = new LinkedHashMap<>();
+    private int unflushed = 0;
+    private long flushes = 0;
+
+    public static final class Turn {
+        public final long timestamp;
+        public final String query;
+        public final String response;
+
+        Turn(long timestamp, String query, String response) {
+            this.timestamp = timestamp;
+            this.query = query;
+            this.response = response;
+        }
+    }
+
+    private static final class Segment {
+        final long number;
+        final MappedByteBuffer buffer;
+
+        Segment(long number, MappedByteBuffer buffer) {
+            this.number = number;
+            this.buffer = buffer;
+        }
+    }
+
+    public ConversationLog(Path directory, long segmentBytes) {
+        this(directory, segmentBytes, Integer.MAX_VALUE);
+    }
+
+    public ConversationLog(Path directory, long segmentBytes, int maxIndexedTurns) {
+        this(directory, segmentBytes, maxIndexedTurns, Integer.MAX_VALUE);
+    }
+
+    public ConversationLog(Path directory, long segmentBytes, int maxIndexedTurns, int maxSegments) {
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("maxSegments must be at least 1, was " + maxSegments);
+        }
+        this.directory = directory;
+        this.segmentBytes = (int) Math.min(Integer.MAX_VALUE, segmentBytes);
+        this.maxIndexedTurns = maxIndexedTurns;
+        this.maxSegments = maxSegments;
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            recover();
+            if (active == null) {
+                active = openSegment(0);
+            }
+            deleteOldSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open conversation log in " + directory, e);
+        }
+        logger.info("Conversation log opened at {}: {} segments, {} sessions, recovered in {} ms",
+                directory, segments.size(), index.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public void append(String sessionId, long timestamp, String query, String response) {
+        int offset = write(TURN, sessionId, timestamp, query, response);
+        indexTurn(sessionId, position(active.number, offset));
+    }
+
+    public void clear(String sessionId) {
+        write(CLEAR, sessionId, System.currentTimeMillis(), "", "");
+        index.remove(sessionId);
+    }
+
+    /** Forgets a finished session in memory only; a later read finds nothing. */
+    public void evict(String sessionId) {
+        index.remove(sessionId);
+    }
+
+    public List<Turn> read(String sessionId) {
+        List<Long> positions = index.get(sessionId);
+        if (positions == null) {
+            return Collections.emptyList();
+        }
+        List<Turn> turns = new ArrayList<>(positions.size());
+        for (long position : positions) {
+            turns.add(decode(segments.get(position >>> 32).buffer, (int) position));
+        }
+        return turns;
+    }
+
+    public int turnCount(String sessionId) {
+        List<Long> positions = index.get(sessionId);
+        return positions == null ? 0 : positions.size();
+    }
+
+    public Iterable<String> sessions() { return index.keySet(); }
+    public int sessionCount() { return index.size(); }
+    public int segmentCount() { return segments.size(); }
+    public int unflushedRecords() { return unflushed; }
+    public long flushes() { return flushes; }
+
+    /** Forces appended records to disk; one fsync covers everything since the last flush. */
+    public void flush() {
+        if (unflushed > 0) {
+            active.buffer.force();
+            unflushed = 0;
+            flushes++;
+        }
+    }
+
+    private int write(byte type, String sessionId, long timestamp, String query, String response) {
+        byte[] body = encode(type, sessionId, timestamp, query, response);
+        int recordLength = RECORD_HEADER + body.length;
+        if (recordLength + 4 > segmentBytes) {
+            throw new IllegalArgumentException("Conversation record of " + recordLength
+                    + " bytes does not fit in a " + segmentBytes + " byte segment");
+        }
+        if (active.buffer.position() + recordLength + 4 > segmentBytes) {
+            roll();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        MappedByteBuffer buffer = active.buffer;
+        int offset = buffer.position();
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(offset + 8, body.length);
+        buffer.put(offset + RECORD_HEADER, body);
+        // Magic last, so a torn write is never mistaken for a record on recovery
+        buffer.putInt(offset, RECORD_MAGIC);
+        buffer.position(offset + recordLength);
+
+        activeEntries.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(offset);
+        unflushed++;
+        return offset;
+    }
+
+    private void roll() {
+        active.buffer.force();
+        unflushed = 0;
+        try {
+            writeIndex(active.number, activeEntries);
+            activeEntries.clear();
+            active = openSegment(active.number + 1);
+            deleteOldSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.info("Sealed conversation segment; now writing {}", segmentFile(active.number).getFileName());
+    }
+
+    /** Deletes the oldest sealed segments beyond maxSegments and unindexes the turns in them. */
+    private void deleteOldSegments() throws IOException {
+        if (segments.size() <= maxSegments) {
+            return;
+        }
+        long oldestKept = active.number;
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+            Files.deleteIfExists(indexFile(oldest.number));
+            // The mapping itself is released once the buffer is collected
+            Files.deleteIfExists(segmentFile(oldest.number));
+            oldestKept = segments.firstKey();
+        }
+        Iterator<List<Long>> sessions = index.values().iterator();
+        while (sessions.hasNext()) {
+            List<Long> positions = sessions.next();
+            int stale = 0;
+            while (stale < positions.size() && positions.get(stale) >>> 32 < oldestKept) {
+                stale++;
+            }
+            if (stale == positions.size()) {
+                sessions.remove();
+            } else if (stale > 0) {
+                positions.subList(0, stale).clear();
+            }
+        }
+        logger.info("Deleted conversation segments before {}; {} sessions still indexed",
+                segmentFile(oldestKept).getFileName(), index.size());
+    }
+
+    private void recover() throws IOException {
+        long[] numbers;
+        try (Stream<Path> listing = Files.list(directory)) {
+            numbers = listing
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("conversation-\\d+\\.log"))
+                    .mapToLong(name -> Long.parseLong(name.substring("conversation-".length(), name.length() - 4)))
+                    .sorted()
+                    .toArray();
+        }
+        for (int i = 0; i < numbers.length; i++) {
+            Segment segment = openSegment(numbers[i]);
+            boolean last = i == numbers.length - 1;
+            if (last || !loadIndex(segment)) {
+                Map<String, List<Integer>> entries = scan(segment);
+                if (last) {
+                    active = segment;
+                    activeEntries.putAll(entries);
+                } else {
+                    writeIndex(segment.number, entries);
+                }
+            }
+        }
+    }
+
+    /** Replays a sealed segment from its .idx without scanning the records. */
+    private boolean loadIndex(Segment segment) throws IOException {
+        Path file = indexFile(segment.number);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 8) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if (ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt() != (int) crc.getValue()) {
+            logger.warn("Ignoring corrupt index {}", file);
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                return false;
+            }
+            int sessionCount = in.readInt();
+            for (int s = 0; s < sessionCount; s++) {
+                String sessionId = in.readUTF();
+                int count = in.readInt();
+                for (int r = 0; r < count; r++) {
+                    int offset = in.readInt();
+                    apply(sessionId, segment.buffer.get(offset + RECORD_HEADER), position(segment.number, offset));
+                }
+            }
+        }
+        return true;
+    }
+
+    private Map<String, List<Integer>> scan(Segment segment) {
+        Map<String, List<Integer>> entries = new LinkedHashMap<>();
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + RECORD_HEADER <= segmentBytes && buffer.getInt(offset) == RECORD_MAGIC) {
+            int bodyLength = buffer.getInt(offset + 8);
+            if (bodyLength <= 0 || offset + RECORD_HEADER + bodyLength > segmentBytes) {
+                break;
+            }
+            byte[] body = new byte[bodyLength];
+            buffer.get(offset + RECORD_HEADER, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (buffer.getInt(offset + 4) != (int) crc.getValue()) {
+                logger.warn("Torn record at offset {} of segment {} - truncating", offset, segment.number);
+                break;
+            }
+            String sessionId = sessionOf(body);
+            entries.computeIfAbsent(sessionId, k -> new ArrayList<>()).add(offset);
+            apply(sessionId, body[0], position(segment.number, offset));
+            offset += RECORD_HEADER + bodyLength;
+        }
+        // Zero whatever follows the last good record so a torn tail can't resurface later
+        for (int i = offset; i < Math.min(segmentBytes, offset + RECORD_HEADER); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        buffer.position(offset);
+        return entries;
+    }
+
+    private void apply(String sessionId, byte type, long position) {
+        if (type == CLEAR) {
+            index.remove(sessionId);
+        } else {
+            indexTurn(sessionId, position);
+        }
+    }
+
+    private void indexTurn(String sessionId, long position) {
+        List<Long> positions = index.computeIfAbsent(sessionId, k -> new ArrayList<>());
+        positions.add(position);
+        if (positions.size() > maxIndexedTurns) {
+            positions.remove(0);
+        }
+    }
+
+    private void writeIndex(long number, Map<String, List<Integer>> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, List<Integer>> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (int offset : entry.getValue()) {
+                    out.writeInt(offset);
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        }
+        Path file = indexFile(number);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encode(byte type, String sessionId, long timestamp, String query, String response) {
+        byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+        byte[] q = query.getBytes(StandardCharsets.UTF_8);
+        byte[] r = response.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(1 + 8 + 2 + session.length + 4 + q.length + 4 + r.length);
+        body.put(type).putLong(timestamp);
+        body.putShort((short) session.length).put(session);
+        body.putInt(q.length).put(q);
+        body.putInt(r.length).put(r);
+        return body.array();
+    }
+
+    private static String sessionOf(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        int sessionLength = buffer.getShort(9) & 0xFFFF;
+        return new String(body, 11, sessionLength, StandardCharsets.UTF_8);
+    }
+
+    private static Turn decode(MappedByteBuffer buffer, int offset) {
+        int at = offset + RECORD_HEADER + 1;
+        long timestamp = buffer.getLong(at);
+        at += 8;
+        at += 2 + (buffer.getShort(at) & 0xFFFF);
+        int queryLength = buffer.getInt(at);
+        String query = string(buffer, at + 4, queryLength);
+        at += 4 + queryLength;
+        int responseLength = buffer.getInt(at);
+        String response = string(buffer, at + 4, responseLength);
+        return new Turn(timestamp, query, response);
+    }
+
+    private static String string(MappedByteBuffer buffer, int at, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Segment openSegment(long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segment segment = new Segment(number, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+            segments.put(number, segment);
+            return segment;
+        }
+    }
+
+    private Path segmentFile(long number) {
+        return directory.resolve("conversation-" + number + ".log");
+    }
+
+    private Path indexFile(long number) {
+        return directory.resolve("conversation-" + number + ".idx");
+    }
+
+    private static long position(long segment, int offset) {
+        return segment << 32 | offset;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -6,7 +6,22 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import akka.cluster.sharding.typed.javadsl.EntityTypeKey;
+import com.diplomatic.jfr.JfrEvents;
+import com.diplomatic.jfr.MessageHopEvent;
 import com.diplomatic.messages.*;
+import com.diplomatic.metrics.Counter;
+import com.diplomatic.metrics.LatencyHistogram;
+import com.diplomatic.metrics.MetricsRegistry;
+import com.diplomatic.tracing.Span;
+import com.diplomatic.tracing.SpanKind;
+import com.diplomatic.tracing.Tracer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * DiplomaticSessionActor - Orchestrates individual user sessions
@@ -15,22 +30,60 @@ import com.diplomatic.messages.*;
  * - TELL pattern: Fire-and-forget to history actor
  * - ASK pattern: Request-response via message adapters
  * - FORWARD pattern: Preserving sender context through routing
+ *
+ * Sessions run as Cluster Sharding entities keyed by sessionId, so they are
+ * spread across every infrastructure node and rebalanced when nodes join or leave.
+ * Commands therefore must be serializable.
+ *
+ * Each query carries a correlation id and its own reply target. The id travels through
+ * the classifier, cultural and primitive hops and comes back on their responses, so a
+ * session can have several queries in flight and answers are never crossed.
+ *
+ * Each query is also the root span of a trace. The session opens a client span per
+ * hop and puts its context on the outgoing message, so the spans recorded on the
+ * intelligence node line up under the query that caused them.
  */
 public class DiplomaticSessionActor extends AbstractBehavior<DiplomaticSessionActor.Command> {
 
-    public interface Command {}
+    public static final EntityTypeKey<Command> ENTITY_TYPE_KEY =
+            EntityTypeKey.create(Command.class, "DiplomaticSession");
 
-    public static class ProcessQuery implements Command {
-        public final String query;
-        public ProcessQuery(String query) {
-            this.query = query;
+    public interface Command extends CborSerializable {}
+
+    public static class StartSession implements Command {
+        public final String userId;
+
+        public StartSession(String userId) {
+            this.userId = userId;
         }
     }
 
-    public static class SetResponseHandler implements Command {
+    public static final class StopSession implements Command {
+        public static final StopSession INSTANCE = new StopSession();
+        private StopSession() {}
+    }
+
+    public static class ProcessQuery implements Command {
+        public final String correlationId;
+        public final String query;
         public final ActorRef<String> replyTo;
-        public SetResponseHandler(ActorRef<String> replyTo) {
+        // Optional target for streamed LLM output
+        public final ActorRef<LLMStreamMessage> streamTo;
+
+        public ProcessQuery(String correlationId, String query, ActorRef<String> replyTo,
+                            ActorRef<LLMStreamMessage> streamTo) {
+            this.correlationId = correlationId;
+            this.query = query;
             this.replyTo = replyTo;
+            this.streamTo = streamTo;
+        }
+
+        public ProcessQuery(String query, ActorRef<String> replyTo) {
+            this(UUID.randomUUID().toString(), query, replyTo, null);
+        }
+
+        public ProcessQuery(String query) {
+            this(query, null);
         }
     }
 
@@ -39,64 +92,177 @@ public class DiplomaticSessionActor extends AbstractBehavior<DiplomaticSessionAc
         public final ActorRef<CulturalAnalysisRequestMessage> culturalActor;
         public final ActorRef<DiplomaticPrimitiveRequestMessage> primitivesActor;
 
-        public SetIntelligenceActors(
-                ActorRef<RouteToClassifierMessage> classifierActor,
-                ActorRef<CulturalAnalysisRequestMessage> culturalActor,
-                ActorRef<DiplomaticPrimitiveRequestMessage> primitivesActor) {
+        public SetIntelligenceActors(ActorRef<RouteToClassifierMessage> classifierActor,
+                                     ActorRef<CulturalAnalysisRequestMessage> culturalActor,
+                                     ActorRef<DiplomaticPrimitiveRequestMessage> primitivesActor) {
             this.classifierActor = classifierActor;
             this.culturalActor = culturalActor;
             this.primitivesActor = primitivesActor;
         }
     }
 
-    private static class HandleClassification implements Command {
-        public final ClassificationResultMessage result;
-        public final String originalQuery;
-
-        public HandleClassification(ClassificationResultMessage result, String originalQuery) {
+    private static class WrappedClassification implements Command {
+        final ClassificationResultMessage result;
+        WrappedClassification(ClassificationResultMessage result) {
             this.result = result;
-            this.originalQuery = originalQuery;
+        }
+    }
+
+    private static class WrappedCulturalResponse implements Command {
+        final CulturalAnalysisResponseMessage response;
+        WrappedCulturalResponse(CulturalAnalysisResponseMessage response) {
+            this.response = response;
+        }
+    }
+
+    private static class WrappedPrimitiveResponse implements Command {
+        final DiplomaticPrimitiveResponseMessage response;
+        WrappedPrimitiveResponse(DiplomaticPrimitiveResponseMessage response) {
+            this.response = response;
+        }
+    }
+
+    private static class QueryTimedOut implements Command {
+        final String correlationId;
+        QueryTimedOut(String correlationId) {
+            this.correlationId = correlationId;
+        }
+    }
+
+    private static final class PendingQuery {
+        final String query;
+        final ActorRef<String> replyTo;
+        final ActorRef<LLMStreamMessage> streamTo;
+        final long startNanos = System.nanoTime();
+        long classifiedNanos;
+        final Span span;
+        // The hop currently awaited: classifier first, then cultural or primitive
+        Span hop;
+        // Null unless Flight Recorder is recording hops
+        MessageHopEvent hopEvent;
+
+        PendingQuery(ProcessQuery cmd, Span span) {
+            this.query = cmd.query;
+            this.replyTo = cmd.replyTo;
+            this.streamTo = cmd.streamTo;
+            this.span = span;
+        }
+
+        void end(String error) {
+            JfrEvents.endHop(hopEvent, error == null);
+            if (error != null) {
+                hop.setError(error);
+                span.setError(error);
+            }
+            hop.end();
+            span.end();
         }
     }
 
     private final String sessionId;
-    private final String userId;
+    private String userId;
     private final ActorRef<ConversationHistoryActor.Command> historyManager;
 
     private ActorRef<RouteToClassifierMessage> classifierActor;
     private ActorRef<CulturalAnalysisRequestMessage> culturalActor;
     private ActorRef<DiplomaticPrimitiveRequestMessage> primitivesActor;
-    private ActorRef<String> currentReplyTo;
+
+    private final TimerScheduler<Command> timers;
+    private final Duration queryTimeout;
+    private final Map<String, PendingQuery> pending = new HashMap<>();
+    // Registered once; replies are matched to queries by correlation id
+    private final ActorRef<ClassificationResultMessage> classificationAdapter;
+    private final ActorRef<CulturalAnalysisResponseMessage> culturalAdapter;
+    private final ActorRef<DiplomaticPrimitiveResponseMessage> primitiveAdapter;
+
+    // Round trips include the remote hops to the intelligence node
+    private final LatencyHistogram queryLatency;
+    private final LatencyHistogram classifyRoundTrip;
+    private final LatencyHistogram analysisRoundTrip;
+    private final Counter queryTimeouts;
+    private final Tracer tracer;
 
     public static Behavior<Command> create(
             String sessionId,
             String userId,
             ActorRef<ConversationHistoryActor.Command> historyManager) {
-        return Behaviors.setup(context -> new DiplomaticSessionActor(context, sessionId, userId, historyManager));
+        return Behaviors.setup(context -> Behaviors.withTimers(timers ->
+                new DiplomaticSessionActor(context, timers, sessionId, userId, historyManager)));
+    }
+
+    /**
+     * Entity factory used by Cluster Sharding. The user is attached later through
+     * {@link StartSession}; intelligence actors known on the hosting node are passed
+     * in directly so a freshly started entity can serve the message that woke it.
+     */
+    public static Behavior<Command> create(
+            String sessionId,
+            ActorRef<ConversationHistoryActor.Command> historyManager,
+            SetIntelligenceActors intelligenceActors) {
+        return Behaviors.setup(context -> Behaviors.withTimers(timers -> {
+            DiplomaticSessionActor session =
+                    new DiplomaticSessionActor(context, timers, sessionId, null, historyManager);
+            if (intelligenceActors != null) {
+                session.onSetIntelligenceActors(intelligenceActors);
+            }
+            return session;
+        }));
     }
 
     private DiplomaticSessionActor(
             ActorContext<Command> context,
+            TimerScheduler<Command> timers,
             String sessionId,
             String userId,
             ActorRef<ConversationHistoryActor.Command> historyManager) {
         super(context);
+        this.timers = timers;
         this.sessionId = sessionId;
         this.userId = userId;
         this.historyManager = historyManager;
+        this.queryTimeout = context.getSystem().settings().config()
+                .getDuration("diplomatic-assistant.query-timeout");
+        this.classificationAdapter = context.messageAdapter(
+                ClassificationResultMessage.class, WrappedClassification::new);
+        this.culturalAdapter = context.messageAdapter(
+                CulturalAnalysisResponseMessage.class, WrappedCulturalResponse::new);
+        this.primitiveAdapter = context.messageAdapter(
+                DiplomaticPrimitiveResponseMessage.class, WrappedPrimitiveResponse::new);
+        MetricsRegistry metrics = MetricsRegistry.forSystem(context.getSystem());
+        this.queryLatency = metrics.stage("session_query");
+        this.classifyRoundTrip = metrics.stage("classify_roundtrip");
+        this.analysisRoundTrip = metrics.stage("analysis_roundtrip");
+        this.queryTimeouts = metrics.counter("diplomatic_query_timeouts_total",
+                "Queries answered with a timeout message");
+        this.tracer = Tracer.forSystem(context.getSystem());
         context.getLog().info("DiplomaticSessionActor created for session: {}", sessionId);
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
+                .onMessage(StartSession.class, this::onStartSession)
+                .onMessage(StopSession.class, this::onStopSession)
                 .onMessage(SetIntelligenceActors.class, this::onSetIntelligenceActors)
-                .onMessage(SetResponseHandler.class, this::onSetResponseHandler)
                 .onMessage(ProcessQuery.class, this::onProcessQuery)
-                .onMessage(HandleClassification.class, this::onHandleClassification)
+                .onMessage(WrappedClassification.class, this::onClassification)
+                .onMessage(WrappedCulturalResponse.class, this::onCulturalResponse)
+                .onMessage(WrappedPrimitiveResponse.class, this::onPrimitiveResponse)
+                .onMessage(QueryTimedOut.class, this::onQueryTimedOut)
                 .build();
     }
 
+    private Behavior<Command> onStartSession(StartSession cmd) {
+        this.userId = cmd.userId;
+        getContext().getLog().info("Session {} started for user: {}", sessionId, userId);
+        return this;
+    }
+
+    private Behavior<Command> onStopSession(StopSession cmd) {
+        getContext().getLog().info("Stopping session: {}", sessionId);
+        return Behaviors.stopped();
+    }
+
     private Behavior<Command> onSetIntelligenceActors(SetIntelligenceActors cmd) {
         this.classifierActor = cmd.classifierActor;
         this.culturalActor = cmd.culturalActor;
@@ -105,105 +271,119 @@ public class DiplomaticSessionActor extends AbstractBehavior<DiplomaticSessionAc
         return this;
     }
 
-    private Behavior<Command> onSetResponseHandler(SetResponseHandler cmd) {
-        this.currentReplyTo = cmd.replyTo;
-        return this;
-    }
-
     private Behavior<Command> onProcessQuery(ProcessQuery cmd) {
-        // Ignore empty queries (used as no-op messages from adapters)
         if (cmd.query == null || cmd.query.trim().isEmpty()) {
             return this;
         }
 
-        getContext().getLog().info("Processing query for session {}: {}", sessionId, cmd.query);
+        getContext().getLog().info("Processing query {} for session {}: {}", cmd.correlationId, sessionId, cmd.query);
 
         if (classifierActor == null) {
             getContext().getLog().warn("Intelligence actors not configured for session: {}", sessionId);
-            if (currentReplyTo != null) {
-                currentReplyTo.tell("System initializing, please try again...");
+            if (cmd.replyTo != null) {
+                cmd.replyTo.tell("System initializing, please try again...");
             }
             return this;
         }
 
-        if (currentReplyTo == null) {
-            getContext().getLog().warn("No reply handler set for session: {}", sessionId);
+        if (pending.containsKey(cmd.correlationId)) {
+            getContext().getLog().warn("Duplicate query {} ignored for session {}", cmd.correlationId, sessionId);
             return this;
         }
 
-        // REQUIREMENT: ASK pattern (request-response via message adapter)
-        ActorRef<ClassificationResultMessage> adapter = getContext().messageAdapter(
-                ClassificationResultMessage.class,
-                result -> new HandleClassification(result, cmd.query)
-        );
+        Span span = tracer.startSpan("session.query", SpanKind.SERVER, null)
+                .setAttribute("session.id", sessionId)
+                .setAttribute("correlation.id", cmd.correlationId);
+        PendingQuery query = new PendingQuery(cmd, span);
+        query.hop = tracer.startSpan("classify", SpanKind.CLIENT, span.context());
+        query.hopEvent = JfrEvents.beginHop("classify", cmd.correlationId, query.hop.context());
+        pending.put(cmd.correlationId, query);
+        timers.startSingleTimer(cmd.correlationId, new QueryTimedOut(cmd.correlationId), queryTimeout);
 
-        classifierActor.tell(new RouteToClassifierMessage(sessionId, cmd.query, adapter));
-        getContext().getLog().info("Query sent to classifier for session: {}", sessionId);
+        // REQUIREMENT: ASK pattern (request-response via message adapter)
+        classifierActor.tell(new RouteToClassifierMessage(
+                cmd.correlationId, sessionId, cmd.query, classificationAdapter, query.hop.context()));
+        getContext().getLog().info("Query sent to classifier for session: {} ({} in flight, trace {})",
+                sessionId, pending.size(), span.context());
 
         return this;
     }
 
-    private Behavior<Command> onHandleClassification(HandleClassification cmd) {
-        getContext().getLog().info("Classification received: {} for session: {}",
-                cmd.result.getScenario(), sessionId);
-
-        if ("CULTURAL".equals(cmd.result.getScenario())) {
-            // Store context for later use in adapter
-            final String query = cmd.originalQuery;
-            final ActorRef<String> replyTo = currentReplyTo;
-
-            // REQUIREMENT: ASK pattern (request-response via message adapter)
-            ActorRef<CulturalAnalysisResponseMessage> adapter = getContext().messageAdapter(
-                    CulturalAnalysisResponseMessage.class,
-                    response -> {
-                        // Send response immediately in the adapter
-                        if (replyTo != null) {
-                            replyTo.tell(response.getAnalysis());
-                        }
-
-                        // REQUIREMENT: TELL pattern (fire-and-forget to history)
-                        historyManager.tell(new ConversationHistoryActor.SaveConversation(
-                                new SaveConversationMessage(sessionId, query, response.getAnalysis())));
-
-                        // Return a valid Command (no-op that doesn't cause side effects)
-                        return new SetResponseHandler(replyTo);
-                    }
-            );
-
-            // REQUIREMENT: FORWARD pattern (preserving original sender context)
-            culturalActor.tell(new CulturalAnalysisRequest(
-                    cmd.originalQuery, cmd.result.getDetectedCountry(), adapter));
-
+    private Behavior<Command> onClassification(WrappedClassification wrapped) {
+        ClassificationResultMessage result = wrapped.result;
+        PendingQuery query = pending.get(result.getCorrelationId());
+        if (query == null) {
+            getContext().getLog().warn("Late classification for query {} ignored", result.getCorrelationId());
+            return this;
+        }
+        query.classifiedNanos = System.nanoTime();
+        classifyRoundTrip.record(query.classifiedNanos - query.startNanos);
+        query.hop.end();
+        JfrEvents.endHop(query.hopEvent, true);
+        query.span.setAttribute("scenario", result.getScenario());
+        getContext().getLog().info("Classification received: {} for session: {}", result.getScenario(), sessionId);
+
+        // REQUIREMENT: FORWARD pattern (preserving original sender context)
+        if ("CULTURAL".equals(result.getScenario())) {
+            query.hop = tracer.startSpan("cultural", SpanKind.CLIENT, query.span.context());
+            query.hopEvent = JfrEvents.beginHop("cultural", result.getCorrelationId(), query.hop.context());
+            culturalActor.tell(new CulturalAnalysisRequest(result.getCorrelationId(), query.query,
+                    result.getDetectedCountry(), culturalAdapter, query.streamTo, query.hop.context()));
         } else {
-            // Store context for later use in adapter
-            final String query = cmd.originalQuery;
-            final ActorRef<String> replyTo = currentReplyTo;
-
-            // REQUIREMENT: ASK pattern (request-response via message adapter)
-            ActorRef<DiplomaticPrimitiveResponseMessage> adapter = getContext().messageAdapter(
-                    DiplomaticPrimitiveResponseMessage.class,
-                    response -> {
-                        String formatted = response.getResult() + "\n\n[Primitive: " + response.getPrimitive() + "]";
+            query.hop = tracer.startSpan("primitive", SpanKind.CLIENT, query.span.context());
+            query.hopEvent = JfrEvents.beginHop("primitive", result.getCorrelationId(), query.hop.context());
+            primitivesActor.tell(new DiplomaticPrimitiveRequestMessage(result.getCorrelationId(),
+                    result.getDetectedPrimitive(), query.query, primitiveAdapter, query.streamTo, query.hop.context()));
+        }
+        return this;
+    }
 
-                        // Send response immediately in the adapter
-                        if (replyTo != null) {
-                            replyTo.tell(formatted);
-                        }
+    private Behavior<Command> onCulturalResponse(WrappedCulturalResponse wrapped) {
+        complete(wrapped.response.getCorrelationId(), wrapped.response.getAnalysis());
+        return this;
+    }
 
-                        // REQUIREMENT: TELL pattern (fire-and-forget to history)
-                        historyManager.tell(new ConversationHistoryActor.SaveConversation(
-                                new SaveConversationMessage(sessionId, query, formatted)));
+    private Behavior<Command> onPrimitiveResponse(WrappedPrimitiveResponse wrapped) {
+        DiplomaticPrimitiveResponseMessage response = wrapped.response;
+        complete(response.getCorrelationId(),
+                response.getResult() + "\n\n[Primitive: " + response.getPrimitive() + "]");
+        return this;
+    }
 
-                        // Return a valid Command (no-op that doesn't cause side effects)
-                        return new SetResponseHandler(replyTo);
-                    }
-            );
+    private void complete(String correlationId, String answer) {
+        PendingQuery query = pending.remove(correlationId);
+        if (query == null) {
+            getContext().getLog().warn("Late answer for query {} ignored", correlationId);
+            return;
+        }
+        timers.cancel(correlationId);
 
-            // REQUIREMENT: FORWARD pattern (preserving original sender context)
-            primitivesActor.tell(new DiplomaticPrimitiveRequestMessage(
-                    cmd.result.getDetectedPrimitive(), cmd.originalQuery, adapter));
+        if (query.replyTo != null) {
+            query.replyTo.tell(answer);
+        }
+        long now = System.nanoTime();
+        queryLatency.record(now - query.startNanos);
+        if (query.classifiedNanos != 0) {
+            analysisRoundTrip.record(now - query.classifiedNanos);
         }
+        query.end(null);
 
+        // REQUIREMENT: TELL pattern (fire-and-forget to history)
+        historyManager.tell(new ConversationHistoryActor.SaveConversation(
+                new SaveConversationMessage(sessionId, query.query, answer)));
+    }
+
+    private Behavior<Command> onQueryTimedOut(QueryTimedOut timedOut) {
+        PendingQuery query = pending.remove(timedOut.correlationId);
+        if (query != null) {
+            queryTimeouts.increment();
+            query.end("timeout");
+            getContext().getLog().warn("Query {} timed out after {} for session {}",
+                    timedOut.correlationId, queryTimeout, sessionId);
+            if (query.replyTo != null) {
+                query.replyTo.tell("Sorry, that request took too long. Please try again.");
+            }
+        }
         return this;
     }
-}
\ No newline at end of file
+}
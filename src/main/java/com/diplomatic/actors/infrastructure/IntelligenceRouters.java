@@ -0,0 +1,90 @@
+package com.diplomatic.actors.infrastructure;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.GroupRouter;
+import akka.actor.typed.javadsl.Routers;
+import akka.actor.typed.receptionist.ServiceKey;
+import com.diplomatic.actors.intelligence.IntelligenceNodeSupervisor;
+import com.diplomatic.messages.*;
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Builds the group routers Node 1 uses to reach intelligence actors on every
+ * intelligence node, following receptionist membership as nodes come and go.
+ *
+ * Strategy comes from diplomatic-assistant.routing.strategy:
+ * "least-outstanding" (default), "round-robin" or "random". With
+ * diplomatic-assistant.batching.enabled, requests instead go through a
+ * {@link BatchingGateway} to the batch endpoints on the intelligence nodes.
+ */
+public final class IntelligenceRouters {
+
+    private IntelligenceRouters() {}
+
+    public static Behavior<RouteToClassifierMessage> classifier(Config config) {
+        if (batching(config)) {
+            return BatchingGateway.create(BatchProtocol.CLASSIFIER,
+                    IntelligenceNodeSupervisor.CLASSIFIER_BATCH_KEY, IntelligenceNodeSupervisor.CLASSIFIER_KEY, config);
+        }
+        return router(config, IntelligenceNodeSupervisor.CLASSIFIER_KEY, RouteToClassifierMessage.class,
+                RouteToClassifierMessage::getReplyTo,
+                (msg, replyTo) -> new RouteToClassifierMessage(
+                        msg.getCorrelationId(), msg.getSessionId(), msg.getQuery(), replyTo, msg.getTrace()));
+    }
+
+    public static Behavior<CulturalAnalysisRequestMessage> cultural(Config config) {
+        if (batching(config)) {
+            return BatchingGateway.create(BatchProtocol.CULTURAL,
+                    IntelligenceNodeSupervisor.CULTURAL_BATCH_KEY, IntelligenceNodeSupervisor.CULTURAL_KEY, config);
+        }
+        return router(config, IntelligenceNodeSupervisor.CULTURAL_KEY, CulturalAnalysisRequestMessage.class,
+                CulturalAnalysisRequestMessage::getReplyTo,
+                (msg, replyTo) -> new CulturalAnalysisRequest(
+                        msg.getCorrelationId(), msg.getQuery(), msg.getCountry(), replyTo, msg.getStreamTo(), msg.getTrace()));
+    }
+
+    public static Behavior<DiplomaticPrimitiveRequestMessage> primitives(Config config) {
+        if (batching(config)) {
+            return BatchingGateway.create(BatchProtocol.PRIMITIVES,
+                    IntelligenceNodeSupervisor.PRIMITIVES_BATCH_KEY, IntelligenceNodeSupervisor.PRIMITIVES_KEY, config);
+        }
+        return router(config, IntelligenceNodeSupervisor.PRIMITIVES_KEY, DiplomaticPrimitiveRequestMessage.class,
+                DiplomaticPrimitiveRequestMessage::getReplyTo,
+                (msg, replyTo) -> new DiplomaticPrimitiveRequestMessage(
+                        msg.getCorrelationId(), msg.getPrimitive(), msg.getQuery(), replyTo, msg.getStreamTo(), msg.getTrace()));
+    }
+
+    private static <M, R> Behavior<M> router(
+            Config config,
+            ServiceKey<M> key,
+            Class<M> type,
+            Function<M, ActorRef<R>> replyToOf,
+            BiFunction<M, ActorRef<R>, M> withReplyTo) {
+        Config routing = config.getConfig("diplomatic-assistant.routing");
+        String strategy = routing.getString("strategy");
+        switch (strategy) {
+            case "least-outstanding":
+                Duration replyTimeout = routing.getDuration("reply-timeout");
+                return LeastOutstandingRouter.create(key, type, replyToOf, withReplyTo, replyTimeout);
+            case "round-robin":
+                return group(key).withRoundRobinRouting();
+            case "random":
+                return group(key).withRandomRouting();
+            default:
+                throw new IllegalArgumentException("Unknown routing strategy: " + strategy);
+        }
+    }
+
+    private static boolean batching(Config config) {
+        return config.getBoolean("diplomatic-assistant.batching.enabled");
+    }
+
+    private static <M> GroupRouter<M> group(ServiceKey<M> key) {
+        return Routers.group(key);
+    }
+}
@@ -0,0 +1,173 @@
+package com.diplomatic.actors.infrastructure;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.receptionist.Receptionist;
+import akka.actor.typed.receptionist.ServiceKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Group router that sends each request to the registered instance with the fewest
+ * unanswered requests.
+ *
+ * Routees follow the receptionist listing for the service key. Every request gets a
+ * short-lived forwarder as its replyTo, so the router sees when the answer comes back
+ * (or when reply-timeout expires) and can release the slot.
+ */
+public class LeastOutstandingRouter<M, R> extends AbstractBehavior<Object> {
+
+    private static final int MAX_BUFFERED = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(LeastOutstandingRouter.class);
+    private final ServiceKey<M> serviceKey;
+    private final Class<M> requestType;
+    private final Function<M, ActorRef<R>> replyToOf;
+    private final BiFunction<M, ActorRef<R>, M> withReplyTo;
+    private final Duration replyTimeout;
+
+    private final List<ActorRef<M>> routees = new ArrayList<>();
+    private final Map<ActorRef<M>, Integer> outstanding = new HashMap<>();
+    private final ArrayDeque<M> buffered = new ArrayDeque<>();
+    private int nextIndex = 0;
+
+    private enum ReplyTimedOut { INSTANCE }
+
+    private static final class RequestDone {
+        final ActorRef<?> routee;
+        RequestDone(ActorRef<?> routee) {
+            this.routee = routee;
+        }
+    }
+
+    public static <M, R> Behavior<M> create(
+            ServiceKey<M> serviceKey,
+            Class<M> requestType,
+            Function<M, ActorRef<R>> replyToOf,
+            BiFunction<M, ActorRef<R>, M> withReplyTo,
+            Duration replyTimeout) {
+        return Behaviors.<Object>setup(context -> new LeastOutstandingRouter<>(
+                context, serviceKey, requestType, replyToOf, withReplyTo, replyTimeout)).narrow();
+    }
+
+    private LeastOutstandingRouter(
+            ActorContext<Object> context,
+            ServiceKey<M> serviceKey,
+            Class<M> requestType,
+            Function<M, ActorRef<R>> replyToOf,
+            BiFunction<M, ActorRef<R>, M> withReplyTo,
+            Duration replyTimeout) {
+        super(context);
+        this.serviceKey = serviceKey;
+        this.requestType = requestType;
+        this.replyToOf = replyToOf;
+        this.withReplyTo = withReplyTo;
+        this.replyTimeout = replyTimeout;
+
+        context.getSystem().receptionist().tell(
+                Receptionist.subscribe(serviceKey, context.getSelf().narrow()));
+    }
+
+    @Override
+    public Receive<Object> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(Receptionist.Listing.class, this::onListing)
+                .onMessage(RequestDone.class, this::onRequestDone)
+                .onMessage(requestType, this::onRequest)
+                .build();
+    }
+
+    private Behavior<Object> onListing(Receptionist.Listing listing) {
+        Set<ActorRef<M>> instances = listing.getServiceInstances(serviceKey);
+        routees.clear();
+        routees.addAll(instances);
+        outstanding.keySet().retainAll(instances);
+        for (ActorRef<M> routee : routees) {
+            outstanding.putIfAbsent(routee, 0);
+        }
+        logger.info("Router for '{}' now has {} routees", serviceKey.id(), routees.size());
+
+        while (!routees.isEmpty() && !buffered.isEmpty()) {
+            route(buffered.poll());
+        }
+        return this;
+    }
+
+    private Behavior<Object> onRequestDone(RequestDone done) {
+        outstanding.computeIfPresent(castRoutee(done.routee), (routee, count) -> Math.max(0, count - 1));
+        return this;
+    }
+
+    private Behavior<Object> onRequest(M request) {
+        if (routees.isEmpty()) {
+            if (buffered.size() >= MAX_BUFFERED) {
+                logger.warn("No routees for '{}' and buffer full - dropping request", serviceKey.id());
+            } else {
+                buffered.add(request);
+            }
+            return this;
+        }
+        route(request);
+        return this;
+    }
+
+    private void route(M request) {
+        ActorRef<M> target = leastLoaded();
+        outstanding.merge(target, 1, Integer::sum);
+
+        ActorRef<R> forwarder = getContext().spawnAnonymous(
+                replyForwarder(replyToOf.apply(request), getContext().getSelf(), target, replyTimeout));
+        target.tell(withReplyTo.apply(request, forwarder));
+    }
+
+    private ActorRef<M> leastLoaded() {
+        int size = routees.size();
+        int start = Math.floorMod(nextIndex++, size);
+        ActorRef<M> best = routees.get(start);
+        int bestCount = outstanding.getOrDefault(best, 0);
+        for (int i = 1; i < size && bestCount > 0; i++) {
+            ActorRef<M> candidate = routees.get((start + i) % size);
+            int count = outstanding.getOrDefault(candidate, 0);
+            if (count < bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ActorRef<M> castRoutee(ActorRef<?> routee) {
+        return (ActorRef<M>) routee;
+    }
+
+    private static <R> Behavior<R> replyForwarder(
+            ActorRef<R> originalReplyTo, ActorRef<Object> router, ActorRef<?> routee, Duration timeout) {
+        return Behaviors.<Object>setup(context -> {
+            context.setReceiveTimeout(timeout, ReplyTimedOut.INSTANCE);
+            return Behaviors.receiveMessage(message -> {
+                if (message != ReplyTimedOut.INSTANCE) {
+                    @SuppressWarnings("unchecked")
+                    R reply = (R) message;
+                    originalReplyTo.tell(reply);
+                }
+                router.tell(new RequestDone(routee));
+                return Behaviors.stopped();
+            });
+        }).narrow();
+    }
+}
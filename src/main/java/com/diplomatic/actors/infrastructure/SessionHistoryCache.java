@@ -0,0 +1,133 @@
+package com.diplomatic.actors.infrastructure;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-heap tier of conversation history used by {@link ConversationHistoryActor}.
+ *
+ * Each session keeps only its most recent turns in a fixed-size ring buffer, and the
+ * sum of all buffers is held under a byte budget by evicting the least recently active
+ * sessions. With the {@link ConversationLog} enabled an evicted session is only dropped
+ * from memory and is reloaded from disk on its next read. Not thread-safe.
+ */
+public class SessionHistoryCache {
+
+    private static final int TURN_OVERHEAD_BYTES = 48;
+
+    private final int turnsPerSession;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Ring> sessions = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+    private long evictions = 0;
+
+    /** Fixed-capacity ring of the newest turns of one session. */
+    private static final class Ring {
+        final ConversationLog.Turn[] turns;
+        int next = 0;
+        int size = 0;
+        long bytes = 0;
+
+        Ring(int capacity) {
+            this.turns = new ConversationLog.Turn[capacity];
+        }
+
+        /** Adds a turn and returns the change in retained bytes. */
+        long add(ConversationLog.Turn turn) {
+            long delta = sizeOf(turn);
+            ConversationLog.Turn overwritten = turns[next];
+            if (overwritten != null) {
+                delta -= sizeOf(overwritten);
+            }
+            turns[next] = turn;
+            next = (next + 1) % turns.length;
+            size = Math.min(size + 1, turns.length);
+            bytes += delta;
+            return delta;
+        }
+
+        List<ConversationLog.Turn> toList() {
+            List<ConversationLog.Turn> list = new ArrayList<>(size);
+            int start = (next - size + turns.length) % turns.length;
+            for (int i = 0; i < size; i++) {
+                list.add(turns[(start + i) % turns.length]);
+            }
+            return list;
+        }
+    }
+
+    public SessionHistoryCache(int turnsPerSession, long maxBytes) {
+        this.turnsPerSession = turnsPerSession;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Recent turns of the session, oldest first, or null when it is not held in memory. */
+    public List<ConversationLog.Turn> get(String sessionId) {
+        Ring ring = sessions.get(sessionId);
+        return ring == null ? null : ring.toList();
+    }
+
+    /** Whether the session's turns are held in memory; unlike {@link #get} it copies nothing. */
+    public boolean contains(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    public void add(String sessionId, ConversationLog.Turn turn) {
+        Ring ring = sessions.computeIfAbsent(sessionId, k -> new Ring(turnsPerSession));
+        bytes += ring.add(turn);
+        enforceBudget(sessionId);
+    }
+
+    /** Installs turns loaded from the log; only the newest turnsPerSession are kept. */
+    public void load(String sessionId, List<ConversationLog.Turn> turns) {
+        remove(sessionId);
+        Ring ring = new Ring(turnsPerSession);
+        for (int i = Math.max(0, turns.size() - turnsPerSession); i < turns.size(); i++) {
+            ring.add(turns.get(i));
+        }
+        sessions.put(sessionId, ring);
+        bytes += ring.bytes;
+        enforceBudget(sessionId);
+    }
+
+    public boolean remove(String sessionId) {
+        Ring removed = sessions.remove(sessionId);
+        if (removed != null) {
+            bytes -= removed.bytes;
+            return true;
+        }
+        return false;
+    }
+
+    public int turnCount(String sessionId) {
+        Ring ring = sessions.get(sessionId);
+        return ring == null ? 0 : ring.size;
+    }
+
+    public Iterable<String> sessions() { return sessions.keySet(); }
+    public int sessionCount() { return sessions.size(); }
+    public long bytes() { return bytes; }
+    public long evictions() { return evictions; }
+    public int turnsPerSession() { return turnsPerSession; }
+
+    private void enforceBudget(String keep) {
+        Iterator<Map.Entry<String, Ring>> eldest = sessions.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Ring> entry = eldest.next();
+            // The session being written is most recently used; never evict it for its own turn
+            if (entry.getKey().equals(keep)) {
+                break;
+            }
+            bytes -= entry.getValue().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long sizeOf(ConversationLog.Turn turn) {
+        return 2L * (turn.query.length() + turn.response.length()) + TURN_OVERHEAD_BYTES;
+    }
+}
@@ -6,27 +6,85 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import akka.cluster.sharding.typed.ClusterShardingSettings;
+import akka.cluster.sharding.typed.javadsl.ClusterSharding;
+import akka.cluster.sharding.typed.javadsl.Entity;
+import akka.cluster.sharding.typed.javadsl.EntityRef;
 import com.diplomatic.messages.*;
+import com.diplomatic.metrics.Counter;
+import com.diplomatic.metrics.LatencyHistogram;
+import com.diplomatic.metrics.MetricsRegistry;
+import com.diplomatic.metrics.PipelineDispatchers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.typesafe.config.Config;
+
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
-
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Creates sessions and routes queries to them.
+ *
+ * Sessions are Cluster Sharding entities ({@link DiplomaticSessionActor#ENTITY_TYPE_KEY})
+ * hosted on nodes with the configured infrastructure role, so adding infrastructure
+ * nodes adds room to host sessions. The registry below is local to this manager, though:
+ * only the manager that created a session can route to it, and any other node's manager
+ * answers "Session not found". Queries must keep entering through the creating node
+ * (Node 1's frontend), so extra nodes spread the entities, not the front door.
+ *
+ * Entities idle for session-timeout-minutes are passivated by sharding and come back on
+ * their next query. This manager keeps a small registry entry per session (user and last
+ * activity) so it can restore the user on revival and admit new sessions only while
+ * fewer than max-active-sessions have been active within the timeout. Entries idle for
+ * longer than session-retention are forgotten.
+ *
+ * The cap counts this manager's sessions only, so a cluster with N managers admits up to
+ * N * max-active-sessions. The idle clock here is separate from sharding's passivation
+ * clock but is fed by the same queries; a query the manager considers idle always resends
+ * StartSession, so the user is restored whichever clock fired first.
+ */
 public class SessionManagerActor extends AbstractBehavior<SessionManagerActor.Command> {
 
     private final Logger logger = LoggerFactory.getLogger(SessionManagerActor.class);
-    private final Map<String, ActorRef<DiplomaticSessionActor.Command>> activeSessions;
+    private final Map<String, SessionInfo> sessions = new HashMap<>();
+    private final long idleTimeoutMillis;
+    private final long retentionMillis;
+    private final int maxActiveSessions;
+    private int activeCount = 0;
+    private final LongSupplier clock;
     private final ActorRef<ConversationHistoryActor.Command> historyActor;
+    private final ClusterSharding sharding;
+    private final LatencyHistogram createLatency;
+    private final Counter sessionsCreated;
+    private final Counter sessionsRejected;
 
-    private ActorRef<RouteToClassifierMessage> classifierActor;
-    private ActorRef<CulturalAnalysisRequestMessage> culturalActor;
-    private ActorRef<DiplomaticPrimitiveRequestMessage> primitivesActor;
-    private boolean intelligenceActorsReady = false;
+    // Read by the sharding entity factory, which runs outside this actor
+    private final AtomicReference<DiplomaticSessionActor.SetIntelligenceActors> intelligenceActors =
+            new AtomicReference<>();
 
     public interface Command {}
 
+    private enum SweepSessions implements Command { INSTANCE }
+
+    private static final class SessionInfo {
+        final String userId;
+        long lastActive;
+        // Idle past the timeout; its entity has been (or is about to be) passivated
+        boolean dormant = false;
+
+        SessionInfo(String userId, long lastActive) {
+            this.userId = userId;
+            this.lastActive = lastActive;
+        }
+    }
+
     public static final class Shutdown implements Command {
         public static final Shutdown INSTANCE = new Shutdown();
         private Shutdown() {}
@@ -45,11 +103,18 @@ public class SessionManagerActor extends AbstractBehavior<SessionManagerActor.Co
         public final String sessionId;
         public final String query;
         public final ActorRef<String> replyTo;
+        public final ActorRef<LLMStreamMessage> streamTo;
 
-        public RouteToSession(String sessionId, String query, ActorRef<String> replyTo) {
+        public RouteToSession(String sessionId, String query, ActorRef<String> replyTo,
+                              ActorRef<LLMStreamMessage> streamTo) {
             this.sessionId = sessionId;
             this.query = query;
             this.replyTo = replyTo;
+            this.streamTo = streamTo;
+        }
+
+        public RouteToSession(String sessionId, String query, ActorRef<String> replyTo) {
+            this(sessionId, query, replyTo, null);
         }
     }
 
@@ -75,15 +140,50 @@ public class SessionManagerActor extends AbstractBehavior<SessionManagerActor.Co
         }
     }
 
-    private SessionManagerActor(ActorContext<Command> context) {
+    private SessionManagerActor(ActorContext<Command> context, TimerScheduler<Command> timers,
+                                LongSupplier clock) {
         super(context);
-        this.activeSessions = new HashMap<>();
-        this.historyActor = context.spawn(ConversationHistoryActor.create(), "conversation-history");
-        logger.info("SessionManagerActor initialized");
+        this.clock = clock;
+        // Forcing the history log to disk blocks, so they stay off the dispatcher sessions run on
+        this.historyActor = context.spawn(ConversationHistoryActor.create(), "conversation-history",
+                PipelineDispatchers.select(context.getSystem(), PipelineDispatchers.BLOCKING_IO));
+
+        Config config = context.getSystem().settings().config().getConfig("diplomatic-assistant");
+        Duration idleTimeout = Duration.ofMinutes(config.getInt("session-timeout-minutes"));
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.retentionMillis = config.getDuration("session-retention").toMillis();
+        this.maxActiveSessions = config.getInt("max-active-sessions");
+        MetricsRegistry metrics = MetricsRegistry.forSystem(context.getSystem());
+        this.createLatency = metrics.stage("session_create");
+        this.sessionsCreated = metrics.counter("diplomatic_sessions_total", "Session requests by outcome", "result", "created");
+        this.sessionsRejected = metrics.counter("diplomatic_sessions_total", "Session requests by outcome", "result", "rejected");
+        timers.startTimerWithFixedDelay(SweepSessions.INSTANCE, config.getDuration("session-sweep-interval"));
+
+        String role = config.getString("node-role");
+        ClusterShardingSettings settings = ClusterShardingSettings.create(context.getSystem());
+        settings = settings.withPassivationStrategy(
+                settings.passivationStrategySettings().withIdleEntityPassivation(idleTimeout));
+        this.sharding = ClusterSharding.get(context.getSystem());
+        sharding.init(
+                Entity.of(DiplomaticSessionActor.ENTITY_TYPE_KEY,
+                                entityContext -> DiplomaticSessionActor.create(
+                                        entityContext.getEntityId(), historyActor, intelligenceActors.get()))
+                        .withStopMessage(DiplomaticSessionActor.StopSession.INSTANCE)
+                        .withSettings(settings)
+                        .withRole(role));
+
+        logger.info("SessionManagerActor initialized - sessions sharded on role: {}, idle timeout: {} min, max active: {}",
+                role, idleTimeout.toMinutes(), maxActiveSessions);
     }
 
     public static Behavior<Command> create() {
-        return Behaviors.setup(SessionManagerActor::new);
+        return create(System::currentTimeMillis);
+    }
+
+    /** @param clock epoch millis used for idle and retention decisions */
+    static Behavior<Command> create(LongSupplier clock) {
+        return Behaviors.setup(context -> Behaviors.withTimers(timers ->
+                new SessionManagerActor(context, timers, clock)));
     }
 
     @Override
@@ -94,6 +194,7 @@ public class SessionManagerActor extends AbstractBehavior<SessionManagerActor.Co
                 .onMessage(CreateSession.class, this::onCreateSession)
                 .onMessage(RouteToSession.class, this::onRouteToSession)
                 .onMessage(EndSession.class, this::onEndSession)
+                .onMessage(SweepSessions.class, msg -> onSweepSessions())
                 .build();
     }
 
@@ -103,69 +204,118 @@ public class SessionManagerActor extends AbstractBehavior<SessionManagerActor.Co
     }
 
     private Behavior<Command> onSetIntelligenceActors(SetIntelligenceActors cmd) {
-        this.classifierActor = cmd.classifierActor;
-        this.culturalActor = cmd.culturalActor;
-        this.primitivesActor = cmd.primitivesActor;
-        this.intelligenceActorsReady = true;
+        DiplomaticSessionActor.SetIntelligenceActors configure = new DiplomaticSessionActor.SetIntelligenceActors(
+                cmd.classifierActor, cmd.culturalActor, cmd.primitivesActor);
+        intelligenceActors.set(configure);
 
         logger.info("Intelligence actors configured in SessionManager");
-        logger.info("Active sessions: {}", activeSessions.size());
+        logger.info("Active sessions: {}", activeCount);
 
-        // Configure existing sessions
-        for (Map.Entry<String, ActorRef<DiplomaticSessionActor.Command>> entry : activeSessions.entrySet()) {
-            entry.getValue().tell(new DiplomaticSessionActor.SetIntelligenceActors(
-                    classifierActor, culturalActor, primitivesActor));
+        // Configure live sessions; entities started or revived later pick them up in the factory
+        for (Map.Entry<String, SessionInfo> entry : sessions.entrySet()) {
+            if (!entry.getValue().dormant) {
+                sessionEntity(entry.getKey()).tell(configure);
+            }
         }
 
-        logger.info("Intelligence actors configured for {} existing sessions", activeSessions.size());
+        logger.info("Intelligence actors configured for {} existing sessions", activeCount);
 
         return this;
     }
 
     private Behavior<Command> onCreateSession(CreateSession cmd) {
+        long start = System.nanoTime();
+        if (activeCount >= maxActiveSessions) {
+            sessionsRejected.increment();
+            logger.warn("Rejecting session for user {} - {} of {} sessions active",
+                    cmd.userId, activeCount, maxActiveSessions);
+            cmd.replyTo.tell(new SessionCreatedMessage("rejected", cmd.userId));
+            return this;
+        }
+
         String sessionId = UUID.randomUUID().toString();
         logger.info("Creating new session {} for user {}", sessionId, cmd.userId);
 
-        ActorRef<DiplomaticSessionActor.Command> sessionActor = getContext().spawn(
-                DiplomaticSessionActor.create(sessionId, cmd.userId, historyActor),
-                "session-" + sessionId
-        );
-
-        activeSessions.put(sessionId, sessionActor);
-
-        if (intelligenceActorsReady) {
-            sessionActor.tell(new DiplomaticSessionActor.SetIntelligenceActors(
-                    classifierActor, culturalActor, primitivesActor));
-        }
+        sessions.put(sessionId, new SessionInfo(cmd.userId, clock.getAsLong()));
+        activeCount++;
+        sessionEntity(sessionId).tell(new DiplomaticSessionActor.StartSession(cmd.userId));
 
         cmd.replyTo.tell(new SessionCreatedMessage(sessionId, cmd.userId));
+        sessionsCreated.increment();
+        createLatency.recordSince(start);
         return this;
     }
 
     private Behavior<Command> onRouteToSession(RouteToSession cmd) {
         logger.info("Routing query to session: {}", cmd.sessionId);
 
-        ActorRef<DiplomaticSessionActor.Command> sessionActor = activeSessions.get(cmd.sessionId);
-
-        if (sessionActor == null) {
+        SessionInfo info = sessions.get(cmd.sessionId);
+        if (info == null) {
             logger.warn("Session not found: {}", cmd.sessionId);
             cmd.replyTo.tell("Error: Session not found");
             return this;
         }
 
-        // Set response handler then send query
-        sessionActor.tell(new DiplomaticSessionActor.SetResponseHandler(cmd.replyTo));
-        sessionActor.tell(new DiplomaticSessionActor.ProcessQuery(cmd.query));
+        EntityRef<DiplomaticSessionActor.Command> sessionActor = sessionEntity(cmd.sessionId);
+        long now = clock.getAsLong();
+        if (info.dormant || now - info.lastActive >= idleTimeoutMillis) {
+            // The entity was passivated and will be recreated by this message; restore its user first
+            logger.info("Reviving idle session {}", cmd.sessionId);
+            sessionActor.tell(new DiplomaticSessionActor.StartSession(info.userId));
+            if (info.dormant) {
+                info.dormant = false;
+                activeCount++;
+            }
+        }
+        info.lastActive = now;
+
+        sessionActor.tell(new DiplomaticSessionActor.ProcessQuery(
+                UUID.randomUUID().toString(), cmd.query, cmd.replyTo, cmd.streamTo));
 
         return this;
     }
 
     private Behavior<Command> onEndSession(EndSession cmd) {
         logger.info("Ending session: {}", cmd.sessionId);
-        ActorRef<DiplomaticSessionActor.Command> sessionActor = activeSessions.remove(cmd.sessionId);
-        if (sessionActor != null) {
-            getContext().stop(sessionActor);
+        SessionInfo removed = sessions.remove(cmd.sessionId);
+        if (removed != null) {
+            if (!removed.dormant) {
+                activeCount--;
+            }
+            sessionEntity(cmd.sessionId).tell(DiplomaticSessionActor.StopSession.INSTANCE);
         }
+        historyActor.tell(new ConversationHistoryActor.EvictSession(cmd.sessionId));
         return this;
     }
+
+    private Behavior<Command> onSweepSessions() {
+        long now = clock.getAsLong();
+        int passivated = 0;
+        int forgotten = 0;
+        Iterator<Map.Entry<String, SessionInfo>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, SessionInfo> entry = iterator.next();
+            SessionInfo info = entry.getValue();
+            long idle = now - info.lastActive;
+            if (!info.dormant && idle >= idleTimeoutMillis) {
+                info.dormant = true;
+                activeCount--;
+                passivated++;
+            }
+            if (info.dormant && idle >= retentionMillis) {
+                iterator.remove();
+                historyActor.tell(new ConversationHistoryActor.EvictSession(entry.getKey()));
+                forgotten++;
+            }
+        }
+        if (passivated > 0 || forgotten > 0) {
+            logger.info("Session sweep: {} went idle, {} forgotten - {} active, {} known",
+                    passivated, forgotten, activeCount, sessions.size());
+        }
+        return this;
+    }
+
+    private EntityRef<DiplomaticSessionActor.Command> sessionEntity(String sessionId) {
+        return sharding.entityRefFor(DiplomaticSessionActor.ENTITY_TYPE_KEY, sessionId);
+    }
 }
\ No newline at end of file
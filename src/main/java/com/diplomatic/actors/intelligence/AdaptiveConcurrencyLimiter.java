@@ -0,0 +1,78 @@
+package com.diplomatic.actors.intelligence;
+
+import com.typesafe.config.Config;
+
+/**
+ * AIMD limit on concurrent upstream LLM calls.
+ *
+ * The limit grows by roughly one per round of successful calls and is cut
+ * multiplicatively when the provider signals overload (HTTP 429/529) or when latency
+ * rises well above the best latency seen recently. Owned by {@link LLMProcessorActor},
+ * so it is not thread-safe; the getters may be read from other threads for reporting.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+
+    private volatile double limit;
+    private volatile int inFlight = 0;
+    private double baselineLatencyNanos = Double.MAX_VALUE;
+    private volatile long overloadSignals = 0;
+
+    public AdaptiveConcurrencyLimiter(Config limiterConfig) {
+        this.minLimit = limiterConfig.getInt("min-limit");
+        this.maxLimit = limiterConfig.getInt("max-limit");
+        this.backoffRatio = limiterConfig.getDouble("backoff-ratio");
+        this.latencyTolerance = limiterConfig.getDouble("latency-tolerance");
+        this.limit = limiterConfig.getInt("initial-limit");
+    }
+
+    public boolean tryAcquire() {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    public void onSuccess(long latencyNanos) {
+        inFlight--;
+        if (baselineLatencyNanos == Double.MAX_VALUE || latencyNanos < baselineLatencyNanos) {
+            baselineLatencyNanos = latencyNanos;
+        } else {
+            // Let the baseline drift up slowly so one lucky fast call does not pin it forever
+            baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * 0.01;
+        }
+
+        if (latencyNanos > baselineLatencyNanos * latencyTolerance) {
+            decrease();
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public void onOverload() {
+        inFlight--;
+        overloadSignals++;
+        decrease();
+    }
+
+    /**
+     * Returns a permit without adjusting the limit, for outcomes that say nothing about
+     * provider capacity (bad request, network error, abandoned hedge...).
+     */
+    public void release() {
+        inFlight--;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    public int getLimit() { return (int) limit; }
+    public int getInFlight() { return inFlight; }
+    public long getOverloadSignals() { return overloadSignals; }
+}
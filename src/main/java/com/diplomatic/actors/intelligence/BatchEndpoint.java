@@ -0,0 +1,160 @@
+package com.diplomatic.actors.intelligence;
+
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.AbstractBehavior;
+import akka.actor.typed.javadsl.ActorContext;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import com.diplomatic.messages.BatchProtocol;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node 2 side of request batching. Unpacks batch envelopes into single requests for the
+ * local intelligence actor and batches the results back per requesting gateway, again
+ * bounded by {@code batching.max-batch-size} and {@code batching.linger}. Fast results
+ * (classification) usually return in one envelope; slow ones (LLM-backed analysis)
+ * are grouped with whatever else finishes within the linger window.
+ */
+public class BatchEndpoint<Q, B, R, BR> extends AbstractBehavior<Object> {
+
+    private final Logger logger = LoggerFactory.getLogger(BatchEndpoint.class);
+    private final BatchProtocol<Q, B, R, BR> protocol;
+    private final TimerScheduler<Object> timers;
+    private final ActorRef<Q> target;
+    private final ActorRef<R> resultAdapter;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final long replyTimeoutNanos;
+
+    // correlation id -> gateway that asked, and when to give up on the answer
+    private final Map<String, Origin<BR>> origins = new HashMap<>();
+    private final Map<ActorRef<BR>, List<R>> outgoing = new HashMap<>();
+
+    private enum ExpireOrigins { INSTANCE }
+
+    private static final class WrappedResult {
+        final Object result;
+        WrappedResult(Object result) {
+            this.result = result;
+        }
+    }
+
+    private static final class FlushTo {
+        final ActorRef<?> replyTo;
+        FlushTo(ActorRef<?> replyTo) {
+            this.replyTo = replyTo;
+        }
+    }
+
+    private static final class Origin<BR> {
+        final ActorRef<BR> replyTo;
+        final long deadlineNanos;
+
+        Origin(ActorRef<BR> replyTo, long deadlineNanos) {
+            this.replyTo = replyTo;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    public static <Q, B, R, BR> Behavior<B> create(
+            BatchProtocol<Q, B, R, BR> protocol, ActorRef<Q> target, Config config) {
+        return Behaviors.<Object>setup(context -> Behaviors.withTimers(timers ->
+                new BatchEndpoint<>(context, timers, protocol, target, config))).narrow();
+    }
+
+    private BatchEndpoint(
+            ActorContext<Object> context,
+            TimerScheduler<Object> timers,
+            BatchProtocol<Q, B, R, BR> protocol,
+            ActorRef<Q> target,
+            Config config) {
+        super(context);
+        this.protocol = protocol;
+        this.timers = timers;
+        this.target = target;
+        Config batching = config.getConfig("diplomatic-assistant.batching");
+        this.maxBatchSize = batching.getInt("max-batch-size");
+        this.linger = batching.getDuration("linger");
+        Duration replyTimeout = config.getDuration("diplomatic-assistant.routing.reply-timeout");
+        this.replyTimeoutNanos = replyTimeout.toNanos();
+        this.resultAdapter = context.messageAdapter(protocol.resultType(), WrappedResult::new);
+
+        timers.startTimerWithFixedDelay(ExpireOrigins.INSTANCE, replyTimeout);
+    }
+
+    @Override
+    public Receive<Object> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(protocol.batchType(), this::onBatch)
+                .onMessage(WrappedResult.class, this::onResult)
+                .onMessage(FlushTo.class, this::onFlushTo)
+                .onMessageEquals(ExpireOrigins.INSTANCE, this::onExpireOrigins)
+                .build();
+    }
+
+    private Behavior<Object> onBatch(B batch) {
+        ActorRef<BR> replyTo = protocol.batchReplyTo(batch);
+        long deadline = System.nanoTime() + replyTimeoutNanos;
+        List<Q> requests = protocol.requestsOf(batch);
+        for (Q request : requests) {
+            origins.put(protocol.correlationId(request), new Origin<>(replyTo, deadline));
+            target.tell(protocol.withReplyTo(request, resultAdapter));
+        }
+        logger.debug("Unpacked '{}' batch of {}", protocol.name(), requests.size());
+        return this;
+    }
+
+    private Behavior<Object> onResult(WrappedResult wrapped) {
+        R result = protocol.resultType().cast(wrapped.result);
+        Origin<BR> origin = origins.remove(protocol.resultCorrelationId(result));
+        if (origin == null) {
+            logger.warn("No requester for '{}' result {}", protocol.name(), protocol.resultCorrelationId(result));
+            return this;
+        }
+
+        List<R> results = outgoing.computeIfAbsent(origin.replyTo, ref -> new ArrayList<>());
+        results.add(result);
+        if (results.size() >= maxBatchSize) {
+            flush(origin.replyTo);
+        } else if (results.size() == 1) {
+            timers.startSingleTimer(origin.replyTo, new FlushTo(origin.replyTo), linger);
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Behavior<Object> onFlushTo(FlushTo flush) {
+        flush((ActorRef<BR>) flush.replyTo);
+        return this;
+    }
+
+    private void flush(ActorRef<BR> replyTo) {
+        timers.cancel(replyTo);
+        List<R> results = outgoing.remove(replyTo);
+        if (results != null && !results.isEmpty()) {
+            replyTo.tell(protocol.toBatchResult(results));
+        }
+    }
+
+    private Behavior<Object> onExpireOrigins() {
+        long now = System.nanoTime();
+        Iterator<Origin<BR>> it = origins.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().deadlineNanos - now < 0) {
+                it.remove();
+            }
+        }
+        return this;
+    }
+}
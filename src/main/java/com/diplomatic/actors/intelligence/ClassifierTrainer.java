@@ -0,0 +1,177 @@
+package com.diplomatic.actors.intelligence;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Trains and evaluates the {@link NgramClassifier} used by {@link ScenarioClassifierActor}.
+ *
+ * Runs k-fold cross-validation on a labelled TSV file and prints accuracy, macro F1,
+ * log loss, expected calibration error, the confusion matrix and prediction latency.
+ * With {@code --out} the model is then trained on all data and saved, ready to be
+ * picked up through {@code diplomatic-assistant.classifier.model-file}.
+ *
+ * <pre>
+ * mvn exec:java -Dexec.mainClass="com.diplomatic.actors.intelligence.ClassifierTrainer" \
+ *     -Dexec.args="--data src/main/resources/classifier/training.tsv --folds 5 --out data/classifier.model"
+ * </pre>
+ */
+public final class ClassifierTrainer {
+
+    private static final int CALIBRATION_BINS = 10;
+
+    private ClassifierTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Config config = ConfigFactory.load().getConfig("diplomatic-assistant.classifier");
+        Path data = Paths.get("src/main/resources/" + config.getString("training-data"));
+        Path out = null;
+        int folds = 5;
+        int hashBits = config.getInt("hash-bits");
+        int epochs = config.getInt("epochs");
+        float learningRate = (float) config.getDouble("learning-rate");
+        float l2 = (float) config.getDouble("l2");
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--data": data = Paths.get(args[i + 1]); break;
+                case "--out": out = Paths.get(args[i + 1]); break;
+                case "--folds": folds = Integer.parseInt(args[i + 1]); break;
+                case "--hash-bits": hashBits = Integer.parseInt(args[i + 1]); break;
+                case "--epochs": epochs = Integer.parseInt(args[i + 1]); break;
+                case "--learning-rate": learningRate = Float.parseFloat(args[i + 1]); break;
+                case "--l2": l2 = Float.parseFloat(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<NgramClassifier.Example> examples =
+                NgramClassifier.readTsv(Files.newBufferedReader(data, StandardCharsets.UTF_8));
+        NgramClassifier.TrainingParams params = new NgramClassifier.TrainingParams(epochs, learningRate, l2, 42L);
+        System.out.printf("%d examples from %s, %d-fold cross-validation%n", examples.size(), data, folds);
+
+        Evaluation evaluation = crossValidate(examples, folds, hashBits, params);
+        evaluation.print(System.out);
+
+        if (out != null) {
+            NgramClassifier model = NgramClassifier.train(examples, hashBits, params);
+            model.save(out);
+            System.out.printf("Saved %s to %s%n", model, out);
+        }
+    }
+
+    static Evaluation crossValidate(
+            List<NgramClassifier.Example> examples, int folds, int hashBits, NgramClassifier.TrainingParams params) {
+        List<NgramClassifier.Example> shuffled = new ArrayList<>(examples);
+        Collections.shuffle(shuffled, new Random(params.seed));
+        Evaluation evaluation = new Evaluation();
+        int[] features = new int[NgramClassifier.MAX_FEATURES];
+        float[] probabilities = new float[NgramClassifier.LABELS.length];
+
+        for (int fold = 0; fold < folds; fold++) {
+            List<NgramClassifier.Example> train = new ArrayList<>();
+            List<NgramClassifier.Example> test = new ArrayList<>();
+            for (int i = 0; i < shuffled.size(); i++) {
+                (i % folds == fold ? test : train).add(shuffled.get(i));
+            }
+            NgramClassifier model = NgramClassifier.train(train, hashBits, params);
+            for (NgramClassifier.Example example : test) {
+                long start = System.nanoTime();
+                int predicted = model.predict(example.text, features, probabilities);
+                evaluation.record(example.label, predicted, probabilities, System.nanoTime() - start);
+            }
+        }
+        return evaluation;
+    }
+
+    static final class Evaluation {
+        final int[][] confusion = new int[NgramClassifier.LABELS.length][NgramClassifier.LABELS.length];
+        final double[] binConfidence = new double[CALIBRATION_BINS];
+        final int[] binCorrect = new int[CALIBRATION_BINS];
+        final int[] binCount = new int[CALIBRATION_BINS];
+        double logLoss = 0;
+        long predictNanos = 0;
+        int total = 0;
+
+        void record(int actual, int predicted, float[] probabilities, long nanos) {
+            confusion[actual][predicted]++;
+            logLoss -= Math.log(Math.max(probabilities[actual], 1e-7f));
+            float confidence = probabilities[predicted];
+            int bin = Math.min(CALIBRATION_BINS - 1, (int) (confidence * CALIBRATION_BINS));
+            binConfidence[bin] += confidence;
+            binCount[bin]++;
+            if (actual == predicted) {
+                binCorrect[bin]++;
+            }
+            predictNanos += nanos;
+            total++;
+        }
+
+        double accuracy() {
+            int correct = 0;
+            for (int i = 0; i < confusion.length; i++) {
+                correct += confusion[i][i];
+            }
+            return total == 0 ? 0 : (double) correct / total;
+        }
+
+        double macroF1() {
+            double sum = 0;
+            for (int label = 0; label < confusion.length; label++) {
+                int truePositives = confusion[label][label];
+                int predicted = 0;
+                int actual = 0;
+                for (int other = 0; other < confusion.length; other++) {
+                    predicted += confusion[other][label];
+                    actual += confusion[label][other];
+                }
+                double precision = predicted == 0 ? 0 : (double) truePositives / predicted;
+                double recall = actual == 0 ? 0 : (double) truePositives / actual;
+                sum += precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+            }
+            return sum / confusion.length;
+        }
+
+        /** Expected calibration error: gap between confidence and accuracy, weighted by bin size. */
+        double calibrationError() {
+            double error = 0;
+            for (int bin = 0; bin < CALIBRATION_BINS; bin++) {
+                if (binCount[bin] > 0) {
+                    double gap = Math.abs(binConfidence[bin] / binCount[bin] - (double) binCorrect[bin] / binCount[bin]);
+                    error += gap * binCount[bin] / total;
+                }
+            }
+            return error;
+        }
+
+        void print(PrintStream out) {
+            out.printf("accuracy=%.3f macro-f1=%.3f log-loss=%.3f ece=%.3f predict=%.1fus%n",
+                    accuracy(), macroF1(), logLoss / Math.max(1, total), calibrationError(),
+                    predictNanos / 1000.0 / Math.max(1, total));
+            out.printf("%-10s", "");
+            for (String label : NgramClassifier.LABELS) {
+                out.printf("%10.9s", label);
+            }
+            out.println();
+            for (int actual = 0; actual < confusion.length; actual++) {
+                out.printf("%-10.10s", NgramClassifier.LABELS[actual]);
+                for (int predicted = 0; predicted < confusion.length; predicted++) {
+                    out.printf("%10d", confusion[actual][predicted]);
+                }
+                out.println();
+            }
+        }
+    }
+}
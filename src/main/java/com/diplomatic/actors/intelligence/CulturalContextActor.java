@@ -6,100 +6,177 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import com.diplomatic.jfr.JfrEvents;
+import com.diplomatic.jfr.MessageHopEvent;
+import com.diplomatic.jfr.PromptBuildEvent;
 import com.diplomatic.messages.*;
+import com.diplomatic.metrics.LatencyHistogram;
+import com.diplomatic.metrics.MetricsRegistry;
+import com.diplomatic.tracing.Span;
+import com.diplomatic.tracing.SpanKind;
+import com.diplomatic.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
-
-public class CulturalContextActor extends AbstractBehavior<CulturalAnalysisRequestMessage> {
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds cultural prompts and relays the LLM answer back to the requester.
+ *
+ * Several requests can be outstanding at once: each LLM call carries a correlation id
+ * and the single LLM response adapter looks the original request up by it.
+ */
+public class CulturalContextActor extends AbstractBehavior<Object> {
 
     private final Logger logger = LoggerFactory.getLogger(CulturalContextActor.class);
     private final ActorRef<LLMRequestMessage> llmActor;
+    private final ActorRef<LLMResponseMessage> llmResponseAdapter;
+    private final Map<String, PendingAnalysis> pending = new HashMap<>();
+    private final LatencyHistogram promptLatency;
+    private final LatencyHistogram analysisLatency;
+    private final Tracer tracer;
+
+    private static final class PendingAnalysis {
+        final CulturalAnalysisRequestMessage request;
+        final LLMContext context;
+        final long startNanos;
+        final Span span;
+        // Null unless Flight Recorder is recording hops
+        MessageHopEvent llmHop;
+
+        PendingAnalysis(CulturalAnalysisRequestMessage request, LLMContext context, long startNanos, Span span) {
+            this.request = request;
+            this.context = context;
+            this.startNanos = startNanos;
+            this.span = span;
+        }
+    }
+
+    private static final class WrappedLLMResponse {
+        final LLMResponseMessage response;
+        WrappedLLMResponse(LLMResponseMessage response) {
+            this.response = response;
+        }
+    }
 
     public static Behavior<CulturalAnalysisRequestMessage> create(ActorRef<LLMRequestMessage> llmActor) {
-        return Behaviors.setup(context -> new CulturalContextActor(context, llmActor));
+        return Behaviors.<Object>setup(context -> new CulturalContextActor(context, llmActor)).narrow();
     }
 
-    private CulturalContextActor(ActorContext<CulturalAnalysisRequestMessage> context,
+    private CulturalContextActor(ActorContext<Object> context,
                                  ActorRef<LLMRequestMessage> llmActor) {
         super(context);
         this.llmActor = llmActor;
+        this.llmResponseAdapter = context.messageAdapter(LLMResponseMessage.class, WrappedLLMResponse::new);
+        MetricsRegistry metrics = MetricsRegistry.forSystem(context.getSystem());
+        this.promptLatency = metrics.stage("cultural_prompt");
+        this.analysisLatency = metrics.stage("cultural");
+        this.tracer = Tracer.forSystem(context.getSystem());
         logger.info("CulturalContextActor initialized on Node 2");
     }
 
     @Override
-    public Receive<CulturalAnalysisRequestMessage> createReceive() {
+    public Receive<Object> createReceive() {
         return newReceiveBuilder()
                 .onMessage(CulturalAnalysisRequestMessage.class, this::onAnalyzeRequest)
+                .onMessage(WrappedLLMResponse.class, this::onLLMResponse)
                 .build();
     }
 
-    private Behavior<CulturalAnalysisRequestMessage> onAnalyzeRequest(CulturalAnalysisRequestMessage msg) {
-        // CRITICAL FIX: Ignore dummy messages from adapters to prevent infinite loop
+    private Behavior<Object> onAnalyzeRequest(CulturalAnalysisRequestMessage msg) {
         if (msg.getQuery() == null || msg.getQuery().trim().isEmpty()) {
-            logger.debug("Ignoring empty query (adapter dummy message)");
+            logger.debug("Ignoring empty query");
             return this;
         }
 
         logger.info("Processing cultural analysis for country: {}", msg.getCountry());
 
+        long start = System.nanoTime();
+        Span span = tracer.startSpan("cultural", SpanKind.SERVER, msg.getTrace())
+                .setAttribute("country", msg.getCountry());
+        PromptBuildEvent promptEvent = JfrEvents.begin(PromptBuildEvent::new);
         String culturalPrompt = buildCulturalPrompt(msg.getQuery(), msg.getCountry());
+        promptLatency.recordSince(start);
+        if (JfrEvents.end(promptEvent)) {
+            promptEvent.correlationId = msg.getCorrelationId();
+            promptEvent.traceId = JfrEvents.traceId(msg.getTrace());
+            promptEvent.kind = "cultural";
+            promptEvent.promptBytes = JfrEvents.utf8Length(culturalPrompt);
+            promptEvent.commit();
+        }
+
+        LLMContext context = LLMContext.cultural(msg.getCountry(), msg.getQuery());
+
+        // Requests from older callers may lack an id; the LLM leg still needs one to be matched
+        String correlationId = msg.getCorrelationId() != null ? msg.getCorrelationId() : UUID.randomUUID().toString();
+        PendingAnalysis entry = new PendingAnalysis(msg, context, start, span);
+        pending.put(correlationId, entry);
 
-        Map<String, Object> context = new HashMap<>();
-        context.put("country", msg.getCountry());
-        context.put("scenario_type", "CULTURAL");
-        context.put("query", msg.getQuery());
-
-        // Store the original replyTo
-        final ActorRef<CulturalAnalysisResponseMessage> originalReplyTo = msg.getReplyTo();
-
-        ActorRef<LLMResponseMessage> adapter = getContext().messageAdapter(
-                LLMResponseMessage.class,
-                llmResponse -> {
-                    String analysis;
-                    if (llmResponse.isSuccess()) {
-                        analysis = llmResponse.getResponse();
-                    } else {
-                        analysis = "I apologize, but I'm having trouble accessing cultural information.";
-                    }
-
-                    CulturalAnalysisResponseMessage response = new CulturalAnalysisResponseMessage(
-                            analysis, context
-                    );
-
-                    originalReplyTo.tell(response);
-
-                    // CRITICAL FIX: Return a dummy message with empty query to prevent re-processing
-                    // The empty query will be caught by the guard clause above
-                    return new CulturalAnalysisRequest("", "processed", originalReplyTo);
-                }
-        );
-
-        LLMRequestMessage llmRequest = new LLMRequestMessage(culturalPrompt, context, adapter);
+        LLMRequestMessage llmRequest = new LLMRequestMessage(
+                correlationId, culturalPrompt, context, llmResponseAdapter, msg.getStreamTo(), span.context());
+        entry.llmHop = JfrEvents.beginHop("llm", correlationId, span.context());
         llmActor.tell(llmRequest);
 
-        logger.info("Cultural analysis request sent to LLM processor");
+        logger.info("Cultural analysis request sent to LLM processor ({} outstanding)", pending.size());
 
         return this;
     }
 
-    private String buildCulturalPrompt(String query, String country) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("You are a cross-cultural diplomatic advisor with expertise in international relations.\n\n");
-        prompt.append("Context: Cultural guidance needed");
-        if (!"General".equals(country)) {
-            prompt.append(" for ").append(country);
+    private Behavior<Object> onLLMResponse(WrappedLLMResponse wrapped) {
+        LLMResponseMessage llmResponse = wrapped.response;
+        PendingAnalysis analysisRequest = pending.remove(llmResponse.getCorrelationId());
+        if (analysisRequest == null) {
+            logger.warn("LLM response for unknown request {}", llmResponse.getCorrelationId());
+            return this;
+        }
+        JfrEvents.endHop(analysisRequest.llmHop, llmResponse.isSuccess());
+
+        String analysis;
+        if (llmResponse.isSuccess()) {
+            analysis = llmResponse.getResponse();
+        } else {
+            analysis = "I apologize, but I'm having trouble accessing cultural information.";
+            analysisRequest.span.setError("llm failed");
         }
-        prompt.append("\n\n");
-        prompt.append("User Query: ").append(query).append("\n\n");
-        prompt.append("Please provide:\n");
-        prompt.append("1. Cultural Context: Key cultural considerations\n");
-        prompt.append("2. Communication Approach: Appropriate style\n");
-        prompt.append("3. Potential Pitfalls: Cultural mistakes to avoid\n");
-        prompt.append("4. Practical Advice: Concrete recommendations\n\n");
-        prompt.append("Keep response concise (under 250 words) and practical.");
-        return prompt.toString();
+
+        analysisRequest.request.getReplyTo().tell(new CulturalAnalysisResponseMessage(
+                analysisRequest.request.getCorrelationId(), analysis, analysisRequest.context.withoutQuery(),
+                analysisRequest.span.context()));
+        analysisLatency.recordSince(analysisRequest.startNanos);
+        analysisRequest.span.end();
+        return this;
+    }
+
+    // Countries come from the classifier's fixed keyword list; the cap guards other callers
+    private static final int MAX_COUNTRY_TEMPLATES = 256;
+    private static final ConcurrentMap<String, PromptTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    static String buildCulturalPrompt(String query, String country) {
+        PromptTemplate template = country != null ? TEMPLATES.get(country) : null;
+        if (template == null) {
+            template = culturalTemplate(country);
+            if (country != null && TEMPLATES.size() < MAX_COUNTRY_TEMPLATES) {
+                TEMPLATES.putIfAbsent(country, template);
+            }
+        }
+        return template.render(query);
+    }
+
+    private static PromptTemplate culturalTemplate(String country) {
+        return new PromptTemplate(
+                "You are a cross-cultural diplomatic advisor with expertise in international relations.\n\n" +
+                "Context: Cultural guidance needed" + ("General".equals(country) ? "" : " for " + country) + "\n\n" +
+                "User Query: ",
+                "\n\n" +
+                "Please provide:\n" +
+                "1. Cultural Context: Key cultural considerations\n" +
+                "2. Communication Approach: Appropriate style\n" +
+                "3. Potential Pitfalls: Cultural mistakes to avoid\n" +
+                "4. Practical Advice: Concrete recommendations\n\n" +
+                "Keep response concise (under 250 words) and practical.");
     }
 }
\ No newline at end of file
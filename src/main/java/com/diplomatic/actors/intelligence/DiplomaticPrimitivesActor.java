@@ -6,103 +6,186 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import com.diplomatic.jfr.JfrEvents;
+import com.diplomatic.jfr.MessageHopEvent;
+import com.diplomatic.jfr.PromptBuildEvent;
 import com.diplomatic.messages.*;
+import com.diplomatic.metrics.LatencyHistogram;
+import com.diplomatic.metrics.MetricsRegistry;
+import com.diplomatic.tracing.Span;
+import com.diplomatic.tracing.SpanKind;
+import com.diplomatic.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
-public class DiplomaticPrimitivesActor extends AbstractBehavior<DiplomaticPrimitiveRequestMessage> {
+/**
+ * Builds IDEA-framework prompts and relays the LLM answer back to the requester.
+ *
+ * Several requests can be outstanding at once: each LLM call carries a correlation id
+ * and the single LLM response adapter looks the original request up by it.
+ */
+public class DiplomaticPrimitivesActor extends AbstractBehavior<Object> {
 
     private final Logger logger = LoggerFactory.getLogger(DiplomaticPrimitivesActor.class);
     private final ActorRef<LLMRequestMessage> llmActor;
+    private final ActorRef<LLMResponseMessage> llmResponseAdapter;
+    private final Map<String, PendingPrimitive> pending = new HashMap<>();
+    private final LatencyHistogram promptLatency;
+    private final LatencyHistogram primitiveLatency;
+    private final Tracer tracer;
+
+    private static final class PendingPrimitive {
+        final DiplomaticPrimitiveRequestMessage request;
+        final long startNanos;
+        final Span span;
+        // Null unless Flight Recorder is recording hops
+        MessageHopEvent llmHop;
+
+        PendingPrimitive(DiplomaticPrimitiveRequestMessage request, long startNanos, Span span) {
+            this.request = request;
+            this.startNanos = startNanos;
+            this.span = span;
+        }
+    }
+
+    private static final class WrappedLLMResponse {
+        final LLMResponseMessage response;
+        WrappedLLMResponse(LLMResponseMessage response) {
+            this.response = response;
+        }
+    }
 
     public static Behavior<DiplomaticPrimitiveRequestMessage> create(ActorRef<LLMRequestMessage> llmActor) {
-        return Behaviors.setup(context -> new DiplomaticPrimitivesActor(context, llmActor));
+        return Behaviors.<Object>setup(context -> new DiplomaticPrimitivesActor(context, llmActor)).narrow();
     }
 
-    private DiplomaticPrimitivesActor(ActorContext<DiplomaticPrimitiveRequestMessage> context,
+    private DiplomaticPrimitivesActor(ActorContext<Object> context,
                                       ActorRef<LLMRequestMessage> llmActor) {
         super(context);
         this.llmActor = llmActor;
+        this.llmResponseAdapter = context.messageAdapter(LLMResponseMessage.class, WrappedLLMResponse::new);
+        MetricsRegistry metrics = MetricsRegistry.forSystem(context.getSystem());
+        this.promptLatency = metrics.stage("primitive_prompt");
+        this.primitiveLatency = metrics.stage("primitive");
+        this.tracer = Tracer.forSystem(context.getSystem());
         logger.info("DiplomaticPrimitivesActor initialized on Node 2");
     }
 
     @Override
-    public Receive<DiplomaticPrimitiveRequestMessage> createReceive() {
+    public Receive<Object> createReceive() {
         return newReceiveBuilder()
                 .onMessage(DiplomaticPrimitiveRequestMessage.class, this::onProcessRequest)
+                .onMessage(WrappedLLMResponse.class, this::onLLMResponse)
                 .build();
     }
 
-    private Behavior<DiplomaticPrimitiveRequestMessage> onProcessRequest(DiplomaticPrimitiveRequestMessage msg) {
-        // CRITICAL FIX: Ignore dummy messages from adapters to prevent infinite loop
+    private Behavior<Object> onProcessRequest(DiplomaticPrimitiveRequestMessage msg) {
         if (msg.getQuery() == null || msg.getQuery().trim().isEmpty()) {
-            logger.debug("Ignoring empty query (adapter dummy message)");
+            logger.debug("Ignoring empty query");
             return this;
         }
 
         String primitive = msg.getPrimitive();
         logger.info("Processing diplomatic primitive: {} for query: {}", primitive, msg.getQuery());
 
+        long start = System.nanoTime();
+        Span span = tracer.startSpan("primitive", SpanKind.SERVER, msg.getTrace())
+                .setAttribute("primitive", primitive);
+        PromptBuildEvent promptEvent = JfrEvents.begin(PromptBuildEvent::new);
         String primitivePrompt = buildPrimitivePrompt(msg.getQuery(), primitive);
+        promptLatency.recordSince(start);
+        if (JfrEvents.end(promptEvent)) {
+            promptEvent.correlationId = msg.getCorrelationId();
+            promptEvent.traceId = JfrEvents.traceId(msg.getTrace());
+            promptEvent.kind = "primitive";
+            promptEvent.promptBytes = JfrEvents.utf8Length(primitivePrompt);
+            promptEvent.commit();
+        }
 
-        Map<String, Object> context = new HashMap<>();
-        context.put("primitive", primitive);
-        context.put("scenario_type", "DIPLOMATIC_PRIMITIVE");
-        context.put("query", msg.getQuery());
-
-        // Store the original replyTo
-        final ActorRef<DiplomaticPrimitiveResponseMessage> originalReplyTo = msg.getReplyTo();
-
-        ActorRef<LLMResponseMessage> adapter = getContext().messageAdapter(
-                LLMResponseMessage.class,
-                llmResponse -> {
-                    String result;
-                    if (llmResponse.isSuccess()) {
-                        result = llmResponse.getResponse();
-                    } else {
-                        result = "I apologize, but I'm having trouble accessing diplomatic guidance at the moment. " +
-                                "Please try again or consult with a diplomatic expert regarding the " +
-                                primitive + " primitive.";
-                    }
-
-                    DiplomaticPrimitiveResponseMessage response = new DiplomaticPrimitiveResponseMessage(
-                            primitive,
-                            result
-                    );
-
-                    originalReplyTo.tell(response);
-
-                    // CRITICAL FIX: Return a dummy message with empty query to prevent re-processing
-                    // The empty query will be caught by the guard clause above
-                    return new DiplomaticPrimitiveRequestMessage("processed", "", originalReplyTo);
-                }
-        );
-
-        LLMRequestMessage llmRequest = new LLMRequestMessage(primitivePrompt, context, adapter);
+        LLMContext context = LLMContext.primitive(primitive, msg.getQuery());
+
+        // Requests from older callers may lack an id; the LLM leg still needs one to be matched
+        String correlationId = msg.getCorrelationId() != null ? msg.getCorrelationId() : UUID.randomUUID().toString();
+        PendingPrimitive entry = new PendingPrimitive(msg, start, span);
+        pending.put(correlationId, entry);
+
+        LLMRequestMessage llmRequest = new LLMRequestMessage(
+                correlationId, primitivePrompt, context, llmResponseAdapter, msg.getStreamTo(), span.context());
+        entry.llmHop = JfrEvents.beginHop("llm", correlationId, span.context());
         llmActor.tell(llmRequest);
 
-        logger.info("Primitive analysis request sent to LLM processor");
+        logger.info("Primitive analysis request sent to LLM processor ({} outstanding)", pending.size());
+
+        return this;
+    }
+
+    private Behavior<Object> onLLMResponse(WrappedLLMResponse wrapped) {
+        LLMResponseMessage llmResponse = wrapped.response;
+        PendingPrimitive pendingPrimitive = pending.remove(llmResponse.getCorrelationId());
+        if (pendingPrimitive == null) {
+            logger.warn("LLM response for unknown request {}", llmResponse.getCorrelationId());
+            return this;
+        }
+        JfrEvents.endHop(pendingPrimitive.llmHop, llmResponse.isSuccess());
+
+        DiplomaticPrimitiveRequestMessage request = pendingPrimitive.request;
+
+        String primitive = request.getPrimitive();
+        String result;
+        if (llmResponse.isSuccess()) {
+            result = llmResponse.getResponse();
+        } else {
+            result = "I apologize, but I'm having trouble accessing diplomatic guidance at the moment. " +
+                    "Please try again or consult with a diplomatic expert regarding the " +
+                    primitive + " primitive.";
+            pendingPrimitive.span.setError("llm failed");
+        }
 
+        request.getReplyTo().tell(new DiplomaticPrimitiveResponseMessage(
+                request.getCorrelationId(), primitive, result, pendingPrimitive.span.context()));
+        primitiveLatency.recordSince(pendingPrimitive.startNanos);
+        pendingPrimitive.span.end();
         return this;
     }
 
-    private String buildPrimitivePrompt(String query, String primitive) {
-        return "You are a diplomatic negotiation advisor using the IDEA Framework.\n\n" +
+    private static final String[] PRIMITIVES = {
+            "PROPOSE", "CLARIFY", "CONSTRAIN", "REVISE", "AGREE", "ESCALATE", "DEFER", "GENERAL"
+    };
+
+    // Everything in a prompt but the query is fixed per primitive, so it is assembled once
+    private static final Map<String, PromptTemplate> TEMPLATES = new HashMap<>();
+
+    static {
+        for (String primitive : PRIMITIVES) {
+            TEMPLATES.put(primitive, primitiveTemplate(primitive));
+        }
+    }
+
+    static String buildPrimitivePrompt(String query, String primitive) {
+        PromptTemplate template = TEMPLATES.get(primitive);
+        return (template != null ? template : primitiveTemplate(primitive)).render(query);
+    }
+
+    private static PromptTemplate primitiveTemplate(String primitive) {
+        return new PromptTemplate(
+                "You are a diplomatic negotiation advisor using the IDEA Framework.\n\n" +
                 "IDEA Framework Primitive: " + primitive + "\n" +
                 getPrimitiveDefinition(primitive) + "\n\n" +
-                "User Query: " + query + "\n\n" +
+                "User Query: ",
+                "\n\n" +
                 "Please provide:\n" +
                 "1. Strategy: How to effectively apply the " + primitive + " primitive\n" +
                 "2. Key Actions: Specific steps to take\n" +
                 "3. Expected Outcomes: What to anticipate\n" +
                 "4. Next Steps: Follow-up actions\n\n" +
-                "Keep response concise (under 250 words) and action-oriented.";
+                "Keep response concise (under 250 words) and action-oriented.");
     }
 
-    private String getPrimitiveDefinition(String primitive) {
+    private static String getPrimitiveDefinition(String primitive) {
         switch (primitive) {
             case "PROPOSE":
                 return "PROPOSE: Present new ideas, terms, or solutions to advance negotiations";
@@ -0,0 +1,222 @@
+package com.diplomatic.actors.intelligence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Memory-mapped second tier of the LLM response cache.
+ *
+ * Entries are appended to fixed-size generation files ({@code responses-N.cache}).
+ * When the active generation is full a new one is started and, once two exist, the
+ * oldest is dropped with everything in it. On startup the surviving generations are
+ * scanned to rebuild the in-heap key index, so cached answers survive restarts.
+ *
+ * Record layout: magic, expiresAt, keyLength, valueLength, key bytes, value bytes.
+ * Not thread-safe; owned by {@link LLMResponseCache}.
+ */
+public class DiskResponseCache implements AutoCloseable {
+
+    private static final int RECORD_MAGIC = 0x4C4C4D31;
+    private static final int RECORD_HEADER = 4 + 8 + 4 + 4;
+    private static final int MAX_GENERATIONS = 2;
+
+    private final Logger logger = LoggerFactory.getLogger(DiskResponseCache.class);
+    private final Path directory;
+    private final int generationBytes;
+
+    private final Deque<Generation> generations = new ArrayDeque<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private long evictions = 0;
+
+    private static final class Generation {
+        final long number;
+        final Path file;
+        final MappedByteBuffer buffer;
+
+        Generation(long number, Path file, MappedByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    /** A live entry and the expiry it was stored with. */
+    public static final class Cached {
+        public final String value;
+        public final long expiresAt;
+
+        Cached(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Location {
+        final Generation generation;
+        final int offset;
+
+        Location(Generation generation, int offset) {
+            this.generation = generation;
+            this.offset = offset;
+        }
+    }
+
+    public DiskResponseCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.generationBytes = (int) Math.min(Integer.MAX_VALUE, maxBytes / MAX_GENERATIONS);
+        try {
+            Files.createDirectories(directory);
+            recover();
+            if (generations.isEmpty()) {
+                startGeneration(0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open response cache in " + directory, e);
+        }
+        logger.info("Disk response cache opened at {} with {} entries", directory, index.size());
+    }
+
+    /** Returns the cached entry, or null when absent or expired at {@code now}. */
+    public Cached get(String key, long now) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        MappedByteBuffer buffer = location.generation.buffer;
+        int offset = location.offset;
+        long expiresAt = buffer.getLong(offset + 4);
+        if (expiresAt <= now) {
+            index.remove(key);
+            return null;
+        }
+        int keyLength = buffer.getInt(offset + 12);
+        int valueLength = buffer.getInt(offset + 16);
+        byte[] value = new byte[valueLength];
+        buffer.get(offset + RECORD_HEADER + keyLength, value);
+        return new Cached(new String(value, StandardCharsets.UTF_8), expiresAt);
+    }
+
+    public void put(String key, String value, long expiresAt) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        int recordLength = RECORD_HEADER + keyBytes.length + valueBytes.length;
+        if (recordLength + 4 > generationBytes) {
+            return;
+        }
+
+        Generation active = generations.peekLast();
+        if (active.buffer.position() + recordLength + 4 > generationBytes) {
+            active = rotate(active.number + 1);
+        }
+
+        MappedByteBuffer buffer = active.buffer;
+        int offset = buffer.position();
+        buffer.putLong(offset + 4, expiresAt);
+        buffer.putInt(offset + 12, keyBytes.length);
+        buffer.putInt(offset + 16, valueBytes.length);
+        buffer.put(offset + RECORD_HEADER, keyBytes);
+        buffer.put(offset + RECORD_HEADER + keyBytes.length, valueBytes);
+        // Magic last, so a torn write is never mistaken for a record on recovery
+        buffer.putInt(offset, RECORD_MAGIC);
+        buffer.position(offset + recordLength);
+
+        index.put(key, new Location(active, offset));
+    }
+
+    public int size() { return index.size(); }
+
+    public long evictions() { return evictions; }
+
+    private Generation rotate(long nextNumber) {
+        if (generations.size() >= MAX_GENERATIONS) {
+            Generation oldest = generations.pollFirst();
+            int before = index.size();
+            index.values().removeIf(location -> location.generation == oldest);
+            evictions += before - index.size();
+            try {
+                Files.deleteIfExists(oldest.file);
+            } catch (IOException e) {
+                logger.warn("Could not delete cache generation {}", oldest.file, e);
+            }
+        }
+        try {
+            return startGeneration(nextNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Generation startGeneration(long number) throws IOException {
+        Path file = directory.resolve("responses-" + number + ".cache");
+        Files.deleteIfExists(file);
+        Generation generation = new Generation(number, file, map(file));
+        generations.addLast(generation);
+        return generation;
+    }
+
+    private void recover() throws IOException {
+        Path[] files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(path -> path.getFileName().toString().matches("responses-\\d+\\.cache"))
+                    .sorted((a, b) -> Long.compare(generationNumber(a), generationNumber(b)))
+                    .toArray(Path[]::new);
+        }
+        for (int i = 0; i < files.length; i++) {
+            if (i < files.length - MAX_GENERATIONS) {
+                Files.deleteIfExists(files[i]);
+                continue;
+            }
+            Generation generation = new Generation(generationNumber(files[i]), files[i], map(files[i]));
+            scan(generation);
+            generations.addLast(generation);
+        }
+    }
+
+    private void scan(Generation generation) {
+        MappedByteBuffer buffer = generation.buffer;
+        int offset = 0;
+        while (offset + RECORD_HEADER <= generationBytes && buffer.getInt(offset) == RECORD_MAGIC) {
+            int keyLength = buffer.getInt(offset + 12);
+            int valueLength = buffer.getInt(offset + 16);
+            byte[] key = new byte[keyLength];
+            buffer.get(offset + RECORD_HEADER, key);
+            index.put(new String(key, StandardCharsets.UTF_8), new Location(generation, offset));
+            offset += RECORD_HEADER + keyLength + valueLength;
+        }
+        buffer.position(offset);
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, generationBytes);
+        }
+    }
+
+    private static long generationNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("responses-".length(), name.length() - ".cache".length()));
+    }
+
+    @Override
+    public void close() {
+        for (Generation generation : generations) {
+            generation.buffer.force();
+        }
+    }
+}
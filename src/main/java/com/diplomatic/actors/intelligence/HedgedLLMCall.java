@@ -0,0 +1,93 @@
+package com.diplomatic.actors.intelligence;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * One logical upstream call made of up to two attempts: the original and, if it is
+ * slow, a hedged duplicate. Whichever attempt answers first wins and the other is
+ * cancelled. For streamed calls the first attempt to produce text owns the stream,
+ * so requesters never see deltas from two attempts interleaved.
+ */
+final class HedgedLLMCall {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final Function<Consumer<String>, CompletableFuture<String>> attemptFactory;
+    private final Consumer<String> onText;
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+    private final List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger textOwner = new AtomicInteger(-1);
+    private final AtomicInteger failedAttempts = new AtomicInteger();
+    // Counted before an attempt starts, so a failure never mistakes itself for the last one
+    private final AtomicInteger launchedAttempts = new AtomicInteger();
+
+    /**
+     * @param attemptFactory starts one upstream attempt, delivering text to the given consumer
+     * @param onText         receives the text of the attempt that wins the stream
+     */
+    HedgedLLMCall(Function<Consumer<String>, CompletableFuture<String>> attemptFactory, Consumer<String> onText) {
+        this.attemptFactory = attemptFactory;
+        this.onText = onText;
+    }
+
+    CompletableFuture<String> start() {
+        launch();
+        return result;
+    }
+
+    /** Starts the duplicate attempt; false when the call already finished or was hedged. */
+    synchronized boolean hedge() {
+        if (result.isDone() || launchedAttempts.get() >= MAX_ATTEMPTS || textOwner.get() >= 0) {
+            return false;
+        }
+        launch();
+        return true;
+    }
+
+    boolean isHedged() {
+        return launchedAttempts.get() > 1;
+    }
+
+    void cancel() {
+        for (CompletableFuture<String> attempt : attempts) {
+            attempt.cancel(true);
+        }
+    }
+
+    /** Numbers, starts and registers an attempt in one step, so ids match list positions. */
+    private synchronized void launch() {
+        int id = launchedAttempts.getAndIncrement();
+        CompletableFuture<String> attempt = attemptFactory.apply(text -> {
+            if (textOwner.compareAndSet(-1, id) || textOwner.get() == id) {
+                onText.accept(text);
+            }
+        });
+        attempts.add(attempt);
+        if (result.isDone()) {
+            attempt.cancel(true);
+        }
+        attempt.whenComplete((value, error) -> {
+            int owner = textOwner.get();
+            if (error == null) {
+                if ((owner == -1 || owner == id) && result.complete(value)) {
+                    cancelOthers(id);
+                }
+            } else if (owner == id || failedAttempts.incrementAndGet() == launchedAttempts.get()) {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    private void cancelOthers(int winner) {
+        for (int i = 0; i < attempts.size(); i++) {
+            if (i != winner) {
+                attempts.get(i).cancel(true);
+            }
+        }
+    }
+}
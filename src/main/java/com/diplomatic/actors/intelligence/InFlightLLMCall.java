@@ -0,0 +1,87 @@
+package com.diplomatic.actors.intelligence;
+
+import akka.actor.typed.ActorRef;
+import com.diplomatic.messages.*;
+import com.diplomatic.tracing.Span;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One upstream LLM call shared by every identical request that arrived while it was
+ * outstanding.
+ *
+ * Waiters are added and completed by {@link LLMProcessorActor} only. Text deltas arrive
+ * on HTTP client threads, so the stream fan-out state is guarded by this object's lock;
+ * a streaming waiter that joins late first receives the chunks it missed.
+ *
+ * Each waiter brings its own request span, ended when it is answered, so a
+ * coalesced request shows in its own trace for as long as it actually waited.
+ */
+class InFlightLLMCall {
+
+    private final boolean streaming;
+    private final List<LLMRequestMessage> waiters = new ArrayList<>();
+    private final List<Span> spans = new ArrayList<>();
+    private final List<ActorRef<LLMStreamMessage>> streamSubscribers = new ArrayList<>();
+    private final List<String> chunks = new ArrayList<>();
+
+    InFlightLLMCall(LLMRequestMessage first, Span span) {
+        this.streaming = first.getStreamTo() != null;
+        join(first, span);
+    }
+
+    boolean isStreaming() { return streaming; }
+
+    int waiterCount() { return waiters.size(); }
+
+    void join(LLMRequestMessage request, Span span) {
+        waiters.add(request);
+        spans.add(span);
+        if (streaming && request.getStreamTo() != null) {
+            synchronized (this) {
+                for (int i = 0; i < chunks.size(); i++) {
+                    request.getStreamTo().tell(new LLMStreamChunkMessage(i, chunks.get(i)));
+                }
+                streamSubscribers.add(request.getStreamTo());
+            }
+        }
+    }
+
+    /** Called from HTTP client threads for each text delta. */
+    synchronized void onText(String text) {
+        int sequence = chunks.size();
+        chunks.add(text);
+        for (ActorRef<LLMStreamMessage> subscriber : streamSubscribers) {
+            subscriber.tell(new LLMStreamChunkMessage(sequence, text));
+        }
+    }
+
+    /** Replies to every waiter; streaming waiters also get their end-of-stream marker. */
+    void complete(LLMResponseMessage response) {
+        int chunkCount;
+        synchronized (this) {
+            chunkCount = chunks.size();
+        }
+        for (int i = 0; i < waiters.size(); i++) {
+            LLMRequestMessage waiter = waiters.get(i);
+            Span span = spans.get(i);
+            ActorRef<LLMStreamMessage> streamTo = waiter.getStreamTo();
+            if (streamTo != null) {
+                if (!streaming && response.isSuccess()) {
+                    // Upstream call was not streamed; deliver the answer as a single chunk
+                    streamTo.tell(new LLMStreamChunkMessage(0, response.getResponse()));
+                    streamTo.tell(new LLMStreamEndMessage(true, 1));
+                } else {
+                    streamTo.tell(new LLMStreamEndMessage(response.isSuccess(), chunkCount));
+                }
+            }
+            waiter.getReplyTo().tell(new LLMResponseMessage(
+                    waiter.getCorrelationId(), response.getResponse(), response.isSuccess(), span.context()));
+            if (!response.isSuccess()) {
+                span.setError(response.getResponse());
+            }
+            span.end();
+        }
+    }
+}
@@ -9,7 +9,9 @@ import akka.actor.typed.javadsl.Receive;
 import akka.actor.typed.receptionist.Receptionist;
 import akka.actor.typed.receptionist.ServiceKey;
 import akka.cluster.typed.Cluster;
+import com.diplomatic.jfr.JfrEvents;
 import com.diplomatic.messages.*;
+import com.diplomatic.metrics.PipelineDispatchers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +37,16 @@ public class IntelligenceNodeSupervisor extends AbstractBehavior<IntelligenceNod
     public static final ServiceKey<DiplomaticPrimitiveRequestMessage> PRIMITIVES_KEY =
             ServiceKey.create(DiplomaticPrimitiveRequestMessage.class, "primitives");
 
+    // Batch endpoints in front of the same actors, used when Node 1 batches requests
+    public static final ServiceKey<ClassificationBatchRequest> CLASSIFIER_BATCH_KEY =
+            ServiceKey.create(ClassificationBatchRequest.class, "classifier-batch");
+
+    public static final ServiceKey<CulturalAnalysisBatchRequest> CULTURAL_BATCH_KEY =
+            ServiceKey.create(CulturalAnalysisBatchRequest.class, "cultural-batch");
+
+    public static final ServiceKey<DiplomaticPrimitiveBatchRequest> PRIMITIVES_BATCH_KEY =
+            ServiceKey.create(DiplomaticPrimitiveBatchRequest.class, "primitives-batch");
+
     private ActorRef<RouteToClassifierMessage> classifierActor;
     private ActorRef<CulturalAnalysisRequestMessage> culturalActor;
     private ActorRef<DiplomaticPrimitiveRequestMessage> primitivesActor;
@@ -53,6 +65,7 @@ public class IntelligenceNodeSupervisor extends AbstractBehavior<IntelligenceNod
         this.cluster = Cluster.get(context.getSystem());
         this.apiKey = apiKey;
         this.apiProvider = apiProvider;
+        JfrEvents.registerIfEnabled(context.getSystem());
 
         System.out.println("╔══════════════════════════════════════════════════════════╗");
         System.out.println("║  NODE 2: Intelligence Supervisor Created                ║");
@@ -70,18 +83,21 @@ public class IntelligenceNodeSupervisor extends AbstractBehavior<IntelligenceNod
     private Behavior<Command> onInitialize(Initialize cmd) {
         logger.info("Initializing intelligence actors on Node 2");
 
+        var system = getContext().getSystem();
         try {
-            // 1. Spawn LLM Processor Actor
+            // 1. Spawn LLM Processor Actor, on the blocking-I/O pool its HTTP client also uses
             this.llmActor = getContext().spawn(
                     LLMProcessorActor.create(apiKey, apiProvider),
-                    "llm-processor"
+                    "llm-processor",
+                    PipelineDispatchers.select(system, PipelineDispatchers.BLOCKING_IO)
             );
             logger.info("LLMProcessorActor spawned");
 
             // 2. Spawn Scenario Classifier Actor
             this.classifierActor = getContext().spawn(
                     ScenarioClassifierActor.create(),
-                    "scenario-classifier"
+                    "scenario-classifier",
+                    PipelineDispatchers.select(system, PipelineDispatchers.CPU)
             );
             logger.info("ScenarioClassifierActor spawned");
 
@@ -94,7 +110,8 @@ public class IntelligenceNodeSupervisor extends AbstractBehavior<IntelligenceNod
             // 3. Spawn Cultural Context Actor
             this.culturalActor = getContext().spawn(
                     CulturalContextActor.create(llmActor),
-                    "cultural-context"
+                    "cultural-context",
+                    PipelineDispatchers.select(system, PipelineDispatchers.CPU)
             );
             logger.info("CulturalContextActor spawned");
 
@@ -107,7 +124,8 @@ public class IntelligenceNodeSupervisor extends AbstractBehavior<IntelligenceNod
             // 4. Spawn Diplomatic Primitives Actor
             this.primitivesActor = getContext().spawn(
                     DiplomaticPrimitivesActor.create(llmActor),
-                    "diplomatic-primitives"
+                    "diplomatic-primitives",
+                    PipelineDispatchers.select(system, PipelineDispatchers.CPU)
             );
             logger.info("DiplomaticPrimitivesActor spawned");
 
@@ -117,6 +135,12 @@ public class IntelligenceNodeSupervisor extends AbstractBehavior<IntelligenceNod
             );
             logger.info("Primitives actor registered with receptionist");
 
+            // 5. Batch endpoints, so Node 1 can send many requests per remote message
+            registerBatchEndpoint(BatchProtocol.CLASSIFIER, classifierActor, CLASSIFIER_BATCH_KEY);
+            registerBatchEndpoint(BatchProtocol.CULTURAL, culturalActor, CULTURAL_BATCH_KEY);
+            registerBatchEndpoint(BatchProtocol.PRIMITIVES, primitivesActor, PRIMITIVES_BATCH_KEY);
+            logger.info("Batch endpoints registered with receptionist");
+
             System.out.println("🎉 All intelligence actors initialized and registered!");
             System.out.println("✅ Node 2 ready to process queries");
 
@@ -127,4 +151,12 @@ public class IntelligenceNodeSupervisor extends AbstractBehavior<IntelligenceNod
 
         return this;
     }
-}
\ No newline at end of file
+
+    private <Q, B, R, BR> void registerBatchEndpoint(
+            BatchProtocol<Q, B, R, BR> protocol, ActorRef<Q> target, ServiceKey<B> key) {
+        ActorRef<B> endpoint = getContext().spawn(
+                BatchEndpoint.create(protocol, target, getContext().getSystem().settings().config()),
+                protocol.name() + "-batch-endpoint");
+        getContext().getSystem().receptionist().tell(Receptionist.register(key, endpoint));
+    }
+}
@@ -0,0 +1,108 @@
+package com.diplomatic.actors.intelligence;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes text as the inside of a JSON string literal, straight to UTF-8 bytes.
+ *
+ * {@link #escapedLength} and {@link #writeEscaped} walk the text the same way, so a
+ * caller can size the destination exactly and encode in a single pass without an
+ * intermediate escaped string. Unpaired surrogates become {@code ?}, as
+ * {@link String#getBytes} does.
+ */
+final class JsonUtf8 {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private JsonUtf8() {}
+
+    /** Bytes {@link #writeEscaped} produces for {@code text}. */
+    static int escapedLength(CharSequence text) {
+        int length = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t') {
+                    length += 2;
+                } else if (c < 0x20) {
+                    length += 6;
+                } else {
+                    length++;
+                }
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /** Writes {@code text} escaped and encoded at {@code offset}; returns the offset after it. */
+    static int writeEscaped(CharSequence text, byte[] out, int offset) {
+        int pos = offset;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        out[pos++] = '\\';
+                        out[pos++] = (byte) c;
+                        break;
+                    case '\n':
+                        out[pos++] = '\\';
+                        out[pos++] = 'n';
+                        break;
+                    case '\r':
+                        out[pos++] = '\\';
+                        out[pos++] = 'r';
+                        break;
+                    case '\t':
+                        out[pos++] = '\\';
+                        out[pos++] = 't';
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out[pos++] = '\\';
+                            out[pos++] = 'u';
+                            out[pos++] = '0';
+                            out[pos++] = '0';
+                            out[pos++] = HEX[c >> 4];
+                            out[pos++] = HEX[c & 0xF];
+                        } else {
+                            out[pos++] = (byte) c;
+                        }
+                }
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    /** {@code text} escaped and encoded into a new array of exactly the right size. */
+    static byte[] escape(CharSequence text) {
+        byte[] out = new byte[escapedLength(text)];
+        writeEscaped(text, out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,260 @@
+package com.diplomatic.actors.intelligence;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Precompiled Aho-Corasick automaton over a fixed keyword set.
+ *
+ * Every keyword belongs to a category and has a priority (lower wins) and a value. One
+ * left-to-right pass over the text reports, per category, the best-priority keyword
+ * found, so "which country, which primitive, is it cultural" costs a single scan no
+ * matter how many keywords exist. Matching is case-insensitive and anchored at word
+ * starts: "change" matches "changes" but not "exchange".
+ *
+ * The goto/failure function is flattened into a dense transition table, and
+ * {@link #scan} writes into a caller-owned {@link Hits}, so scanning allocates nothing.
+ * Immutable once built and safe to share between actors.
+ */
+public final class KeywordAutomaton {
+
+    private static final int ROOT = 0;
+
+    private final int categories;
+    // ASCII characters index straight into this table; others are binary-searched
+    private final int[] asciiClass = new int[128];
+    private final char[] wideChars;
+    private final int[] wideClass;
+    private final int alphabetSize;
+    private final int[] transitions;
+
+    // Outputs of state s are outputs[outputStart[s] .. outputStart[s + 1])
+    private final int[] outputStart;
+    private final int[] outputs;
+
+    private final int[] keywordCategory;
+    private final int[] keywordPriority;
+    private final int[] keywordLength;
+    private final String[] keywordValue;
+
+    /** Per-category best match of one scan; reuse one instance per caller. */
+    public final class Hits {
+        private final int[] best = new int[categories];
+
+        private Hits() {
+        }
+
+        public boolean found(int category) {
+            return best[category] >= 0;
+        }
+
+        /** Value of the best keyword of {@code category}, or {@code fallback} when none matched. */
+        public String value(int category, String fallback) {
+            int k = best[category];
+            return k < 0 ? fallback : keywordValue[k];
+        }
+    }
+
+    public static Builder builder(int categories) {
+        return new Builder(categories);
+    }
+
+    public static final class Builder {
+        private final int categories;
+        private final List<String> keywords = new ArrayList<>();
+        private final List<int[]> meta = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+
+        private Builder(int categories) {
+            this.categories = categories;
+        }
+
+        /**
+         * Adds a keyword. When several keywords of one category occur in a text, the one
+         * with the lowest priority is reported together with its value.
+         */
+        public Builder add(String keyword, int category, int priority, String value) {
+            if (keyword == null || keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keyword must not be empty");
+            }
+            if (category < 0 || category >= categories) {
+                throw new IllegalArgumentException("Unknown category " + category);
+            }
+            keywords.add(fold(keyword));
+            meta.add(new int[] {category, priority});
+            values.add(value);
+            return this;
+        }
+
+        /** Adds keywords to a category with priorities in list order and themselves as values. */
+        public Builder addAll(int category, String... keywords) {
+            for (int i = 0; i < keywords.length; i++) {
+                add(keywords[i], category, i, keywords[i]);
+            }
+            return this;
+        }
+
+        public KeywordAutomaton build() {
+            return new KeywordAutomaton(this);
+        }
+    }
+
+    private KeywordAutomaton(Builder builder) {
+        this.categories = builder.categories;
+        int keywordCount = builder.keywords.size();
+        keywordCategory = new int[keywordCount];
+        keywordPriority = new int[keywordCount];
+        keywordLength = new int[keywordCount];
+        keywordValue = new String[keywordCount];
+
+        // Alphabet: class 0 is "any character no keyword uses"
+        TreeSet<Character> wide = new TreeSet<>();
+        int nextClass = 1;
+        for (String keyword : builder.keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c < 128) {
+                    if (asciiClass[c] == 0) {
+                        asciiClass[c] = nextClass++;
+                    }
+                } else {
+                    wide.add(c);
+                }
+            }
+        }
+        wideChars = new char[wide.size()];
+        wideClass = new int[wide.size()];
+        int w = 0;
+        for (char c : wide) {
+            wideChars[w] = c;
+            wideClass[w++] = nextClass++;
+        }
+        alphabetSize = nextClass;
+
+        // Trie
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        children.add(new HashMap<>());
+        stateOutputs.add(new ArrayList<>());
+        for (int k = 0; k < keywordCount; k++) {
+            String keyword = builder.keywords.get(k);
+            keywordCategory[k] = builder.meta.get(k)[0];
+            keywordPriority[k] = builder.meta.get(k)[1];
+            keywordLength[k] = keyword.length();
+            keywordValue[k] = builder.values.get(k);
+
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                int cls = classOf(keyword.charAt(i));
+                Integer next = children.get(state).get(cls);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    stateOutputs.add(new ArrayList<>());
+                    children.get(state).put(cls, next);
+                }
+                state = next;
+            }
+            stateOutputs.get(state).add(k);
+        }
+
+        // Breadth-first failure links, folded straight into a complete transition table
+        int states = children.size();
+        transitions = new int[states * alphabetSize];
+        int[] failure = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            Integer child = children.get(ROOT).get(cls);
+            transitions[cls] = child == null ? ROOT : child;
+            if (child != null) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs.get(state).addAll(stateOutputs.get(failure[state]));
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                Integer child = children.get(state).get(cls);
+                int fallback = transitions[failure[state] * alphabetSize + cls];
+                if (child == null) {
+                    transitions[state * alphabetSize + cls] = fallback;
+                } else {
+                    transitions[state * alphabetSize + cls] = child;
+                    failure[child] = fallback;
+                    queue.add(child);
+                }
+            }
+        }
+
+        outputStart = new int[states + 1];
+        int total = 0;
+        for (int s = 0; s < states; s++) {
+            outputStart[s] = total;
+            total += stateOutputs.get(s).size();
+        }
+        outputStart[states] = total;
+        outputs = new int[total];
+        for (int s = 0; s < states; s++) {
+            int at = outputStart[s];
+            for (int k : stateOutputs.get(s)) {
+                outputs[at++] = k;
+            }
+        }
+    }
+
+    public Hits newHits() {
+        return new Hits();
+    }
+
+    /** Scans {@code text} once and records the best keyword of each category in {@code hits}. */
+    public void scan(CharSequence text, Hits hits) {
+        int[] best = hits.best;
+        Arrays.fill(best, -1);
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * alphabetSize + classOf(fold(text.charAt(i)))];
+            for (int o = outputStart[state]; o < outputStart[state + 1]; o++) {
+                int k = outputs[o];
+                int start = i - keywordLength[k] + 1;
+                if (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+                    continue;
+                }
+                int category = keywordCategory[k];
+                if (best[category] < 0 || keywordPriority[k] < keywordPriority[best[category]]) {
+                    best[category] = k;
+                }
+            }
+        }
+    }
+
+    public int states() {
+        return outputStart.length - 1;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        int i = Arrays.binarySearch(wideChars, c);
+        return i < 0 ? 0 : wideClass[i];
+    }
+
+    private static char fold(char c) {
+        return c < 128
+                ? (c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c)
+                : Character.toLowerCase(c);
+    }
+
+    private static String fold(String keyword) {
+        char[] chars = keyword.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+}
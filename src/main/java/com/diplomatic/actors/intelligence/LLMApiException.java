@@ -0,0 +1,18 @@
+package com.diplomatic.actors.intelligence;
+
+/**
+ * Non-success HTTP status returned by the LLM provider.
+ */
+public class LLMApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public LLMApiException(int statusCode, String body) {
+        super("Claude API error: " + statusCode + " - " + body);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() { return statusCode; }
+}
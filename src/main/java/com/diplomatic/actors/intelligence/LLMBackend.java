@@ -0,0 +1,62 @@
+package com.diplomatic.actors.intelligence;
+
+import com.typesafe.config.Config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Where {@link LLMProcessorActor} gets its answers from. Chosen by
+ * {@code diplomatic-assistant.llm.backend}:
+ *
+ * <ul>
+ *   <li>{@code http}: the provider's Messages API ({@link LLMHttpClient})</li>
+ *   <li>{@code simulated}: reproducible text generated in-process at a modelled token rate
+ *       ({@link SimulatedLLMBackend}), for capacity tests and CI without the network</li>
+ *   <li>{@code record}: {@code http}, saving every answer to the recording file</li>
+ *   <li>{@code replay}: answers from the recording file, with the recorded latency
+ *       ({@link RecordReplayLLMBackend})</li>
+ * </ul>
+ *
+ * Implementations must be thread-safe. Futures may complete, and {@code onText} may be
+ * called, on any thread; cancelling a returned future abandons the call.
+ */
+public interface LLMBackend extends AutoCloseable {
+
+    /** Model name answers are attributed to; part of the response cache key. */
+    String getModel();
+
+    /** Completes with the whole answer. Fails with {@link LLMApiException} when the provider refuses. */
+    CompletableFuture<String> complete(String prompt);
+
+    /** Passes text deltas to {@code onText} as they are produced, then completes with the whole answer. */
+    CompletableFuture<String> stream(String prompt, Consumer<String> onText);
+
+    @Override
+    void close();
+
+    /**
+     * Builds the configured backend. Only the Anthropic wire format is implemented, so
+     * {@code apiProvider} must be {@code CLAUDE} (or null) for backends that call out.
+     * HTTP responses are handled on {@code httpExecutor}, or on the client's own threads when null.
+     */
+    static LLMBackend create(Config llmConfig, String apiKey, String apiProvider, Executor httpExecutor) {
+        String backend = llmConfig.getString("backend");
+        switch (backend) {
+            case "http":
+                return new LLMHttpClient(llmConfig, apiKey, apiProvider, httpExecutor);
+            case "simulated":
+                return new SimulatedLLMBackend(llmConfig.getConfig("simulated"), llmConfig.getString("model"));
+            case "record":
+                return RecordReplayLLMBackend.record(
+                        new LLMHttpClient(llmConfig, apiKey, apiProvider, httpExecutor), llmConfig.getConfig("recording"));
+            case "replay":
+                return RecordReplayLLMBackend.replay(llmConfig.getConfig("recording"), llmConfig.getString("model"),
+                        () -> new SimulatedLLMBackend(llmConfig.getConfig("simulated"), llmConfig.getString("model")));
+            default:
+                throw new IllegalArgumentException(
+                        "diplomatic-assistant.llm.backend must be http, simulated, record or replay, not '" + backend + "'");
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.diplomatic.actors.intelligence;
+
+import com.diplomatic.jfr.JfrEvents;
+import com.diplomatic.jfr.LLMHttpCallEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous client for the Anthropic Messages API.
+ *
+ * One {@link HttpClient} is shared by all calls, so HTTP/2 connections stay open and
+ * TLS sessions are reused. Requests never block a thread while waiting on the network;
+ * response handling runs on the executor it is given (the blocking-io dispatcher inside
+ * {@link LLMProcessorActor}) or on a small one of its own, never on the common pool.
+ * Cancelling a returned future aborts the underlying HTTP exchange.
+ *
+ * While Flight Recorder events are registered each exchange is recorded as an
+ * {@link LLMHttpCallEvent} with its sizes and the token usage the provider reports.
+ */
+public class LLMHttpClient implements LLMBackend {
+
+    private final HttpClient httpClient;
+    // Null when the caller supplied the executor and so owns its lifecycle
+    private final ExecutorService ownExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI apiUrl;
+    private final String apiKey;
+    private final String model;
+    private final int maxTokens;
+    private final Duration requestTimeout;
+    // Everything in a request body but the prompt, encoded once
+    private final byte[] bodyHead;
+    private final byte[] streamingBodyHead;
+    private static final byte[] BODY_TAIL = "\"}]}".getBytes(StandardCharsets.UTF_8);
+
+    public LLMHttpClient(Config llmConfig, String apiKey) {
+        this(llmConfig, apiKey, "CLAUDE");
+    }
+
+    public LLMHttpClient(Config llmConfig, String apiKey, String apiProvider) {
+        this(llmConfig, apiKey, apiProvider, null);
+    }
+
+    /** Runs response handling on {@code executor}, or on {@code http-threads} threads of its own when null. */
+    public LLMHttpClient(Config llmConfig, String apiKey, String apiProvider, Executor executor) {
+        if (apiProvider != null && !"CLAUDE".equalsIgnoreCase(apiProvider)) {
+            throw new IllegalArgumentException("Unsupported LLM provider '" + apiProvider + "', only CLAUDE is implemented");
+        }
+        this.apiUrl = URI.create(llmConfig.getString("api-url"));
+        this.apiKey = apiKey;
+        this.model = llmConfig.getString("model");
+        this.maxTokens = llmConfig.getInt("max-tokens");
+        this.requestTimeout = llmConfig.getDuration("request-timeout");
+        this.bodyHead = bodyHead(model, maxTokens, false);
+        this.streamingBodyHead = bodyHead(model, maxTokens, true);
+        this.ownExecutor = executor == null
+                ? Executors.newFixedThreadPool(llmConfig.getInt("http-threads"), namedThreads("llm-http"))
+                : null;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(llmConfig.getDuration("connect-timeout"))
+                .executor(executor == null ? ownExecutor : executor)
+                .build();
+    }
+
+    @Override
+    public String getModel() { return model; }
+
+    /**
+     * Sends the prompt and completes with the text of the first content block.
+     * Fails with {@link LLMApiException} on a non-200 status.
+     */
+    @Override
+    public CompletableFuture<String> complete(String prompt) {
+        byte[] body = buildRequestBody(prompt, false);
+        LLMHttpCallEvent event = beginCall(body, false);
+        CompletableFuture<HttpResponse<String>> exchange =
+                httpClient.sendAsync(buildRequest(body), HttpResponse.BodyHandlers.ofString());
+        return recorded(event, cancelling(exchange, exchange.thenApply(response -> extractText(response, event))));
+    }
+
+    /**
+     * Sends the prompt with server-sent events enabled. Each text delta is passed to
+     * {@code onText} as soon as its event line arrives; the future completes with the
+     * assembled text once the stream ends.
+     */
+    @Override
+    public CompletableFuture<String> stream(String prompt, Consumer<String> onText) {
+        byte[] body = buildRequestBody(prompt, true);
+        LLMHttpCallEvent event = beginCall(body, true);
+        ServerSentEventSubscriber subscriber = new ServerSentEventSubscriber(onText, event);
+        CompletableFuture<HttpResponse<ServerSentEventSubscriber>> exchange = httpClient.sendAsync(buildRequest(body),
+                HttpResponse.BodyHandlers.fromLineSubscriber(subscriber, s -> s, null));
+        return recorded(event, cancelling(exchange, exchange.thenApply(response -> {
+                    if (event != null) {
+                        event.statusCode = response.statusCode();
+                    }
+                    if (response.statusCode() != 200) {
+                        throw new LLMApiException(response.statusCode(), subscriber.rawBody());
+                    }
+                    if (subscriber.error() != null) {
+                        throw new LLMApiException(response.statusCode(), subscriber.error());
+                    }
+                    return subscriber.text();
+                })));
+    }
+
+    /** Null unless Flight Recorder is recording the event, so a disabled call allocates nothing. */
+    private LLMHttpCallEvent beginCall(byte[] body, boolean streaming) {
+        if (!JfrEvents.isRegistered()) {
+            return null;
+        }
+        LLMHttpCallEvent event = new LLMHttpCallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.model = model;
+        event.streaming = streaming;
+        event.requestBytes = body.length;
+        event.begin();
+        return event;
+    }
+
+    private static CompletableFuture<String> recorded(LLMHttpCallEvent event, CompletableFuture<String> result) {
+        if (event != null) {
+            result.whenComplete((text, failure) -> {
+                event.end();
+                if (event.shouldCommit()) {
+                    if (failure != null) {
+                        Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                        event.failure = cause.getClass().getSimpleName();
+                    }
+                    event.commit();
+                }
+            });
+        }
+        return result;
+    }
+
+    /** Dependent futures don't cancel their source, so forward cancellation explicitly. */
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<?> exchange, CompletableFuture<T> result) {
+        result.whenComplete((value, failure) -> {
+            if (failure instanceof CancellationException) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private HttpRequest buildRequest(byte[] body) {
+        return HttpRequest.newBuilder(apiUrl)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("x-api-key", apiKey)
+                .header("anthropic-version", "2023-06-01")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    /**
+     * The Messages API request for {@code prompt} as UTF-8. Only the prompt is escaped per
+     * call, directly into an array sized for the whole body, so the body is the one
+     * allocation and is sent without further copies.
+     */
+    byte[] buildRequestBody(String prompt, boolean stream) {
+        byte[] head = stream ? streamingBodyHead : bodyHead;
+        byte[] body = new byte[head.length + JsonUtf8.escapedLength(prompt) + BODY_TAIL.length];
+        System.arraycopy(head, 0, body, 0, head.length);
+        int end = JsonUtf8.writeEscaped(prompt, body, head.length);
+        System.arraycopy(BODY_TAIL, 0, body, end, BODY_TAIL.length);
+        return body;
+    }
+
+    private static byte[] bodyHead(String model, int maxTokens, boolean stream) {
+        return ("{\"model\":\"" + new String(JsonUtf8.escape(model), StandardCharsets.UTF_8)
+                + "\",\"max_tokens\":" + maxTokens + ","
+                + (stream ? "\"stream\":true," : "")
+                + "\"messages\":[{\"role\":\"user\",\"content\":\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String extractText(HttpResponse<String> response, LLMHttpCallEvent event) {
+        if (event != null) {
+            event.statusCode = response.statusCode();
+            event.responseBytes = JfrEvents.utf8Length(response.body());
+        }
+        if (response.statusCode() != 200) {
+            throw new LLMApiException(response.statusCode(), response.body());
+        }
+        try {
+            JsonNode jsonResponse = objectMapper.readTree(response.body());
+            if (event != null) {
+                JsonNode usage = jsonResponse.path("usage");
+                event.inputTokens = usage.path("input_tokens").asInt(-1);
+                event.outputTokens = usage.path("output_tokens").asInt(-1);
+            }
+            return jsonResponse.get("content").get(0).get("text").asText();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the Messages API event stream line by line. Only "data:" lines matter:
+     * content_block_delta events carry text, an "error" event ends the stream.
+     * Token usage comes in message_start (input) and message_delta (output).
+     */
+    private final class ServerSentEventSubscriber implements Flow.Subscriber<String> {
+        private final Consumer<String> onText;
+        private final LLMHttpCallEvent callEvent;
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder raw = new StringBuilder();
+        private String error;
+
+        ServerSentEventSubscriber(Consumer<String> onText, LLMHttpCallEvent callEvent) {
+            this.onText = onText;
+            this.callEvent = callEvent;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (callEvent != null) {
+                // Lines arrive without their terminator
+                callEvent.responseBytes += JfrEvents.utf8Length(line) + 1;
+            }
+            if (!line.startsWith("data:")) {
+                raw.append(line);
+                return;
+            }
+            try {
+                JsonNode event = objectMapper.readTree(line.substring(5).trim());
+                String type = event.path("type").asText();
+                if ("content_block_delta".equals(type)) {
+                    String delta = event.path("delta").path("text").asText("");
+                    if (!delta.isEmpty()) {
+                        text.append(delta);
+                        onText.accept(delta);
+                    }
+                } else if ("error".equals(type)) {
+                    error = event.path("error").toString();
+                } else if (callEvent != null && "message_start".equals(type)) {
+                    callEvent.inputTokens = event.path("message").path("usage").path("input_tokens").asInt(-1);
+                } else if (callEvent != null && "message_delta".equals(type)) {
+                    callEvent.outputTokens = event.path("usage").path("output_tokens").asInt(-1);
+                }
+            } catch (IOException e) {
+                raw.append(line);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Surfaces through the response future
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        String text() { return text.toString(); }
+        String rawBody() { return raw.toString(); }
+        String error() { return error; }
+    }
+
+    @Override
+    public void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "http " + apiUrl;
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
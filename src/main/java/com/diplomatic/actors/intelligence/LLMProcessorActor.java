@@ -1,138 +1,454 @@
 package com.diplomatic.actors.intelligence;
 
 import akka.actor.typed.Behavior;
+import akka.actor.typed.DispatcherSelector;
+import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import akka.actor.typed.javadsl.TimerScheduler;
+import akka.pattern.CircuitBreaker;
+import akka.pattern.CircuitBreakerOpenException;
 import com.diplomatic.messages.*;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.diplomatic.metrics.Counter;
+import com.diplomatic.metrics.LatencyHistogram;
+import com.diplomatic.metrics.MetricsRegistry;
+import com.diplomatic.metrics.PipelineDispatchers;
+import com.diplomatic.tracing.Span;
+import com.diplomatic.tracing.SpanKind;
+import com.diplomatic.tracing.Tracer;
+import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public class LLMProcessorActor extends AbstractBehavior<LLMRequestMessage> {
+/**
+ * Calls the LLM for intelligence actors. Public protocol is {@link LLMRequestMessage};
+ * completed calls come back to the actor as internal messages. Answers come from the
+ * {@link LLMBackend} selected by {@code diplomatic-assistant.llm.backend}.
+ *
+ * Requests carrying a streamTo ref are sent in streaming mode: text deltas go straight
+ * to that ref as they arrive, then the assembled answer is replied as usual.
+ *
+ * Successful answers are kept in a {@link LLMResponseCache}; a hit is answered without
+ * calling the provider. Identical requests arriving while a call is outstanding attach
+ * to that call ({@link InFlightLLMCall}) instead of starting their own.
+ *
+ * Upstream concurrency is capped by an {@link AdaptiveConcurrencyLimiter}. Calls over the
+ * limit wait in a bounded queue; when that is full new work is rejected immediately
+ * rather than piling more load onto an overloaded provider.
+ *
+ * Every request has a deadline counted from when it arrives, so time spent queued comes
+ * out of the same budget; a queued request whose deadline passes is failed without
+ * calling the provider. Upstream calls run through a {@link CircuitBreaker}; after
+ * repeated failures requests are refused immediately until the provider recovers.
+ * A call still unanswered after the recent p95 latency gets a hedged duplicate
+ * ({@link HedgedLLMCall}) and the first answer wins.
+ *
+ * Every request gets an {@code llm.request} span tagged with how it was answered;
+ * the call that goes upstream adds an {@code llm.upstream} span under its leader's.
+ */
+public class LLMProcessorActor extends AbstractBehavior<Object> {
 
     private final Logger logger = LoggerFactory.getLogger(LLMProcessorActor.class);
-    private final String apiKey;
-    private final ObjectMapper objectMapper;
-    private static final String MODEL = "claude-sonnet-4-20250514";
+    private final LLMBackend backend;
+    private final LLMResponseCache cache;
+    private final Map<String, InFlightLLMCall> inFlight = new HashMap<>();
+    private long coalescedRequests = 0;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ArrayDeque<PendingCall> queue = new ArrayDeque<>();
+    private final int queueCapacity;
+    private long shedRequests = 0;
+    private final Duration deadline;
+    private final CircuitBreaker breaker;
+    private final Map<String, HedgedLLMCall> upstream = new HashMap<>();
+    private final LatencyWindow latencies;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final int hedgeMinSamples;
+    private final Duration hedgeMinDelay;
+    private long hedgedCalls = 0;
+
+    private final LatencyHistogram upstreamLatency;
+    private final LatencyHistogram queueLatency;
+    private final Counter cacheHits;
+    private final Counter coalesced;
+    private final Counter upstreamCalls;
+    private final Counter shed;
+    private final Counter timeouts;
+    private final Counter overloads;
+    private final Counter errors;
+    private final Counter circuitOpen;
+    private final Tracer tracer;
+
+    private enum LogStats { INSTANCE }
+
+    private static final class HedgeDue {
+        final String flightKey;
+        final HedgedLLMCall attempts;
+        HedgeDue(String flightKey, HedgedLLMCall attempts) {
+            this.flightKey = flightKey;
+            this.attempts = attempts;
+        }
+    }
+
+    private static final class PendingCall {
+        final String flightKey;
+        final String cacheKey;
+        final String prompt;
+        final InFlightLLMCall call;
+        final Span span;
+        final long createdNanos = System.nanoTime();
+        final long deadlineNanos;
+
+        PendingCall(String flightKey, String cacheKey, String prompt, InFlightLLMCall call, Span span,
+                    Duration deadline) {
+            this.flightKey = flightKey;
+            this.cacheKey = cacheKey;
+            this.prompt = prompt;
+            this.call = call;
+            this.span = span;
+            this.deadlineNanos = createdNanos + deadline.toNanos();
+        }
+    }
+
+    private static final class LLMCallCompleted {
+        final String flightKey;
+        final String cacheKey;
+        final String response;
+        final Throwable failure;
+        final long startNanos;
+        final Span span;
+
+        LLMCallCompleted(String flightKey, String cacheKey, String response, Throwable failure, long startNanos,
+                         Span span) {
+            this.flightKey = flightKey;
+            this.cacheKey = cacheKey;
+            this.response = response;
+            this.failure = failure;
+            this.startNanos = startNanos;
+            this.span = span;
+        }
+    }
 
     public static Behavior<LLMRequestMessage> create(String apiKey, String apiProvider) {
-        return Behaviors.setup(context -> new LLMProcessorActor(context, apiKey));
+        return Behaviors.<Object>setup(context -> Behaviors.withTimers(timers ->
+                new LLMProcessorActor(context, timers, apiKey, apiProvider))).narrow();
     }
 
-    private LLMProcessorActor(ActorContext<LLMRequestMessage> context, String apiKey) {
+    private LLMProcessorActor(ActorContext<Object> context, TimerScheduler<Object> timers,
+                              String apiKey, String apiProvider) {
         super(context);
-        this.apiKey = apiKey;
-        this.objectMapper = new ObjectMapper();
-        logger.info("LLMProcessorActor initialized - Provider: CLAUDE, Model: {}", MODEL);
+        var llmConfig = context.getSystem().settings().config().getConfig("diplomatic-assistant.llm");
+        this.backend = LLMBackend.create(llmConfig, apiKey, apiProvider, context.getSystem().dispatchers()
+                .lookup(DispatcherSelector.fromConfig(PipelineDispatchers.BLOCKING_IO)));
+        this.cache = new LLMResponseCache(llmConfig.getConfig("cache"), backend.getModel());
+        this.limiter = new AdaptiveConcurrencyLimiter(llmConfig.getConfig("concurrency"));
+        this.queueCapacity = llmConfig.getInt("concurrency.queue-capacity");
+        this.deadline = llmConfig.getDuration("deadline");
+
+        Config breakerConfig = llmConfig.getConfig("circuit-breaker");
+        this.breaker = CircuitBreaker.create(
+                        context.getSystem().classicSystem().scheduler(),
+                        breakerConfig.getInt("max-failures"),
+                        // Our own deadline fires first and cancels the call; this is a backstop
+                        deadline.plusSeconds(1),
+                        breakerConfig.getDuration("reset-timeout"))
+                .addOnOpenListener(() -> logger.warn("LLM circuit breaker opened - failing fast"))
+                .addOnHalfOpenListener(() -> logger.info("LLM circuit breaker half-open - probing provider"))
+                .addOnCloseListener(() -> logger.info("LLM circuit breaker closed"));
+
+        Config hedgingConfig = llmConfig.getConfig("hedging");
+        this.hedgingEnabled = hedgingConfig.getBoolean("enabled");
+        this.hedgePercentile = hedgingConfig.getDouble("percentile");
+        this.hedgeMinSamples = hedgingConfig.getInt("min-samples");
+        this.hedgeMinDelay = hedgingConfig.getDuration("min-delay");
+        this.latencies = new LatencyWindow(hedgingConfig.getInt("window"));
+
+        MetricsRegistry metrics = MetricsRegistry.forSystem(context.getSystem());
+        this.upstreamLatency = metrics.stage("llm");
+        this.queueLatency = metrics.stage("llm_queue");
+        String requests = "diplomatic_llm_requests_total";
+        String requestsHelp = "LLM requests by how they were answered";
+        this.cacheHits = metrics.counter(requests, requestsHelp, "result", "cache_hit");
+        this.coalesced = metrics.counter(requests, requestsHelp, "result", "coalesced");
+        this.upstreamCalls = metrics.counter(requests, requestsHelp, "result", "upstream");
+        this.shed = metrics.counter(requests, requestsHelp, "result", "shed");
+        String failures = "diplomatic_llm_failures_total";
+        String failuresHelp = "Failed upstream LLM calls by reason";
+        this.timeouts = metrics.counter(failures, failuresHelp, "reason", "timeout");
+        this.overloads = metrics.counter(failures, failuresHelp, "reason", "overload");
+        this.errors = metrics.counter(failures, failuresHelp, "reason", "error");
+        this.circuitOpen = metrics.counter(failures, failuresHelp, "reason", "circuit_open");
+        this.tracer = Tracer.forSystem(context.getSystem());
+
+        Duration statsInterval = llmConfig.getDuration("stats-log-interval");
+        timers.startTimerWithFixedDelay(LogStats.INSTANCE, statsInterval);
+        logger.info("LLMProcessorActor initialized - Backend: {}, Model: {}", backend, backend.getModel());
     }
 
     @Override
-    public Receive<LLMRequestMessage> createReceive() {
+    public Receive<Object> createReceive() {
         return newReceiveBuilder()
                 .onMessage(LLMRequestMessage.class, this::onLLMRequest)
+                .onMessage(LLMCallCompleted.class, this::onLLMCallCompleted)
+                .onMessage(HedgeDue.class, this::onHedgeDue)
+                .onMessage(LogStats.class, msg -> onLogStats())
+                .onSignal(PostStop.class, signal -> onPostStop())
                 .build();
     }
 
-    private Behavior<LLMRequestMessage> onLLMRequest(LLMRequestMessage msg) {
-        logger.info("Processing LLM request with Claude API");
-
-        getContext().pipeToSelf(
-                java.util.concurrent.CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return callClaudeAPI(msg.getPrompt());
-                    } catch (Exception e) {
-                        logger.error("Claude API call failed: {}", e.getMessage());
-                        return null;
-                    }
-                }),
-                (response, throwable) -> {
-                    LLMResponseMessage llmResponse;
-                    if (throwable != null || response == null) {
-                        logger.error("Claude API error", throwable);
-                        llmResponse = new LLMResponseMessage(
-                                "I apologize, but I'm having trouble connecting to the AI service.",
-                                false
-                        );
-                    } else {
-                        logger.info("Claude API call successful");
-                        llmResponse = new LLMResponseMessage(response, true);
-                    }
-                    msg.getReplyTo().tell(llmResponse);
-                    return msg;
+    private Behavior<Object> onLLMRequest(LLMRequestMessage msg) {
+        Span span = tracer.startSpan("llm.request", SpanKind.SERVER, msg.getTrace());
+        String cacheKey = cache.keyFor(msg);
+        if (cacheKey != null) {
+            String cached = cache.get(cacheKey);
+            if (cached != null) {
+                logger.info("LLM response served from cache");
+                cacheHits.increment();
+                if (msg.getStreamTo() != null) {
+                    msg.getStreamTo().tell(new LLMStreamChunkMessage(0, cached));
+                    msg.getStreamTo().tell(new LLMStreamEndMessage(true, 1));
                 }
-        );
+                msg.getReplyTo().tell(new LLMResponseMessage(msg.getCorrelationId(), cached, true, span.context()));
+                span.setAttribute("llm.result", "cache_hit").end();
+                return this;
+            }
+        }
+
+        // Coalesce on the normalized cache key when there is one, else on the exact prompt
+        String flightKey = cacheKey != null ? cacheKey : "prompt:" + msg.getPrompt();
+        InFlightLLMCall existing = inFlight.get(flightKey);
+        if (existing != null) {
+            existing.join(msg, span.setAttribute("llm.result", "coalesced"));
+            coalescedRequests++;
+            coalesced.increment();
+            logger.info("LLM request attached to in-flight call ({} waiting, {} coalesced in total)",
+                    existing.waiterCount(), coalescedRequests);
+            return this;
+        }
+
+        InFlightLLMCall call = new InFlightLLMCall(msg, span);
+        PendingCall pending = new PendingCall(flightKey, cacheKey, msg.getPrompt(), call, span, deadline);
+        dropExpired();
+        if (limiter.tryAcquire()) {
+            inFlight.put(flightKey, call);
+            startUpstream(pending);
+        } else if (queue.size() < queueCapacity) {
+            // Registered right away so identical requests can join while it waits
+            inFlight.put(flightKey, call);
+            queue.add(pending);
+            logger.info("LLM concurrency limit {} reached - request queued ({} waiting)",
+                    limiter.getLimit(), queue.size());
+        } else {
+            shedRequests++;
+            shed.increment();
+            logger.warn("LLM queue full ({}) - shedding request", queueCapacity);
+            span.setAttribute("llm.result", "shed");
+            call.complete(new LLMResponseMessage(
+                    "The AI service is busy right now. Please try again in a moment.", false));
+        }
 
         return this;
     }
 
-    private String callClaudeAPI(String prompt) throws Exception {
-        logger.debug("Connecting to Claude API");
-        URL url = new URL("https://api.anthropic.com/v1/messages");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    /** Fails queued requests whose deadline has passed; the queue is FIFO, so they are at its head. */
+    private void dropExpired() {
+        long now = System.nanoTime();
+        while (!queue.isEmpty() && queue.peek().deadlineNanos - now <= 0) {
+            PendingCall expired = queue.poll();
+            inFlight.remove(expired.flightKey);
+            queueLatency.record(now - expired.createdNanos);
+            timeouts.increment();
+            logger.warn("LLM request waited out its {} deadline in the queue - dropping it", deadline);
+            expired.span.setAttribute("llm.result", "expired");
+            expired.call.complete(new LLMResponseMessage(
+                    "I apologize, but I'm having trouble connecting to the AI service.", false));
+        }
+    }
+
+    private void startUpstream(PendingCall pending) {
+        logger.info("Processing LLM request (streaming: {})", pending.call.isStreaming());
+        long startNanos = System.nanoTime();
+        queueLatency.record(startNanos - pending.createdNanos);
+        long remainingNanos = Math.max(0, pending.deadlineNanos - startNanos);
+        upstreamCalls.increment();
+        pending.span.setAttribute("llm.result", "upstream");
+        Span span = tracer.startSpan("llm.upstream", SpanKind.CLIENT, pending.span.context())
+                .setAttribute("llm.model", backend.getModel())
+                .setAttribute("llm.streaming", Boolean.toString(pending.call.isStreaming()));
+
+        // Stream deltas are fanned out from the backend's threads; ActorRef.tell is thread-safe
+        HedgedLLMCall attempts = new HedgedLLMCall(
+                onText -> pending.call.isStreaming()
+                        ? backend.stream(pending.prompt, onText)
+                        : backend.complete(pending.prompt),
+                pending.call::onText);
+
+        CompletionStage<String> guarded = breaker.callWithCircuitBreakerCS(
+                () -> attempts.start()
+                        .orTimeout(remainingNanos, TimeUnit.NANOSECONDS)
+                        .whenComplete((response, failure) -> {
+                            if (failure != null) {
+                                attempts.cancel();
+                            }
+                        }),
+                LLMProcessorActor::isBreakerFailure);
 
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setRequestProperty("x-api-key", apiKey);
-        conn.setRequestProperty("anthropic-version", "2023-06-01");
-        conn.setDoOutput(true);
+        upstream.put(pending.flightKey, attempts);
+        long hedgeDelay = hedgeDelayNanos();
+        if (hedgeDelay > 0) {
+            getContext().scheduleOnce(Duration.ofNanos(hedgeDelay), getContext().getSelf(),
+                    new HedgeDue(pending.flightKey, attempts));
+        }
 
-        String requestBody = String.format(
-                "{\"model\":\"%s\",\"max_tokens\":1024,\"messages\":[{\"role\":\"user\",\"content\":\"%s\"}]}",
-                MODEL,
-                escapeJson(prompt)
+        getContext().pipeToSelf(
+                guarded,
+                (response, throwable) -> new LLMCallCompleted(
+                        pending.flightKey, pending.cacheKey, response, throwable, startNanos, span)
         );
+    }
+
+    private long hedgeDelayNanos() {
+        if (!hedgingEnabled || latencies.size() < hedgeMinSamples) {
+            return -1;
+        }
+        return Math.max(hedgeMinDelay.toNanos(), latencies.percentile(hedgePercentile));
+    }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
-            os.write(input, 0, input.length);
+    private Behavior<Object> onHedgeDue(HedgeDue due) {
+        HedgedLLMCall attempts = due.attempts;
+        // The duplicate needs its own permit, so hedging never pushes past the concurrency limit;
+        // a timer outliving its call must not hedge a newer call on the same key
+        if (upstream.get(due.flightKey) == attempts && !breaker.isOpen() && limiter.tryAcquire()) {
+            if (attempts.hedge()) {
+                hedgedCalls++;
+                logger.info("LLM call slower than p{} - sent hedged duplicate",
+                        Math.round(hedgePercentile * 100));
+            } else {
+                limiter.release();
+            }
         }
+        return this;
+    }
 
-        int responseCode = conn.getResponseCode();
-        logger.debug("Claude API response code: {}", responseCode);
+    private Behavior<Object> onLLMCallCompleted(LLMCallCompleted completed) {
+        InFlightLLMCall call = inFlight.remove(completed.flightKey);
+        HedgedLLMCall attempts = upstream.remove(completed.flightKey);
+        if (attempts != null && attempts.isHedged()) {
+            limiter.release();
+        }
 
-        if (responseCode == 200) {
-            BufferedReader br = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)
+        Throwable cause = unwrap(completed.failure);
+        completed.span.setAttribute("llm.hedged", Boolean.toString(attempts != null && attempts.isHedged()));
+        if (cause != null) {
+            completed.span.setError(cause.getClass().getSimpleName());
+        }
+        completed.span.end();
+        LLMResponseMessage llmResponse;
+        if (cause instanceof CircuitBreakerOpenException) {
+            circuitOpen.increment();
+            limiter.release();
+            llmResponse = new LLMResponseMessage(
+                    "The AI service is temporarily unavailable. Please try again shortly.",
+                    false
             );
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line);
+        } else if (cause != null || completed.response == null) {
+            upstreamLatency.recordSince(completed.startNanos);
+            if (cause instanceof TimeoutException) {
+                timeouts.increment();
+                logger.error("LLM call exceeded its {} deadline", deadline);
+            } else {
+                (isOverload(cause) ? overloads : errors).increment();
+                logger.error("LLM call failed", cause);
             }
-            br.close();
-
-            JsonNode jsonResponse = objectMapper.readTree(response.toString());
-            String text = jsonResponse.get("content").get(0).get("text").asText();
-            return text;
-        } else {
-            BufferedReader br = new BufferedReader(
-                    new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8)
+            if (isOverload(cause)) {
+                limiter.onOverload();
+            } else {
+                limiter.release();
+            }
+            llmResponse = new LLMResponseMessage(
+                    "I apologize, but I'm having trouble connecting to the AI service.",
+                    false
             );
-            StringBuilder errorResponse = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                errorResponse.append(line);
+        } else {
+            logger.info("LLM call successful");
+            long latency = System.nanoTime() - completed.startNanos;
+            upstreamLatency.record(latency);
+            limiter.onSuccess(latency);
+            latencies.record(latency);
+            llmResponse = new LLMResponseMessage(completed.response, true);
+            if (completed.cacheKey != null) {
+                cache.put(completed.cacheKey, completed.response);
             }
-            br.close();
-            throw new Exception("Claude API error: " + responseCode + " - " + errorResponse.toString());
         }
+        call.complete(llmResponse);
+
+        dropExpired();
+        while (!queue.isEmpty() && limiter.tryAcquire()) {
+            startUpstream(queue.poll());
+        }
+        return this;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+    }
+
+    /** A missed deadline is the strongest congestion signal we get, so it counts as overload. */
+    private static boolean isOverload(Throwable cause) {
+        if (cause instanceof TimeoutException) {
+            return true;
+        }
+        if (cause instanceof LLMApiException) {
+            int status = ((LLMApiException) cause).getStatusCode();
+            return status == 429 || status == 529;
+        }
+        return false;
     }
 
-    private String escapeJson(String text) {
-        return text.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+    /** Client errors (bad request, auth) say nothing about provider health and don't trip the breaker. */
+    private static Boolean isBreakerFailure(Optional<String> response, Optional<Throwable> failure) {
+        if (failure.isEmpty()) {
+            return false;
+        }
+        Throwable cause = unwrap(failure.get());
+        if (cause instanceof LLMApiException) {
+            int status = ((LLMApiException) cause).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return true;
+    }
+
+    private Behavior<Object> onLogStats() {
+        logger.info("LLM response cache: {}", cache);
+        logger.info("LLM concurrency: limit={} inFlight={} queued={} overloadSignals={} shed={} coalesced={}",
+                limiter.getLimit(), limiter.getInFlight(), queue.size(), limiter.getOverloadSignals(),
+                shedRequests, coalescedRequests);
+        logger.info("LLM latency: p50={}ms p{}={}ms hedged={} breakerOpen={}",
+                TimeUnit.NANOSECONDS.toMillis(latencies.percentile(0.5)),
+                Math.round(hedgePercentile * 100),
+                TimeUnit.NANOSECONDS.toMillis(latencies.percentile(hedgePercentile)),
+                hedgedCalls, breaker.isOpen());
+        return this;
+    }
+
+    private Behavior<Object> onPostStop() {
+        upstream.values().forEach(HedgedLLMCall::cancel);
+        backend.close();
+        cache.close();
+        return this;
     }
-}
\ No newline at end of file
+}
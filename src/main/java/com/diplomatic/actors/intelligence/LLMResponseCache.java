@@ -0,0 +1,167 @@
+package com.diplomatic.actors.intelligence;
+
+import com.diplomatic.messages.LLMContext;
+import com.diplomatic.messages.LLMRequestMessage;
+import com.typesafe.config.Config;
+
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of LLM answers used by {@link LLMProcessorActor}.
+ *
+ * Tier one is an in-heap LRU bounded by an estimate of retained bytes; tier two is the
+ * optional memory-mapped {@link DiskResponseCache}. Both honour the same TTL. Keys are
+ * built from the scenario, country, primitive and a normalized query, so trivially
+ * different phrasings ("Japan greeting etiquette?" vs "japan  greeting etiquette") share
+ * an entry. Only the owning actor touches the maps; counters may be read from anywhere.
+ */
+public class LLMResponseCache implements AutoCloseable {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final String model;
+    private final DiskResponseCache disk;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private volatile long memoryBytes = 0;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+
+    private static final class Entry {
+        final String value;
+        final long expiresAt;
+        final long bytes;
+
+        Entry(String value, long expiresAt, long bytes) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+    }
+
+    public LLMResponseCache(Config cacheConfig, String model) {
+        this.enabled = cacheConfig.getBoolean("enabled");
+        this.maxBytes = cacheConfig.getBytes("memory.max-bytes");
+        this.ttlMillis = cacheConfig.getDuration("ttl").toMillis();
+        this.model = model;
+        this.disk = enabled && cacheConfig.getBoolean("disk.enabled")
+                ? new DiskResponseCache(Paths.get(cacheConfig.getString("disk.directory")),
+                        cacheConfig.getBytes("disk.max-bytes"))
+                : null;
+    }
+
+    /**
+     * Normalized cache key for a request, or null when the request carries no context
+     * to key on.
+     */
+    public String keyFor(LLMRequestMessage request) {
+        LLMContext context = request.getContext();
+        if (!enabled || context == null || context.getQuery() == null) {
+            return null;
+        }
+        return model
+                + '|' + (context.getScenarioType() == null ? "" : context.getScenarioType().name())
+                + '|' + (context.getCountry() == null ? "" : normalize(context.getCountry()))
+                + '|' + (context.getPrimitive() == null ? "" : context.getPrimitive())
+                + '|' + normalize(context.getQuery());
+    }
+
+    public String get(String key) {
+        long now = System.currentTimeMillis();
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                memoryHits.incrementAndGet();
+                return entry.value;
+            }
+            remove(key);
+        }
+        if (disk != null) {
+            DiskResponseCache.Cached cached = disk.get(key, now);
+            if (cached != null) {
+                diskHits.incrementAndGet();
+                // Keep the stored expiry; promotion must not extend the entry's life
+                putInMemory(key, cached.value, cached.expiresAt);
+                return cached.value;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, String value) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        putInMemory(key, value, expiresAt);
+        if (disk != null) {
+            disk.put(key, value, expiresAt);
+        }
+    }
+
+    private void putInMemory(String key, String value, long expiresAt) {
+        long bytes = 2L * (key.length() + value.length()) + ENTRY_OVERHEAD_BYTES;
+        if (bytes > maxBytes) {
+            return;
+        }
+        remove(key);
+        memory.put(key, new Entry(value, expiresAt, bytes));
+        memoryBytes += bytes;
+
+        Iterator<Entry> eldest = memory.values().iterator();
+        while (memoryBytes > maxBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().bytes;
+            eldest.remove();
+            memoryEvictions.incrementAndGet();
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = memory.remove(key);
+        if (removed != null) {
+            memoryBytes -= removed.bytes;
+        }
+    }
+
+    static String normalize(String text) {
+        String collapsed = text.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+        int end = collapsed.length();
+        while (end > 0 && ".?!".indexOf(collapsed.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return collapsed.substring(0, end);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public long getMemoryHits() { return memoryHits.get(); }
+    public long getDiskHits() { return diskHits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getMemoryEvictions() { return memoryEvictions.get(); }
+    public long getDiskEvictions() { return disk == null ? 0 : disk.evictions(); }
+    public long getMemoryBytes() { return memoryBytes; }
+    public int getMemoryEntries() { return memory.size(); }
+    public int getDiskEntries() { return disk == null ? 0 : disk.size(); }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "hits(memory=%d, disk=%d) misses=%d evictions(memory=%d, disk=%d) entries(memory=%d/%d bytes, disk=%d)",
+                getMemoryHits(), getDiskHits(), getMisses(), getMemoryEvictions(), getDiskEvictions(),
+                getMemoryEntries(), getMemoryBytes(), getDiskEntries());
+    }
+
+    @Override
+    public void close() {
+        if (disk != null) {
+            disk.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.diplomatic.actors.intelligence;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window over the most recent call latencies, used to pick the hedging delay.
+ * Not thread-safe; owned by {@link LLMProcessorActor}.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private int next = 0;
+    private int count = 0;
+
+    public LatencyWindow(int size) {
+        this.samples = new long[size];
+    }
+
+    public void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Latency at the given quantile (0..1) of the window, or -1 while it is empty. */
+    public long percentile(double quantile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
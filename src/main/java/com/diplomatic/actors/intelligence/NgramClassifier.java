@@ -0,0 +1,346 @@
+package com.diplomatic.actors.intelligence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Multinomial logistic regression over hashed word and character n-grams.
+ *
+ * Features are lowercased word unigrams, word bigrams and in-word character trigrams,
+ * hashed into {@code 2^hashBits} buckets and L2-normalised. Weights live in one flat
+ * float array ({@code label * buckets + feature}). After training, a softmax
+ * temperature is fitted on held-out data, so {@link #predict} returns probabilities
+ * that track observed accuracy rather than raw scores.
+ *
+ * Prediction only reads the weights and writes into caller-owned arrays; a trained
+ * model can be shared between actors.
+ */
+public final class NgramClassifier {
+
+    /** Output labels: CULTURAL, the IDEA primitives, then GENERAL. */
+    public static final String[] LABELS = {
+            "CULTURAL", "PROPOSE", "CLARIFY", "CONSTRAIN", "REVISE", "AGREE", "ESCALATE", "DEFER", "GENERAL"
+    };
+
+    /** Upper bound on features extracted from one text. */
+    public static final int MAX_FEATURES = 1024;
+
+    private static final int MODEL_MAGIC = 0x4E47524D;
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final int hashBits;
+    private final int bucketMask;
+    private final float[] weights;
+    private final float[] bias;
+    private float temperature = 1.0f;
+
+    public static final class Example {
+        final int label;
+        final String text;
+
+        public Example(int label, String text) {
+            this.label = label;
+            this.text = text;
+        }
+
+        public int getLabel() { return label; }
+        public String getText() { return text; }
+    }
+
+    public static final class TrainingParams {
+        final int epochs;
+        final float learningRate;
+        final float l2;
+        final long seed;
+
+        public TrainingParams(int epochs, float learningRate, float l2, long seed) {
+            this.epochs = epochs;
+            this.learningRate = learningRate;
+            this.l2 = l2;
+            this.seed = seed;
+        }
+    }
+
+    public NgramClassifier(int hashBits) {
+        if (hashBits < 8 || hashBits > 24) {
+            throw new IllegalArgumentException("hash-bits must be between 8 and 24");
+        }
+        this.hashBits = hashBits;
+        this.bucketMask = (1 << hashBits) - 1;
+        this.weights = new float[LABELS.length << hashBits];
+        this.bias = new float[LABELS.length];
+    }
+
+    public static int labelIndex(String label) {
+        for (int i = 0; i < LABELS.length; i++) {
+            if (LABELS[i].equals(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Trains a model on {@code examples}: a first pass on 80% of the data fits the
+     * softmax temperature on the remaining 20%, then the final weights are trained on
+     * everything with that temperature.
+     */
+    public static NgramClassifier train(List<Example> examples, int hashBits, TrainingParams params) {
+        List<Example> shuffled = new ArrayList<>(examples);
+        Collections.shuffle(shuffled, new Random(params.seed));
+        int split = shuffled.size() * 4 / 5;
+
+        float temperature = 1.0f;
+        if (split > 0 && split < shuffled.size()) {
+            NgramClassifier calibration = new NgramClassifier(hashBits);
+            calibration.fit(shuffled.subList(0, split), params);
+            temperature = calibration.fitTemperature(shuffled.subList(split, shuffled.size()));
+        }
+
+        NgramClassifier model = new NgramClassifier(hashBits);
+        model.fit(shuffled, params);
+        model.temperature = temperature;
+        return model;
+    }
+
+    /** Plain SGD on the softmax cross-entropy, with decaying learning rate and L2 on touched weights. */
+    public void fit(List<Example> examples, TrainingParams params) {
+        List<Example> order = new ArrayList<>(examples);
+        Random random = new Random(params.seed);
+        int[] features = new int[MAX_FEATURES];
+        float[] scores = new float[LABELS.length];
+
+        for (int epoch = 0; epoch < params.epochs; epoch++) {
+            Collections.shuffle(order, random);
+            float rate = params.learningRate / (float) Math.sqrt(1 + epoch);
+            for (Example example : order) {
+                int count = featurize(example.text, features);
+                float value = count == 0 ? 0f : (float) (1.0 / Math.sqrt(count));
+                logits(features, count, value, scores);
+                softmax(scores, 1.0f);
+                for (int label = 0; label < LABELS.length; label++) {
+                    float gradient = scores[label] - (label == example.label ? 1f : 0f);
+                    bias[label] -= rate * gradient;
+                    int base = label << hashBits;
+                    for (int i = 0; i < count; i++) {
+                        int w = base + features[i];
+                        weights[w] -= rate * (gradient * value + params.l2 * weights[w]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes calibrated label probabilities for {@code text} into {@code probabilities}
+     * (length {@code LABELS.length}) and returns the most likely label index.
+     * {@code features} is scratch space of at least {@link #MAX_FEATURES} entries.
+     */
+    public int predict(CharSequence text, int[] features, float[] probabilities) {
+        int count = featurize(text, features);
+        float value = count == 0 ? 0f : (float) (1.0 / Math.sqrt(count));
+        logits(features, count, value, probabilities);
+        softmax(probabilities, temperature);
+        int best = 0;
+        for (int i = 1; i < probabilities.length; i++) {
+            if (probabilities[i] > probabilities[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public float getTemperature() { return temperature; }
+
+    public int getHashBits() { return hashBits; }
+
+    private float fitTemperature(List<Example> heldOut) {
+        int[] features = new int[MAX_FEATURES];
+        float[][] raw = new float[heldOut.size()][LABELS.length];
+        for (int e = 0; e < heldOut.size(); e++) {
+            int count = featurize(heldOut.get(e).text, features);
+            float value = count == 0 ? 0f : (float) (1.0 / Math.sqrt(count));
+            logits(features, count, value, raw[e]);
+        }
+
+        float best = 1.0f;
+        double bestLoss = Double.MAX_VALUE;
+        float[] scratch = new float[LABELS.length];
+        for (float t = 0.25f; t <= 4.0f; t += 0.05f) {
+            double loss = 0;
+            for (int e = 0; e < raw.length; e++) {
+                System.arraycopy(raw[e], 0, scratch, 0, scratch.length);
+                softmax(scratch, t);
+                loss -= Math.log(Math.max(scratch[heldOut.get(e).label], 1e-7f));
+            }
+            if (loss < bestLoss) {
+                bestLoss = loss;
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    private void logits(int[] features, int count, float value, float[] scores) {
+        for (int label = 0; label < LABELS.length; label++) {
+            int base = label << hashBits;
+            float sum = bias[label];
+            for (int i = 0; i < count; i++) {
+                sum += weights[base + features[i]] * value;
+            }
+            scores[label] = sum;
+        }
+    }
+
+    private static void softmax(float[] scores, float temperature) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float score : scores) {
+            max = Math.max(max, score);
+        }
+        float sum = 0f;
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = (float) Math.exp((scores[i] - max) / temperature);
+            sum += scores[i];
+        }
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] /= sum;
+        }
+    }
+
+    /**
+     * Hashes the n-grams of {@code text} into bucket indices without allocating.
+     * Returns the number of features written.
+     */
+    int featurize(CharSequence text, int[] features) {
+        int count = 0;
+        int previousWord = 0;
+        boolean hasPrevious = false;
+        int length = text.length();
+        int i = 0;
+        while (i < length && count < features.length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            int word = FNV_OFFSET;
+            // Rolling window of the last three characters, with '^' marking the word start
+            int c1 = '^';
+            int c2 = 0;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                int c = Character.toLowerCase(text.charAt(i));
+                word = (word ^ c) * FNV_PRIME;
+                if (c2 != 0 && count < features.length) {
+                    features[count++] = bucket(mix(mix(mix(0x7472, c2), c1), c));
+                }
+                c2 = c1;
+                c1 = c;
+                i++;
+            }
+            if (i == start) {
+                break;
+            }
+            if (count < features.length) {
+                features[count++] = bucket(mix(word, 0x756E));
+            }
+            if (hasPrevious && count < features.length) {
+                features[count++] = bucket(mix(mix(previousWord, word), 0x6269));
+            }
+            previousWord = word;
+            hasPrevious = true;
+        }
+        return count;
+    }
+
+    private int bucket(int hash) {
+        return hash & bucketMask;
+    }
+
+    private static int mix(int hash, int value) {
+        int h = (hash ^ value) * FNV_PRIME;
+        return h ^ (h >>> 15);
+    }
+
+    /** Reads {@code label<TAB>text} lines; blank lines and lines starting with '#' are skipped. */
+    public static List<Example> readTsv(Reader source) throws IOException {
+        List<Example> examples = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            int label = tab < 0 ? -1 : labelIndex(line.substring(0, tab).trim());
+            if (label < 0) {
+                throw new IOException("Bad training line " + lineNumber + ": " + line);
+            }
+            examples.add(new Example(label, line.substring(tab + 1).trim()));
+        }
+        return examples;
+    }
+
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(MODEL_MAGIC);
+            data.writeInt(hashBits);
+            data.writeInt(LABELS.length);
+            data.writeFloat(temperature);
+            for (float b : bias) {
+                data.writeFloat(b);
+            }
+            for (float w : weights) {
+                data.writeFloat(w);
+            }
+            data.flush();
+        }
+    }
+
+    public static NgramClassifier load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+            if (data.readInt() != MODEL_MAGIC) {
+                throw new IOException("Not a classifier model: " + file);
+            }
+            NgramClassifier model = new NgramClassifier(data.readInt());
+            if (data.readInt() != LABELS.length) {
+                throw new IOException("Model in " + file + " was trained for a different label set");
+            }
+            model.temperature = data.readFloat();
+            for (int i = 0; i < model.bias.length; i++) {
+                model.bias[i] = data.readFloat();
+            }
+            for (int i = 0; i < model.weights.length; i++) {
+                model.weights[i] = data.readFloat();
+            }
+            return model;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NgramClassifier(buckets=" + (1 << hashBits) + ", labels=" + Arrays.toString(LABELS)
+                + ", temperature=" + temperature + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package com.diplomatic.actors.intelligence;
+
+/**
+ * The fixed text of a prompt before and after the user's query, assembled once.
+ * Rendering places the query between the two halves in one concatenation, so
+ * building a prompt allocates only the resulting string.
+ */
+final class PromptTemplate {
+
+    private final String head;
+    private final String tail;
+
+    PromptTemplate(String head, String tail) {
+        this.head = head;
+        this.tail = tail;
+    }
+
+    String render(String query) {
+        return head + query + tail;
+    }
+}
@@ -0,0 +1,260 @@
+package com.diplomatic.actors.intelligence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Records real provider answers once, then replays them without the network.
+ *
+ * In record mode every successful call of the wrapped backend is appended to the
+ * recording file as a JSON line: a SHA-256 of model and prompt, the answer, and how long
+ * the call took. Replay mode loads the file and answers a prompt with its recording,
+ * after the recorded latency when {@code replay-latency} is on. A streamed replay
+ * delivers the answer as a single delta. A prompt that was never recorded either fails
+ * with a 404 {@link LLMApiException} or, with {@code on-miss = simulate}, is answered by
+ * a {@link SimulatedLLMBackend}.
+ */
+public class RecordReplayLLMBackend implements LLMBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordReplayLLMBackend.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+    private final String model;
+    // Record mode
+    private final LLMBackend delegate;
+    private final BufferedWriter writer;
+    // Replay mode
+    private final Map<String, Recording> recordings;
+    private final boolean replayLatency;
+    private final Supplier<LLMBackend> onMiss;
+    private LLMBackend missBackend;
+    private final ScheduledExecutorService timers;
+
+    private static final class Recording {
+        final String response;
+        final long latencyMillis;
+
+        Recording(String response, long latencyMillis) {
+            this.response = response;
+            this.latencyMillis = latencyMillis;
+        }
+    }
+
+    private RecordReplayLLMBackend(Path file, String model, LLMBackend delegate, BufferedWriter writer,
+                                   Map<String, Recording> recordings, boolean replayLatency,
+                                   Supplier<LLMBackend> onMiss) {
+        this.file = file;
+        this.model = model;
+        this.delegate = delegate;
+        this.writer = writer;
+        this.recordings = recordings;
+        this.replayLatency = replayLatency;
+        this.onMiss = onMiss;
+        this.timers = delegate == null
+                ? Executors.newSingleThreadScheduledExecutor(LLMHttpClient.namedThreads("llm-replay"))
+                : null;
+    }
+
+    /** Passes calls to {@code delegate} and appends each successful answer to the recording file. */
+    public static RecordReplayLLMBackend record(LLMBackend delegate, Config recordingConfig) {
+        Path file = Paths.get(recordingConfig.getString("file"));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            logger.info("Recording LLM answers to {}", file);
+            return new RecordReplayLLMBackend(file, delegate.getModel(), delegate, writer, null, false, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open LLM recording " + file, e);
+        }
+    }
+
+    /**
+     * Answers from the recording file. {@code simulated} supplies the backend for
+     * unrecorded prompts when {@code on-miss = simulate}; it is only built if needed.
+     */
+    public static RecordReplayLLMBackend replay(Config recordingConfig, String model, Supplier<LLMBackend> simulated) {
+        Path file = Paths.get(recordingConfig.getString("file"));
+        String onMiss = recordingConfig.getString("on-miss");
+        if (!onMiss.equals("fail") && !onMiss.equals("simulate")) {
+            throw new IllegalArgumentException("recording.on-miss must be fail or simulate, not '" + onMiss + "'");
+        }
+        Map<String, Recording> recordings = new HashMap<>();
+        if (Files.exists(file)) {
+            try {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode entry = objectMapper.readTree(line);
+                    // A prompt recorded twice replays its latest answer
+                    recordings.put(entry.get("key").asText(),
+                            new Recording(entry.get("response").asText(), entry.path("latency-ms").asLong()));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read LLM recording " + file, e);
+            }
+        } else {
+            logger.warn("LLM recording {} does not exist; every prompt is a miss", file);
+        }
+        logger.info("Replaying {} recorded LLM answers from {} (on-miss: {})", recordings.size(), file, onMiss);
+        return new RecordReplayLLMBackend(file, model, null, null, recordings,
+                recordingConfig.getBoolean("replay-latency"), onMiss.equals("simulate") ? simulated : null);
+    }
+
+    @Override
+    public String getModel() { return model; }
+
+    @Override
+    public CompletableFuture<String> complete(String prompt) {
+        if (delegate != null) {
+            long start = System.nanoTime();
+            return recordOnSuccess(prompt, start, delegate.complete(prompt));
+        }
+        return replay(prompt, null);
+    }
+
+    @Override
+    public CompletableFuture<String> stream(String prompt, Consumer<String> onText) {
+        if (delegate != null) {
+            long start = System.nanoTime();
+            return recordOnSuccess(prompt, start, delegate.stream(prompt, onText));
+        }
+        return replay(prompt, onText);
+    }
+
+    /**
+     * Completes only after the answer is appended, so a caller that closes the backend
+     * as soon as it has its answer cannot lose the line. Cancelling the returned future
+     * still aborts the delegate's call.
+     */
+    private CompletableFuture<String> recordOnSuccess(String prompt, long startNanos, CompletableFuture<String> call) {
+        CompletableFuture<String> recorded = call.thenApply(response -> {
+            append(key(model, prompt), response, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return response;
+        });
+        recorded.whenComplete((response, failure) -> {
+            if (failure instanceof CancellationException) {
+                call.cancel(true);
+            }
+        });
+        return recorded;
+    }
+
+    private synchronized void append(String key, String response, long latencyMillis) {
+        ObjectNode entry = objectMapper.createObjectNode();
+        entry.put("key", key);
+        entry.put("latency-ms", latencyMillis);
+        entry.put("response", response);
+        try {
+            writer.write(entry.toString());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            logger.warn("Could not append to LLM recording {}", file, e);
+        }
+    }
+
+    private CompletableFuture<String> replay(String prompt, Consumer<String> onText) {
+        Recording recording = recordings.get(key(model, prompt));
+        if (recording == null) {
+            LLMBackend fallback = missBackend();
+            if (fallback == null) {
+                return CompletableFuture.failedFuture(new LLMApiException(404, "No recorded answer for this prompt"));
+            }
+            return onText != null ? fallback.stream(prompt, onText) : fallback.complete(prompt);
+        }
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Runnable answer = () -> {
+            if (onText != null) {
+                onText.accept(recording.response);
+            }
+            result.complete(recording.response);
+        };
+        if (!replayLatency || recording.latencyMillis <= 0) {
+            answer.run();
+            return result;
+        }
+        ScheduledFuture<?> timer = timers.schedule(answer, recording.latencyMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((text, failure) -> {
+            if (failure != null) {
+                timer.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private synchronized LLMBackend missBackend() {
+        if (missBackend == null && onMiss != null) {
+            missBackend = onMiss.get();
+        }
+        return missBackend;
+    }
+
+    static String key(String model, String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required on every JVM", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (delegate != null) {
+            delegate.close();
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Could not close LLM recording {}", file, e);
+            }
+        } else {
+            timers.shutdownNow();
+            if (missBackend != null) {
+                missBackend.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return delegate != null
+                ? "record " + delegate + " to " + file
+                : "replay " + recordings.size() + " answers from " + file;
+    }
+}
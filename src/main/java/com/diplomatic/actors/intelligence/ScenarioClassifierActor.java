@@ -5,21 +5,146 @@ import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
+import com.diplomatic.jfr.ClassificationEvent;
+import com.diplomatic.jfr.JfrEvents;
 import com.diplomatic.messages.*;
+import com.diplomatic.metrics.LatencyHistogram;
+import com.diplomatic.metrics.MetricsRegistry;
+import com.diplomatic.tracing.Span;
+import com.diplomatic.tracing.SpanKind;
+import com.diplomatic.tracing.Tracer;
+import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decides which intelligence actor handles a query.
+ *
+ * The scenario, primitive and confidence come from an {@link NgramClassifier} trained
+ * at startup (or loaded from a model file), so confidence is a calibrated probability
+ * and queries without any keyword can still be routed. The keyword automaton detects
+ * the country, and is the whole classifier when {@code classifier.enabled} is off.
+ */
 public class ScenarioClassifierActor extends AbstractBehavior<RouteToClassifierMessage> {
 
+    private static final String[] CULTURAL_KEYWORDS = {
+            "culture", "cultural", "tradition", "custom", "etiquette", "greeting",
+            "gift", "hierarchy", "formality", "dress code", "body language",
+            "communication style", "direct", "indirect", "religious", "festival"
+    };
+
+    private static final String[] PRIMITIVE_KEYWORDS = {
+            "propose", "proposal", "negotiate", "negotiation",
+            "clarify", "clarification", "understand",
+            "constrain", "constraint", "limit", "deadline",
+            "revise", "revision", "modify", "change",
+            "agree", "agreement", "consensus",
+            "escalate", "escalation", "elevate",
+            "defer", "postpone", "delay"
+    };
+
+    private static final String[] COUNTRIES = {
+            "japan", "japanese", "kuwait", "kuwaiti", "morocco", "moroccan",
+            "canada", "canadian", "turkey", "turkish", "mauritania", "mauritanian",
+            "china", "chinese", "india", "indian", "germany", "german",
+            "france", "french", "arab", "arabic", "iraq", "iraqi", "eritrea", "eritrean"
+    };
+
+    // Checked in order; the first primitive with a keyword in the query wins
+    private static final String[][] PRIMITIVES = {
+            {"PROPOSE", "propose", "proposal"},
+            {"CLARIFY", "clarify", "clarification"},
+            {"CONSTRAIN", "constrain", "constraint"},
+            {"REVISE", "revise", "revision"},
+            {"AGREE", "agree", "agreement"},
+            {"ESCALATE", "escalate", "escalation"},
+            {"DEFER", "defer", "postpone"}
+    };
+
+    private static final int CULTURAL = 0;
+    private static final int PRIMITIVE_QUERY = 1;
+    private static final int COUNTRY = 2;
+    private static final int PRIMITIVE = 3;
+
+    static final KeywordAutomaton KEYWORDS = buildKeywords();
+
     private final Logger logger = LoggerFactory.getLogger(ScenarioClassifierActor.class);
+    private final KeywordAutomaton.Hits hits = KEYWORDS.newHits();
+
+    private final NgramClassifier model;
+    private final int[] features = new int[NgramClassifier.MAX_FEATURES];
+    private final float[] probabilities = new float[NgramClassifier.LABELS.length];
+    private final LatencyHistogram classifyLatency;
+    private final Tracer tracer;
 
     public static Behavior<RouteToClassifierMessage> create() {
-        return Behaviors.setup(ScenarioClassifierActor::new);
+        return Behaviors.setup(context -> new ScenarioClassifierActor(context,
+                context.getSystem().settings().config().getConfig("diplomatic-assistant.classifier")));
+    }
+
+    public static Behavior<RouteToClassifierMessage> create(Config classifierConfig) {
+        return Behaviors.setup(context -> new ScenarioClassifierActor(context, classifierConfig));
     }
 
-    private ScenarioClassifierActor(ActorContext<RouteToClassifierMessage> context) {
+    private ScenarioClassifierActor(ActorContext<RouteToClassifierMessage> context, Config classifierConfig) {
         super(context);
-        logger.info("ScenarioClassifierActor initialized on Node 2");
+        this.model = classifierConfig.getBoolean("enabled") ? loadModel(classifierConfig) : null;
+        this.classifyLatency = MetricsRegistry.forSystem(context.getSystem()).stage("classifier");
+        this.tracer = Tracer.forSystem(context.getSystem());
+        logger.info("ScenarioClassifierActor initialized on Node 2 ({})",
+                model == null ? "keyword rules" : model);
+    }
+
+    private NgramClassifier loadModel(Config config) {
+        try {
+            String modelFile = config.getString("model-file");
+            if (!modelFile.isEmpty()) {
+                return NgramClassifier.load(Paths.get(modelFile));
+            }
+            String resource = config.getString("training-data");
+            try (InputStream in = ScenarioClassifierActor.class.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("Training data not found on classpath: " + resource);
+                }
+                long start = System.nanoTime();
+                NgramClassifier trained = NgramClassifier.train(
+                        NgramClassifier.readTsv(new InputStreamReader(in, StandardCharsets.UTF_8)),
+                        config.getInt("hash-bits"),
+                        new NgramClassifier.TrainingParams(
+                                config.getInt("epochs"),
+                                (float) config.getDouble("learning-rate"),
+                                (float) config.getDouble("l2"),
+                                42L));
+                logger.info("Trained scenario classifier from {} in {} ms", resource, (System.nanoTime() - start) / 1_000_000);
+                return trained;
+            }
+        } catch (IOException e) {
+            logger.error("Could not load scenario classifier, falling back to keyword rules", e);
+            return null;
+        }
+    }
+
+    private static KeywordAutomaton buildKeywords() {
+        KeywordAutomaton.Builder builder = KeywordAutomaton.builder(4)
+                .addAll(CULTURAL, CULTURAL_KEYWORDS)
+                .addAll(PRIMITIVE_QUERY, PRIMITIVE_KEYWORDS);
+        for (int i = 0; i < COUNTRIES.length; i++) {
+            builder.add(COUNTRIES[i], COUNTRY, i, capitalize(COUNTRIES[i]));
+        }
+        for (int i = 0; i < PRIMITIVES.length; i++) {
+            for (int k = 1; k < PRIMITIVES[i].length; k++) {
+                builder.add(PRIMITIVES[i][k], PRIMITIVE, i, PRIMITIVES[i][0]);
+            }
+        }
+        return builder.build();
     }
 
     @Override
@@ -30,21 +155,50 @@ public class ScenarioClassifierActor extends AbstractBehavior<RouteToClassifierM
     }
 
     private Behavior<RouteToClassifierMessage> onClassify(RouteToClassifierMessage msg) {
-        String query = msg.getQuery().toLowerCase();
+        long start = System.nanoTime();
+        Span span = tracer.startSpan("classifier", SpanKind.SERVER, msg.getTrace());
+        ClassificationEvent event = JfrEvents.begin(ClassificationEvent::new);
+        String query = msg.getQuery();
         logger.info("Classifying query for session {}: {}", msg.getSessionId(), query);
 
+        // One pass finds every cultural, primitive and country keyword
+        KEYWORDS.scan(query, hits);
+
         String scenario;
         String targetActor;
-        String detectedCountry = detectCountry(query);
-        String detectedPrimitive = detectPrimitive(query);
+        String detectedCountry = hits.value(COUNTRY, "General");
+        String detectedPrimitive = hits.value(PRIMITIVE, "GENERAL");
         double confidence;
+        Map<String, Double> labelProbabilities = null;
+
+        if (model != null) {
+            int best = model.predict(query, features, probabilities);
+            String label = NgramClassifier.LABELS[best];
+            confidence = probabilities[best];
+            labelProbabilities = new LinkedHashMap<>();
+            for (int i = 0; i < probabilities.length; i++) {
+                labelProbabilities.put(NgramClassifier.LABELS[i], (double) probabilities[i]);
+            }
 
-        if (isCulturalQuery(query)) {
+            if ("CULTURAL".equals(label)) {
+                scenario = "CULTURAL";
+                targetActor = "CulturalContextActor";
+            } else if ("GENERAL".equals(label)) {
+                scenario = "GENERAL";
+                targetActor = "DiplomaticPrimitivesActor";
+            } else {
+                scenario = "PRIMITIVE";
+                targetActor = "DiplomaticPrimitivesActor";
+                detectedPrimitive = label;
+            }
+            logger.info("Classified as {} (p={}) - Country: {}, Primitive: {}",
+                    label, String.format("%.2f", confidence), detectedCountry, detectedPrimitive);
+        } else if (hits.found(CULTURAL)) {
             scenario = "CULTURAL";
             targetActor = "CulturalContextActor";
             confidence = 0.85;
             logger.info("Classified as CULTURAL - Country: {}", detectedCountry);
-        } else if (isDiplomaticPrimitiveQuery(query)) {
+        } else if (hits.found(PRIMITIVE_QUERY)) {
             scenario = "PRIMITIVE";
             targetActor = "DiplomaticPrimitivesActor";
             confidence = 0.90;
@@ -57,71 +211,30 @@ public class ScenarioClassifierActor extends AbstractBehavior<RouteToClassifierM
         }
 
         ClassificationResultMessage result = new ClassificationResultMessage(
-                scenario, targetActor, confidence, detectedCountry, detectedPrimitive
+                msg.getCorrelationId(), scenario, targetActor, confidence, detectedCountry, detectedPrimitive,
+                labelProbabilities, span.context()
         );
 
+        if (JfrEvents.end(event)) {
+            event.correlationId = msg.getCorrelationId();
+            event.traceId = JfrEvents.traceId(msg.getTrace());
+            event.sessionId = msg.getSessionId();
+            event.scenario = scenario;
+            event.confidence = confidence;
+            event.queryLength = query.length();
+            event.commit();
+        }
+
         msg.getReplyTo().tell(result);
+        classifyLatency.recordSince(start);
+        span.setAttribute("scenario", scenario).end();
         logger.debug("Classification result sent");
 
         return this;
     }
 
-    private boolean isCulturalQuery(String query) {
-        String[] culturalKeywords = {
-                "culture", "cultural", "tradition", "custom", "etiquette", "greeting",
-                "gift", "hierarchy", "formality", "dress code", "body language",
-                "communication style", "direct", "indirect", "religious", "festival"
-        };
-        for (String keyword : culturalKeywords) {
-            if (query.contains(keyword)) return true;
-        }
-        return false;
-    }
-
-    private boolean isDiplomaticPrimitiveQuery(String query) {
-        String[] primitiveKeywords = {
-                "propose", "proposal", "negotiate", "negotiation",
-                "clarify", "clarification", "understand",
-                "constrain", "constraint", "limit", "deadline",
-                "revise", "revision", "modify", "change",
-                "agree", "agreement", "consensus",
-                "escalate", "escalation", "elevate",
-                "defer", "postpone", "delay"
-        };
-        for (String keyword : primitiveKeywords) {
-            if (query.contains(keyword)) return true;
-        }
-        return false;
-    }
-
-    private String detectCountry(String query) {
-        String[] countries = {
-                "japan", "japanese", "kuwait", "kuwaiti", "morocco", "moroccan",
-                "canada", "canadian", "turkey", "turkish", "mauritania", "mauritanian",
-                "china", "chinese", "india", "indian", "germany", "german",
-                "france", "french", "arab", "arabic", "iraq", "iraqi", "eritrea", "eritrean"
-        };
-        for (String country : countries) {
-            if (query.contains(country)) {
-                return capitalize(country);
-            }
-        }
-        return "General";
-    }
-
-    private String detectPrimitive(String query) {
-        if (query.contains("propose") || query.contains("proposal")) return "PROPOSE";
-        if (query.contains("clarify") || query.contains("clarification")) return "CLARIFY";
-        if (query.contains("constrain") || query.contains("constraint")) return "CONSTRAIN";
-        if (query.contains("revise") || query.contains("revision")) return "REVISE";
-        if (query.contains("agree") || query.contains("agreement")) return "AGREE";
-        if (query.contains("escalate") || query.contains("escalation")) return "ESCALATE";
-        if (query.contains("defer") || query.contains("postpone")) return "DEFER";
-        return "GENERAL";
-    }
-
-    private String capitalize(String str) {
+    private static String capitalize(String str) {
         if (str == null || str.isEmpty()) return str;
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
-}
\ No newline at end of file
+}
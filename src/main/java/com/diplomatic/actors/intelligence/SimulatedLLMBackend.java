@@ -0,0 +1,156 @@
+package com.diplomatic.actors.intelligence;
+
+import com.typesafe.config.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for the provider, for capacity tests and CI perf runs that should
+ * exercise the whole actor pipeline without the network or API credit.
+ *
+ * The answer is a function of the seed and the prompt only, so a run can be repeated
+ * exactly. Its length is picked between {@code min-output-tokens} and
+ * {@code max-output-tokens}, one word per token. Timing follows how the provider
+ * behaves: nothing for {@code time-to-first-token}, then tokens at
+ * {@code tokens-per-second}, streamed {@code chunk-tokens} at a time. Calls are timers
+ * on one scheduler thread, not sleeping threads, so concurrency is unbounded.
+ */
+public class SimulatedLLMBackend implements LLMBackend {
+
+    private static final String[] WORDS = {
+            "the", "delegation", "should", "open", "with", "shared", "interests", "and", "acknowledge",
+            "protocol", "before", "raising", "terms", "a", "measured", "tone", "builds", "trust", "while",
+            "firm", "deadlines", "signal", "commitment", "to", "progress", "on", "trade", "access",
+            "hospitality", "matters", "senior", "officials", "expect", "formal", "titles", "consensus",
+            "takes", "time", "avoid", "public", "disagreement", "offer", "concessions", "in", "return",
+            "for", "clear", "guarantees", "follow", "up", "promptly", "writing"
+    };
+
+    private final String model;
+    private final long seed;
+    private final long firstTokenNanos;
+    private final double tokensPerSecond;
+    private final int minTokens;
+    private final int maxTokens;
+    private final int chunkTokens;
+    private final ScheduledExecutorService timers =
+            Executors.newSingleThreadScheduledExecutor(LLMHttpClient.namedThreads("llm-simulated"));
+
+    public SimulatedLLMBackend(Config simulatedConfig, String model) {
+        this.model = "simulated-" + model;
+        this.seed = simulatedConfig.getLong("seed");
+        this.firstTokenNanos = simulatedConfig.getDuration("time-to-first-token").toNanos();
+        this.tokensPerSecond = simulatedConfig.getDouble("tokens-per-second");
+        this.minTokens = simulatedConfig.getInt("min-output-tokens");
+        this.maxTokens = simulatedConfig.getInt("max-output-tokens");
+        this.chunkTokens = Math.max(1, simulatedConfig.getInt("chunk-tokens"));
+        if (tokensPerSecond <= 0 || minTokens < 1 || maxTokens < minTokens) {
+            throw new IllegalArgumentException("simulated backend needs tokens-per-second > 0 and "
+                    + "1 <= min-output-tokens <= max-output-tokens");
+        }
+    }
+
+    @Override
+    public String getModel() { return model; }
+
+    @Override
+    public CompletableFuture<String> complete(String prompt) {
+        String[] tokens = answer(prompt);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        cancelOnCompletion(result, timers.schedule(
+                () -> result.complete(String.join("", tokens)),
+                firstTokenNanos + generationNanos(tokens.length - 1), TimeUnit.NANOSECONDS));
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<String> stream(String prompt, Consumer<String> onText) {
+        String[] tokens = answer(prompt);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        // Same total time as complete(): first token after the delay, then one token per interval
+        emitChunk(tokens, 0, new StringBuilder(), onText, result,
+                firstTokenNanos + generationNanos(Math.min(chunkTokens, tokens.length) - 1));
+        return result;
+    }
+
+    private void emitChunk(String[] tokens, int from, StringBuilder text, Consumer<String> onText,
+                           CompletableFuture<String> result, long delayNanos) {
+        cancelOnCompletion(result, timers.schedule(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            int to = Math.min(tokens.length, from + chunkTokens);
+            StringBuilder chunk = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                chunk.append(tokens[i]);
+            }
+            text.append(chunk);
+            onText.accept(chunk.toString());
+            if (to < tokens.length) {
+                emitChunk(tokens, to, text, onText, result, generationNanos(Math.min(chunkTokens, tokens.length - to)));
+            } else {
+                result.complete(text.toString());
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /** Cancelling the result (deadline, losing hedge) drops the pending timer. */
+    private static void cancelOnCompletion(CompletableFuture<String> result, Future<?> timer) {
+        result.whenComplete((text, failure) -> {
+            if (failure != null) {
+                timer.cancel(false);
+            }
+        });
+    }
+
+    private long generationNanos(int tokens) {
+        return (long) (tokens * 1e9 / tokensPerSecond);
+    }
+
+    /** Tokens with their leading separator, so joining them gives the answer. */
+    String[] answer(String prompt) {
+        SplittableRandom random = new SplittableRandom(seed ^ fnv1a(prompt));
+        int count = minTokens + random.nextInt(maxTokens - minTokens + 1);
+        String[] tokens = new String[count];
+        boolean sentenceStart = true;
+        for (int i = 0; i < count; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (sentenceStart) {
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+            boolean sentenceEnd = i == count - 1 || random.nextInt(14) == 0;
+            String separator = i == 0 ? "" : sentenceStart ? (random.nextInt(4) == 0 ? "\n\n" : " ") : " ";
+            tokens[i] = separator + word + (sentenceEnd ? "." : "");
+            sentenceStart = sentenceEnd;
+        }
+        return tokens;
+    }
+
+    /** Stable across JVMs and runs, unlike identity hashes; mixes better than String.hashCode. */
+    private static long fnv1a(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Override
+    public void close() {
+        timers.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("simulated %.0f tokens/s, first token after %d ms, %d-%d tokens",
+                tokensPerSecond, TimeUnit.NANOSECONDS.toMillis(firstTokenNanos), minTokens, maxTokens);
+    }
+}
@@ -0,0 +1,35 @@
+package com.diplomatic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+@Name("com.diplomatic.Classification")
+@Label("Query Classification")
+@Description("Scenario classification of one query")
+@Category({"Diplomatic Assistant", "Pipeline"})
+@Registered(false)
+@StackTrace(false)
+public class ClassificationEvent extends jdk.jfr.Event {
+
+    @Label("Correlation Id")
+    public String correlationId;
+
+    @Label("Trace Id")
+    public String traceId;
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Scenario")
+    public String scenario;
+
+    @Label("Confidence")
+    public double confidence;
+
+    @Label("Query Length")
+    public int queryLength;
+}
@@ -0,0 +1,30 @@
+package com.diplomatic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+@Name("com.diplomatic.HistoryAppend")
+@Label("History Append")
+@Description("Saving one conversation turn to the history log")
+@Category({"Diplomatic Assistant", "History"})
+@Registered(false)
+@StackTrace(false)
+public class HistoryAppendEvent extends jdk.jfr.Event {
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Turn Size")
+    @Description("Query plus response text")
+    @DataAmount(DataAmount.BYTES)
+    public long turnBytes;
+
+    @Label("Flushed")
+    @Description("Whether this append triggered a batch flush to disk")
+    public boolean flushed;
+}
@@ -0,0 +1,154 @@
+package com.diplomatic.jfr;
+
+import akka.actor.typed.ActorSystem;
+import com.diplomatic.messages.TraceContext;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Flight Recorder events for the query pipeline, so recordings show which request a
+ * thread was working on when a GC pause or allocation spike happened.
+ *
+ * Every event type is declared {@code @Registered(false)} and only registered when
+ * {@code diplomatic-assistant.jfr.enabled} is on. Until then {@link #begin} and
+ * {@link #beginHop} return null without creating an event, so instrumented code
+ * costs a field read and a null check. Once registered, which events are recorded is up to the
+ * recording's own settings, as for the JDK's built-in events.
+ */
+public final class JfrEvents {
+
+    private static final Logger logger = LoggerFactory.getLogger(JfrEvents.class);
+
+    static final List<Class<? extends jdk.jfr.Event>> TYPES = List.of(
+            ClassificationEvent.class,
+            PromptBuildEvent.class,
+            LLMHttpCallEvent.class,
+            MessageHopEvent.class,
+            HistoryAppendEvent.class);
+
+    private static volatile boolean registered;
+
+    private JfrEvents() {}
+
+    /**
+     * Registers the event types if the system's config enables them. Registration is
+     * JVM-wide, like Flight Recorder itself, so one enabled system turns them on for all.
+     */
+    public static void registerIfEnabled(ActorSystem<?> system) {
+        if (system.settings().config().getBoolean("diplomatic-assistant.jfr.enabled")) {
+            register();
+        }
+    }
+
+    static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("diplomatic-assistant.jfr.enabled is on but Flight Recorder is not available in this JVM");
+            return;
+        }
+        TYPES.forEach(FlightRecorder::register);
+        registered = true;
+        logger.info("Registered {} Flight Recorder event types", TYPES.size());
+    }
+
+    /** Whether the event types are registered; a cheap guard for events that outlive one method. */
+    public static boolean isRegistered() {
+        return registered;
+    }
+
+    /**
+     * Creates and begins an event, or returns null when the event is not being recorded.
+     * Pass a constructor reference such as {@code ClassificationEvent::new}; it is a
+     * constant, so the unregistered path allocates nothing.
+     */
+    public static <E extends Event> E begin(Supplier<E> factory) {
+        if (!registered) {
+            return null;
+        }
+        E event = factory.get();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event from {@link #begin}; true when it should be filled in and committed.
+     * Null-safe, so callers need no guard of their own.
+     */
+    public static boolean end(Event event) {
+        if (event == null) {
+            return false;
+        }
+        event.end();
+        return event.shouldCommit();
+    }
+
+    /**
+     * Begins a hop to be ended by {@link #endHop}, or returns null when the event is
+     * not being recorded, so callers keep nothing per request in that case.
+     */
+    public static MessageHopEvent beginHop(String hop, String correlationId, TraceContext trace) {
+        if (!registered) {
+            return null;
+        }
+        MessageHopEvent event = new MessageHopEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.hop = hop;
+        event.correlationId = correlationId;
+        event.traceId = traceId(trace);
+        event.begin();
+        return event;
+    }
+
+    /** Null-safe, so callers need not check whether the hop was recorded. */
+    public static void endHop(MessageHopEvent event, boolean success) {
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    public static String traceId(TraceContext trace) {
+        return trace == null ? null : trace.getTraceId();
+    }
+
+    /** Exact UTF-8 size of {@code text}, without encoding it. */
+    public static long utf8Length(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // The encoder replaces an unpaired surrogate with '?'
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
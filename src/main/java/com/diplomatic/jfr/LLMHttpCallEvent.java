@@ -0,0 +1,51 @@
+package com.diplomatic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans one exchange with the Messages API, from sending the request to the last
+ * byte of the answer. Committed on the HTTP client thread that finished it.
+ */
+@Name("com.diplomatic.LLMHttpCall")
+@Label("LLM HTTP Call")
+@Description("One request to the LLM provider's Messages API")
+@Category({"Diplomatic Assistant", "LLM"})
+@Registered(false)
+@StackTrace(false)
+public class LLMHttpCallEvent extends jdk.jfr.Event {
+
+    @Label("Model")
+    public String model;
+
+    @Label("Streaming")
+    public boolean streaming;
+
+    @Label("Status Code")
+    @Description("HTTP status, 0 if no response arrived")
+    public int statusCode;
+
+    @Label("Request Size")
+    @DataAmount(DataAmount.BYTES)
+    public long requestBytes;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    public long responseBytes;
+
+    @Label("Input Tokens")
+    @Description("As reported by the provider, -1 if not reported")
+    public int inputTokens = -1;
+
+    @Label("Output Tokens")
+    @Description("As reported by the provider, -1 if not reported")
+    public int outputTokens = -1;
+
+    @Label("Failure")
+    public String failure;
+}
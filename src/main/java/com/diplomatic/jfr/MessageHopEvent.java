@@ -0,0 +1,35 @@
+package com.diplomatic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+/**
+ * A request to another actor and the reply coming back through a message adapter.
+ * Begun when the request is sent and committed when the adapted reply is handled,
+ * so the duration includes any remote hop and both mailboxes.
+ */
+@Name("com.diplomatic.MessageHop")
+@Label("Message Adapter Hop")
+@Description("Round trip from sending a request to handling its adapted reply")
+@Category({"Diplomatic Assistant", "Pipeline"})
+@Registered(false)
+@StackTrace(false)
+public class MessageHopEvent extends jdk.jfr.Event {
+
+    @Label("Hop")
+    @Description("classify, cultural, primitive or llm")
+    public String hop;
+
+    @Label("Correlation Id")
+    public String correlationId;
+
+    @Label("Trace Id")
+    public String traceId;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,32 @@
+package com.diplomatic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+import jdk.jfr.StackTrace;
+
+@Name("com.diplomatic.PromptBuild")
+@Label("Prompt Construction")
+@Description("Building the LLM prompt for a cultural or primitive request")
+@Category({"Diplomatic Assistant", "Pipeline"})
+@Registered(false)
+@StackTrace(false)
+public class PromptBuildEvent extends jdk.jfr.Event {
+
+    @Label("Correlation Id")
+    public String correlationId;
+
+    @Label("Trace Id")
+    public String traceId;
+
+    @Label("Kind")
+    @Description("cultural or primitive")
+    public String kind;
+
+    @Label("Prompt Length")
+    @DataAmount(DataAmount.BYTES)
+    public long promptBytes;
+}
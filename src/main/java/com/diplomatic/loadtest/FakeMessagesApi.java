@@ -0,0 +1,262 @@
+package com.diplomatic.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the Anthropic Messages API, so the cluster can be load tested
+ * without spending API credit. Point {@code diplomatic-assistant.llm.api-url} at
+ * {@link #url()}.
+ *
+ * Answers both plain and streaming ({@code "stream": true}) requests in the wire format
+ * {@link com.diplomatic.actors.intelligence.LLMHttpClient} parses. Latency is drawn from
+ * a configurable distribution; a configurable share of requests fails with 500 or is
+ * rejected with 429. Delays are timers, not sleeping threads, so thousands of calls can
+ * be in flight. Settings are under {@code diplomatic-assistant.loadtest.fake-api}.
+ *
+ * Run standalone to point a separately started Node 2 at it:
+ * {@code java -cp app.jar com.diplomatic.loadtest.FakeMessagesApi}
+ */
+public class FakeMessagesApi implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FakeMessagesApi.class);
+    private static final String[] WORDS = {
+            "the", "delegation", "should", "open", "with", "shared", "interests", "and", "acknowledge",
+            "protocol", "before", "raising", "terms", "a", "measured", "tone", "builds", "trust", "while",
+            "firm", "deadlines", "signal", "commitment", "to", "progress", "on", "trade", "access"
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService timers;
+
+    private final LatencyDistribution latency;
+    private final double firstTokenFraction;
+    private final int answerWords;
+    private final int streamChunks;
+    private final double errorRate;
+    private final double overloadRate;
+    private final int retryAfterSeconds;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder streamed = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder injectedOverloads = new LongAdder();
+
+    public static FakeMessagesApi start(Config config) throws IOException {
+        return new FakeMessagesApi(config);
+    }
+
+    private FakeMessagesApi(Config config) throws IOException {
+        this.latency = LatencyDistribution.fromConfig(config.getConfig("latency"));
+        this.firstTokenFraction = config.getDouble("latency.first-token-fraction");
+        this.answerWords = config.getInt("answer-words");
+        this.streamChunks = Math.max(1, config.getInt("stream-chunks"));
+        this.errorRate = config.getDouble("error-rate");
+        this.overloadRate = config.getDouble("overload-rate");
+        this.retryAfterSeconds = config.getInt("retry-after-seconds");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.handlers = Executors.newFixedThreadPool(config.getInt("threads"), runnable -> {
+            Thread thread = new Thread(runnable, "fake-llm-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timers = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fake-llm-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.server = HttpServer.create(new InetSocketAddress(config.getString("host"), config.getInt("port")), 1024);
+        server.setExecutor(handlers);
+        server.createContext("/v1/messages", this::handle);
+        server.start();
+        logger.info("Fake Messages API listening on {} ({}, error-rate {}, overload-rate {})",
+                url(), latency, errorRate, overloadRate);
+    }
+
+    public String url() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + "/v1/messages";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        JsonNode request;
+        try (InputStream in = exchange.getRequestBody()) {
+            request = objectMapper.readTree(in);
+        } catch (IOException e) {
+            sendError(exchange, 400, "invalid_request_error", "Malformed JSON body");
+            return;
+        }
+        if (!"POST".equals(exchange.getRequestMethod()) || request == null || !request.has("messages")) {
+            sendError(exchange, 400, "invalid_request_error", "Expected a POST with messages");
+            return;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double roll = random.nextDouble();
+        long delayNanos = latency.sampleNanos(random);
+        if (roll < overloadRate) {
+            injectedOverloads.increment();
+            // Rate limiting is decided up front, so it answers quickly
+            exchange.getResponseHeaders().add("retry-after", Integer.toString(retryAfterSeconds));
+            sendError(exchange, 429, "rate_limit_error", "Injected rate limit");
+            return;
+        }
+        boolean fail = roll < overloadRate + errorRate;
+        if (fail) {
+            injectedErrors.increment();
+            later(() -> sendError(exchange, 500, "api_error", "Injected server error"), delayNanos);
+            return;
+        }
+
+        String model = request.path("model").asText("fake-model");
+        String answer = answer(random);
+        if (request.path("stream").asBoolean(false)) {
+            streamed.increment();
+            stream(exchange, model, answer, delayNanos);
+        } else {
+            later(() -> sendMessage(exchange, model, answer), delayNanos);
+        }
+    }
+
+    private String answer(ThreadLocalRandom random) {
+        StringBuilder text = new StringBuilder(answerWords * 8);
+        for (int i = 0; i < answerWords; i++) {
+            if (i > 0) {
+                text.append(i % 25 == 0 ? ".\n\n" : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.append('.').toString();
+    }
+
+    private void sendMessage(HttpExchange exchange, String model, String answer) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("id", "msg_fake_" + requests.sum());
+        body.put("type", "message");
+        body.put("role", "assistant");
+        body.put("model", model);
+        body.putArray("content").addObject().put("type", "text").put("text", answer);
+        body.put("stop_reason", "end_turn");
+        body.putObject("usage").put("input_tokens", 100).put("output_tokens", answerWords);
+        send(exchange, 200, "application/json", body.toString());
+    }
+
+    /** First token after a fraction of the latency, the rest spread evenly over the remainder. */
+    private void stream(HttpExchange exchange, String model, String answer, long totalNanos) {
+        long firstToken = (long) (totalNanos * firstTokenFraction);
+        long interval = streamChunks > 1 ? (totalNanos - firstToken) / (streamChunks - 1) : 0;
+        later(() -> {
+            try {
+                exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);
+                writeEvent(exchange, "message_start",
+                        "{\"type\":\"message_start\",\"message\":{\"id\":\"msg_fake\",\"model\":\""
+                                + model + "\",\"content\":[],\"usage\":{\"input_tokens\":100,\"output_tokens\":1}}}");
+                writeEvent(exchange, "content_block_start",
+                        "{\"type\":\"content_block_start\",\"index\":0,\"content_block\":{\"type\":\"text\",\"text\":\"\"}}");
+                streamChunk(exchange, answer, 0, interval);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, firstToken);
+    }
+
+    private void streamChunk(HttpExchange exchange, String answer, int chunk, long intervalNanos) {
+        int from = answer.length() * chunk / streamChunks;
+        int to = answer.length() * (chunk + 1) / streamChunks;
+        try {
+            ObjectNode delta = objectMapper.createObjectNode();
+            delta.put("type", "content_block_delta");
+            delta.put("index", 0);
+            delta.putObject("delta").put("type", "text_delta").put("text", answer.substring(from, to));
+            writeEvent(exchange, "content_block_delta", delta.toString());
+            if (chunk + 1 < streamChunks) {
+                later(() -> streamChunk(exchange, answer, chunk + 1, intervalNanos), intervalNanos);
+                return;
+            }
+            writeEvent(exchange, "content_block_stop", "{\"type\":\"content_block_stop\",\"index\":0}");
+            writeEvent(exchange, "message_delta", "{\"type\":\"message_delta\",\"delta\":{\"stop_reason\":\"end_turn\"},"
+                    + "\"usage\":{\"output_tokens\":" + answerWords + "}}");
+            writeEvent(exchange, "message_stop", "{\"type\":\"message_stop\"}");
+        } catch (IOException e) {
+            // Client went away (cancelled hedge or deadline)
+        }
+        exchange.close();
+    }
+
+    /** Runs {@code task} on a handler thread after the delay, keeping socket writes off the timer thread. */
+    private void later(Runnable task, long delayNanos) {
+        timers.schedule(() -> handlers.execute(task), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static void writeEvent(HttpExchange exchange, String event, String data) throws IOException {
+        OutputStream out = exchange.getResponseBody();
+        out.write(("event: " + event + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void sendError(HttpExchange exchange, int status, String type, String message) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("type", "error");
+        body.putObject("error").put("type", type).put("message", message);
+        send(exchange, status, "application/json", body.toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    public long requests() { return requests.sum(); }
+    public long streamedRequests() { return streamed.sum(); }
+    public long injectedErrors() { return injectedErrors.sum(); }
+    public long injectedOverloads() { return injectedOverloads.sum(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        timers.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Config config = ConfigFactory.load().getConfig("diplomatic-assistant.loadtest.fake-api");
+        FakeMessagesApi api = start(config);
+        System.out.println("Fake Messages API: " + api.url());
+        System.out.println("Start Node 2 with -Ddiplomatic-assistant.llm.api-url=" + api.url());
+        Runtime.getRuntime().addShutdownHook(new Thread(api::close));
+    }
+}
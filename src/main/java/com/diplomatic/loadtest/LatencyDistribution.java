@@ -0,0 +1,81 @@
+package com.diplomatic.loadtest;
+
+import com.typesafe.config.Config;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Response-time model for {@link FakeMessagesApi}.
+ *
+ * <ul>
+ *   <li>{@code fixed}: always {@code median}</li>
+ *   <li>{@code uniform}: between {@code min} and {@code max}</li>
+ *   <li>{@code lognormal}: the long-tailed shape real LLM latencies have, fitted so that
+ *       half the samples fall under {@code median} and 99% under {@code p99}</li>
+ * </ul>
+ * Samples are always clamped to [{@code min}, {@code max}].
+ */
+public final class LatencyDistribution {
+
+    // Standard normal quantile at 0.99
+    private static final double Z_99 = 2.3263478740408408;
+
+    private final String kind;
+    private final long minNanos;
+    private final long maxNanos;
+    private final long medianNanos;
+    private final double mu;
+    private final double sigma;
+
+    private LatencyDistribution(String kind, Duration min, Duration max, Duration median, Duration p99) {
+        if (min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("latency.min " + min + " is above latency.max " + max);
+        }
+        this.kind = kind;
+        this.minNanos = min.toNanos();
+        this.maxNanos = max.toNanos();
+        this.medianNanos = median.toNanos();
+        this.mu = Math.log(Math.max(1, medianNanos));
+        this.sigma = p99.compareTo(median) > 0 ? Math.log((double) p99.toNanos() / medianNanos) / Z_99 : 0;
+    }
+
+    public static LatencyDistribution fromConfig(Config config) {
+        String kind = config.getString("distribution");
+        if (!kind.equals("fixed") && !kind.equals("uniform") && !kind.equals("lognormal")) {
+            throw new IllegalArgumentException(
+                    "latency.distribution must be fixed, uniform or lognormal, not '" + kind + "'");
+        }
+        return new LatencyDistribution(kind,
+                config.getDuration("min"), config.getDuration("max"),
+                config.getDuration("median"), config.getDuration("p99"));
+    }
+
+    public long sampleNanos(Random random) {
+        long sample;
+        switch (kind) {
+            case "uniform":
+                sample = minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+                break;
+            case "lognormal":
+                sample = (long) Math.exp(mu + sigma * random.nextGaussian());
+                break;
+            default:
+                sample = medianNanos;
+        }
+        return Math.max(minNanos, Math.min(maxNanos, sample));
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case "uniform":
+                return String.format("uniform %d-%d ms", minNanos / 1_000_000, maxNanos / 1_000_000);
+            case "lognormal":
+                return String.format("lognormal median %d ms, sigma %.2f, clamped to %d-%d ms",
+                        medianNanos / 1_000_000, sigma, minNanos / 1_000_000, maxNanos / 1_000_000);
+            default:
+                return String.format("fixed %d ms", medianNanos / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.diplomatic.loadtest;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.cluster.typed.Cluster;
+import com.diplomatic.actors.infrastructure.ClusterSupervisorActor;
+import com.diplomatic.actors.intelligence.IntelligenceNodeSupervisor;
+import com.diplomatic.messages.SessionCreatedMessage;
+import com.diplomatic.metrics.MetricsEndpoint;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Closed-loop load test of the whole cluster against {@link FakeMessagesApi}.
+ *
+ * Starts the fake API, then Node 2 and Node 1 in this JVM from their usual config
+ * files with the LLM URL pointed at the fake, history and cache under a temp
+ * directory, and the session limit raised to fit. Each virtual user owns a session
+ * and sends {@link ClusterSupervisorActor.RouteQuery} through the supervisor, waits
+ * for the answer, thinks, and sends the next one, so offered load follows the
+ * cluster's response time rather than piling up. Queries that start during the
+ * warmup are not counted.
+ *
+ * Prints throughput, end-to-end latency percentiles and a breakdown of the answers.
+ * Settings are under {@code diplomatic-assistant.loadtest}; override them with -D, e.g.
+ * {@code -Ddiplomatic-assistant.loadtest.sessions=200}.
+ */
+public class LoadTest {
+
+    private static final String[] QUERIES = {
+            "How should I greet Japanese diplomats?",
+            "What are Moroccan business etiquette norms?",
+            "Cultural considerations for Kuwait?",
+            "How to propose a trade deal with Canada?",
+            "Help me clarify terms with Turkish officials",
+            "How do I push back on their fishing quota demand without losing goodwill?",
+            "We need to revise the tariff schedule we agreed last week",
+            "Should we defer the water rights discussion to the next round?",
+            "What gift is appropriate for a Saudi minister?",
+            "Their delegation rejected our proposal, how do we escalate?"
+    };
+
+    private final Config settings;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration thinkTime;
+    private final Duration requestTimeout;
+
+    private final List<Long> latencies = new ArrayList<>();
+    private final Map<String, AtomicLong> outcomes = new TreeMap<>();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private ActorSystem<ClusterSupervisorActor.Command> node1;
+    private long measureFrom;
+    private long measureUntil;
+
+    private LoadTest(Config settings) {
+        this.settings = settings;
+        this.warmup = settings.getDuration("warmup");
+        this.duration = settings.getDuration("duration");
+        this.thinkTime = settings.getDuration("think-time");
+        this.requestTimeout = settings.getDuration("request-timeout");
+        for (String outcome : new String[]{"ok", "llm-error", "session-timeout", "not-ready", "error", "timeout"}) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config settings = ConfigFactory.load().getConfig("diplomatic-assistant.loadtest");
+        new LoadTest(settings).run();
+    }
+
+    private void run() throws Exception {
+        Path dataDir = Files.createTempDirectory("diplomatic-loadtest");
+        FakeMessagesApi api = FakeMessagesApi.start(settings.getConfig("fake-api"));
+        ActorSystem<IntelligenceNodeSupervisor.Command> node2 = null;
+        try {
+            int sessions = settings.getInt("sessions");
+            node2 = ActorSystem.create(
+                    IntelligenceNodeSupervisor.create("load-test", "CLAUDE"),
+                    "DiplomaticAssistantSystem",
+                    nodeConfig("src/main/resources/application-node2.conf", api.url(), sessions, dataDir));
+            node1 = ActorSystem.create(
+                    ClusterSupervisorActor.createInfrastructure(),
+                    "DiplomaticAssistantSystem",
+                    nodeConfig("src/main/resources/application-node1.conf", api.url(), sessions, dataDir));
+            node1.tell(new ClusterSupervisorActor.MonitorCluster());
+            // Per-stage histograms of each node, scrapeable while the test runs
+            MetricsEndpoint.start(node2);
+            MetricsEndpoint.start(node1);
+
+            awaitCluster(node2);
+            List<String> sessionIds = createSessions(sessions);
+            System.out.printf("%d sessions, %d s warmup, %d s measured, think time %d ms, fake API %s%n",
+                    sessionIds.size(), warmup.getSeconds(), duration.getSeconds(), thinkTime.toMillis(), api.url());
+
+            long start = System.nanoTime();
+            measureFrom = start + warmup.toNanos();
+            measureUntil = measureFrom + duration.toNanos();
+            CountDownLatch done = new CountDownLatch(sessionIds.size());
+            for (String sessionId : sessionIds) {
+                nextQuery(sessionId, done);
+            }
+            if (!done.await(warmup.plus(duration).plus(requestTimeout).toMillis() + 10_000, TimeUnit.MILLISECONDS)) {
+                System.out.println("Some virtual users did not finish; " + inFlight.get() + " queries still in flight");
+            }
+            report(api);
+        } finally {
+            if (node1 != null) {
+                node1.terminate();
+                node1.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+            }
+            if (node2 != null) {
+                node2.terminate();
+                node2.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+            }
+            api.close();
+            deleteRecursively(dataDir);
+        }
+    }
+
+    private Config nodeConfig(String file, String apiUrl, int sessions, Path dataDir) {
+        Config overrides = ConfigFactory.empty()
+                .withValue("diplomatic-assistant.llm.api-url", ConfigValueFactory.fromAnyRef(apiUrl))
+                .withValue("diplomatic-assistant.max-active-sessions", ConfigValueFactory.fromAnyRef(sessions + 10))
+                .withValue("akka.cluster.jmx.multi-mbeans-in-same-jvm", ConfigValueFactory.fromAnyRef(true))
+                .withValue("diplomatic-assistant.history.directory",
+                        ConfigValueFactory.fromAnyRef(dataDir.resolve("history").toString()))
+                .withValue("diplomatic-assistant.llm.cache.disk.directory",
+                        ConfigValueFactory.fromAnyRef(dataDir.resolve("llm-cache").toString()));
+        if (settings.getBoolean("disable-llm-cache")) {
+            // Answers come from the fake API rather than the response cache
+            overrides = overrides.withValue("diplomatic-assistant.llm.cache.enabled", ConfigValueFactory.fromAnyRef(false));
+        }
+        // System properties still win, as with ConfigFactory.load()
+        return ConfigFactory.systemProperties()
+                .withFallback(overrides)
+                .withFallback(ConfigFactory.parseFile(new File(file)))
+                .withFallback(ConfigFactory.load())
+                .resolve();
+    }
+
+    private void awaitCluster(ActorSystem<IntelligenceNodeSupervisor.Command> node2) throws InterruptedException {
+        Cluster cluster = Cluster.get(node1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (cluster.state().members().size() < 2) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Cluster did not form within 60s");
+            }
+            Thread.sleep(200);
+        }
+        node2.tell(new IntelligenceNodeSupervisor.Initialize());
+    }
+
+    /** Sessions are refused ("pending") until Node 1 has seen the intelligence node, so retry for a while. */
+    private List<String> createSessions(int count) throws Exception {
+        List<String> sessionIds = new ArrayList<>(count);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (sessionIds.size() < count) {
+            SessionCreatedMessage created = AskPattern.<ClusterSupervisorActor.Command, SessionCreatedMessage>ask(
+                    node1,
+                    replyTo -> new ClusterSupervisorActor.CreateSession("load-user-" + sessionIds.size(), replyTo),
+                    Duration.ofSeconds(10),
+                    node1.scheduler()).toCompletableFuture().get();
+            String id = created.getSessionId();
+            if ("rejected".equals(id)) {
+                throw new IllegalStateException("Session limit reached after " + sessionIds.size() + " sessions");
+            }
+            if ("pending".equals(id)) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Cluster was not ready for sessions within 60s");
+                }
+                Thread.sleep(500);
+                continue;
+            }
+            sessionIds.add(id);
+        }
+        return sessionIds;
+    }
+
+    private void nextQuery(String sessionId, CountDownLatch done) {
+        long sent = System.nanoTime();
+        if (sent >= measureUntil) {
+            done.countDown();
+            return;
+        }
+        String query = QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)];
+        inFlight.incrementAndGet();
+        AskPattern.<ClusterSupervisorActor.Command, String>ask(
+                node1,
+                replyTo -> new ClusterSupervisorActor.RouteQuery(sessionId, query, replyTo),
+                requestTimeout,
+                node1.scheduler())
+                .whenComplete((answer, failure) -> {
+                    long received = System.nanoTime();
+                    inFlight.decrementAndGet();
+                    if (sent >= measureFrom && received <= measureUntil) {
+                        record(failure != null ? "timeout" : classify(answer), received - sent);
+                    }
+                    Executor delay = CompletableFuture.delayedExecutor(thinkTime.toNanos(), TimeUnit.NANOSECONDS);
+                    delay.execute(() -> nextQuery(sessionId, done));
+                });
+    }
+
+    static String classify(String answer) {
+        if (answer.startsWith("I apologize, but I'm having trouble")) {
+            return "llm-error";
+        }
+        if (answer.startsWith("Sorry, that request took too long")) {
+            return "session-timeout";
+        }
+        if (answer.startsWith("System initializing")) {
+            return "not-ready";
+        }
+        if (answer.startsWith("Error:")) {
+            return "error";
+        }
+        return "ok";
+    }
+
+    private synchronized void record(String outcome, long latencyNanos) {
+        outcomes.get(outcome).incrementAndGet();
+        latencies.add(latencyNanos);
+    }
+
+    private synchronized void report(FakeMessagesApi api) {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        double seconds = duration.toNanos() / 1e9;
+        System.out.println();
+        System.out.printf("Completed %d queries in %.0f s: %.1f queries/s%n", sorted.length, seconds, sorted.length / seconds);
+        if (sorted.length > 0) {
+            System.out.printf("Latency ms  p50 %.1f  p90 %.1f  p99 %.1f  p999 %.1f  max %.1f%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+        }
+        outcomes.entrySet().stream()
+                .filter(entry -> entry.getValue().get() > 0)
+                .forEach(entry -> System.out.printf("  %-16s %d%n", entry.getKey(), entry.getValue().get()));
+        System.out.printf("Fake API: %d requests (%d streamed), %d injected errors, %d injected 429s%n",
+                api.requests(), api.streamedRequests(), api.injectedErrors(), api.injectedOverloads());
+    }
+
+    /** Nearest-rank percentile, in milliseconds. */
+    static double percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
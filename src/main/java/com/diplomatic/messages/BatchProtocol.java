@@ -0,0 +1,144 @@
+package com.diplomatic.messages;
+
+import akka.actor.typed.ActorRef;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Describes how single requests of one protocol are packed into batch envelopes and
+ * how batched results are unpacked again. Shared by the Node 1 batching gateway and
+ * the Node 2 batch endpoint so both ends agree on the shapes.
+ *
+ * @param <Q>  single request
+ * @param <B>  batch request envelope
+ * @param <R>  single result
+ * @param <BR> batch result envelope
+ */
+public final class BatchProtocol<Q, B, R, BR> {
+
+    public static final BatchProtocol<RouteToClassifierMessage, ClassificationBatchRequest,
+            ClassificationResultMessage, ClassificationBatchResult> CLASSIFIER = new BatchProtocol<>(
+            "classifier",
+            RouteToClassifierMessage.class, ClassificationBatchRequest.class,
+            ClassificationResultMessage.class, ClassificationBatchResult.class,
+            RouteToClassifierMessage::getCorrelationId,
+            RouteToClassifierMessage::getReplyTo,
+            (msg, replyTo) -> new RouteToClassifierMessage(
+                    msg.getCorrelationId(), msg.getSessionId(), msg.getQuery(), replyTo, msg.getTrace()),
+            ClassificationBatchRequest::new,
+            ClassificationBatchRequest::getRequests,
+            ClassificationBatchRequest::getReplyTo,
+            ClassificationResultMessage::getCorrelationId,
+            ClassificationBatchResult::new,
+            ClassificationBatchResult::getResults);
+
+    public static final BatchProtocol<CulturalAnalysisRequestMessage, CulturalAnalysisBatchRequest,
+            CulturalAnalysisResponseMessage, CulturalAnalysisBatchResult> CULTURAL = new BatchProtocol<>(
+            "cultural",
+            CulturalAnalysisRequestMessage.class, CulturalAnalysisBatchRequest.class,
+            CulturalAnalysisResponseMessage.class, CulturalAnalysisBatchResult.class,
+            CulturalAnalysisRequestMessage::getCorrelationId,
+            CulturalAnalysisRequestMessage::getReplyTo,
+            (msg, replyTo) -> new CulturalAnalysisRequest(
+                    msg.getCorrelationId(), msg.getQuery(), msg.getCountry(), replyTo, msg.getStreamTo(), msg.getTrace()),
+            (requests, replyTo) -> new CulturalAnalysisBatchRequest(concreteCultural(requests), replyTo),
+            batch -> List.copyOf(batch.getRequests()),
+            CulturalAnalysisBatchRequest::getReplyTo,
+            CulturalAnalysisResponseMessage::getCorrelationId,
+            CulturalAnalysisBatchResult::new,
+            CulturalAnalysisBatchResult::getResults);
+
+    public static final BatchProtocol<DiplomaticPrimitiveRequestMessage, DiplomaticPrimitiveBatchRequest,
+            DiplomaticPrimitiveResponseMessage, DiplomaticPrimitiveBatchResult> PRIMITIVES = new BatchProtocol<>(
+            "primitives",
+            DiplomaticPrimitiveRequestMessage.class, DiplomaticPrimitiveBatchRequest.class,
+            DiplomaticPrimitiveResponseMessage.class, DiplomaticPrimitiveBatchResult.class,
+            DiplomaticPrimitiveRequestMessage::getCorrelationId,
+            DiplomaticPrimitiveRequestMessage::getReplyTo,
+            (msg, replyTo) -> new DiplomaticPrimitiveRequestMessage(
+                    msg.getCorrelationId(), msg.getPrimitive(), msg.getQuery(), replyTo, msg.getStreamTo(), msg.getTrace()),
+            DiplomaticPrimitiveBatchRequest::new,
+            DiplomaticPrimitiveBatchRequest::getRequests,
+            DiplomaticPrimitiveBatchRequest::getReplyTo,
+            DiplomaticPrimitiveResponseMessage::getCorrelationId,
+            DiplomaticPrimitiveBatchResult::new,
+            DiplomaticPrimitiveBatchResult::getResults);
+
+    private final String name;
+    private final Class<Q> requestType;
+    private final Class<B> batchType;
+    private final Class<R> resultType;
+    private final Class<BR> batchResultType;
+    private final Function<Q, String> correlationIdOf;
+    private final Function<Q, ActorRef<R>> replyToOf;
+    private final BiFunction<Q, ActorRef<R>, Q> withReplyTo;
+    private final BiFunction<List<Q>, ActorRef<BR>, B> toBatch;
+    private final Function<B, List<Q>> requestsOf;
+    private final Function<B, ActorRef<BR>> batchReplyToOf;
+    private final Function<R, String> resultCorrelationIdOf;
+    private final Function<List<R>, BR> toBatchResult;
+    private final Function<BR, List<R>> resultsOf;
+
+    private BatchProtocol(
+            String name,
+            Class<Q> requestType,
+            Class<B> batchType,
+            Class<R> resultType,
+            Class<BR> batchResultType,
+            Function<Q, String> correlationIdOf,
+            Function<Q, ActorRef<R>> replyToOf,
+            BiFunction<Q, ActorRef<R>, Q> withReplyTo,
+            BiFunction<List<Q>, ActorRef<BR>, B> toBatch,
+            Function<B, List<Q>> requestsOf,
+            Function<B, ActorRef<BR>> batchReplyToOf,
+            Function<R, String> resultCorrelationIdOf,
+            Function<List<R>, BR> toBatchResult,
+            Function<BR, List<R>> resultsOf) {
+        this.name = name;
+        this.requestType = requestType;
+        this.batchType = batchType;
+        this.resultType = resultType;
+        this.batchResultType = batchResultType;
+        this.correlationIdOf = correlationIdOf;
+        this.replyToOf = replyToOf;
+        this.withReplyTo = withReplyTo;
+        this.toBatch = toBatch;
+        this.requestsOf = requestsOf;
+        this.batchReplyToOf = batchReplyToOf;
+        this.resultCorrelationIdOf = resultCorrelationIdOf;
+        this.toBatchResult = toBatchResult;
+        this.resultsOf = resultsOf;
+    }
+
+    public String name() { return name; }
+    public Class<Q> requestType() { return requestType; }
+    public Class<B> batchType() { return batchType; }
+    public Class<R> resultType() { return resultType; }
+    public Class<BR> batchResultType() { return batchResultType; }
+
+    public String correlationId(Q request) { return correlationIdOf.apply(request); }
+    public ActorRef<R> replyTo(Q request) { return replyToOf.apply(request); }
+    public Q withReplyTo(Q request, ActorRef<R> replyTo) { return withReplyTo.apply(request, replyTo); }
+
+    public B toBatch(List<Q> requests, ActorRef<BR> replyTo) { return toBatch.apply(requests, replyTo); }
+    public List<Q> requestsOf(B batch) { return requestsOf.apply(batch); }
+    public ActorRef<BR> batchReplyTo(B batch) { return batchReplyToOf.apply(batch); }
+
+    public String resultCorrelationId(R result) { return resultCorrelationIdOf.apply(result); }
+    public BR toBatchResult(List<R> results) { return toBatchResult.apply(results); }
+    public List<R> resultsOf(BR batch) { return resultsOf.apply(batch); }
+
+    private static List<CulturalAnalysisRequest> concreteCultural(List<CulturalAnalysisRequestMessage> requests) {
+        List<CulturalAnalysisRequest> concrete = new ArrayList<>(requests.size());
+        for (CulturalAnalysisRequestMessage request : requests) {
+            concrete.add(request instanceof CulturalAnalysisRequest
+                    ? (CulturalAnalysisRequest) request
+                    : new CulturalAnalysisRequest(request.getCorrelationId(), request.getQuery(),
+                            request.getCountry(), request.getReplyTo(), request.getStreamTo(), request.getTrace()));
+        }
+        return concrete;
+    }
+}
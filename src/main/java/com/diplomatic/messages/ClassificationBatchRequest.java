@@ -0,0 +1,27 @@
+package com.diplomatic.messages;
+
+import akka.actor.typed.ActorRef;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Several classification requests sent to an intelligence node in one envelope.
+ * Items carry no replyTo of their own; answers come back as {@link ClassificationBatchResult}.
+ */
+public final class ClassificationBatchRequest implements CborSerializable {
+    private final List<RouteToClassifierMessage> requests;
+    private final ActorRef<ClassificationBatchResult> replyTo;
+
+    @JsonCreator
+    public ClassificationBatchRequest(
+            @JsonProperty("requests") List<RouteToClassifierMessage> requests,
+            @JsonProperty("replyTo") ActorRef<ClassificationBatchResult> replyTo) {
+        this.requests = requests;
+        this.replyTo = replyTo;
+    }
+
+    public List<RouteToClassifierMessage> getRequests() { return requests; }
+    public ActorRef<ClassificationBatchResult> getReplyTo() { return replyTo; }
+}
@@ -0,0 +1,18 @@
+package com.diplomatic.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/** Classification results for (part of) a {@link ClassificationBatchRequest}. */
+public final class ClassificationBatchResult implements CborSerializable {
+    private final List<ClassificationResultMessage> results;
+
+    @JsonCreator
+    public ClassificationBatchResult(@JsonProperty("results") List<ClassificationResultMessage> results) {
+        this.results = results;
+    }
+
+    public List<ClassificationResultMessage> getResults() { return results; }
+}
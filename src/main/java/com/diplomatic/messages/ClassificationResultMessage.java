@@ -3,30 +3,69 @@ package com.diplomatic.messages;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Map;
+
 public final class ClassificationResultMessage implements CborSerializable {
+    private final String correlationId;
     private final String scenario;
     private final String targetActor;
     private final double confidence;
     private final String detectedCountry;
     private final String detectedPrimitive;
+    // Label -> probability from the statistical classifier; null under keyword rules
+    private final Map<String, Double> probabilities;
+    private final TraceContext trace;
 
     @JsonCreator
     public ClassificationResultMessage(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("scenario") String scenario,
             @JsonProperty("targetActor") String targetActor,
             @JsonProperty("confidence") double confidence,
             @JsonProperty("detectedCountry") String detectedCountry,
-            @JsonProperty("detectedPrimitive") String detectedPrimitive) {
+            @JsonProperty("detectedPrimitive") String detectedPrimitive,
+            @JsonProperty("probabilities") Map<String, Double> probabilities,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.scenario = scenario;
         this.targetActor = targetActor;
         this.confidence = confidence;
         this.detectedCountry = detectedCountry;
         this.detectedPrimitive = detectedPrimitive;
+        this.probabilities = probabilities;
+        this.trace = trace;
+    }
+
+    public ClassificationResultMessage(String correlationId, String scenario, String targetActor, double confidence,
+                                       String detectedCountry, String detectedPrimitive,
+                                       Map<String, Double> probabilities) {
+        this(correlationId, scenario, targetActor, confidence, detectedCountry, detectedPrimitive, probabilities, null);
     }
 
+    public ClassificationResultMessage(String correlationId, String scenario, String targetActor, double confidence,
+                                       String detectedCountry, String detectedPrimitive) {
+        this(correlationId, scenario, targetActor, confidence, detectedCountry, detectedPrimitive, null);
+    }
+
+    public ClassificationResultMessage(String scenario, String targetActor, double confidence,
+                                       String detectedCountry, String detectedPrimitive) {
+        this(null, scenario, targetActor, confidence, detectedCountry, detectedPrimitive);
+    }
+
+    public String getCorrelationId() { return correlationId; }
+
     public String getScenario() { return scenario; }
     public String getTargetActor() { return targetActor; }
     public double getConfidence() { return confidence; }
     public String getDetectedCountry() { return detectedCountry; }
     public String getDetectedPrimitive() { return detectedPrimitive; }
+    public Map<String, Double> getProbabilities() { return probabilities; }
+
+    /** Span that produced this result; null when the classifier does not trace. */
+    public TraceContext getTrace() { return trace; }
+
+    public ClassificationResultMessage withTrace(TraceContext trace) {
+        return new ClassificationResultMessage(correlationId, scenario, targetActor, confidence,
+                detectedCountry, detectedPrimitive, probabilities, trace);
+    }
 }
\ No newline at end of file
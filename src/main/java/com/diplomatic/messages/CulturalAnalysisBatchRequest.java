@@ -0,0 +1,27 @@
+package com.diplomatic.messages;
+
+import akka.actor.typed.ActorRef;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Several cultural analysis requests sent to an intelligence node in one envelope.
+ * Items carry no replyTo of their own; answers come back as {@link CulturalAnalysisBatchResult}.
+ */
+public final class CulturalAnalysisBatchRequest implements CborSerializable {
+    private final List<CulturalAnalysisRequest> requests;
+    private final ActorRef<CulturalAnalysisBatchResult> replyTo;
+
+    @JsonCreator
+    public CulturalAnalysisBatchRequest(
+            @JsonProperty("requests") List<CulturalAnalysisRequest> requests,
+            @JsonProperty("replyTo") ActorRef<CulturalAnalysisBatchResult> replyTo) {
+        this.requests = requests;
+        this.replyTo = replyTo;
+    }
+
+    public List<CulturalAnalysisRequest> getRequests() { return requests; }
+    public ActorRef<CulturalAnalysisBatchResult> getReplyTo() { return replyTo; }
+}
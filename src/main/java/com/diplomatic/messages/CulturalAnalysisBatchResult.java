@@ -0,0 +1,18 @@
+package com.diplomatic.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/** Cultural analyses for (part of) a {@link CulturalAnalysisBatchRequest}. */
+public final class CulturalAnalysisBatchResult implements CborSerializable {
+    private final List<CulturalAnalysisResponseMessage> results;
+
+    @JsonCreator
+    public CulturalAnalysisBatchResult(@JsonProperty("results") List<CulturalAnalysisResponseMessage> results) {
+        this.results = results;
+    }
+
+    public List<CulturalAnalysisResponseMessage> getResults() { return results; }
+}
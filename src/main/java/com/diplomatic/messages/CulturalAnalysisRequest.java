@@ -5,20 +5,47 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public final class CulturalAnalysisRequest implements CulturalAnalysisRequestMessage, CborSerializable {
+    private final String correlationId;
     private final String query;
     private final String country;
     private final ActorRef<CulturalAnalysisResponseMessage> replyTo;
+    private final ActorRef<LLMStreamMessage> streamTo;
+    private final TraceContext trace;
 
     @JsonCreator
     public CulturalAnalysisRequest(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("query") String query,
             @JsonProperty("country") String country,
-            @JsonProperty("replyTo") ActorRef<CulturalAnalysisResponseMessage> replyTo) {
+            @JsonProperty("replyTo") ActorRef<CulturalAnalysisResponseMessage> replyTo,
+            @JsonProperty("streamTo") ActorRef<LLMStreamMessage> streamTo,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.query = query;
         this.country = country;
         this.replyTo = replyTo;
+        this.streamTo = streamTo;
+        this.trace = trace;
     }
 
+    public CulturalAnalysisRequest(String correlationId, String query, String country,
+                                   ActorRef<CulturalAnalysisResponseMessage> replyTo,
+                                   ActorRef<LLMStreamMessage> streamTo) {
+        this(correlationId, query, country, replyTo, streamTo, null);
+    }
+
+    public CulturalAnalysisRequest(String query, String country, ActorRef<CulturalAnalysisResponseMessage> replyTo,
+                                   ActorRef<LLMStreamMessage> streamTo) {
+        this(null, query, country, replyTo, streamTo);
+    }
+
+    public CulturalAnalysisRequest(String query, String country, ActorRef<CulturalAnalysisResponseMessage> replyTo) {
+        this(null, query, country, replyTo, null);
+    }
+
+    @Override
+    public String getCorrelationId() { return correlationId; }
+
     @Override
     public String getQuery() { return query; }
 
@@ -27,4 +54,14 @@ public final class CulturalAnalysisRequest implements CulturalAnalysisRequestMes
 
     @Override
     public ActorRef<CulturalAnalysisResponseMessage> getReplyTo() { return replyTo; }
+
+    @Override
+    public ActorRef<LLMStreamMessage> getStreamTo() { return streamTo; }
+
+    @Override
+    public TraceContext getTrace() { return trace; }
+
+    public CulturalAnalysisRequest withTrace(TraceContext trace) {
+        return new CulturalAnalysisRequest(correlationId, query, country, replyTo, streamTo, trace);
+    }
 }
\ No newline at end of file
@@ -3,7 +3,12 @@ package com.diplomatic.messages;
 import akka.actor.typed.ActorRef;
 
 public interface CulturalAnalysisRequestMessage extends CborSerializable {
+    String getCorrelationId();
     String getQuery();
     String getCountry();
     ActorRef<CulturalAnalysisResponseMessage> getReplyTo();
+    ActorRef<LLMStreamMessage> getStreamTo();
+
+    /** Span that sent this request; null when the sender does not trace. */
+    default TraceContext getTrace() { return null; }
 }
\ No newline at end of file
@@ -3,20 +3,41 @@ package com.diplomatic.messages;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.util.Map;
-
 public final class CulturalAnalysisResponseMessage implements CborSerializable {
+    private final String correlationId;
     private final String analysis;
-    private final Map<String, Object> context;
+    private final LLMContext context;
+    private final TraceContext trace;
 
     @JsonCreator
     public CulturalAnalysisResponseMessage(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("analysis") String analysis,
-            @JsonProperty("context") Map<String, Object> context) {
+            @JsonProperty("context") LLMContext context,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.analysis = analysis;
         this.context = context;
+        this.trace = trace;
+    }
+
+    public CulturalAnalysisResponseMessage(String correlationId, String analysis, LLMContext context) {
+        this(correlationId, analysis, context, null);
+    }
+
+    public CulturalAnalysisResponseMessage(String analysis, LLMContext context) {
+        this(null, analysis, context);
     }
 
+    public String getCorrelationId() { return correlationId; }
+
     public String getAnalysis() { return analysis; }
-    public Map<String, Object> getContext() { return context; }
+    public LLMContext getContext() { return context; }
+
+    /** Span that produced this analysis; null when the responder does not trace. */
+    public TraceContext getTrace() { return trace; }
+
+    public CulturalAnalysisResponseMessage withTrace(TraceContext trace) {
+        return new CulturalAnalysisResponseMessage(correlationId, analysis, context, trace);
+    }
 }
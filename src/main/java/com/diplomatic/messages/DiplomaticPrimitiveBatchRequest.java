@@ -0,0 +1,27 @@
+package com.diplomatic.messages;
+
+import akka.actor.typed.ActorRef;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Several primitive requests sent to an intelligence node in one envelope.
+ * Items carry no replyTo of their own; answers come back as {@link DiplomaticPrimitiveBatchResult}.
+ */
+public final class DiplomaticPrimitiveBatchRequest implements CborSerializable {
+    private final List<DiplomaticPrimitiveRequestMessage> requests;
+    private final ActorRef<DiplomaticPrimitiveBatchResult> replyTo;
+
+    @JsonCreator
+    public DiplomaticPrimitiveBatchRequest(
+            @JsonProperty("requests") List<DiplomaticPrimitiveRequestMessage> requests,
+            @JsonProperty("replyTo") ActorRef<DiplomaticPrimitiveBatchResult> replyTo) {
+        this.requests = requests;
+        this.replyTo = replyTo;
+    }
+
+    public List<DiplomaticPrimitiveRequestMessage> getRequests() { return requests; }
+    public ActorRef<DiplomaticPrimitiveBatchResult> getReplyTo() { return replyTo; }
+}
@@ -0,0 +1,18 @@
+package com.diplomatic.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/** Primitive responses for (part of) a {@link DiplomaticPrimitiveBatchRequest}. */
+public final class DiplomaticPrimitiveBatchResult implements CborSerializable {
+    private final List<DiplomaticPrimitiveResponseMessage> results;
+
+    @JsonCreator
+    public DiplomaticPrimitiveBatchResult(@JsonProperty("results") List<DiplomaticPrimitiveResponseMessage> results) {
+        this.results = results;
+    }
+
+    public List<DiplomaticPrimitiveResponseMessage> getResults() { return results; }
+}
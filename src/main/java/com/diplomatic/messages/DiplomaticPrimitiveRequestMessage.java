@@ -5,21 +5,57 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public final class DiplomaticPrimitiveRequestMessage implements CborSerializable {
+    private final String correlationId;
     private final String primitive;
     private final String query;
     private final ActorRef<DiplomaticPrimitiveResponseMessage> replyTo;
+    private final ActorRef<LLMStreamMessage> streamTo;
+    private final TraceContext trace;
 
     @JsonCreator
     public DiplomaticPrimitiveRequestMessage(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("primitive") String primitive,
             @JsonProperty("query") String query,
-            @JsonProperty("replyTo") ActorRef<DiplomaticPrimitiveResponseMessage> replyTo) {
+            @JsonProperty("replyTo") ActorRef<DiplomaticPrimitiveResponseMessage> replyTo,
+            @JsonProperty("streamTo") ActorRef<LLMStreamMessage> streamTo,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.primitive = primitive;
         this.query = query;
         this.replyTo = replyTo;
+        this.streamTo = streamTo;
+        this.trace = trace;
     }
 
+    public DiplomaticPrimitiveRequestMessage(
+            String correlationId, String primitive, String query,
+            ActorRef<DiplomaticPrimitiveResponseMessage> replyTo, ActorRef<LLMStreamMessage> streamTo) {
+        this(correlationId, primitive, query, replyTo, streamTo, null);
+    }
+
+    public DiplomaticPrimitiveRequestMessage(
+            String primitive, String query, ActorRef<DiplomaticPrimitiveResponseMessage> replyTo,
+            ActorRef<LLMStreamMessage> streamTo) {
+        this(null, primitive, query, replyTo, streamTo);
+    }
+
+    public DiplomaticPrimitiveRequestMessage(
+            String primitive, String query, ActorRef<DiplomaticPrimitiveResponseMessage> replyTo) {
+        this(null, primitive, query, replyTo, null);
+    }
+
+    public String getCorrelationId() { return correlationId; }
+
     public String getPrimitive() { return primitive; }
     public String getQuery() { return query; }
     public ActorRef<DiplomaticPrimitiveResponseMessage> getReplyTo() { return replyTo; }
+    public ActorRef<LLMStreamMessage> getStreamTo() { return streamTo; }
+
+    /** Span that sent this request; null when the sender does not trace. */
+    public TraceContext getTrace() { return trace; }
+
+    public DiplomaticPrimitiveRequestMessage withTrace(TraceContext trace) {
+        return new DiplomaticPrimitiveRequestMessage(correlationId, primitive, query, replyTo, streamTo, trace);
+    }
 }
\ No newline at end of file
@@ -4,17 +4,40 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public final class DiplomaticPrimitiveResponseMessage implements CborSerializable {
+    private final String correlationId;
     private final String primitive;
     private final String result;
+    private final TraceContext trace;
 
     @JsonCreator
     public DiplomaticPrimitiveResponseMessage(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("primitive") String primitive,
-            @JsonProperty("result") String result) {
+            @JsonProperty("result") String result,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.primitive = primitive;
         this.result = result;
+        this.trace = trace;
     }
 
+    public DiplomaticPrimitiveResponseMessage(String correlationId, String primitive, String result) {
+        this(correlationId, primitive, result, null);
+    }
+
+    public DiplomaticPrimitiveResponseMessage(String primitive, String result) {
+        this(null, primitive, result);
+    }
+
+    public String getCorrelationId() { return correlationId; }
+
     public String getPrimitive() { return primitive; }
     public String getResult() { return result; }
+
+    /** Span that produced this result; null when the responder does not trace. */
+    public TraceContext getTrace() { return trace; }
+
+    public DiplomaticPrimitiveResponseMessage withTrace(TraceContext trace) {
+        return new DiplomaticPrimitiveResponseMessage(correlationId, primitive, result, trace);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.diplomatic.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What an LLM request is about, used for cache keys and logging. Replaces the
+ * untyped {@code Map<String, Object>} that used to travel with LLM requests and
+ * cultural responses.
+ */
+public final class LLMContext implements CborSerializable {
+
+    public enum ScenarioType { CULTURAL, DIPLOMATIC_PRIMITIVE }
+
+    private final ScenarioType scenarioType;
+    private final String country;
+    private final String primitive;
+    private final String query;
+
+    @JsonCreator
+    public LLMContext(
+            @JsonProperty("scenarioType") ScenarioType scenarioType,
+            @JsonProperty("country") String country,
+            @JsonProperty("primitive") String primitive,
+            @JsonProperty("query") String query) {
+        this.scenarioType = scenarioType;
+        this.country = country;
+        this.primitive = primitive;
+        this.query = query;
+    }
+
+    public static LLMContext cultural(String country, String query) {
+        return new LLMContext(ScenarioType.CULTURAL, country, null, query);
+    }
+
+    public static LLMContext primitive(String primitive, String query) {
+        return new LLMContext(ScenarioType.DIPLOMATIC_PRIMITIVE, null, primitive, query);
+    }
+
+    /** Same context without the query text, for replies to a caller that already has it. */
+    public LLMContext withoutQuery() {
+        return query == null ? this : new LLMContext(scenarioType, country, primitive, null);
+    }
+
+    public ScenarioType getScenarioType() { return scenarioType; }
+    public String getCountry() { return country; }
+    public String getPrimitive() { return primitive; }
+    public String getQuery() { return query; }
+}
@@ -4,24 +4,58 @@ import akka.actor.typed.ActorRef;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.util.Map;
-
 public final class LLMRequestMessage implements CborSerializable {
+    private final String correlationId;
     private final String prompt;
-    private final Map<String, Object> context;
+    private final LLMContext context;
     private final ActorRef<LLMResponseMessage> replyTo;
+    private final ActorRef<LLMStreamMessage> streamTo;
+    private final TraceContext trace;
 
     @JsonCreator
     public LLMRequestMessage(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("prompt") String prompt,
-            @JsonProperty("context") Map<String, Object> context,
-            @JsonProperty("replyTo") ActorRef<LLMResponseMessage> replyTo) {
+            @JsonProperty("context") LLMContext context,
+            @JsonProperty("replyTo") ActorRef<LLMResponseMessage> replyTo,
+            @JsonProperty("streamTo") ActorRef<LLMStreamMessage> streamTo,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.prompt = prompt;
         this.context = context;
         this.replyTo = replyTo;
+        this.streamTo = streamTo;
+        this.trace = trace;
+    }
+
+    public LLMRequestMessage(String correlationId, String prompt, LLMContext context,
+                             ActorRef<LLMResponseMessage> replyTo, ActorRef<LLMStreamMessage> streamTo) {
+        this(correlationId, prompt, context, replyTo, streamTo, null);
+    }
+
+    public LLMRequestMessage(String prompt, LLMContext context, ActorRef<LLMResponseMessage> replyTo,
+                             ActorRef<LLMStreamMessage> streamTo) {
+        this(null, prompt, context, replyTo, streamTo);
+    }
+
+    public LLMRequestMessage(String prompt, LLMContext context, ActorRef<LLMResponseMessage> replyTo) {
+        this(null, prompt, context, replyTo, null);
     }
 
+    /** Echoed on the {@link LLMResponseMessage} so the caller can match the reply. */
+    public String getCorrelationId() { return correlationId; }
+
     public String getPrompt() { return prompt; }
-    public Map<String, Object> getContext() { return context; }
+    public LLMContext getContext() { return context; }
     public ActorRef<LLMResponseMessage> getReplyTo() { return replyTo; }
+
+    /** Optional; when set, partial output is streamed here as it is generated. */
+    public ActorRef<LLMStreamMessage> getStreamTo() { return streamTo; }
+
+    /** Span that sent this request; null when the sender does not trace. */
+    public TraceContext getTrace() { return trace; }
+
+    public LLMRequestMessage withTrace(TraceContext trace) {
+        return new LLMRequestMessage(correlationId, prompt, context, replyTo, streamTo, trace);
+    }
 }
@@ -4,17 +4,45 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public final class LLMResponseMessage implements CborSerializable {
+    private final String correlationId;
     private final String response;
     private final boolean success;
+    private final TraceContext trace;
 
     @JsonCreator
     public LLMResponseMessage(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("response") String response,
-            @JsonProperty("success") boolean success) {
+            @JsonProperty("success") boolean success,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.response = response;
         this.success = success;
+        this.trace = trace;
     }
 
+    public LLMResponseMessage(String correlationId, String response, boolean success) {
+        this(correlationId, response, success, null);
+    }
+
+    public LLMResponseMessage(String response, boolean success) {
+        this(null, response, success);
+    }
+
+    /** Same answer addressed to another request. */
+    public LLMResponseMessage withCorrelationId(String correlationId) {
+        return new LLMResponseMessage(correlationId, response, success, trace);
+    }
+
+    public String getCorrelationId() { return correlationId; }
+
     public String getResponse() { return response; }
     public boolean isSuccess() { return success; }
+
+    /** Span that produced this answer; null when the responder does not trace. */
+    public TraceContext getTrace() { return trace; }
+
+    public LLMResponseMessage withTrace(TraceContext trace) {
+        return new LLMResponseMessage(correlationId, response, success, trace);
+    }
 }
\ No newline at end of file
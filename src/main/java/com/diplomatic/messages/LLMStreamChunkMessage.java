@@ -0,0 +1,20 @@
+package com.diplomatic.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public final class LLMStreamChunkMessage implements LLMStreamMessage {
+    private final int sequence;
+    private final String text;
+
+    @JsonCreator
+    public LLMStreamChunkMessage(
+            @JsonProperty("sequence") int sequence,
+            @JsonProperty("text") String text) {
+        this.sequence = sequence;
+        this.text = text;
+    }
+
+    public int getSequence() { return sequence; }
+    public String getText() { return text; }
+}
@@ -0,0 +1,20 @@
+package com.diplomatic.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public final class LLMStreamEndMessage implements LLMStreamMessage {
+    private final boolean success;
+    private final int chunkCount;
+
+    @JsonCreator
+    public LLMStreamEndMessage(
+            @JsonProperty("success") boolean success,
+            @JsonProperty("chunkCount") int chunkCount) {
+        this.success = success;
+        this.chunkCount = chunkCount;
+    }
+
+    public boolean isSuccess() { return success; }
+    public int getChunkCount() { return chunkCount; }
+}
@@ -0,0 +1,8 @@
+package com.diplomatic.messages;
+
+/**
+ * Messages delivered to a streaming requester while an LLM answer is generated:
+ * any number of {@link LLMStreamChunkMessage} followed by one {@link LLMStreamEndMessage}.
+ */
+public interface LLMStreamMessage extends CborSerializable {
+}
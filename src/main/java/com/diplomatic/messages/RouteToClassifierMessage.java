@@ -5,21 +5,46 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public final class RouteToClassifierMessage implements CborSerializable {
+    private final String correlationId;
     private final String sessionId;
     private final String query;
     private final ActorRef<ClassificationResultMessage> replyTo;
+    private final TraceContext trace;
 
     @JsonCreator
     public RouteToClassifierMessage(
+            @JsonProperty("correlationId") String correlationId,
             @JsonProperty("sessionId") String sessionId,
             @JsonProperty("query") String query,
-            @JsonProperty("replyTo") ActorRef<ClassificationResultMessage> replyTo) {
+            @JsonProperty("replyTo") ActorRef<ClassificationResultMessage> replyTo,
+            @JsonProperty("trace") TraceContext trace) {
+        this.correlationId = correlationId;
         this.sessionId = sessionId;
         this.query = query;
         this.replyTo = replyTo;
+        this.trace = trace;
     }
 
+    public RouteToClassifierMessage(String correlationId, String sessionId, String query,
+                                    ActorRef<ClassificationResultMessage> replyTo) {
+        this(correlationId, sessionId, query, replyTo, null);
+    }
+
+    public RouteToClassifierMessage(String sessionId, String query, ActorRef<ClassificationResultMessage> replyTo) {
+        this(null, sessionId, query, replyTo);
+    }
+
+    /** Echoed on the {@link ClassificationResultMessage} so the caller can match the reply. */
+    public String getCorrelationId() { return correlationId; }
+
     public String getSessionId() { return sessionId; }
     public String getQuery() { return query; }
     public ActorRef<ClassificationResultMessage> getReplyTo() { return replyTo; }
+
+    /** Span that sent this request; null when the sender does not trace. */
+    public TraceContext getTrace() { return trace; }
+
+    public RouteToClassifierMessage withTrace(TraceContext trace) {
+        return new RouteToClassifierMessage(correlationId, sessionId, query, replyTo, trace);
+    }
 }
\ No newline at end of file
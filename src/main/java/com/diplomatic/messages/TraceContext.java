@@ -0,0 +1,110 @@
+package com.diplomatic.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identifies the span a message was sent from, so the receiver's span can name it as
+ * parent and one query can be followed across both nodes.
+ *
+ * Ids follow W3C trace context: a 128-bit trace id shared by every span of a query and
+ * a 64-bit span id. Unsampled contexts are still propagated so the whole query makes
+ * the same sampling decision, but no spans are recorded for them.
+ */
+public final class TraceContext {
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long spanId;
+    private final boolean sampled;
+
+    public TraceContext(long traceIdHigh, long traceIdLow, long spanId, boolean sampled) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+        this.sampled = sampled;
+    }
+
+    @JsonCreator
+    static TraceContext fromJson(
+            @JsonProperty("traceId") String traceId,
+            @JsonProperty("spanId") String spanId,
+            @JsonProperty("sampled") boolean sampled) {
+        return new TraceContext(
+                Long.parseUnsignedLong(traceId.substring(0, 16), 16),
+                Long.parseUnsignedLong(traceId.substring(16), 16),
+                Long.parseUnsignedLong(spanId, 16),
+                sampled);
+    }
+
+    /** First span of a new trace. */
+    public static TraceContext newTrace(boolean sampled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(random.nextLong(), nonZero(random), nonZero(random), sampled);
+    }
+
+    /** A new span in the same trace. */
+    public TraceContext newChild() {
+        return new TraceContext(traceIdHigh, traceIdLow, nonZero(ThreadLocalRandom.current()), sampled);
+    }
+
+    private static long nonZero(ThreadLocalRandom random) {
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    @JsonIgnore
+    public long getTraceIdHigh() { return traceIdHigh; }
+    @JsonIgnore
+    public long getTraceIdLow() { return traceIdLow; }
+    @JsonIgnore
+    public long getSpanIdValue() { return spanId; }
+
+    /** 32 lowercase hex digits. */
+    @JsonProperty("traceId")
+    public String getTraceId() {
+        return hex(traceIdHigh) + hex(traceIdLow);
+    }
+
+    /** 16 lowercase hex digits. */
+    @JsonProperty("spanId")
+    public String getSpanId() {
+        return hex(spanId);
+    }
+
+    @JsonProperty("sampled")
+    public boolean isSampled() { return sampled; }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+
+    public boolean sameTrace(TraceContext other) {
+        return other != null && traceIdHigh == other.traceIdHigh && traceIdLow == other.traceIdLow;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TraceContext)) return false;
+        TraceContext other = (TraceContext) o;
+        return sameTrace(other) && spanId == other.spanId && sampled == other.sampled;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(traceIdLow) * 31 + Long.hashCode(spanId);
+    }
+
+    /** W3C {@code traceparent} form, e.g. for log lines. */
+    @Override
+    public String toString() {
+        return "00-" + getTraceId() + "-" + getSpanId() + (sampled ? "-01" : "-00");
+    }
+}
@@ -0,0 +1,24 @@
+package com.diplomatic.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Monotonic counter, safe to increment from any thread. */
+public final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
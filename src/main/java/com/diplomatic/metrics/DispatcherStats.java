@@ -0,0 +1,119 @@
+package com.diplomatic.metrics;
+
+import akka.actor.ActorSystem;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mailbox depth and thread pool usage of one dispatcher, fed by
+ * {@link InstrumentedMailbox} and {@link InstrumentedExecutorConfigurator}.
+ *
+ * Akka creates mailboxes and executors from the classic system's settings before any
+ * actor can look up a {@link MetricsRegistry}, so stats are keyed by that settings
+ * instance and bound to the registry later by {@link PipelineDispatchers}.
+ */
+public final class DispatcherStats {
+
+    // Same identity and weak-reference rules as MetricsRegistry
+    private static final List<Registration> SYSTEMS = new ArrayList<>();
+
+    private final LongAdder mailboxDepth = new LongAdder();
+    // Akka shuts an idle dispatcher's executor down and creates a new one when work arrives
+    private volatile ExecutorService executor;
+
+    private DispatcherStats() {
+    }
+
+    static DispatcherStats of(ActorSystem.Settings settings, String dispatcherId) {
+        synchronized (SYSTEMS) {
+            SYSTEMS.removeIf(registration -> registration.settings.get() == null);
+            for (Registration registration : SYSTEMS) {
+                if (registration.settings.get() == settings) {
+                    return registration.dispatchers.computeIfAbsent(dispatcherId, id -> new DispatcherStats());
+                }
+            }
+            Registration registration = new Registration(settings);
+            SYSTEMS.add(registration);
+            return registration.dispatchers.computeIfAbsent(dispatcherId, id -> new DispatcherStats());
+        }
+    }
+
+    public static DispatcherStats forSystem(akka.actor.typed.ActorSystem<?> system, String dispatcherId) {
+        return of(system.classicSystem().settings(), dispatcherId);
+    }
+
+    ExecutorService bind(ExecutorService created) {
+        this.executor = created;
+        return created;
+    }
+
+    void enqueued() {
+        mailboxDepth.increment();
+    }
+
+    void dequeued() {
+        mailboxDepth.decrement();
+    }
+
+    /** Messages waiting in the mailboxes of all actors on this dispatcher. */
+    public long mailboxDepth() {
+        return mailboxDepth.sum();
+    }
+
+    /** Threads currently running an actor or task; zero while no executor exists. */
+    public int activeThreads() {
+        ExecutorService current = executor;
+        if (current instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) current).getActiveCount();
+        } else if (current instanceof ForkJoinPool) {
+            return ((ForkJoinPool) current).getActiveThreadCount();
+        }
+        return 0;
+    }
+
+    /** Largest number of threads the pool will run at once. */
+    public int maxThreads() {
+        ExecutorService current = executor;
+        if (current instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) current).getMaximumPoolSize();
+        } else if (current instanceof ForkJoinPool) {
+            return ((ForkJoinPool) current).getParallelism();
+        }
+        return 0;
+    }
+
+    /** Tasks (mostly scheduled mailboxes) submitted to the pool and not yet started. */
+    public long queuedTasks() {
+        ExecutorService current = executor;
+        if (current instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) current).getQueue().size();
+        } else if (current instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) current;
+            return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        }
+        return 0;
+    }
+
+    /** Share of the pool's threads busy right now, from 0 to 1. */
+    public double utilization() {
+        int max = maxThreads();
+        return max == 0 ? 0.0 : Math.min(1.0, (double) activeThreads() / max);
+    }
+
+    private static final class Registration {
+        final WeakReference<ActorSystem.Settings> settings;
+        final ConcurrentMap<String, DispatcherStats> dispatchers = new ConcurrentHashMap<>();
+
+        Registration(ActorSystem.Settings settings) {
+            this.settings = new WeakReference<>(settings);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.diplomatic.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/** Value read from its source each time the registry is scraped. */
+public final class Gauge {
+
+    private final DoubleSupplier value;
+
+    Gauge(DoubleSupplier value) {
+        this.value = value;
+    }
+
+    public double get() {
+        return value.getAsDouble();
+    }
+}
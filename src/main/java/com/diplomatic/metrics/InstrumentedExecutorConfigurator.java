@@ -0,0 +1,44 @@
+package com.diplomatic.metrics;
+
+import akka.dispatch.DispatcherPrerequisites;
+import akka.dispatch.ExecutorServiceConfigurator;
+import akka.dispatch.ExecutorServiceFactory;
+import akka.dispatch.ForkJoinExecutorConfigurator;
+import akka.dispatch.ThreadPoolExecutorConfigurator;
+import com.typesafe.config.Config;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Dispatcher {@code executor} that builds Akka's usual thread pool or fork-join pool,
+ * chosen by {@code instrumented-executor}, and reports it to {@link DispatcherStats}.
+ */
+public final class InstrumentedExecutorConfigurator extends ExecutorServiceConfigurator {
+
+    private final ExecutorServiceConfigurator delegate;
+    private final DispatcherPrerequisites prerequisites;
+
+    public InstrumentedExecutorConfigurator(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+        this.prerequisites = prerequisites;
+        String executor = config.getString("instrumented-executor");
+        switch (executor) {
+            case "thread-pool-executor":
+                this.delegate = new ThreadPoolExecutorConfigurator(config.getConfig(executor), prerequisites);
+                break;
+            case "fork-join-executor":
+                this.delegate = new ForkJoinExecutorConfigurator(config.getConfig(executor), prerequisites);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "instrumented-executor must be thread-pool-executor or fork-join-executor, not '" + executor + "'");
+        }
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        ExecutorServiceFactory factory = delegate.createExecutorServiceFactory(id, threadFactory);
+        DispatcherStats stats = DispatcherStats.of(prerequisites.settings(), id);
+        return () -> stats.bind(factory.createExecutorService());
+    }
+}
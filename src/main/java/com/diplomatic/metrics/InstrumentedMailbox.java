@@ -0,0 +1,77 @@
+package com.diplomatic.metrics;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import com.typesafe.config.Config;
+import scala.Option;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Unbounded mailbox that adds its queue length to the owning dispatcher's
+ * {@link DispatcherStats#mailboxDepth()}. Set as a dispatcher's {@code mailbox-type};
+ * {@link PipelineDispatchers#select} then uses that dispatcher's config as the mailbox
+ * of every actor it places there.
+ */
+public final class InstrumentedMailbox
+        implements MailboxType, ProducesMessageQueue<InstrumentedMailbox.CountingMessageQueue> {
+
+    private final DispatcherStats stats;
+
+    public InstrumentedMailbox(ActorSystem.Settings settings, Config config) {
+        // Akka adds the config path as "id", and the mailbox path is the dispatcher's
+        this.stats = DispatcherStats.of(settings, config.getString("id"));
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        return new CountingMessageQueue(stats);
+    }
+
+    static final class CountingMessageQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+        private final ConcurrentLinkedQueue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        private final DispatcherStats stats;
+
+        CountingMessageQueue(DispatcherStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            queue.add(handle);
+            stats.enqueued();
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = queue.poll();
+            if (envelope != null) {
+                stats.dequeued();
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean hasMessages() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            Envelope envelope;
+            while ((envelope = dequeue()) != null) {
+                deadLetters.enqueue(owner, envelope);
+            }
+        }
+    }
+}
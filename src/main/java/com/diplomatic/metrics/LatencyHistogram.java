@@ -0,0 +1,89 @@
+package com.diplomatic.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram, safe to record from any thread without locking.
+ *
+ * Buckets span 0.1ms to 60s, which covers everything from an in-memory classifier
+ * pass to a slow LLM call. Recording is a short scan of the bounds plus one atomic
+ * increment, cheap enough to leave on in every actor's hot path.
+ */
+public final class LatencyHistogram {
+
+    /** Upper bounds in seconds, as exported in the Prometheus {@code le} label. */
+    static final double[] BOUNDS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 60
+    };
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            BOUNDS_NANOS[i] = Math.round(BOUNDS_SECONDS[i] * 1e9);
+        }
+    }
+
+    // Last slot counts everything above the largest bound (+Inf)
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_NANOS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && value > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        sumNanos.add(value);
+    }
+
+    /** Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /** Per-bucket (not cumulative) counts; the last one is above the largest bound. */
+    long[] bucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /** Upper bound of the bucket holding the given quantile, in nanoseconds; for logs and tests. */
+    public long quantileUpperBoundNanos(double quantile) {
+        long[] counts = bucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_NANOS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
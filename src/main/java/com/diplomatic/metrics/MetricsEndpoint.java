@@ -0,0 +1,124 @@
+package com.diplomatic.metrics;
+
+import akka.actor.typed.ActorSystem;
+import com.diplomatic.tracing.Tracer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serves a system's {@link MetricsRegistry} at {@code GET /metrics} for Prometheus to scrape,
+ * and its recent spans at {@code GET /traces} as OTLP/JSON. {@code /traces?min-ms=500}
+ * keeps only traces with a span of at least 500 ms.
+ *
+ * Runs on its own single daemon thread, so a scrape never competes with the actor
+ * dispatchers, and stops when the actor system terminates. Settings are under
+ * {@code diplomatic-assistant.metrics}.
+ */
+public class MetricsEndpoint implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsEndpoint.class);
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final MetricsRegistry registry;
+    private final Tracer tracer;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** Starts the endpoint if {@code metrics.enabled}; returns null otherwise. */
+    public static MetricsEndpoint start(ActorSystem<?> system) {
+        Config config = system.settings().config().getConfig("diplomatic-assistant.metrics");
+        if (!config.getBoolean("enabled")) {
+            return null;
+        }
+        try {
+            MetricsEndpoint endpoint = new MetricsEndpoint(MetricsRegistry.forSystem(system), Tracer.forSystem(system),
+                    config.getString("host"), config.getInt("port"));
+            system.getWhenTerminated().thenRun(endpoint::close);
+            return endpoint;
+        } catch (IOException e) {
+            // Metrics are not worth taking the node down for
+            logger.warn("Could not start metrics endpoint on {}:{}: {}",
+                    config.getString("host"), config.getInt("port"), e.getMessage());
+            return null;
+        }
+    }
+
+    /** {@code tracer} may be null, in which case {@code /traces} is not served. */
+    MetricsEndpoint(MetricsRegistry registry, Tracer tracer, String host, int port) throws IOException {
+        this.registry = registry;
+        this.tracer = tracer;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 16);
+        server.setExecutor(executor);
+        server.createContext("/metrics", exchange -> respond(exchange, CONTENT_TYPE, registry::scrape));
+        if (tracer != null) {
+            server.createContext("/traces", exchange -> respond(exchange, JSON_CONTENT_TYPE,
+                    () -> tracer.dumpOtlpJson(TimeUnit.MILLISECONDS.toNanos(minMillis(exchange)))));
+        }
+        server.start();
+        logger.info("Metrics available at {}", url());
+    }
+
+    public String url() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + "/metrics";
+    }
+
+    private static long minMillis(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("min-ms=")) {
+                    try {
+                        return Math.max(0, Long.parseLong(parameter.substring("min-ms=".length())));
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void respond(HttpExchange exchange, String contentType, Supplier<String> content) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = content.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,182 @@
+package com.diplomatic.metrics;
+
+import akka.actor.typed.ActorSystem;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Named histograms, counters and gauges for one actor system, rendered in Prometheus text format.
+ *
+ * Actors look up their instruments once when they are created and keep the
+ * references, so the hot path never touches the registry maps. Each system gets
+ * its own registry because the load test runs both nodes in one JVM and they
+ * must not report each other's numbers.
+ */
+public final class MetricsRegistry {
+
+    /** Latency of one pipeline stage, labelled by {@code stage}. */
+    public static final String STAGE_LATENCY = "diplomatic_stage_latency_seconds";
+    private static final String STAGE_LATENCY_HELP = "Time spent in each pipeline stage";
+    private static final String[] BUCKET_LABELS = new String[LatencyHistogram.BOUNDS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            BUCKET_LABELS[i] = "le=\"" + BigDecimal.valueOf(LatencyHistogram.BOUNDS_SECONDS[i]).stripTrailingZeros().toPlainString() + "\"";
+        }
+    }
+
+    // Matched by identity, since both load-test nodes share a name and so compare equal, and
+    // held weakly so registries of terminated test systems can be collected. Not an Akka
+    // extension because BehaviorTestKit's stub system cannot load one.
+    private static final List<Registration> REGISTRIES = new ArrayList<>();
+
+    private final ConcurrentMap<String, Family<?>> families = new ConcurrentHashMap<>();
+
+    MetricsRegistry() {
+    }
+
+    public static MetricsRegistry forSystem(ActorSystem<?> system) {
+        synchronized (REGISTRIES) {
+            REGISTRIES.removeIf(registration -> registration.system.get() == null);
+            for (Registration registration : REGISTRIES) {
+                if (registration.system.get() == system) {
+                    return registration.registry;
+                }
+            }
+            MetricsRegistry registry = new MetricsRegistry();
+            REGISTRIES.add(new Registration(system, registry));
+            return registry;
+        }
+    }
+
+    /** Histogram for {@link #STAGE_LATENCY} with the given stage label. */
+    public LatencyHistogram stage(String stage) {
+        return histogram(STAGE_LATENCY, STAGE_LATENCY_HELP, "stage", stage);
+    }
+
+    /**
+     * Histogram with the given name and label pairs, e.g.
+     * {@code histogram("x_seconds", "help", "stage", "llm")}.
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return family(name, help, "histogram", LatencyHistogram.class).get(labels, l -> new LatencyHistogram());
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return family(name, help, "counter", Counter.class).get(labels, l -> new Counter());
+    }
+
+    /**
+     * Gauge reading {@code value} at every scrape. Registering the same name and labels
+     * again keeps the first source.
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+        return family(name, help, "gauge", Gauge.class).get(labels, l -> new Gauge(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Family<T> family(String name, String help, String type, Class<T> metricClass) {
+        Family<?> family = families.computeIfAbsent(name, n -> new Family<>(help, type, metricClass));
+        if (family.metricClass != metricClass) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return (Family<T>) family;
+    }
+
+    /** Renders every metric in the Prometheus text exposition format (version 0.0.4). */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        new TreeMap<>(families).forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            new TreeMap<>(family.metrics).forEach((labels, metric) -> {
+                if (metric instanceof LatencyHistogram histogram) {
+                    writeHistogram(out, name, labels, histogram);
+                } else if (metric instanceof Gauge gauge) {
+                    writeSample(out, name, labels, null, Double.toString(gauge.get()));
+                } else {
+                    writeSample(out, name, labels, null, Long.toString(((Counter) metric).get()));
+                }
+            });
+        });
+        return out.toString();
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long[] counts = histogram.bucketCounts();
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BOUNDS_SECONDS.length; i++) {
+            cumulative += counts[i];
+            writeSample(out, name + "_bucket", labels, BUCKET_LABELS[i], Long.toString(cumulative));
+        }
+        cumulative += counts[counts.length - 1];
+        writeSample(out, name + "_bucket", labels, "le=\"+Inf\"", Long.toString(cumulative));
+        writeSample(out, name + "_sum", labels, null, Double.toString(histogram.sumNanos() / 1e9));
+        // _count from the buckets so it always matches +Inf under concurrent recording
+        writeSample(out, name + "_count", labels, null, Long.toString(cumulative));
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, String extraLabel, String value) {
+        out.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            out.append('{').append(labels);
+            if (extraLabel != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static final class Registration {
+        final WeakReference<ActorSystem<?>> system;
+        final MetricsRegistry registry;
+
+        Registration(ActorSystem<?> system, MetricsRegistry registry) {
+            this.system = new WeakReference<>(system);
+            this.registry = registry;
+        }
+    }
+
+    /** All instances of one metric name, keyed by their rendered label set. */
+    private static final class Family<T> {
+        final String help;
+        final String type;
+        final Class<T> metricClass;
+        final ConcurrentMap<String, T> metrics = new ConcurrentHashMap<>();
+
+        Family(String help, String type, Class<T> metricClass) {
+            this.help = help;
+            this.type = type;
+            this.metricClass = metricClass;
+        }
+
+        T get(String[] labels, Function<String, T> factory) {
+            return metrics.computeIfAbsent(renderLabels(labels), factory);
+        }
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return rendered.toString();
+    }
+}
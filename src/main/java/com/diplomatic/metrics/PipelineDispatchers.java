@@ -0,0 +1,47 @@
+package com.diplomatic.metrics;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.MailboxSelector;
+import akka.actor.typed.Props;
+
+/**
+ * The dispatchers pipeline actors are spawned on, defined under
+ * {@code diplomatic-assistant.dispatchers}. Selecting one registers its
+ * {@code diplomatic_dispatcher_*} gauges with the system's {@link MetricsRegistry}.
+ */
+public final class PipelineDispatchers {
+
+    /** Bounded pool for work that waits on I/O: LLM calls and conversation history files. */
+    public static final String BLOCKING_IO = "diplomatic-assistant.dispatchers.blocking-io";
+    /** Pool sized to the cores, for classification and prompt building. */
+    public static final String CPU = "diplomatic-assistant.dispatchers.cpu";
+    /** Small pool for housekeeping actors such as the session manager. */
+    public static final String SUPERVISOR = "diplomatic-assistant.dispatchers.supervisor";
+
+    public static final String MAILBOX_DEPTH = "diplomatic_dispatcher_mailbox_depth";
+    public static final String ACTIVE_THREADS = "diplomatic_dispatcher_threads_active";
+    public static final String MAX_THREADS = "diplomatic_dispatcher_threads_max";
+    public static final String QUEUED_TASKS = "diplomatic_dispatcher_queued_tasks";
+    public static final String UTILIZATION = "diplomatic_dispatcher_utilization";
+
+    private PipelineDispatchers() {}
+
+    /**
+     * Props placing an actor on the dispatcher. The dispatcher's config doubles as the
+     * mailbox config: typed actors otherwise get the typed default mailbox whatever the
+     * dispatcher's {@code mailbox-type} says, and would go uncounted.
+     */
+    public static Props select(ActorSystem<?> system, String dispatcherId) {
+        DispatcherStats stats = DispatcherStats.forSystem(system, dispatcherId);
+        MetricsRegistry metrics = MetricsRegistry.forSystem(system);
+        String[] labels = {"dispatcher", dispatcherId.substring(dispatcherId.lastIndexOf('.') + 1)};
+        metrics.gauge(MAILBOX_DEPTH, "Messages waiting in the mailboxes of the dispatcher's actors",
+                stats::mailboxDepth, labels);
+        metrics.gauge(ACTIVE_THREADS, "Dispatcher threads running actors or tasks", stats::activeThreads, labels);
+        metrics.gauge(MAX_THREADS, "Threads the dispatcher runs at most", stats::maxThreads, labels);
+        metrics.gauge(QUEUED_TASKS, "Tasks submitted to the dispatcher's pool and not yet started",
+                stats::queuedTasks, labels);
+        metrics.gauge(UTILIZATION, "Share of the dispatcher's threads busy when scraped", stats::utilization, labels);
+        return MailboxSelector.fromConfig(dispatcherId).withDispatcherFromConfig(dispatcherId);
+    }
+}
@@ -0,0 +1,116 @@
+package com.diplomatic.serialization;
+
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+
+/** Reads what {@link BinaryWriter} wrote. */
+final class BinaryReader {
+
+    private final byte[] buffer;
+    private int position;
+
+    BinaryReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    int readByte() throws NotSerializableException {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    /** True while unread bytes remain; optional trailing sections are read only then. */
+    boolean hasRemaining() {
+        return position < buffer.length;
+    }
+
+    boolean readBoolean() throws NotSerializableException {
+        return readByte() != 0;
+    }
+
+    int readVarInt() throws NotSerializableException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new NotSerializableException("Malformed varint at " + position);
+    }
+
+    float readFloat() throws NotSerializableException {
+        return Float.intBitsToFloat(readFixed32());
+    }
+
+    double readDouble() throws NotSerializableException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    long readLong() throws NotSerializableException {
+        long high = readFixed32() & 0xFFFFFFFFL;
+        long low = readFixed32() & 0xFFFFFFFFL;
+        return (high << 32) | low;
+    }
+
+    private int readFixed32() throws NotSerializableException {
+        require(4);
+        int value = ((buffer[position] & 0xFF) << 24)
+                | ((buffer[position + 1] & 0xFF) << 16)
+                | ((buffer[position + 2] & 0xFF) << 8)
+                | (buffer[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    String readString() throws NotSerializableException {
+        int prefix = readVarInt();
+        if (prefix == 0) {
+            return null;
+        }
+        int length = prefix - 1;
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    String readText(TextCompression compression) throws NotSerializableException {
+        int tag = readByte();
+        switch (tag) {
+            case 0:
+                return null;
+            case 1:
+                return readString();
+            case 2: {
+                int length = readVarInt();
+                require(length);
+                String value = compression.decompress(buffer, position, length);
+                position += length;
+                return value;
+            }
+            default:
+                throw new NotSerializableException("Unknown text encoding " + tag);
+        }
+    }
+
+    String readCoded(String[] dictionary) throws NotSerializableException {
+        int code = readVarInt();
+        if (code == 0) {
+            return null;
+        }
+        if (code == 1) {
+            return readString();
+        }
+        if (code - 2 >= dictionary.length) {
+            throw new NotSerializableException("Unknown dictionary code " + code);
+        }
+        return dictionary[code - 2];
+    }
+
+    private void require(int bytes) throws NotSerializableException {
+        if (bytes < 0 || position + bytes > buffer.length) {
+            throw new NotSerializableException("Truncated message at " + position);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.diplomatic.serialization;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the primitive encodings used by
+ * {@link DiplomaticMessageSerializer}: unsigned LEB128 varints, length-prefixed
+ * UTF-8 strings (length + 1, so 0 means null), dictionary-coded strings and
+ * optionally deflated text.
+ */
+final class BinaryWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    BinaryWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    void writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    void writeVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    void writeFloat(float value) {
+        writeFixed32(Float.floatToIntBits(value));
+    }
+
+    void writeDouble(double value) {
+        writeLong(Double.doubleToLongBits(value));
+    }
+
+    void writeLong(long value) {
+        writeFixed32((int) (value >>> 32));
+        writeFixed32((int) value);
+    }
+
+    private void writeFixed32(int value) {
+        ensure(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        int length = value.length();
+        // Reserve the worst case, write the bytes, then back-fill the length prefix
+        ensure(5 + 3 * length);
+        int prefixAt = position;
+        position += varIntSize(3 * length + 1);
+        int start = position;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (cp >> 18));
+                buffer[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = (byte) '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        int byteLength = position - start;
+        int prefixSize = start - prefixAt;
+        int actualPrefix = varIntSize(byteLength + 1);
+        if (actualPrefix < prefixSize) {
+            System.arraycopy(buffer, start, buffer, prefixAt + actualPrefix, byteLength);
+            position -= prefixSize - actualPrefix;
+        }
+        int end = position;
+        position = prefixAt;
+        writeVarInt(byteLength + 1);
+        position = end;
+    }
+
+    void writeBytes(byte[] value) {
+        writeVarInt(value.length);
+        ensure(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    /**
+     * Writes a long text field, deflated if it has at least {@code threshold} chars
+     * and compresses well: 0 = null, 1 = plain string follows, 2 = deflated bytes follow.
+     */
+    void writeText(String value, int threshold, TextCompression compression) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        byte[] compressed = value.length() >= threshold ? compression.compress(value) : null;
+        if (compressed == null) {
+            writeByte(1);
+            writeString(value);
+        } else {
+            writeByte(2);
+            writeBytes(compressed);
+        }
+    }
+
+    /**
+     * Writes {@code value} as its index in {@code dictionary} when present, otherwise
+     * literally: 0 = null, 1 = literal string follows, n + 2 = dictionary[n].
+     */
+    void writeCoded(String value, String[] dictionary) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) {
+                writeVarInt(i + 2);
+                return;
+            }
+        }
+        writeVarInt(1);
+        writeString(value);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private void ensure(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package com.diplomatic.serialization;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorRefResolver;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.SerializerWithStringManifest;
+import com.diplomatic.actors.infrastructure.DiplomaticSessionActor;
+import com.diplomatic.messages.*;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hand-written binary serializer for every {@link CborSerializable} message.
+ *
+ * Each type has a fixed two or three letter manifest, fields are written in a fixed
+ * order with varint lengths, and the small closed vocabularies (scenario, primitive,
+ * target actor, country, classifier label) are written as dictionary codes with a
+ * literal fallback, so no reflection or field names are involved. Compared with
+ * jackson-cbor messages are smaller and take about half the time to round-trip;
+ * see {@code SerializerBenchmark} in the {@code benchmarks/} JMH module.
+ *
+ * The long LLM answer fields are additionally deflated per message type once they
+ * reach {@code diplomatic-assistant.serialization.compression.min-size}; totals are
+ * logged every {@code report-interval} and available from {@link #compressionStats()}.
+ *
+ * Trace contexts ({@link TraceContext}) go in a trailing section after the message body,
+ * one per item for batch envelopes, and are read only if bytes remain, so nodes that
+ * predate tracing can still exchange messages with nodes that trace.
+ *
+ * Wire compatibility: manifests and dictionary entries must never be reused or
+ * reordered. Add new types with new manifests and append new dictionary entries.
+ */
+public final class DiplomaticMessageSerializer extends SerializerWithStringManifest {
+
+    public static final int IDENTIFIER = 7301;
+
+    private static final String[] SCENARIOS = {"CULTURAL", "PRIMITIVE", "GENERAL"};
+    private static final String[] PRIMITIVES = {
+            "PROPOSE", "CLARIFY", "CONSTRAIN", "REVISE", "AGREE", "ESCALATE", "DEFER", "GENERAL"
+    };
+    private static final String[] LABELS = {
+            "CULTURAL", "PROPOSE", "CLARIFY", "CONSTRAIN", "REVISE", "AGREE", "ESCALATE", "DEFER", "GENERAL"
+    };
+    private static final String[] TARGET_ACTORS = {"CulturalContextActor", "DiplomaticPrimitivesActor"};
+    private static final String[] COUNTRIES = {
+            "General", "Japan", "Japanese", "Kuwait", "Kuwaiti", "Morocco", "Moroccan", "Canada", "Canadian",
+            "Turkey", "Turkish", "Mauritania", "Mauritanian", "China", "Chinese", "India", "Indian",
+            "Germany", "German", "France", "French", "Arab", "Arabic", "Iraq", "Iraqi", "Eritrea", "Eritrean"
+    };
+    private static final LLMContext.ScenarioType[] SCENARIO_TYPES = LLMContext.ScenarioType.values();
+
+    private static final String ROUTE_TO_CLASSIFIER = "RC";
+    private static final String CLASSIFICATION_RESULT = "CR";
+    private static final String CULTURAL_REQUEST = "CQ";
+    private static final String CULTURAL_RESPONSE = "CA";
+    private static final String PRIMITIVE_REQUEST = "PQ";
+    private static final String PRIMITIVE_RESPONSE = "PA";
+    private static final String LLM_REQUEST = "LQ";
+    private static final String LLM_RESPONSE = "LA";
+    private static final String LLM_CONTEXT = "CX";
+    private static final String STREAM_CHUNK = "SC";
+    private static final String STREAM_END = "SE";
+    private static final String SAVE_CONVERSATION = "SV";
+    private static final String SESSION_CREATED = "SN";
+    private static final String CLASSIFICATION_BATCH = "BC";
+    private static final String CLASSIFICATION_BATCH_RESULT = "BCR";
+    private static final String CULTURAL_BATCH = "BQ";
+    private static final String CULTURAL_BATCH_RESULT = "BQR";
+    private static final String PRIMITIVE_BATCH = "BP";
+    private static final String PRIMITIVE_BATCH_RESULT = "BPR";
+    private static final String START_SESSION = "DS";
+    private static final String STOP_SESSION = "DX";
+    private static final String PROCESS_QUERY = "DQ";
+    private static final String SET_INTELLIGENCE_ACTORS = "DI";
+
+    private final Logger logger = LoggerFactory.getLogger(DiplomaticMessageSerializer.class);
+    private final ExtendedActorSystem system;
+    private volatile ActorRefResolver resolver;
+
+    private final TextCompression compression;
+    private final int llmResponseMinSize;
+    private final int culturalResponseMinSize;
+    private final int primitiveResponseMinSize;
+    private final int saveConversationMinSize;
+    private final long reportIntervalNanos;
+    private final AtomicLong nextReportNanos;
+
+    public DiplomaticMessageSerializer(ExtendedActorSystem system) {
+        this.system = system;
+        Config config = system.settings().config().getConfig("diplomatic-assistant.serialization.compression");
+        this.compression = new TextCompression(config);
+        this.llmResponseMinSize = compression.thresholdFor("llm-response");
+        this.culturalResponseMinSize = compression.thresholdFor("cultural-analysis-response");
+        this.primitiveResponseMinSize = compression.thresholdFor("primitive-response");
+        this.saveConversationMinSize = compression.thresholdFor("save-conversation");
+        this.reportIntervalNanos = config.getDuration("report-interval").toNanos();
+        this.nextReportNanos = new AtomicLong(System.nanoTime() + reportIntervalNanos);
+    }
+
+    /** Compression totals for the LLM text fields written and read by this serializer. */
+    public TextCompression.Stats compressionStats() {
+        return compression.stats();
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object o) {
+        if (o instanceof RouteToClassifierMessage) return ROUTE_TO_CLASSIFIER;
+        if (o instanceof ClassificationResultMessage) return CLASSIFICATION_RESULT;
+        if (o instanceof CulturalAnalysisRequest) return CULTURAL_REQUEST;
+        if (o instanceof CulturalAnalysisResponseMessage) return CULTURAL_RESPONSE;
+        if (o instanceof DiplomaticPrimitiveRequestMessage) return PRIMITIVE_REQUEST;
+        if (o instanceof DiplomaticPrimitiveResponseMessage) return PRIMITIVE_RESPONSE;
+        if (o instanceof LLMRequestMessage) return LLM_REQUEST;
+        if (o instanceof LLMResponseMessage) return LLM_RESPONSE;
+        if (o instanceof LLMContext) return LLM_CONTEXT;
+        if (o instanceof LLMStreamChunkMessage) return STREAM_CHUNK;
+        if (o instanceof LLMStreamEndMessage) return STREAM_END;
+        if (o instanceof SaveConversationMessage) return SAVE_CONVERSATION;
+        if (o instanceof SessionCreatedMessage) return SESSION_CREATED;
+        if (o instanceof ClassificationBatchRequest) return CLASSIFICATION_BATCH;
+        if (o instanceof ClassificationBatchResult) return CLASSIFICATION_BATCH_RESULT;
+        if (o instanceof CulturalAnalysisBatchRequest) return CULTURAL_BATCH;
+        if (o instanceof CulturalAnalysisBatchResult) return CULTURAL_BATCH_RESULT;
+        if (o instanceof DiplomaticPrimitiveBatchRequest) return PRIMITIVE_BATCH;
+        if (o instanceof DiplomaticPrimitiveBatchResult) return PRIMITIVE_BATCH_RESULT;
+        if (o instanceof DiplomaticSessionActor.StartSession) return START_SESSION;
+        if (o instanceof DiplomaticSessionActor.StopSession) return STOP_SESSION;
+        if (o instanceof DiplomaticSessionActor.ProcessQuery) return PROCESS_QUERY;
+        if (o instanceof DiplomaticSessionActor.SetIntelligenceActors) return SET_INTELLIGENCE_ACTORS;
+        throw new IllegalArgumentException("Can't serialize object of type " + o.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        BinaryWriter out = new BinaryWriter(128);
+        if (o instanceof RouteToClassifierMessage) {
+            RouteToClassifierMessage msg = (RouteToClassifierMessage) o;
+            writeRouteToClassifier(out, msg);
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof ClassificationResultMessage) {
+            ClassificationResultMessage msg = (ClassificationResultMessage) o;
+            writeClassificationResult(out, msg);
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof CulturalAnalysisRequest) {
+            CulturalAnalysisRequest msg = (CulturalAnalysisRequest) o;
+            writeCulturalRequest(out, msg);
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof CulturalAnalysisResponseMessage) {
+            CulturalAnalysisResponseMessage msg = (CulturalAnalysisResponseMessage) o;
+            writeCulturalResponse(out, msg);
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof DiplomaticPrimitiveRequestMessage) {
+            DiplomaticPrimitiveRequestMessage msg = (DiplomaticPrimitiveRequestMessage) o;
+            writePrimitiveRequest(out, msg);
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof DiplomaticPrimitiveResponseMessage) {
+            DiplomaticPrimitiveResponseMessage msg = (DiplomaticPrimitiveResponseMessage) o;
+            writePrimitiveResponse(out, msg);
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof LLMRequestMessage) {
+            LLMRequestMessage msg = (LLMRequestMessage) o;
+            out.writeString(msg.getCorrelationId());
+            out.writeString(msg.getPrompt());
+            writeContext(out, msg.getContext());
+            writeRef(out, msg.getReplyTo());
+            writeRef(out, msg.getStreamTo());
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof LLMResponseMessage) {
+            LLMResponseMessage msg = (LLMResponseMessage) o;
+            out.writeString(msg.getCorrelationId());
+            out.writeText(msg.getResponse(), llmResponseMinSize, compression);
+            out.writeBoolean(msg.isSuccess());
+            writeTrace(out, msg.getTrace());
+        } else if (o instanceof LLMContext) {
+            writeContext(out, (LLMContext) o);
+        } else if (o instanceof LLMStreamChunkMessage) {
+            LLMStreamChunkMessage msg = (LLMStreamChunkMessage) o;
+            out.writeVarInt(msg.getSequence());
+            out.writeString(msg.getText());
+        } else if (o instanceof LLMStreamEndMessage) {
+            LLMStreamEndMessage msg = (LLMStreamEndMessage) o;
+            out.writeBoolean(msg.isSuccess());
+            out.writeVarInt(msg.getChunkCount());
+        } else if (o instanceof SaveConversationMessage) {
+            SaveConversationMessage msg = (SaveConversationMessage) o;
+            out.writeString(msg.getSessionId());
+            out.writeString(msg.getQuery());
+            out.writeText(msg.getResponse(), saveConversationMinSize, compression);
+        } else if (o instanceof SessionCreatedMessage) {
+            SessionCreatedMessage msg = (SessionCreatedMessage) o;
+            out.writeString(msg.getSessionId());
+            out.writeString(msg.getUserId());
+        } else if (o instanceof ClassificationBatchRequest) {
+            ClassificationBatchRequest msg = (ClassificationBatchRequest) o;
+            writeCount(out, msg.getRequests());
+            if (msg.getRequests() != null) {
+                for (RouteToClassifierMessage request : msg.getRequests()) {
+                    writeRouteToClassifier(out, request);
+                }
+            }
+            writeRef(out, msg.getReplyTo());
+            if (msg.getRequests() != null) {
+                for (RouteToClassifierMessage request : msg.getRequests()) {
+                    writeTrace(out, request.getTrace());
+                }
+            }
+        } else if (o instanceof ClassificationBatchResult) {
+            ClassificationBatchResult msg = (ClassificationBatchResult) o;
+            writeCount(out, msg.getResults());
+            if (msg.getResults() != null) {
+                for (ClassificationResultMessage result : msg.getResults()) {
+                    writeClassificationResult(out, result);
+                }
+                for (ClassificationResultMessage result : msg.getResults()) {
+                    writeTrace(out, result.getTrace());
+                }
+            }
+        } else if (o instanceof CulturalAnalysisBatchRequest) {
+            CulturalAnalysisBatchRequest msg = (CulturalAnalysisBatchRequest) o;
+            writeCount(out, msg.getRequests());
+            if (msg.getRequests() != null) {
+                for (CulturalAnalysisRequest request : msg.getRequests()) {
+                    writeCulturalRequest(out, request);
+                }
+            }
+            writeRef(out, msg.getReplyTo());
+            if (msg.getRequests() != null) {
+                for (CulturalAnalysisRequest request : msg.getRequests()) {
+                    writeTrace(out, request.getTrace());
+                }
+            }
+        } else if (o instanceof CulturalAnalysisBatchResult) {
+            CulturalAnalysisBatchResult msg = (CulturalAnalysisBatchResult) o;
+            writeCount(out, msg.getResults());
+            if (msg.getResults() != null) {
+                for (CulturalAnalysisResponseMessage result : msg.getResults()) {
+                    writeCulturalResponse(out, result);
+                }
+                for (CulturalAnalysisResponseMessage result : msg.getResults()) {
+                    writeTrace(out, result.getTrace());
+                }
+            }
+        } else if (o instanceof DiplomaticPrimitiveBatchRequest) {
+            DiplomaticPrimitiveBatchRequest msg = (DiplomaticPrimitiveBatchRequest) o;
+            writeCount(out, msg.getRequests());
+            if (msg.getRequests() != null) {
+                for (DiplomaticPrimitiveRequestMessage request : msg.getRequests()) {
+                    writePrimitiveRequest(out, request);
+                }
+            }
+            writeRef(out, msg.getReplyTo());
+            if (msg.getRequests() != null) {
+                for (DiplomaticPrimitiveRequestMessage request : msg.getRequests()) {
+                    writeTrace(out, request.getTrace());
+                }
+            }
+        } else if (o instanceof DiplomaticPrimitiveBatchResult) {
+            DiplomaticPrimitiveBatchResult msg = (DiplomaticPrimitiveBatchResult) o;
+            writeCount(out, msg.getResults());
+            if (msg.getResults() != null) {
+                for (DiplomaticPrimitiveResponseMessage result : msg.getResults()) {
+                    writePrimitiveResponse(out, result);
+                }
+                for (DiplomaticPrimitiveResponseMessage result : msg.getResults()) {
+                    writeTrace(out, result.getTrace());
+                }
+            }
+        } else if (o instanceof DiplomaticSessionActor.StartSession) {
+            out.writeString(((DiplomaticSessionActor.StartSession) o).userId);
+        } else if (o instanceof DiplomaticSessionActor.StopSession) {
+            // No fields
+        } else if (o instanceof DiplomaticSessionActor.ProcessQuery) {
+            DiplomaticSessionActor.ProcessQuery msg = (DiplomaticSessionActor.ProcessQuery) o;
+            out.writeString(msg.correlationId);
+            out.writeString(msg.query);
+            writeRef(out, msg.replyTo);
+            writeRef(out, msg.streamTo);
+        } else if (o instanceof DiplomaticSessionActor.SetIntelligenceActors) {
+            DiplomaticSessionActor.SetIntelligenceActors msg = (DiplomaticSessionActor.SetIntelligenceActors) o;
+            writeRef(out, msg.classifierActor);
+            writeRef(out, msg.culturalActor);
+            writeRef(out, msg.primitivesActor);
+        } else {
+            throw new IllegalArgumentException("Can't serialize object of type " + o.getClass().getName());
+        }
+        reportCompression();
+        return out.toByteArray();
+    }
+
+    private void reportCompression() {
+        long now = System.nanoTime();
+        long next = nextReportNanos.get();
+        if (now - next >= 0 && nextReportNanos.compareAndSet(next, now + reportIntervalNanos)) {
+            TextCompression.Stats stats = compression.stats();
+            if (stats.compressedFields + stats.skippedFields > 0) {
+                logger.info("Text compression: {}", stats);
+            }
+        }
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        BinaryReader in = new BinaryReader(bytes);
+        switch (manifest) {
+            case ROUTE_TO_CLASSIFIER:
+                return readRouteToClassifier(in).withTrace(readOptionalTrace(in));
+            case CLASSIFICATION_RESULT:
+                return readClassificationResult(in).withTrace(readOptionalTrace(in));
+            case CULTURAL_REQUEST:
+                return readCulturalRequest(in).withTrace(readOptionalTrace(in));
+            case CULTURAL_RESPONSE:
+                return readCulturalResponse(in).withTrace(readOptionalTrace(in));
+            case PRIMITIVE_REQUEST:
+                return readPrimitiveRequest(in).withTrace(readOptionalTrace(in));
+            case PRIMITIVE_RESPONSE:
+                return readPrimitiveResponse(in).withTrace(readOptionalTrace(in));
+            case LLM_REQUEST:
+                return new LLMRequestMessage(in.readString(), in.readString(), readContext(in), readRef(in), readRef(in),
+                        readOptionalTrace(in));
+            case LLM_RESPONSE:
+                return new LLMResponseMessage(in.readString(), in.readText(compression), in.readBoolean(),
+                        readOptionalTrace(in));
+            case LLM_CONTEXT:
+                return readContext(in);
+            case STREAM_CHUNK:
+                return new LLMStreamChunkMessage(in.readVarInt(), in.readString());
+            case STREAM_END:
+                return new LLMStreamEndMessage(in.readBoolean(), in.readVarInt());
+            case SAVE_CONVERSATION:
+                return new SaveConversationMessage(in.readString(), in.readString(), in.readText(compression));
+            case SESSION_CREATED:
+                return new SessionCreatedMessage(in.readString(), in.readString());
+            case CLASSIFICATION_BATCH: {
+                int count = readCount(in);
+                List<RouteToClassifierMessage> requests = count < 0 ? null : new ArrayList<>(Math.min(count, 256));
+                for (int i = 0; i < count; i++) {
+                    requests.add(readRouteToClassifier(in));
+                }
+                ActorRef<ClassificationBatchResult> replyTo = readRef(in);
+                for (int i = 0; i < count && in.hasRemaining(); i++) {
+                    requests.set(i, requests.get(i).withTrace(readTrace(in)));
+                }
+                return new ClassificationBatchRequest(requests, replyTo);
+            }
+            case CLASSIFICATION_BATCH_RESULT: {
+                int count = readCount(in);
+                List<ClassificationResultMessage> results = count < 0 ? null : new ArrayList<>(Math.min(count, 256));
+                for (int i = 0; i < count; i++) {
+                    results.add(readClassificationResult(in));
+                }
+                for (int i = 0; i < count && in.hasRemaining(); i++) {
+                    results.set(i, results.get(i).withTrace(readTrace(in)));
+                }
+                return new ClassificationBatchResult(results);
+            }
+            case CULTURAL_BATCH: {
+                int count = readCount(in);
+                List<CulturalAnalysisRequest> requests = count < 0 ? null : new ArrayList<>(Math.min(count, 256));
+                for (int i = 0; i < count; i++) {
+                    requests.add(readCulturalRequest(in));
+                }
+                ActorRef<CulturalAnalysisBatchResult> replyTo = readRef(in);
+                for (int i = 0; i < count && in.hasRemaining(); i++) {
+                    requests.set(i, requests.get(i).withTrace(readTrace(in)));
+                }
+                return new CulturalAnalysisBatchRequest(requests, replyTo);
+            }
+            case CULTURAL_BATCH_RESULT: {
+                int count = readCount(in);
+                List<CulturalAnalysisResponseMessage> results = count < 0 ? null : new ArrayList<>(Math.min(count, 256));
+                for (int i = 0; i < count; i++) {
+                    results.add(readCulturalResponse(in));
+                }
+                for (int i = 0; i < count && in.hasRemaining(); i++) {
+                    results.set(i, results.get(i).withTrace(readTrace(in)));
+                }
+                return new CulturalAnalysisBatchResult(results);
+            }
+            case PRIMITIVE_BATCH: {
+                int count = readCount(in);
+                List<DiplomaticPrimitiveRequestMessage> requests = count < 0 ? null : new ArrayList<>(Math.min(count, 256));
+                for (int i = 0; i < count; i++) {
+                    requests.add(readPrimitiveRequest(in));
+                }
+                ActorRef<DiplomaticPrimitiveBatchResult> replyTo = readRef(in);
+                for (int i = 0; i < count && in.hasRemaining(); i++) {
+                    requests.set(i, requests.get(i).withTrace(readTrace(in)));
+                }
+                return new DiplomaticPrimitiveBatchRequest(requests, replyTo);
+            }
+            case PRIMITIVE_BATCH_RESULT: {
+                int count = readCount(in);
+                List<DiplomaticPrimitiveResponseMessage> results = count < 0 ? null : new ArrayList<>(Math.min(count, 256));
+                for (int i = 0; i < count; i++) {
+                    results.add(readPrimitiveResponse(in));
+                }
+                for (int i = 0; i < count && in.hasRemaining(); i++) {
+                    results.set(i, results.get(i).withTrace(readTrace(in)));
+                }
+                return new DiplomaticPrimitiveBatchResult(results);
+            }
+            case START_SESSION:
+                return new DiplomaticSessionActor.StartSession(in.readString());
+            case STOP_SESSION:
+                return DiplomaticSessionActor.StopSession.INSTANCE;
+            case PROCESS_QUERY:
+                return new DiplomaticSessionActor.ProcessQuery(in.readString(), in.readString(), readRef(in), readRef(in));
+            case SET_INTELLIGENCE_ACTORS:
+                return new DiplomaticSessionActor.SetIntelligenceActors(readRef(in), readRef(in), readRef(in));
+            default:
+                throw new NotSerializableException("Unknown manifest '" + manifest + "' for " + getClass().getName());
+        }
+    }
+
+    // ----- per-type bodies shared by single and batch messages -----
+
+    private void writeRouteToClassifier(BinaryWriter out, RouteToClassifierMessage msg) {
+        out.writeString(msg.getCorrelationId());
+        out.writeString(msg.getSessionId());
+        out.writeString(msg.getQuery());
+        writeRef(out, msg.getReplyTo());
+    }
+
+    private RouteToClassifierMessage readRouteToClassifier(BinaryReader in) throws NotSerializableException {
+        return new RouteToClassifierMessage(in.readString(), in.readString(), in.readString(), readRef(in));
+    }
+
+    private static void writeClassificationResult(BinaryWriter out, ClassificationResultMessage msg) {
+        out.writeString(msg.getCorrelationId());
+        out.writeCoded(msg.getScenario(), SCENARIOS);
+        out.writeCoded(msg.getTargetActor(), TARGET_ACTORS);
+        out.writeDouble(msg.getConfidence());
+        out.writeCoded(msg.getDetectedCountry(), COUNTRIES);
+        out.writeCoded(msg.getDetectedPrimitive(), PRIMITIVES);
+        // Probabilities come from a float model, so float precision loses nothing
+        Map<String, Double> probabilities = msg.getProbabilities();
+        if (probabilities == null) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(probabilities.size() + 1);
+            for (Map.Entry<String, Double> entry : probabilities.entrySet()) {
+                out.writeCoded(entry.getKey(), LABELS);
+                out.writeFloat(entry.getValue() == null ? 0f : entry.getValue().floatValue());
+            }
+        }
+    }
+
+    private static ClassificationResultMessage readClassificationResult(BinaryReader in) throws NotSerializableException {
+        String correlationId = in.readString();
+        String scenario = in.readCoded(SCENARIOS);
+        String targetActor = in.readCoded(TARGET_ACTORS);
+        double confidence = in.readDouble();
+        String country = in.readCoded(COUNTRIES);
+        String primitive = in.readCoded(PRIMITIVES);
+        int count = in.readVarInt();
+        Map<String, Double> probabilities = null;
+        if (count > 0) {
+            probabilities = new LinkedHashMap<>();
+            for (int i = 0; i < count - 1; i++) {
+                probabilities.put(in.readCoded(LABELS), (double) in.readFloat());
+            }
+        }
+        return new ClassificationResultMessage(
+                correlationId, scenario, targetActor, confidence, country, primitive, probabilities);
+    }
+
+    private void writeCulturalRequest(BinaryWriter out, CulturalAnalysisRequest msg) {
+        out.writeString(msg.getCorrelationId());
+        out.writeString(msg.getQuery());
+        out.writeCoded(msg.getCountry(), COUNTRIES);
+        writeRef(out, msg.getReplyTo());
+        writeRef(out, msg.getStreamTo());
+    }
+
+    private CulturalAnalysisRequest readCulturalRequest(BinaryReader in) throws NotSerializableException {
+        return new CulturalAnalysisRequest(in.readString(), in.readString(), in.readCoded(COUNTRIES), readRef(in), readRef(in));
+    }
+
+    private void writeCulturalResponse(BinaryWriter out, CulturalAnalysisResponseMessage msg) {
+        out.writeString(msg.getCorrelationId());
+        out.writeText(msg.getAnalysis(), culturalResponseMinSize, compression);
+        writeContext(out, msg.getContext());
+    }
+
+    private CulturalAnalysisResponseMessage readCulturalResponse(BinaryReader in) throws NotSerializableException {
+        return new CulturalAnalysisResponseMessage(in.readString(), in.readText(compression), readContext(in));
+    }
+
+    private void writePrimitiveRequest(BinaryWriter out, DiplomaticPrimitiveRequestMessage msg) {
+        out.writeString(msg.getCorrelationId());
+        out.writeCoded(msg.getPrimitive(), PRIMITIVES);
+        out.writeString(msg.getQuery());
+        writeRef(out, msg.getReplyTo());
+        writeRef(out, msg.getStreamTo());
+    }
+
+    private DiplomaticPrimitiveRequestMessage readPrimitiveRequest(BinaryReader in) throws NotSerializableException {
+        return new DiplomaticPrimitiveRequestMessage(
+                in.readString(), in.readCoded(PRIMITIVES), in.readString(), readRef(in), readRef(in));
+    }
+
+    private void writePrimitiveResponse(BinaryWriter out, DiplomaticPrimitiveResponseMessage msg) {
+        out.writeString(msg.getCorrelationId());
+        out.writeCoded(msg.getPrimitive(), PRIMITIVES);
+        out.writeText(msg.getResult(), primitiveResponseMinSize, compression);
+    }
+
+    private DiplomaticPrimitiveResponseMessage readPrimitiveResponse(BinaryReader in) throws NotSerializableException {
+        return new DiplomaticPrimitiveResponseMessage(in.readString(), in.readCoded(PRIMITIVES), in.readText(compression));
+    }
+
+    private static void writeContext(BinaryWriter out, LLMContext context) {
+        if (context == null) {
+            out.writeByte(0);
+            return;
+        }
+        // 1 = context without scenario, n + 2 = scenario ordinal n
+        out.writeByte(context.getScenarioType() == null ? 1 : context.getScenarioType().ordinal() + 2);
+        out.writeCoded(context.getCountry(), COUNTRIES);
+        out.writeCoded(context.getPrimitive(), PRIMITIVES);
+        out.writeString(context.getQuery());
+    }
+
+    private static LLMContext readContext(BinaryReader in) throws NotSerializableException {
+        int tag = in.readByte();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag - 2 >= SCENARIO_TYPES.length) {
+            throw new NotSerializableException("Unknown scenario type " + tag);
+        }
+        LLMContext.ScenarioType scenarioType = tag == 1 ? null : SCENARIO_TYPES[tag - 2];
+        return new LLMContext(scenarioType, in.readCoded(COUNTRIES), in.readCoded(PRIMITIVES), in.readString());
+    }
+
+    // ----- trace contexts -----
+
+    private static void writeTrace(BinaryWriter out, TraceContext trace) {
+        if (trace == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(trace.isSampled() ? 2 : 1);
+        out.writeLong(trace.getTraceIdHigh());
+        out.writeLong(trace.getTraceIdLow());
+        out.writeLong(trace.getSpanIdValue());
+    }
+
+    private static TraceContext readTrace(BinaryReader in) throws NotSerializableException {
+        int tag = in.readByte();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag > 2) {
+            throw new NotSerializableException("Unknown trace tag " + tag);
+        }
+        return new TraceContext(in.readLong(), in.readLong(), in.readLong(), tag == 2);
+    }
+
+    /** Trailing trace of a single message; absent when it came from a node that predates tracing. */
+    private static TraceContext readOptionalTrace(BinaryReader in) throws NotSerializableException {
+        return in.hasRemaining() ? readTrace(in) : null;
+    }
+
+    // ----- lists and actor refs -----
+
+    private static void writeCount(BinaryWriter out, List<?> items) {
+        out.writeVarInt(items == null ? 0 : items.size() + 1);
+    }
+
+    /** Reads a list length written by {@link #writeCount}; -1 for a null list. */
+    private static int readCount(BinaryReader in) throws NotSerializableException {
+        return in.readVarInt() - 1;
+    }
+
+    private void writeRef(BinaryWriter out, ActorRef<?> ref) {
+        out.writeString(ref == null ? null : resolver().toSerializationFormat(ref));
+    }
+
+    private <T> ActorRef<T> readRef(BinaryReader in) throws NotSerializableException {
+        String path = in.readString();
+        return path == null ? null : resolver().resolveActorRef(path);
+    }
+
+    private ActorRefResolver resolver() {
+        ActorRefResolver r = resolver;
+        if (r == null) {
+            // Resolved lazily: serializers are created before the typed system is available
+            r = ActorRefResolver.get(Adapter.toTyped(system));
+            resolver = r;
+        }
+        return r;
+    }
+}
@@ -0,0 +1,175 @@
+package com.diplomatic.serialization;
+
+import com.typesafe.config.Config;
+
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression for the long text fields of LLM answers, applied per message
+ * type once the text reaches a configured size ({@code diplomatic-assistant.serialization.compression}).
+ * Text that doesn't shrink is sent as is. Keeps running totals of bytes and CPU time
+ * spent so the saving can be weighed against its cost.
+ */
+public final class TextCompression {
+
+    /** Upper bound on an inflated field; a larger claim means a corrupt or hostile payload. */
+    static final int MAX_INFLATED_BYTES = 16 * 1024 * 1024;
+
+    private final boolean enabled;
+    private final int level;
+    private final Config minSizes;
+
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    private final LongAdder compressedFields = new LongAdder();
+    private final LongAdder skippedFields = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressedFields = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public TextCompression(Config config) {
+        this.enabled = config.getBoolean("enabled");
+        this.level = config.getInt("level");
+        this.minSizes = config.getConfig("min-size");
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+    }
+
+    /**
+     * Smallest text (in chars) of the given message type that is worth compressing,
+     * or {@link Integer#MAX_VALUE} if that type is never compressed.
+     */
+    int thresholdFor(String messageType) {
+        if (!enabled || !minSizes.hasPath(messageType)) {
+            return Integer.MAX_VALUE;
+        }
+        int minSize = minSizes.getInt(messageType);
+        return minSize <= 0 ? Integer.MAX_VALUE : minSize;
+    }
+
+    /** Deflated UTF-8 of {@code value}, or null if compression didn't pay for itself. */
+    byte[] compress(String value) {
+        long start = System.nanoTime();
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        byte[] buffer = scratch.get();
+        if (buffer.length < raw.length) {
+            buffer = new byte[raw.length];
+            scratch.set(buffer);
+        }
+        // Only worth the receiver's inflate if it saves at least a quarter; prose saves over half
+        int limit = raw.length - (raw.length >> 2);
+        int length = 0;
+        while (!deflater.finished() && length < limit) {
+            length += deflater.deflate(buffer, length, limit - length);
+        }
+        compressNanos.add(System.nanoTime() - start);
+        if (!deflater.finished()) {
+            skippedFields.increment();
+            return null;
+        }
+        compressedFields.increment();
+        rawBytes.add(raw.length);
+        compressedBytes.add(length);
+        // Leading raw length lets the reader size its buffer exactly
+        byte[] result = new byte[length + 4];
+        System.arraycopy(buffer, 0, result, 4, length);
+        result[0] = (byte) (raw.length >>> 24);
+        result[1] = (byte) (raw.length >>> 16);
+        result[2] = (byte) (raw.length >>> 8);
+        result[3] = (byte) raw.length;
+        return result;
+    }
+
+    /** Reverses {@link #compress}. */
+    String decompress(byte[] data, int offset, int length) throws NotSerializableException {
+        if (length < 4) {
+            throw new NotSerializableException("Truncated compressed text");
+        }
+        long start = System.nanoTime();
+        int rawLength = ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+        if (rawLength < 0 || rawLength > MAX_INFLATED_BYTES) {
+            throw new NotSerializableException("Compressed text claims " + rawLength + " bytes");
+        }
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(data, offset + 4, length - 4);
+        try {
+            int inflated = 0;
+            while (inflated < rawLength) {
+                int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != rawLength) {
+                throw new NotSerializableException("Compressed text inflated to " + inflated + " of " + rawLength + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new NotSerializableException("Corrupt compressed text: " + e.getMessage());
+        }
+        decompressedFields.increment();
+        decompressNanos.add(System.nanoTime() - start);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    public Stats stats() {
+        return new Stats(compressedFields.sum(), skippedFields.sum(), rawBytes.sum(), compressedBytes.sum(),
+                compressNanos.sum(), decompressedFields.sum(), decompressNanos.sum());
+    }
+
+    /** Totals since startup. */
+    public static final class Stats {
+        public final long compressedFields;
+        public final long skippedFields;
+        public final long rawBytes;
+        public final long compressedBytes;
+        public final long compressNanos;
+        public final long decompressedFields;
+        public final long decompressNanos;
+
+        Stats(long compressedFields, long skippedFields, long rawBytes, long compressedBytes,
+              long compressNanos, long decompressedFields, long decompressNanos) {
+            this.compressedFields = compressedFields;
+            this.skippedFields = skippedFields;
+            this.rawBytes = rawBytes;
+            this.compressedBytes = compressedBytes;
+            this.compressNanos = compressNanos;
+            this.decompressedFields = decompressedFields;
+            this.decompressNanos = decompressNanos;
+        }
+
+        /** Compressed size as a fraction of the original, over all compressed fields. */
+        public double ratio() {
+            return rawBytes == 0 ? 1.0 : (double) compressedBytes / rawBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "compressed %d fields (%d skipped), %d -> %d bytes (ratio %.2f), "
+                            + "%.1f us/compress, %.1f us/decompress over %d fields",
+                    compressedFields, skippedFields, rawBytes, compressedBytes, ratio(),
+                    perField(compressNanos, compressedFields + skippedFields),
+                    perField(decompressNanos, decompressedFields), decompressedFields);
+        }
+
+        private static double perField(long nanos, long fields) {
+            return fields == 0 ? 0 : nanos / 1000.0 / fields;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.diplomatic.tracing;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Collection;
+
+/**
+ * Renders spans as an OTLP/JSON {@code ExportTraceServiceRequest}, the format the
+ * OpenTelemetry collector's file receiver and most trace viewers import.
+ */
+final class OtlpJson {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final int STATUS_UNSET = 0;
+    private static final int STATUS_ERROR = 2;
+
+    private OtlpJson() {}
+
+    static ObjectNode exportRequest(String serviceName, String scopeName, Collection<SpanData> spans) {
+        ObjectNode request = NODES.objectNode();
+        ObjectNode resourceSpans = request.putArray("resourceSpans").addObject();
+        ArrayNode resourceAttributes = resourceSpans.putObject("resource").putArray("attributes");
+        addAttribute(resourceAttributes, "service.name", serviceName);
+
+        ObjectNode scopeSpans = resourceSpans.putArray("scopeSpans").addObject();
+        scopeSpans.putObject("scope").put("name", scopeName);
+        ArrayNode spanArray = scopeSpans.putArray("spans");
+        for (SpanData span : spans) {
+            ObjectNode json = spanArray.addObject();
+            json.put("traceId", span.context.getTraceId());
+            json.put("spanId", span.context.getSpanId());
+            if (!span.isRoot()) {
+                json.put("parentSpanId", span.getParentSpanId());
+            }
+            json.put("name", span.name);
+            json.put("kind", span.kind.otlpCode);
+            // 64-bit integers are strings in OTLP/JSON
+            json.put("startTimeUnixNano", Long.toString(span.startEpochNanos));
+            json.put("endTimeUnixNano", Long.toString(span.endEpochNanos));
+            if (span.attributes.length > 0) {
+                ArrayNode attributes = json.putArray("attributes");
+                for (int i = 0; i < span.attributes.length; i += 2) {
+                    addAttribute(attributes, span.attributes[i], span.attributes[i + 1]);
+                }
+            }
+            ObjectNode status = json.putObject("status");
+            if (span.error != null) {
+                status.put("code", STATUS_ERROR).put("message", span.error);
+            } else {
+                status.put("code", STATUS_UNSET);
+            }
+        }
+        return request;
+    }
+
+    private static void addAttribute(ArrayNode attributes, String key, String value) {
+        attributes.addObject().put("key", key).putObject("value").put("stringValue", value);
+    }
+}
@@ -0,0 +1,77 @@
+package com.diplomatic.tracing;
+
+import com.diplomatic.messages.TraceContext;
+
+import java.util.Arrays;
+
+/**
+ * One timed operation in a trace. Started and ended by the same actor, so it is not
+ * thread-safe. Spans of unsampled traces, and every span while tracing is off, skip
+ * all recording work but still hand out their context for propagation.
+ */
+public final class Span {
+
+    static final Span NOOP = new Span(null, null, 0, null, null);
+
+    private final Tracer tracer;
+    private final TraceContext context;
+    private final long parentSpanId;
+    private final String name;
+    private final SpanKind kind;
+    private final long startNanos;
+    private String[] attributes;
+    private int attributeCount;
+    private String error;
+    private boolean ended;
+
+    Span(Tracer tracer, TraceContext context, long parentSpanId, String name, SpanKind kind) {
+        this.tracer = tracer;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.startNanos = tracer == null ? 0 : System.nanoTime();
+    }
+
+    /** Context to put on messages sent on behalf of this span; null while tracing is off. */
+    public TraceContext context() {
+        return context;
+    }
+
+    public boolean isRecording() {
+        return tracer != null;
+    }
+
+    public Span setAttribute(String key, String value) {
+        if (tracer != null && !ended) {
+            if (attributes == null) {
+                attributes = new String[8];
+            } else if (attributeCount == attributes.length) {
+                attributes = Arrays.copyOf(attributes, attributeCount * 2);
+            }
+            attributes[attributeCount++] = key;
+            attributes[attributeCount++] = value == null ? "" : value;
+        }
+        return this;
+    }
+
+    /** Marks the span failed; it is still recorded when ended. */
+    public Span setError(String message) {
+        if (tracer != null && !ended) {
+            error = message == null ? "error" : message;
+        }
+        return this;
+    }
+
+    /** Records the span. Later calls are ignored, so every exit path may end it. */
+    public void end() {
+        if (tracer == null || ended) {
+            return;
+        }
+        ended = true;
+        long endNanos = System.nanoTime();
+        String[] recorded = attributes == null ? new String[0] : Arrays.copyOf(attributes, attributeCount);
+        tracer.record(new SpanData(context, parentSpanId, name, kind,
+                tracer.toEpochNanos(startNanos), tracer.toEpochNanos(endNanos), recorded, error));
+    }
+}
@@ -0,0 +1,56 @@
+package com.diplomatic.tracing;
+
+import com.diplomatic.messages.TraceContext;
+
+/** A finished span, as kept in the ring buffer and exported. */
+public final class SpanData {
+
+    final TraceContext context;
+    /** 0 for the root span of a trace. */
+    final long parentSpanId;
+    final String name;
+    final SpanKind kind;
+    final long startEpochNanos;
+    final long endEpochNanos;
+    /** Key/value pairs. */
+    final String[] attributes;
+    /** Null unless the span failed. */
+    final String error;
+
+    SpanData(TraceContext context, long parentSpanId, String name, SpanKind kind,
+             long startEpochNanos, long endEpochNanos, String[] attributes, String error) {
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.startEpochNanos = startEpochNanos;
+        this.endEpochNanos = endEpochNanos;
+        this.attributes = attributes;
+        this.error = error;
+    }
+
+    public TraceContext getContext() { return context; }
+    public String getName() { return name; }
+    public SpanKind getKind() { return kind; }
+    public boolean isRoot() { return parentSpanId == 0; }
+    public long getDurationNanos() { return endEpochNanos - startEpochNanos; }
+    public String getError() { return error; }
+
+    public String getParentSpanId() {
+        return parentSpanId == 0 ? null : new TraceContext(0, 0, parentSpanId, false).getSpanId();
+    }
+
+    public String getAttribute(String key) {
+        for (int i = 0; i < attributes.length; i += 2) {
+            if (attributes[i].equals(key)) {
+                return attributes[i + 1];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + context + " " + getDurationNanos() / 1_000_000 + "ms";
+    }
+}
@@ -0,0 +1,16 @@
+package com.diplomatic.tracing;
+
+/** Span kinds, numbered as in the OTLP {@code Span.SpanKind} enum. */
+public enum SpanKind {
+    INTERNAL(1),
+    /** Handles a request from another actor, possibly on the other node. */
+    SERVER(2),
+    /** Waits for the answer to a request sent to another actor. */
+    CLIENT(3);
+
+    final int otlpCode;
+
+    SpanKind(int otlpCode) {
+        this.otlpCode = otlpCode;
+    }
+}
@@ -0,0 +1,45 @@
+package com.diplomatic.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recent finished spans, overwritten oldest first. Adding is one atomic
+ * increment and one array store, so actors on any thread can record without locking.
+ */
+final class SpanRing {
+
+    private final AtomicReferenceArray<SpanData> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    SpanRing(int capacity) {
+        int size = capacity <= 16 ? 16 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void add(SpanData span) {
+        slots.set((int) (next.getAndIncrement() & mask), span);
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    /** Spans currently held, oldest start first. */
+    List<SpanData> snapshot() {
+        List<SpanData> spans = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            SpanData span = slots.get(i);
+            if (span != null) {
+                spans.add(span);
+            }
+        }
+        spans.sort(Comparator.comparingLong(span -> span.startEpochNanos));
+        return spans;
+    }
+}
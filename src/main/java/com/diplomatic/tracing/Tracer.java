@@ -0,0 +1,235 @@
+package com.diplomatic.tracing;
+
+import akka.actor.typed.ActorSystem;
+import com.diplomatic.messages.TraceContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts spans for one actor system and keeps the finished ones.
+ *
+ * Finished spans go to a fixed-size ring buffer that {@link #dumpOtlpJson} renders
+ * on demand (the metrics endpoint serves it at {@code /traces}), and optionally to
+ * a file that a background thread appends one OTLP/JSON export request to per
+ * flush interval. Recording a span never blocks or does I/O on the actor's thread;
+ * if the file writer falls behind, spans for the file are dropped and counted.
+ * Settings are under {@code diplomatic-assistant.tracing}.
+ */
+public final class Tracer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    static final String SCOPE_NAME = "com.diplomatic";
+
+    // Same per-system lookup as MetricsRegistry, for the same reasons
+    private static final List<Registration> TRACERS = new ArrayList<>();
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final String serviceName;
+    private final SpanRing ring;
+    private final long epochOffsetNanos;
+
+    private final Path exportFile;
+    private final int maxQueue;
+    private final ConcurrentLinkedQueue<SpanData> exportQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final ScheduledExecutorService exporter;
+
+    Tracer(Config config) {
+        this.enabled = config.getBoolean("enabled");
+        this.sampleRate = config.getDouble("sample-rate");
+        this.serviceName = config.getString("service-name");
+        this.ring = new SpanRing(config.getInt("ring-buffer-size"));
+        this.epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+        Config export = config.getConfig("export");
+        String file = export.getString("file");
+        this.maxQueue = export.getInt("max-queue");
+        if (enabled && !file.isEmpty()) {
+            this.exportFile = Paths.get(file);
+            long flushMillis = export.getDuration("flush-interval", TimeUnit.MILLISECONDS);
+            this.exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "trace-exporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            exporter.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.exportFile = null;
+            this.exporter = null;
+        }
+    }
+
+    public static Tracer forSystem(ActorSystem<?> system) {
+        synchronized (TRACERS) {
+            TRACERS.removeIf(registration -> registration.system.get() == null);
+            for (Registration registration : TRACERS) {
+                if (registration.system.get() == system) {
+                    return registration.tracer;
+                }
+            }
+            Tracer tracer = new Tracer(system.settings().config().getConfig("diplomatic-assistant.tracing"));
+            if (tracer.exporter != null) {
+                system.getWhenTerminated().thenRun(tracer::close);
+            }
+            TRACERS.add(new Registration(system, tracer));
+            return tracer;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a span. With a null {@code parent} it is the root of a new trace, sampled
+     * at {@code sample-rate}; otherwise it joins the parent's trace and sampling decision.
+     */
+    public Span startSpan(String name, SpanKind kind, TraceContext parent) {
+        if (!enabled) {
+            return Span.NOOP;
+        }
+        TraceContext context;
+        long parentSpanId;
+        if (parent == null) {
+            context = TraceContext.newTrace(sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+            parentSpanId = 0;
+        } else {
+            context = parent.newChild();
+            parentSpanId = parent.getSpanIdValue();
+        }
+        return new Span(context.isSampled() ? this : null, context, parentSpanId, name, kind);
+    }
+
+    long toEpochNanos(long nanoTime) {
+        return nanoTime + epochOffsetNanos;
+    }
+
+    void record(SpanData span) {
+        ring.add(span);
+        if (exporter != null) {
+            if (queued.incrementAndGet() > maxQueue) {
+                queued.decrementAndGet();
+                dropped.incrementAndGet();
+            } else {
+                exportQueue.add(span);
+            }
+        }
+    }
+
+    /** Finished spans still in the ring buffer, oldest first. */
+    public List<SpanData> recentSpans() {
+        return ring.snapshot();
+    }
+
+    /**
+     * Renders the ring buffer as one OTLP/JSON export request. Only traces with at
+     * least one span lasting {@code minDurationNanos} or longer are included, so a
+     * dump can be narrowed down to the slow queries.
+     */
+    public String dumpOtlpJson(long minDurationNanos) {
+        List<SpanData> spans = ring.snapshot();
+        if (minDurationNanos > 0) {
+            Set<TraceKey> slowTraces = new HashSet<>();
+            for (SpanData span : spans) {
+                if (span.getDurationNanos() >= minDurationNanos) {
+                    slowTraces.add(new TraceKey(span.context));
+                }
+            }
+            spans.removeIf(span -> !slowTraces.contains(new TraceKey(span.context)));
+        }
+        try {
+            return MAPPER.writeValueAsString(OtlpJson.exportRequest(serviceName, SCOPE_NAME, spans));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render spans", e);
+        }
+    }
+
+    /** Spans the file exporter dropped because its queue was full. */
+    public int droppedSpans() {
+        return dropped.get();
+    }
+
+    private void flush() {
+        List<SpanData> batch = new ArrayList<>();
+        SpanData span;
+        while ((span = exportQueue.poll()) != null) {
+            batch.add(span);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        queued.addAndGet(-batch.size());
+        try (Writer writer = Files.newBufferedWriter(exportFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            MAPPER.writeValue(writer, OtlpJson.exportRequest(serviceName, SCOPE_NAME, batch));
+            writer.write('\n');
+        } catch (IOException e) {
+            // Losing a batch of spans is not worth failing the node for
+            logger.warn("Could not write {} spans to {}: {}", batch.size(), exportFile, e.getMessage());
+        }
+    }
+
+    /** Stops the file exporter after writing what is queued. */
+    @Override
+    public void close() {
+        if (exporter != null && !exporter.isShutdown()) {
+            exporter.shutdownNow();
+            flush();
+        }
+    }
+
+    private static final class TraceKey {
+        private final long high;
+        private final long low;
+
+        TraceKey(TraceContext context) {
+            this.high = context.getTraceIdHigh();
+            this.low = context.getTraceIdLow();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TraceKey && ((TraceKey) o).high == high && ((TraceKey) o).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high) * 31 + Long.hashCode(low);
+        }
+    }
+
+    private static final class Registration {
+        private final WeakReference<ActorSystem<?>> system;
+        private final Tracer tracer;
+
+        Registration(ActorSystem<?> system, Tracer tracer) {
+            this.system = new WeakReference<>(system);
+            this.tracer = tracer;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.diplomatic.actors.infrastructure;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.actor.typed.receptionist.Receptionist;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import com.diplomatic.actors.intelligence.BatchEndpoint;
+import com.diplomatic.actors.intelligence.IntelligenceNodeSupervisor;
+import com.diplomatic.messages.*;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingGatewayTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.parseString(
+            "akka.actor.serialization-bindings { \"com.diplomatic.messages.CborSerializable\" = jackson-cbor }\n"
+                    + "diplomatic-assistant.batching { enabled = on, max-batch-size = 3, linger = 200ms }")
+            .withFallback(ConfigFactory.load()));
+
+    @AfterAll
+    static void cleanup() {
+        testKit.shutdownTestKit();
+    }
+
+    private static Behavior<RouteToClassifierMessage> echoClassifier() {
+        return Behaviors.receiveMessage(msg -> {
+            msg.getReplyTo().tell(new ClassificationResultMessage(
+                    msg.getCorrelationId(), "GENERAL", "DiplomaticPrimitivesActor", 0.5, "General", msg.getQuery()));
+            return Behaviors.same();
+        });
+    }
+
+    @Test
+    void packsRequestsIntoEnvelopesAndRoutesResultsBack() {
+        TestProbe<ClassificationBatchRequest> envelopes = testKit.createTestProbe();
+        ActorRef<RouteToClassifierMessage> classifier = testKit.spawn(echoClassifier());
+        ActorRef<ClassificationBatchRequest> endpoint = testKit.spawn(Behaviors.monitor(
+                ClassificationBatchRequest.class, envelopes.getRef(),
+                BatchEndpoint.create(BatchProtocol.CLASSIFIER, classifier, testKit.system().settings().config())));
+        testKit.system().receptionist().tell(
+                Receptionist.register(IntelligenceNodeSupervisor.CLASSIFIER_BATCH_KEY, endpoint));
+
+        ActorRef<RouteToClassifierMessage> gateway = testKit.spawn(IntelligenceRouters.classifier(
+                testKit.system().settings().config()));
+
+        List<TestProbe<ClassificationResultMessage>> callers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TestProbe<ClassificationResultMessage> caller = testKit.createTestProbe();
+            callers.add(caller);
+            gateway.tell(new RouteToClassifierMessage("c-" + i, "s", "query " + i, caller.getRef()));
+        }
+
+        // Three fill an envelope; the other two leave when the linger expires
+        ClassificationBatchRequest full = envelopes.receiveMessage(Duration.ofSeconds(5));
+        assertEquals(3, full.getRequests().size());
+        assertNull(full.getRequests().get(0).getReplyTo());
+        ClassificationBatchRequest lingered = envelopes.receiveMessage(Duration.ofSeconds(5));
+        assertEquals(2, lingered.getRequests().size());
+
+        for (int i = 0; i < 5; i++) {
+            ClassificationResultMessage result = callers.get(i).receiveMessage(Duration.ofSeconds(5));
+            assertEquals("c-" + i, result.getCorrelationId());
+            assertEquals("query " + i, result.getDetectedPrimitive());
+        }
+    }
+
+    @Test
+    void envelopesSurviveSerialization() throws Exception {
+        TestProbe<CulturalAnalysisBatchResult> replyTo = testKit.createTestProbe();
+        CulturalAnalysisBatchRequest batch = BatchProtocol.CULTURAL.toBatch(List.of(
+                new CulturalAnalysisRequest("c-1", "Greeting in Japan", "Japan", null, null),
+                new CulturalAnalysisRequest("c-2", "Gifts in Kuwait", "Kuwait", null, null)), replyTo.getRef());
+
+        Serialization serialization = SerializationExtension.get(testKit.system());
+        byte[] bytes = serialization.serialize(batch).get();
+        CulturalAnalysisBatchRequest copy = (CulturalAnalysisBatchRequest) serialization
+                .deserialize(bytes, serialization.findSerializerFor(batch).identifier(),
+                        CulturalAnalysisBatchRequest.class.getName()).get();
+
+        assertEquals(2, copy.getRequests().size());
+        assertEquals("c-2", copy.getRequests().get(1).getCorrelationId());
+        assertEquals("Kuwait", copy.getRequests().get(1).getCountry());
+        assertEquals(replyTo.getRef(), copy.getReplyTo());
+    }
+}
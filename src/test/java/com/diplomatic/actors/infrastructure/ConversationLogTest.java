@@ -0,0 +1,131 @@
+package com.diplomatic.actors.infrastructure;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConversationLogTest {
+
+    @TempDir
+    Path logDir;
+
+    @Test
+    public void testTurnsSurviveReopen() {
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            log.append("session-1", 1000, "How to greet in Japan?", "Bow slightly.");
+            log.append("session-2", 2000, "Gift etiquette in China?", "Avoid clocks.");
+            log.append("session-1", 3000, "And business cards?", "Use both hands.");
+        }
+
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            List<ConversationLog.Turn> turns = log.read("session-1");
+            assertEquals(2, turns.size());
+            assertEquals("How to greet in Japan?", turns.get(0).query);
+            assertEquals("Use both hands.", turns.get(1).response);
+            assertEquals(3000, turns.get(1).timestamp);
+            assertEquals(1, log.turnCount("session-2"));
+        }
+    }
+
+    @Test
+    public void testSealedSegmentsRecoverFromIndex() throws Exception {
+        try (ConversationLog log = new ConversationLog(logDir, 4096)) {
+            for (int i = 0; i < 100; i++) {
+                log.append("session-" + (i % 3), i, "query " + i, "response " + i);
+            }
+            assertTrue(log.segmentCount() > 1);
+        }
+        assertTrue(Files.exists(logDir.resolve("conversation-0.idx")));
+
+        try (ConversationLog log = new ConversationLog(logDir, 4096)) {
+            assertEquals(34, log.turnCount("session-0"));
+            assertEquals(33, log.turnCount("session-2"));
+            List<ConversationLog.Turn> turns = log.read("session-1");
+            assertEquals("query 1", turns.get(0).query);
+            assertEquals("response 97", turns.get(turns.size() - 1).response);
+        }
+    }
+
+    @Test
+    public void testClearIsDurable() {
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            log.append("session-1", 1000, "Hello", "Hi");
+            log.clear("session-1");
+            log.append("session-1", 2000, "Again", "Welcome back");
+        }
+
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            List<ConversationLog.Turn> turns = log.read("session-1");
+            assertEquals(1, turns.size());
+            assertEquals("Again", turns.get(0).query);
+        }
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws Exception {
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            log.append("session-1", 1000, "Kept", "Yes");
+            log.append("session-1", 2000, "Torn", "No");
+        }
+
+        // Corrupt the last byte of the second record's body so its CRC no longer matches
+        int firstRecord = 12 + 1 + 8 + 2 + "session-1".length() + 4 + "Kept".length() + 4 + "Yes".length();
+        int secondEnd = firstRecord + 12 + 1 + 8 + 2 + "session-1".length() + 4 + "Torn".length() + 4 + "No".length();
+        try (FileChannel channel = FileChannel.open(logDir.resolve("conversation-0.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), secondEnd - 1);
+        }
+
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            assertEquals(1, log.turnCount("session-1"));
+            log.append("session-1", 3000, "After", "Recovery");
+        }
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            List<ConversationLog.Turn> turns = log.read("session-1");
+            assertEquals(2, turns.size());
+            assertEquals("After", turns.get(1).query);
+        }
+    }
+
+    @Test
+    public void testOldSegmentsAreDeletedWithTheirTurns() {
+        try (ConversationLog log = new ConversationLog(logDir, 4096, Integer.MAX_VALUE, 2)) {
+            log.append("early", 0, "Only in the first segment", "Gone soon");
+            for (int i = 0; i < 300; i++) {
+                log.append("session-" + (i % 3), i, "query " + i, "response " + i);
+            }
+            assertEquals(2, log.segmentCount());
+            assertEquals(0, log.turnCount("early"));
+            List<ConversationLog.Turn> turns = log.read("session-1");
+            assertTrue(turns.size() < 100);
+            assertEquals("response 298", turns.get(turns.size() - 1).response);
+        }
+        assertFalse(Files.exists(logDir.resolve("conversation-0.log")));
+        assertFalse(Files.exists(logDir.resolve("conversation-0.idx")));
+
+        try (ConversationLog log = new ConversationLog(logDir, 4096, Integer.MAX_VALUE, 1)) {
+            assertEquals(1, log.segmentCount());
+            assertEquals("response 298", log.read("session-1").get(log.turnCount("session-1") - 1).response);
+        }
+    }
+
+    @Test
+    public void testEvictForgetsTheSessionInMemoryOnly() {
+        try (ConversationLog log = new ConversationLog(logDir, 1 << 20)) {
+            log.append("session-1", 1000, "Hello", "Hi");
+            log.append("session-2", 2000, "Still here?", "Yes");
+            log.evict("session-1");
+            assertEquals(0, log.turnCount("session-1"));
+            assertEquals(1, log.sessionCount());
+            assertTrue(log.read("session-1").isEmpty());
+            assertEquals(1, log.turnCount("session-2"));
+        }
+    }
+}
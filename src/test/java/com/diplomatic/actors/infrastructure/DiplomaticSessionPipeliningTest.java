@@ -0,0 +1,85 @@
+package com.diplomatic.actors.infrastructure;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import com.diplomatic.messages.*;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiplomaticSessionPipeliningTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.parseString(
+            "diplomatic-assistant.query-timeout = 1s")
+            .withFallback(ConfigFactory.load()));
+
+    @AfterAll
+    static void cleanup() {
+        testKit.shutdownTestKit();
+    }
+
+    @Test
+    void answersOverlappingQueriesToTheirOwnCallers() {
+        TestProbe<RouteToClassifierMessage> classifier = testKit.createTestProbe();
+        TestProbe<CulturalAnalysisRequestMessage> cultural = testKit.createTestProbe();
+        TestProbe<DiplomaticPrimitiveRequestMessage> primitives = testKit.createTestProbe();
+        TestProbe<ConversationHistoryActor.Command> history = testKit.createTestProbe();
+        ActorRef<DiplomaticSessionActor.Command> session = testKit.spawn(DiplomaticSessionActor.create(
+                "s-1", history.getRef(),
+                new DiplomaticSessionActor.SetIntelligenceActors(classifier.getRef(), cultural.getRef(), primitives.getRef())));
+
+        TestProbe<String> first = testKit.createTestProbe();
+        TestProbe<String> second = testKit.createTestProbe();
+        session.tell(new DiplomaticSessionActor.ProcessQuery("q-1", "Japan greetings", first.getRef(), null));
+        session.tell(new DiplomaticSessionActor.ProcessQuery("q-2", "Draft a demarche", second.getRef(), null));
+
+        RouteToClassifierMessage route1 = classifier.receiveMessage();
+        RouteToClassifierMessage route2 = classifier.receiveMessage();
+        assertEquals("q-1", route1.getCorrelationId());
+        assertEquals("q-2", route2.getCorrelationId());
+
+        // Classifications and answers come back in the opposite order
+        route2.getReplyTo().tell(new ClassificationResultMessage("q-2", "PRIMITIVE", "primitives", 0.9, null, "DEMARCHE"));
+        route1.getReplyTo().tell(new ClassificationResultMessage("q-1", "CULTURAL", "cultural", 0.9, "Japan", null));
+
+        DiplomaticPrimitiveRequestMessage primitiveRequest = primitives.receiveMessage();
+        CulturalAnalysisRequestMessage culturalRequest = cultural.receiveMessage();
+        assertEquals("q-2", primitiveRequest.getCorrelationId());
+        assertEquals("q-1", culturalRequest.getCorrelationId());
+
+        primitiveRequest.getReplyTo().tell(new DiplomaticPrimitiveResponseMessage("q-2", "DEMARCHE", "Demarche text"));
+        culturalRequest.getReplyTo().tell(new CulturalAnalysisResponseMessage("q-1", "Bow slightly", null));
+
+        assertTrue(second.receiveMessage().startsWith("Demarche text"));
+        assertEquals("Bow slightly", first.receiveMessage());
+        history.receiveMessage();
+        history.receiveMessage();
+    }
+
+    @Test
+    void timesOutQueriesThatNeverComplete() {
+        TestProbe<RouteToClassifierMessage> classifier = testKit.createTestProbe();
+        TestProbe<CulturalAnalysisRequestMessage> cultural = testKit.createTestProbe();
+        TestProbe<DiplomaticPrimitiveRequestMessage> primitives = testKit.createTestProbe();
+        TestProbe<ConversationHistoryActor.Command> history = testKit.createTestProbe();
+        ActorRef<DiplomaticSessionActor.Command> session = testKit.spawn(DiplomaticSessionActor.create(
+                "s-2", history.getRef(),
+                new DiplomaticSessionActor.SetIntelligenceActors(classifier.getRef(), cultural.getRef(), primitives.getRef())));
+
+        TestProbe<String> caller = testKit.createTestProbe();
+        session.tell(new DiplomaticSessionActor.ProcessQuery("q-1", "Japan greetings", caller.getRef(), null));
+        RouteToClassifierMessage route = classifier.receiveMessage();
+
+        assertTrue(caller.receiveMessage(Duration.ofSeconds(3)).contains("took too long"));
+
+        // A late classification is dropped rather than forwarded
+        route.getReplyTo().tell(new ClassificationResultMessage("q-1", "CULTURAL", "cultural", 0.9, "Japan", null));
+        cultural.expectNoMessage(Duration.ofMillis(300));
+        history.expectNoMessage(Duration.ZERO);
+    }
+}
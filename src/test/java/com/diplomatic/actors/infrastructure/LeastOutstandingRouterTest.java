@@ -0,0 +1,149 @@
+package com.diplomatic.actors.infrastructure;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.FishingOutcomes;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.receptionist.Receptionist;
+import akka.actor.typed.receptionist.ServiceKey;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeastOutstandingRouterTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create();
+
+    @AfterAll
+    static void cleanup() {
+        testKit.shutdownTestKit();
+    }
+
+    private static final class Ask {
+        final String text;
+        final ActorRef<String> replyTo;
+
+        Ask(String text, ActorRef<String> replyTo) {
+            this.text = text;
+            this.replyTo = replyTo;
+        }
+    }
+
+    private ActorRef<Ask> router(ServiceKey<Ask> key, Duration replyTimeout) {
+        return testKit.spawn(LeastOutstandingRouter.<Ask, String>create(
+                key, Ask.class, ask -> ask.replyTo, (ask, replyTo) -> new Ask(ask.text, replyTo), replyTimeout));
+    }
+
+    @SafeVarargs
+    private static void register(ServiceKey<Ask> key, TestProbe<Ask>... routees) {
+        for (TestProbe<Ask> routee : routees) {
+            testKit.system().receptionist().tell(Receptionist.register(key, routee.getRef()));
+        }
+        TestProbe<Receptionist.Listing> listings = testKit.createTestProbe();
+        testKit.system().receptionist().tell(Receptionist.subscribe(key, listings.getRef()));
+        listings.fishForMessage(Duration.ofSeconds(5), listing ->
+                listing.getServiceInstances(key).size() == routees.length
+                        ? FishingOutcomes.complete()
+                        : FishingOutcomes.continueAndIgnore());
+    }
+
+    /** Sends 2 * each requests, which the two idle routees split evenly. */
+    private void split(ActorRef<Ask> router, TestProbe<String> caller, int each, TestProbe<Ask> first,
+                       TestProbe<Ask> second, List<Ask> toFirst, List<Ask> toSecond) {
+        for (int i = 0; i < 2 * each; i++) {
+            router.tell(new Ask("q" + i, caller.getRef()));
+        }
+        for (int i = 0; i < each; i++) {
+            toFirst.add(first.receiveMessage());
+            toSecond.add(second.receiveMessage());
+        }
+    }
+
+    @Test
+    public void testSlowRouteeStopsReceivingTraffic() {
+        ServiceKey<Ask> key = ServiceKey.create(Ask.class, "least-outstanding-slow");
+        TestProbe<Ask> slow = testKit.createTestProbe();
+        TestProbe<Ask> fast = testKit.createTestProbe();
+        register(key, slow, fast);
+        ActorRef<Ask> router = router(key, Duration.ofSeconds(30));
+        TestProbe<String> caller = testKit.createTestProbe();
+
+        List<Ask> held = new ArrayList<>();
+        List<Ask> answered = new ArrayList<>();
+        split(router, caller, 4, slow, fast, held, answered);
+        for (Ask ask : answered) {
+            ask.replyTo.tell("answer to " + ask.text);
+            assertEquals("answer to " + ask.text, caller.receiveMessage());
+        }
+        slow.expectNoMessage(Duration.ofMillis(100));
+
+        // The slow routee still holds four requests, so every new one goes to the fast routee
+        for (int i = 0; i < 6; i++) {
+            router.tell(new Ask("next" + i, caller.getRef()));
+            Ask ask = fast.receiveMessage();
+            assertEquals("next" + i, ask.text);
+            ask.replyTo.tell("done");
+            assertEquals("done", caller.receiveMessage());
+        }
+        slow.expectNoMessage(Duration.ofMillis(100));
+    }
+
+    @Test
+    public void testRouteeThatNeverRepliesIsReleasedAfterTheReplyTimeout() {
+        ServiceKey<Ask> key = ServiceKey.create(Ask.class, "least-outstanding-timeout");
+        TestProbe<Ask> silent = testKit.createTestProbe();
+        TestProbe<Ask> fast = testKit.createTestProbe();
+        register(key, silent, fast);
+        ActorRef<Ask> router = router(key, Duration.ofMillis(300));
+        TestProbe<String> caller = testKit.createTestProbe();
+
+        List<Ask> ignored = new ArrayList<>();
+        List<Ask> answered = new ArrayList<>();
+        split(router, caller, 2, silent, fast, ignored, answered);
+        for (Ask ask : answered) {
+            ask.replyTo.tell("answer");
+        }
+        caller.receiveMessage();
+        caller.receiveMessage();
+        // The silent routee's requests time out without a reply to the caller
+        caller.expectNoMessage(Duration.ofMillis(600));
+
+        // Both routees are back to zero outstanding, so they share new work again
+        router.tell(new Ask("after-1", caller.getRef()));
+        router.tell(new Ask("after-2", caller.getRef()));
+        assertTrue(silent.receiveMessage().text.startsWith("after-"));
+        assertTrue(fast.receiveMessage().text.startsWith("after-"));
+
+        // A reply arriving after the timeout is not delivered
+        ignored.get(0).replyTo.tell("too late");
+        caller.expectNoMessage(Duration.ofMillis(100));
+    }
+
+    @Test
+    public void testRequestsWaitForARouteeAndFollowListingChanges() {
+        ServiceKey<Ask> key = ServiceKey.create(Ask.class, "least-outstanding-listing");
+        ActorRef<Ask> router = router(key, Duration.ofSeconds(30));
+        TestProbe<String> caller = testKit.createTestProbe();
+
+        router.tell(new Ask("early", caller.getRef()));
+        TestProbe<Ask> first = testKit.createTestProbe();
+        register(key, first);
+        Ask early = first.receiveMessage();
+        assertEquals("early", early.text);
+
+        // A newly listed routee with nothing outstanding takes the next request
+        TestProbe<Ask> second = testKit.createTestProbe();
+        register(key, first, second);
+        first.expectNoMessage(Duration.ofMillis(100));
+        router.tell(new Ask("later", caller.getRef()));
+        assertEquals("later", second.receiveMessage().text);
+
+        early.replyTo.tell("answer");
+        assertEquals("answer", caller.receiveMessage());
+    }
+}
@@ -0,0 +1,71 @@
+package com.diplomatic.actors.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionHistoryCacheTest {
+
+    private static ConversationLog.Turn turn(int i) {
+        return new ConversationLog.Turn(i, "query " + i, "response " + i);
+    }
+
+    @Test
+    public void testRingKeepsNewestTurns() {
+        SessionHistoryCache cache = new SessionHistoryCache(3, 1 << 20);
+        for (int i = 0; i < 5; i++) {
+            cache.add("session-1", turn(i));
+        }
+
+        List<ConversationLog.Turn> turns = cache.get("session-1");
+        assertEquals(3, turns.size());
+        assertEquals("query 2", turns.get(0).query);
+        assertEquals("query 4", turns.get(2).query);
+    }
+
+    @Test
+    public void testBytesStayFlatOnceRingIsFull() {
+        SessionHistoryCache cache = new SessionHistoryCache(3, 1 << 20);
+        for (int i = 0; i < 3; i++) {
+            cache.add("session-1", turn(i));
+        }
+        long full = cache.bytes();
+        for (int i = 3; i < 1000; i++) {
+            cache.add("session-1", turn(i % 10));
+        }
+        assertEquals(full, cache.bytes());
+    }
+
+    @Test
+    public void testBudgetEvictsLeastRecentlyActiveSession() {
+        SessionHistoryCache cache = new SessionHistoryCache(10, 300);
+        cache.add("idle", turn(1));
+        cache.add("busy", turn(2));
+        cache.get("idle");
+        cache.add("busy", turn(3));
+        cache.add("new", turn(4));
+
+        assertNotNull(cache.get("new"));
+        assertNotNull(cache.get("busy"));
+        assertNull(cache.get("idle"));
+        assertTrue(cache.bytes() <= 300);
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    public void testLoadAndRemove() {
+        SessionHistoryCache cache = new SessionHistoryCache(2, 1 << 20);
+        assertFalse(cache.contains("session-1"));
+        cache.load("session-1", List.of(turn(1), turn(2), turn(3)));
+        assertTrue(cache.contains("session-1"));
+        assertEquals(2, cache.turnCount("session-1"));
+        assertEquals("query 2", cache.get("session-1").get(0).query);
+
+        assertTrue(cache.remove("session-1"));
+        assertEquals(0, cache.bytes());
+        assertNull(cache.get("session-1"));
+        assertFalse(cache.contains("session-1"));
+    }
+}
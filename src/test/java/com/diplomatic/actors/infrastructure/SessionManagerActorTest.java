@@ -0,0 +1,85 @@
+package com.diplomatic.actors.infrastructure;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import akka.cluster.typed.Cluster;
+import akka.cluster.typed.Join;
+import com.diplomatic.messages.*;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionManagerActorTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.parseString(
+            "akka.actor.provider = cluster\n"
+                    + "akka.remote.artery.canonical.hostname = \"127.0.0.1\"\n"
+                    + "akka.remote.artery.canonical.port = 0\n"
+                    + "akka.cluster.roles = [\"infrastructure\"]\n"
+                    + "akka.cluster.jmx.multi-mbeans-in-same-jvm = on\n"
+                    + "diplomatic-assistant.max-active-sessions = 1\n"
+                    + "diplomatic-assistant.session-sweep-interval = 20ms\n"
+                    + "diplomatic-assistant.history.persistent = off")
+            .withFallback(ConfigFactory.load()));
+
+    static {
+        Cluster cluster = Cluster.get(testKit.system());
+        cluster.manager().tell(Join.create(cluster.selfMember().address()));
+    }
+
+    @AfterAll
+    static void cleanup() {
+        testKit.shutdownTestKit();
+    }
+
+    private final TestProbe<SessionCreatedMessage> created = testKit.createTestProbe();
+
+    private String createSession(ActorRef<SessionManagerActor.Command> manager, String userId) {
+        manager.tell(new SessionManagerActor.CreateSession(userId, created.getRef()));
+        return created.receiveMessage(Duration.ofSeconds(10)).getSessionId();
+    }
+
+    @Test
+    public void testCapIsEnforcedUntilSessionsGoIdleAndForgottenSessionsAreGone() {
+        AtomicLong now = new AtomicLong(1_000_000_000L);
+        ActorRef<SessionManagerActor.Command> manager = testKit.spawn(SessionManagerActor.create(now::get));
+        TestProbe<RouteToClassifierMessage> classifier = testKit.createTestProbe();
+        manager.tell(new SessionManagerActor.SetIntelligenceActors(classifier.getRef(),
+                testKit.<CulturalAnalysisRequestMessage>createTestProbe().getRef(),
+                testKit.<DiplomaticPrimitiveRequestMessage>createTestProbe().getRef()));
+
+        String first = createSession(manager, "alice");
+        assertNotEquals("rejected", first);
+        assertEquals("rejected", createSession(manager, "bob"));
+
+        // Past session-timeout-minutes the sweep marks the session idle, freeing its slot
+        now.addAndGet(Duration.ofMinutes(31).toMillis());
+        created.awaitAssert(Duration.ofSeconds(5), () -> {
+            assertNotEquals("rejected", createSession(manager, "bob"));
+            return null;
+        });
+
+        // A query revives the idle session on its entity and counts it as active again
+        TestProbe<String> replies = testKit.createTestProbe();
+        manager.tell(new SessionManagerActor.RouteToSession(first, "Greeting customs in Japan?", replies.getRef()));
+        RouteToClassifierMessage routed = classifier.receiveMessage(Duration.ofSeconds(10));
+        assertEquals(first, routed.getSessionId());
+        assertEquals("rejected", createSession(manager, "carol"));
+
+        // Past session-retention every session is forgotten
+        now.addAndGet(Duration.ofHours(25).toMillis());
+        created.awaitAssert(Duration.ofSeconds(5), () -> {
+            assertNotEquals("rejected", createSession(manager, "dave"));
+            return null;
+        });
+        manager.tell(new SessionManagerActor.RouteToSession(first, "Still there?", replies.getRef()));
+        assertEquals("Error: Session not found", replies.receiveMessage());
+        classifier.expectNoMessage(Duration.ofMillis(100));
+    }
+}
@@ -0,0 +1,69 @@
+package com.diplomatic.actors.intelligence;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = 100_000_000L;
+
+    private AdaptiveConcurrencyLimiter limiter(int initial) {
+        return new AdaptiveConcurrencyLimiter(ConfigFactory.parseString(
+                "initial-limit = " + initial + "\n"
+                        + "min-limit = 1\n"
+                        + "max-limit = 16\n"
+                        + "backoff-ratio = 0.5\n"
+                        + "latency-tolerance = 3.0\n"));
+    }
+
+    @Test
+    public void testRejectsWhenLimitReached() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testGrowsAdditivelyOnFastSuccess() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(FAST);
+        }
+        assertTrue(limiter.getLimit() > 4 && limiter.getLimit() < 10,
+                "limit should grow by about one per window, was " + limiter.getLimit());
+    }
+
+    @Test
+    public void testHalvesOnOverload() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8);
+        limiter.tryAcquire();
+        limiter.onOverload();
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, limiter.getOverloadSignals());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.onOverload();
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testBacksOffWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8);
+        limiter.tryAcquire();
+        limiter.onSuccess(FAST);
+        int before = limiter.getLimit();
+
+        limiter.tryAcquire();
+        limiter.onSuccess(FAST * 10);
+        assertTrue(limiter.getLimit() < before);
+    }
+}
@@ -0,0 +1,98 @@
+package com.diplomatic.actors.intelligence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgedLLMCallTest {
+
+    private final List<CompletableFuture<String>> attempts = new ArrayList<>();
+    private final List<Consumer<String>> textSinks = new ArrayList<>();
+    private final List<String> delivered = new ArrayList<>();
+
+    private HedgedLLMCall call() {
+        return new HedgedLLMCall(onText -> {
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            attempts.add(attempt);
+            textSinks.add(onText);
+            return attempt;
+        }, delivered::add);
+    }
+
+    @Test
+    public void testFirstAnswerWinsAndLoserIsCancelled() {
+        HedgedLLMCall call = call();
+        CompletableFuture<String> result = call.start();
+        assertTrue(call.hedge());
+
+        attempts.get(1).complete("from hedge");
+
+        assertEquals("from hedge", result.join());
+        assertTrue(attempts.get(0).isCancelled());
+    }
+
+    @Test
+    public void testFailsOnlyWhenEveryAttemptFails() {
+        HedgedLLMCall call = call();
+        CompletableFuture<String> result = call.start();
+        call.hedge();
+
+        attempts.get(0).completeExceptionally(new LLMApiException(503, "down"));
+        assertFalse(result.isDone());
+
+        attempts.get(1).complete("recovered");
+        assertEquals("recovered", result.join());
+    }
+
+    @Test
+    public void testOriginalFailingWhileHedgeStartsDoesNotFailTheCall() {
+        List<CompletableFuture<String>> started = new ArrayList<>();
+        HedgedLLMCall call = new HedgedLLMCall(onText -> {
+            if (!started.isEmpty()) {
+                // The original fails on its own thread while the hedge is being sent
+                started.get(0).completeExceptionally(new LLMApiException(503, "down"));
+            }
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            started.add(attempt);
+            return attempt;
+        }, delivered::add);
+        CompletableFuture<String> result = call.start();
+
+        assertTrue(call.hedge());
+        assertFalse(result.isDone());
+        assertTrue(call.isHedged());
+
+        started.get(1).complete("recovered");
+        assertEquals("recovered", result.join());
+    }
+
+    @Test
+    public void testFirstStreamingAttemptOwnsTheStream() {
+        HedgedLLMCall call = call();
+        CompletableFuture<String> result = call.start();
+        call.hedge();
+
+        textSinks.get(1).accept("Bow ");
+        textSinks.get(0).accept("Shake ");
+        textSinks.get(1).accept("slightly.");
+        attempts.get(0).complete("Shake hands.");
+        attempts.get(1).complete("Bow slightly.");
+
+        assertEquals(List.of("Bow ", "slightly."), delivered);
+        assertEquals("Bow slightly.", result.join());
+    }
+
+    @Test
+    public void testNoHedgeOnceStreamingStarted() {
+        HedgedLLMCall call = call();
+        call.start();
+        textSinks.get(0).accept("Bow");
+        assertFalse(call.hedge());
+        assertFalse(call.isHedged());
+    }
+}
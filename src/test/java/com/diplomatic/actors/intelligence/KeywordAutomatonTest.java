@@ -0,0 +1,79 @@
+package com.diplomatic.actors.intelligence;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeywordAutomatonTest {
+
+    private static final int TOPIC = 0;
+    private static final int COUNTRY = 1;
+
+    private final KeywordAutomaton automaton = KeywordAutomaton.builder(2)
+            .addAll(TOPIC, "change", "dress code", "he", "hers", "his", "she")
+            .add("japanese", COUNTRY, 1, "Japanese")
+            .add("japan", COUNTRY, 0, "Japan")
+            .add("india", COUNTRY, 2, "India")
+            .build();
+
+    @Test
+    void reportsLowestPriorityMatchPerCategory() {
+        KeywordAutomaton.Hits hits = automaton.newHits();
+        automaton.scan("Greeting a Japanese delegation from India", hits);
+        assertTrue(hits.found(COUNTRY));
+        // "japan" is a prefix of "japanese" and has the better priority
+        assertEquals("Japan", hits.value(COUNTRY, "General"));
+        assertFalse(hits.found(TOPIC));
+    }
+
+    @Test
+    void findsOverlappingAndMultiWordKeywords() {
+        KeywordAutomaton.Hits hits = automaton.newHits();
+        automaton.scan("What DRESS  code? The Dress Code for ushers", hits);
+        assertEquals("dress code", hits.value(TOPIC, null));
+
+        // Keywords inside a longer word are not reported
+        automaton.scan("ushers", hits);
+        assertFalse(hits.found(TOPIC));
+
+        // Both "he" and "hers" end inside "hers"; the better priority wins
+        KeywordAutomaton nested = KeywordAutomaton.builder(1).addAll(0, "hers", "he").build();
+        KeywordAutomaton.Hits nestedHits = nested.newHits();
+        nested.scan("for hers", nestedHits);
+        assertEquals("hers", nestedHits.value(0, null));
+    }
+
+    @Test
+    void anchorsMatchesAtWordStarts() {
+        KeywordAutomaton.Hits hits = automaton.newHits();
+        automaton.scan("a currency exchange", hits);
+        assertFalse(hits.found(TOPIC));
+
+        automaton.scan("proposed changes", hits);
+        assertEquals("change", hits.value(TOPIC, null));
+
+        automaton.scan("(india)", hits);
+        assertEquals("India", hits.value(COUNTRY, null));
+    }
+
+    @Test
+    void resetsBetweenScans() {
+        KeywordAutomaton.Hits hits = automaton.newHits();
+        automaton.scan("japan", hits);
+        automaton.scan("nothing here", hits);
+        assertFalse(hits.found(COUNTRY));
+        assertEquals("General", hits.value(COUNTRY, "General"));
+    }
+
+    @Test
+    void handlesLargeKeywordSets() {
+        KeywordAutomaton.Builder builder = KeywordAutomaton.builder(1);
+        for (int i = 0; i < 5000; i++) {
+            builder.add("term" + i + "x", 0, i, "T" + i);
+        }
+        KeywordAutomaton large = builder.build();
+        KeywordAutomaton.Hits hits = large.newHits();
+        large.scan("mentions term4321x and term17x", hits);
+        assertEquals("T17", hits.value(0, null));
+    }
+}
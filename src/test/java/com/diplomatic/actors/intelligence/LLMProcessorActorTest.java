@@ -0,0 +1,185 @@
+package com.diplomatic.actors.intelligence;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.ActorRef;
+import com.diplomatic.messages.LLMContext;
+import com.diplomatic.messages.LLMRequestMessage;
+import com.diplomatic.messages.LLMResponseMessage;
+import com.sun.net.httpserver.HttpServer;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LLMProcessorActorTest {
+
+    private static final AtomicInteger upstreamCalls = new AtomicInteger();
+    private static final AtomicInteger flakyCalls = new AtomicInteger();
+    private static final HttpServer fakeApi = startFakeApi();
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.parseString(
+            "diplomatic-assistant.llm.api-url = \"http://127.0.0.1:" + fakeApi.getAddress().getPort() + "/v1/messages\"\n"
+                    + "diplomatic-assistant.llm.cache.disk.enabled = off\n"
+                    + "diplomatic-assistant.llm.deadline = 1s\n"
+                    + "diplomatic-assistant.llm.circuit-breaker.max-failures = 2")
+            .withFallback(ConfigFactory.load()));
+
+    private static HttpServer startFakeApi() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/v1/messages", exchange -> {
+                upstreamCalls.incrementAndGet();
+                String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                if (request.contains("hang")) {
+                    sleep(5000);
+                } else if (request.contains("flaky") && flakyCalls.incrementAndGet() == 1) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                } else if (request.contains("flaky")) {
+                    sleep(900);
+                } else if (request.contains("outage")) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                sleep(300);
+                byte[] body = "{\"content\":[{\"type\":\"text\",\"text\":\"Bow slightly.\"}]}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        testKit.shutdownTestKit();
+        fakeApi.stop(0);
+    }
+
+    private LLMRequestMessage request(String query, ActorRef<LLMResponseMessage> replyTo) {
+        return new LLMRequestMessage("Advise on: " + query, LLMContext.cultural("Japan", query), replyTo);
+    }
+
+    @Test
+    public void testIdenticalRequestsShareOneCallAndThenHitCache() {
+        ActorRef<LLMRequestMessage> llm = testKit.spawn(LLMProcessorActor.create("test-key", "CLAUDE"));
+        TestProbe<LLMResponseMessage> first = testKit.createTestProbe();
+        TestProbe<LLMResponseMessage> second = testKit.createTestProbe();
+        int before = upstreamCalls.get();
+
+        llm.tell(request("How do I greet officials in Tokyo?", first.getRef()));
+        llm.tell(request("How do I greet officials in Tokyo?", second.getRef()));
+
+        assertEquals("Bow slightly.", first.receiveMessage().getResponse());
+        assertEquals("Bow slightly.", second.receiveMessage().getResponse());
+        assertEquals(1, upstreamCalls.get() - before);
+
+        TestProbe<LLMResponseMessage> third = testKit.createTestProbe();
+        llm.tell(request("how do I greet officials in tokyo", third.getRef()));
+        assertTrue(third.receiveMessage().isSuccess());
+        assertEquals(1, upstreamCalls.get() - before);
+    }
+
+    @Test
+    public void testSlowCallFailsAtDeadline() {
+        ActorRef<LLMRequestMessage> llm = testKit.spawn(LLMProcessorActor.create("test-key", "CLAUDE"));
+        TestProbe<LLMResponseMessage> probe = testKit.createTestProbe();
+
+        llm.tell(request("Will this hang forever?", probe.getRef()));
+
+        LLMResponseMessage response = probe.receiveMessage(Duration.ofSeconds(3));
+        assertFalse(response.isSuccess());
+    }
+
+    @Test
+    public void testQueuedRequestFailsAtDeadlineCountedFromArrival() {
+        ActorTestKit singleSlot = ActorTestKit.create(ConfigFactory.parseString(
+                "diplomatic-assistant.llm.concurrency.initial-limit = 1\n"
+                        + "diplomatic-assistant.llm.circuit-breaker.max-failures = 100")
+                .withFallback(testKit.system().settings().config()));
+        try {
+            ActorRef<LLMRequestMessage> llm = singleSlot.spawn(LLMProcessorActor.create("test-key", "CLAUDE"));
+            TestProbe<LLMResponseMessage> hung = singleSlot.createTestProbe();
+            TestProbe<LLMResponseMessage> queued = singleSlot.createTestProbe();
+
+            llm.tell(request("Will this one hang too?", hung.getRef()));
+            llm.tell(request("What gift suits a host in Osaka?", queued.getRef()));
+
+            assertFalse(hung.receiveMessage(Duration.ofSeconds(3)).isSuccess());
+            // Queued for the whole 1s deadline, so it must not get a fresh budget once a slot frees
+            assertFalse(queued.receiveMessage(Duration.ofSeconds(3)).isSuccess());
+        } finally {
+            singleSlot.shutdownTestKit();
+        }
+    }
+
+    @Test
+    public void testHedgeTimerOfAFinishedCallDoesNotHedgeTheNextOne() {
+        ActorTestKit hedging = ActorTestKit.create(ConfigFactory.parseString(
+                "diplomatic-assistant.llm.deadline = 5s\n"
+                        + "diplomatic-assistant.llm.cache.enabled = off\n"
+                        + "diplomatic-assistant.llm.hedging.min-samples = 1\n"
+                        + "diplomatic-assistant.llm.hedging.min-delay = 1500ms")
+                .withFallback(testKit.system().settings().config()));
+        try {
+            ActorRef<LLMRequestMessage> llm = hedging.spawn(LLMProcessorActor.create("test-key", "CLAUDE"));
+            TestProbe<LLMResponseMessage> probe = hedging.createTestProbe();
+            llm.tell(request("Seating plan for a state dinner?", probe.getRef()));
+            assertTrue(probe.receiveMessage().isSuccess());
+
+            // Fails at once, leaving its hedge timer due 1.5s later
+            llm.tell(request("Is this flaky?", probe.getRef()));
+            assertFalse(probe.receiveMessage().isSuccess());
+            sleep(600);
+            // Same key; runs across the old timer but finishes before its own
+            llm.tell(request("Is this flaky?", probe.getRef()));
+            assertTrue(probe.receiveMessage(Duration.ofSeconds(3)).isSuccess());
+            assertEquals(2, flakyCalls.get());
+        } finally {
+            hedging.shutdownTestKit();
+        }
+    }
+
+    @Test
+    public void testBreakerOpensAfterRepeatedFailures() {
+        ActorRef<LLMRequestMessage> llm = testKit.spawn(LLMProcessorActor.create("test-key", "CLAUDE"));
+        TestProbe<LLMResponseMessage> probe = testKit.createTestProbe();
+
+        llm.tell(request("Provider outage one", probe.getRef()));
+        assertFalse(probe.receiveMessage().isSuccess());
+        llm.tell(request("Provider outage two", probe.getRef()));
+        assertFalse(probe.receiveMessage().isSuccess());
+
+        int before = upstreamCalls.get();
+        llm.tell(request("Provider outage three", probe.getRef()));
+        LLMResponseMessage rejected = probe.receiveMessage();
+        assertFalse(rejected.isSuccess());
+        assertTrue(rejected.getResponse().contains("temporarily unavailable"));
+        assertEquals(before, upstreamCalls.get());
+    }
+}
@@ -0,0 +1,94 @@
+package com.diplomatic.actors.intelligence;
+
+import com.diplomatic.messages.LLMContext;
+import com.diplomatic.messages.LLMRequestMessage;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LLMResponseCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private Config cacheConfig(String overrides) {
+        return ConfigFactory.parseString(overrides + "\ndisk.directory = \"" + cacheDir.toString().replace("\\", "/") + "\"")
+                .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm.cache"));
+    }
+
+    private LLMRequestMessage request(String query) {
+        return new LLMRequestMessage("prompt", LLMContext.cultural("Japan", query), null);
+    }
+
+    @Test
+    public void testNormalizedQueriesShareEntry() {
+        try (LLMResponseCache cache = new LLMResponseCache(cacheConfig("disk.enabled = off"), "model")) {
+            cache.put(cache.keyFor(request("How should I greet Japanese diplomats?")), "Bow.");
+            assertEquals("Bow.", cache.get(cache.keyFor(request("  how should I   greet japanese diplomats"))));
+            assertNull(cache.get(cache.keyFor(request("How should I greet Moroccan diplomats?"))));
+            assertEquals(1, cache.getMemoryHits());
+            assertEquals(1, cache.getMisses());
+        }
+    }
+
+    @Test
+    public void testMemoryTierEvictsLeastRecentlyUsed() {
+        try (LLMResponseCache cache = new LLMResponseCache(
+                cacheConfig("disk.enabled = off\nmemory.max-bytes = 1000"), "model")) {
+            String answer = "x".repeat(150);
+            cache.put("a", answer);
+            cache.put("b", answer);
+            cache.get("a");
+            cache.put("c", answer);
+            assertNotNull(cache.get("a"));
+            assertNull(cache.get("b"));
+            assertTrue(cache.getMemoryBytes() <= 1000);
+            assertEquals(1, cache.getMemoryEvictions());
+        }
+    }
+
+    @Test
+    public void testDiskTierSurvivesRestart() {
+        try (LLMResponseCache cache = new LLMResponseCache(cacheConfig(""), "model")) {
+            cache.put("greeting", "Bow slightly and wait for the senior delegate.");
+        }
+        try (LLMResponseCache reopened = new LLMResponseCache(cacheConfig(""), "model")) {
+            assertEquals("Bow slightly and wait for the senior delegate.", reopened.get("greeting"));
+            assertEquals(1, reopened.getDiskHits());
+        }
+    }
+
+    @Test
+    public void testDiskHitKeepsItsStoredExpiry() throws Exception {
+        try (LLMResponseCache cache = new LLMResponseCache(cacheConfig("ttl = 600ms"), "model")) {
+            cache.put("greeting", "Bow.");
+        }
+        Thread.sleep(400);
+        try (LLMResponseCache reopened = new LLMResponseCache(cacheConfig("ttl = 600ms"), "model")) {
+            assertEquals("Bow.", reopened.get("greeting"));
+            assertEquals(1, reopened.getDiskHits());
+            // Expired by the original put, although a fresh TTL from promotion would still hold
+            Thread.sleep(400);
+            assertNull(reopened.get("greeting"));
+            assertEquals(0, reopened.getMemoryHits());
+        }
+    }
+
+    @Test
+    public void testDiskTierDropsOldestGeneration() {
+        try (DiskResponseCache disk = new DiskResponseCache(cacheDir, 1000)) {
+            long expiresAt = System.currentTimeMillis() + 60_000;
+            for (int i = 0; i < 20; i++) {
+                disk.put("key-" + i, "y".repeat(50), expiresAt);
+            }
+            assertNull(disk.get("key-0", System.currentTimeMillis()));
+            assertNotNull(disk.get("key-19", System.currentTimeMillis()));
+            assertTrue(disk.evictions() > 0);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.diplomatic.actors.intelligence;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NgramClassifierTest {
+
+    private static final NgramClassifier.TrainingParams PARAMS =
+            new NgramClassifier.TrainingParams(30, 0.5f, 1e-6f, 42L);
+
+    private static List<NgramClassifier.Example> examples;
+    private static NgramClassifier model;
+
+    @BeforeAll
+    static void train() throws IOException {
+        try (InputStream in = NgramClassifierTest.class.getClassLoader()
+                .getResourceAsStream("classifier/training.tsv")) {
+            examples = NgramClassifier.readTsv(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        model = NgramClassifier.train(examples, 16, PARAMS);
+    }
+
+    @Test
+    void classifiesQueriesWithoutRoutingKeywords() {
+        assertEquals("CULTURAL", classify("How should I address an elderly host in Kuwait?"));
+        assertEquals("DEFER", classify("Could we put the tariff question on hold until next session?"));
+        assertEquals("ESCALATE", classify("Talks are stuck, we need the foreign minister to intervene"));
+        assertEquals("GENERAL", classify("What is the capital of Eritrea?"));
+    }
+
+    @Test
+    void returnsProbabilityDistribution() {
+        int[] features = new int[NgramClassifier.MAX_FEATURES];
+        float[] probabilities = new float[NgramClassifier.LABELS.length];
+        int best = model.predict("Draft a proposal on the fisheries agreement", features, probabilities);
+
+        float sum = 0;
+        for (float p : probabilities) {
+            assertTrue(p >= 0f && p <= 1f);
+            sum += p;
+        }
+        assertEquals(1.0f, sum, 1e-4f);
+        assertEquals("PROPOSE", NgramClassifier.LABELS[best]);
+        assertTrue(probabilities[best] > 0.5f);
+        assertTrue(model.getTemperature() > 0f);
+    }
+
+    @Test
+    void crossValidationStaysAccurateAndCalibrated() {
+        ClassifierTrainer.Evaluation evaluation = ClassifierTrainer.crossValidate(examples, 5, 16, PARAMS);
+        assertTrue(evaluation.accuracy() > 0.85, "accuracy " + evaluation.accuracy());
+        assertTrue(evaluation.calibrationError() < 0.1, "ece " + evaluation.calibrationError());
+    }
+
+    @Test
+    void savedModelPredictsIdentically(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("classifier.model");
+        model.save(file);
+        NgramClassifier loaded = NgramClassifier.load(file);
+
+        int[] features = new int[NgramClassifier.MAX_FEATURES];
+        float[] expected = new float[NgramClassifier.LABELS.length];
+        float[] actual = new float[NgramClassifier.LABELS.length];
+        model.predict("Help me ask them to explain the clause", features, expected);
+        loaded.predict("Help me ask them to explain the clause", features, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void rejectsUnknownLabels() {
+        assertThrows(IOException.class, () -> NgramClassifier.readTsv(new StringReader("# header\nNOPE\tsome text\n")));
+    }
+
+    private static String classify(String text) {
+        int best = model.predict(text, new int[NgramClassifier.MAX_FEATURES], new float[NgramClassifier.LABELS.length]);
+        return NgramClassifier.LABELS[best];
+    }
+}
@@ -0,0 +1,85 @@
+package com.diplomatic.actors.intelligence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PromptEncodingTest {
+
+    private static final String[] QUERIES = {
+            "", "How should I open trade talks?", "Say \"no\" politely \\ firmly",
+            "line one\nline two\r\n\ttabbed", "bell \u0007 and nul \u0000 and \b\f",
+            "caf\u00e9 \u65e5\u672c\u8a9e \ud83e\udd1d", "lone \ud83e surrogate", "template {query} text"
+    };
+
+    @Test
+    public void testTemplatesRenderTheSamePromptsAsBefore() {
+        // Recordings are keyed on the prompt text, so it must not change
+        for (String query : QUERIES) {
+            for (String country : new String[] {"General", "Japan", "{query}"}) {
+                String expected = "You are a cross-cultural diplomatic advisor with expertise in international relations.\n\n"
+                        + "Context: Cultural guidance needed" + ("General".equals(country) ? "" : " for " + country)
+                        + "\n\nUser Query: " + query + "\n\nPlease provide:\n"
+                        + "1. Cultural Context: Key cultural considerations\n"
+                        + "2. Communication Approach: Appropriate style\n"
+                        + "3. Potential Pitfalls: Cultural mistakes to avoid\n"
+                        + "4. Practical Advice: Concrete recommendations\n\n"
+                        + "Keep response concise (under 250 words) and practical.";
+                assertEquals(expected, CulturalContextActor.buildCulturalPrompt(query, country));
+            }
+            assertTrue(CulturalContextActor.buildCulturalPrompt(query, null).contains(" for null\n"));
+
+            for (String primitive : new String[] {"PROPOSE", "DEFER", "GENERAL", "HAGGLE"}) {
+                String prompt = DiplomaticPrimitivesActor.buildPrimitivePrompt(query, primitive);
+                assertTrue(prompt.startsWith("You are a diplomatic negotiation advisor using the IDEA Framework.\n\n"
+                        + "IDEA Framework Primitive: " + primitive + "\n"));
+                assertTrue(prompt.contains("\n\nUser Query: " + query + "\n\nPlease provide:\n"
+                        + "1. Strategy: How to effectively apply the " + primitive + " primitive\n"));
+                assertTrue(prompt.endsWith("Keep response concise (under 250 words) and action-oriented."));
+            }
+        }
+        assertTrue(DiplomaticPrimitivesActor.buildPrimitivePrompt("q", "PROPOSE")
+                .contains("\nPROPOSE: Present new ideas, terms, or solutions to advance negotiations\n\n"));
+        assertTrue(DiplomaticPrimitivesActor.buildPrimitivePrompt("q", "HAGGLE")
+                .contains("\nGENERAL: Diplomatic negotiation and relationship building\n\n"));
+    }
+
+    @Test
+    public void testEscapedLengthMatchesWhatIsWritten() {
+        for (String query : QUERIES) {
+            byte[] escaped = JsonUtf8.escape(query);
+            assertEquals(escaped.length, JsonUtf8.escapedLength(query), query);
+            byte[] offset = new byte[escaped.length + 3];
+            assertEquals(offset.length, JsonUtf8.writeEscaped(query, offset, 3));
+        }
+    }
+
+    @Test
+    public void testRequestBodyIsValidJsonCarryingThePrompt() throws Exception {
+        LLMHttpClient client = new LLMHttpClient(ConfigFactory.parseString("model = \"model-\\\"x\\\"\"")
+                .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm")), "test-key");
+        ObjectMapper mapper = new ObjectMapper();
+        try {
+            for (String query : QUERIES) {
+                String prompt = DiplomaticPrimitivesActor.buildPrimitivePrompt(query, "CLARIFY");
+                JsonNode body = mapper.readTree(client.buildRequestBody(prompt, false));
+                assertEquals("model-\"x\"", body.path("model").asText());
+                assertEquals(1024, body.path("max_tokens").asInt());
+                assertFalse(body.has("stream"));
+                assertEquals("user", body.path("messages").get(0).path("role").asText());
+                // Lone surrogates are sent as '?', as String.getBytes would
+                assertEquals(prompt.replace("\ud83e ", "? "),
+                        body.path("messages").get(0).path("content").asText(), query);
+
+                JsonNode streaming = mapper.readTree(client.buildRequestBody(prompt, true));
+                assertTrue(streaming.path("stream").asBoolean());
+                assertEquals(body.path("messages"), streaming.path("messages"));
+            }
+        } finally {
+            client.close();
+        }
+    }
+}
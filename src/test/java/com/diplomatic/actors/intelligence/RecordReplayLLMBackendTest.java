@@ -0,0 +1,91 @@
+package com.diplomatic.actors.intelligence;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordReplayLLMBackendTest {
+
+    @TempDir
+    Path dir;
+
+    private Config recording(String overrides) {
+        return ConfigFactory.parseString("file = \"" + dir.resolve("recording.jsonl").toString().replace("\\", "/") + "\"\n"
+                + overrides).withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm.recording"));
+    }
+
+    private SimulatedLLMBackend simulated(String timing) {
+        return new SimulatedLLMBackend(ConfigFactory.parseString(timing)
+                .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm.simulated")), "test-model");
+    }
+
+    @Test
+    public void testReplaysRecordedAnswers() throws Exception {
+        RecordReplayLLMBackend recorder = RecordReplayLLMBackend.record(
+                simulated("time-to-first-token = 0ms\ntokens-per-second = 100000"), recording(""));
+        String greeting = recorder.complete("How should I greet Japanese diplomats?").get(5, TimeUnit.SECONDS);
+        String proposal = recorder.stream("Propose a trade deal", text -> { }).get(5, TimeUnit.SECONDS);
+        recorder.close();
+        assertEquals(2, Files.readAllLines(dir.resolve("recording.jsonl")).size());
+
+        RecordReplayLLMBackend replayer = RecordReplayLLMBackend.replay(recording(""), "simulated-test-model", () -> null);
+        assertEquals(greeting, replayer.complete("How should I greet Japanese diplomats?").get(5, TimeUnit.SECONDS));
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        assertEquals(proposal, replayer.stream("Propose a trade deal", chunks::add).get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(proposal), chunks);
+        replayer.close();
+    }
+
+    @Test
+    public void testReplayWaitsForRecordedLatency() throws Exception {
+        RecordReplayLLMBackend recorder = RecordReplayLLMBackend.record(
+                simulated("time-to-first-token = 300ms\ntokens-per-second = 100000"), recording(""));
+        recorder.complete("Defer the vote").get(5, TimeUnit.SECONDS);
+        recorder.close();
+
+        RecordReplayLLMBackend replayer = RecordReplayLLMBackend.replay(recording(""), "simulated-test-model", () -> null);
+        long start = System.nanoTime();
+        replayer.complete("Defer the vote").get(5, TimeUnit.SECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 290);
+        replayer.close();
+
+        RecordReplayLLMBackend instant = RecordReplayLLMBackend.replay(
+                recording("replay-latency = off"), "simulated-test-model", () -> null);
+        start = System.nanoTime();
+        instant.complete("Defer the vote").get(5, TimeUnit.SECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+        instant.close();
+    }
+
+    @Test
+    public void testUnrecordedPromptFailsWith404() {
+        RecordReplayLLMBackend replayer = RecordReplayLLMBackend.replay(recording(""), "test-model", () -> null);
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> replayer.complete("never recorded").get(5, TimeUnit.SECONDS));
+
+        assertEquals(404, ((LLMApiException) failure.getCause()).getStatusCode());
+        replayer.close();
+    }
+
+    @Test
+    public void testUnrecordedPromptCanFallBackToSimulation() throws Exception {
+        SimulatedLLMBackend reference = simulated("time-to-first-token = 0ms\ntokens-per-second = 100000");
+        RecordReplayLLMBackend replayer = RecordReplayLLMBackend.replay(recording("on-miss = simulate"), "test-model",
+                () -> simulated("time-to-first-token = 0ms\ntokens-per-second = 100000"));
+
+        assertEquals(reference.complete("never recorded").get(5, TimeUnit.SECONDS),
+                replayer.complete("never recorded").get(5, TimeUnit.SECONDS));
+        replayer.close();
+        reference.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.diplomatic.actors.intelligence;
+
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulatedLLMBackendTest {
+
+    private SimulatedLLMBackend backend;
+
+    private SimulatedLLMBackend backend(long seed, String timing) {
+        backend = new SimulatedLLMBackend(ConfigFactory.parseString(
+                "seed = " + seed + "\n"
+                        + "min-output-tokens = 20\n"
+                        + "max-output-tokens = 40\n"
+                        + "chunk-tokens = 5\n"
+                        + timing)
+                .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm.simulated")), "test-model");
+        return backend;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        backend.close();
+    }
+
+    @Test
+    public void testSamePromptAndSeedGiveSameAnswer() throws Exception {
+        SimulatedLLMBackend simulated = backend(7, "time-to-first-token = 0ms\ntokens-per-second = 100000");
+        String first = simulated.complete("How should I greet Japanese diplomats?").get(5, TimeUnit.SECONDS);
+        String second = simulated.complete("How should I greet Japanese diplomats?").get(5, TimeUnit.SECONDS);
+        String other = simulated.complete("Propose a trade deal with Canada").get(5, TimeUnit.SECONDS);
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        int words = first.split("\\s+").length;
+        assertTrue(words >= 20 && words <= 40, "answer length " + words + " outside the configured range");
+
+        SimulatedLLMBackend reseeded = new SimulatedLLMBackend(ConfigFactory.parseString("seed = 8")
+                .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm.simulated")), "test-model");
+        assertNotEquals(String.join("", simulated.answer("hello")), String.join("", reseeded.answer("hello")));
+        reseeded.close();
+    }
+
+    @Test
+    public void testStreamChunksAddUpToCompleteAnswer() throws Exception {
+        SimulatedLLMBackend simulated = backend(7, "time-to-first-token = 0ms\ntokens-per-second = 100000");
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        String streamed = simulated.stream("Clarify the tariff terms", chunks::add).get(5, TimeUnit.SECONDS);
+
+        assertEquals(simulated.complete("Clarify the tariff terms").get(5, TimeUnit.SECONDS), streamed);
+        assertEquals(String.join("", chunks), streamed);
+        int tokens = simulated.answer("Clarify the tariff terms").length;
+        assertEquals((tokens + 4) / 5, chunks.size());
+    }
+
+    @Test
+    public void testTakesFirstTokenTimePlusGenerationTime() throws Exception {
+        // 20-40 tokens at 200/s after 100ms: 195 to 295 ms
+        SimulatedLLMBackend simulated = backend(7, "time-to-first-token = 100ms\ntokens-per-second = 200");
+        int tokens = simulated.answer("Defer the water rights discussion").length;
+        long start = System.nanoTime();
+        simulated.complete("Defer the water rights discussion").get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long expected = 100 + (tokens - 1) * 1000L / 200;
+        assertTrue(elapsedMillis >= expected - 5 && elapsedMillis < expected + 500,
+                "took " + elapsedMillis + " ms, expected about " + expected);
+    }
+
+    @Test
+    public void testCancelledCallStopsStreaming() throws Exception {
+        SimulatedLLMBackend simulated = backend(7, "time-to-first-token = 0ms\ntokens-per-second = 50");
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> call = simulated.stream("Escalate the fishing dispute", chunks::add);
+        Thread.sleep(150);
+        call.cancel(true);
+        int seen = chunks.size();
+        Thread.sleep(300);
+
+        assertThrows(CancellationException.class, call::join);
+        assertEquals(seen, chunks.size());
+    }
+
+    @Test
+    public void testModelNameMarksSimulatedAnswers() {
+        assertEquals("simulated-test-model", backend(1, "").getModel());
+    }
+}
@@ -0,0 +1,105 @@
+package com.diplomatic.jfr;
+
+import com.diplomatic.actors.intelligence.LLMHttpClient;
+import com.diplomatic.loadtest.FakeMessagesApi;
+import com.diplomatic.messages.TraceContext;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrEventsTest {
+
+    @Test
+    public void testUtf8LengthMatchesEncoder() {
+        for (String text : new String[] {"", "plain ascii", "caf\u00e9", "\u65e5\u672c\u8a9e", "\ud83e\udd1d deal",
+                "lone \ud83e surrogate"}) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, JfrEvents.utf8Length(text), text);
+        }
+        assertEquals(0, JfrEvents.utf8Length(null));
+    }
+
+    @Test
+    public void testRegisteredEventsAreRecorded() throws Exception {
+        JfrEvents.register();
+        assertTrue(JfrEvents.isRegistered());
+
+        Config fakeDefaults = ConfigFactory.load().getConfig("diplomatic-assistant.loadtest.fake-api");
+        Path file = Files.createTempFile("pipeline", ".jfr");
+        try (Recording recording = new Recording();
+             FakeMessagesApi api = FakeMessagesApi.start(ConfigFactory.parseString(
+                     "latency { distribution = fixed, median = 5ms, min = 1ms }\nanswer-words = 30")
+                     .withFallback(fakeDefaults))) {
+            JfrEvents.TYPES.forEach(type -> recording.enable(type).withoutThreshold());
+            recording.start();
+
+            TraceContext trace = TraceContext.newTrace(true);
+            MessageHopEvent hop = JfrEvents.beginHop("classify", "c1", trace);
+            assertNotNull(hop);
+            JfrEvents.endHop(hop, true);
+            JfrEvents.endHop(null, false);
+
+            PromptBuildEvent prompt = JfrEvents.begin(PromptBuildEvent::new);
+            assertNotNull(prompt);
+            assertTrue(JfrEvents.end(prompt));
+            prompt.kind = "cultural";
+            prompt.commit();
+            assertFalse(JfrEvents.end(null));
+
+            Config llm = ConfigFactory.parseString("api-url = \"" + api.url() + "\"")
+                    .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm"));
+            LLMHttpClient client = new LLMHttpClient(llm, "test-key");
+            try {
+                client.complete("Propose a trade deal").get(5, TimeUnit.SECONDS);
+                client.stream("Clarify the terms", text -> { }).get(5, TimeUnit.SECONDS);
+            } finally {
+                client.close();
+            }
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals("cultural", only(events, "com.diplomatic.PromptBuild").getString("kind"));
+            RecordedEvent recordedHop = only(events, "com.diplomatic.MessageHop");
+            assertEquals("classify", recordedHop.getString("hop"));
+            assertEquals(trace.getTraceId(), recordedHop.getString("traceId"));
+            assertTrue(recordedHop.getBoolean("success"));
+
+            List<RecordedEvent> calls = events.stream()
+                    .filter(event -> event.getEventType().getName().equals("com.diplomatic.LLMHttpCall"))
+                    .collect(Collectors.toList());
+            assertEquals(2, calls.size());
+            for (RecordedEvent call : calls) {
+                assertEquals(200, call.getInt("statusCode"));
+                assertTrue(call.getLong("requestBytes") > 0);
+                assertTrue(call.getLong("responseBytes") > 0);
+                assertEquals(100, call.getInt("inputTokens"));
+                assertEquals(30, call.getInt("outputTokens"));
+                assertNull(call.getString("failure"));
+            }
+            assertEquals(1, calls.stream().filter(call -> call.getBoolean("streaming")).count());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
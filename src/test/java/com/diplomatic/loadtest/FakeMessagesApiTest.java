@@ -0,0 +1,99 @@
+package com.diplomatic.loadtest;
+
+import com.diplomatic.actors.intelligence.LLMApiException;
+import com.diplomatic.actors.intelligence.LLMHttpClient;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FakeMessagesApiTest {
+
+    private FakeMessagesApi api;
+    private LLMHttpClient client;
+
+    private LLMHttpClient start(String overrides) throws Exception {
+        Config defaults = ConfigFactory.load().getConfig("diplomatic-assistant.loadtest.fake-api");
+        api = FakeMessagesApi.start(ConfigFactory.parseString(
+                "latency { distribution = fixed, median = 20ms, min = 1ms }\n" + overrides).withFallback(defaults));
+        Config llm = ConfigFactory.parseString("api-url = \"" + api.url() + "\"")
+                .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.llm"));
+        client = new LLMHttpClient(llm, "test-key");
+        return client;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (api != null) {
+            api.close();
+        }
+    }
+
+    @Test
+    public void testCompleteReturnsAnswer() throws Exception {
+        String answer = start("answer-words = 40").complete("How should I greet Japanese diplomats?")
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(40, answer.split("\\s+").length);
+        assertEquals(1, api.requests());
+        assertEquals(0, api.streamedRequests());
+    }
+
+    @Test
+    public void testStreamDeliversChunksThatAddUpToAnswer() throws Exception {
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        String answer = start("answer-words = 60\nstream-chunks = 5")
+                .stream("Propose a trade deal with Canada", chunks::add)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(5, chunks.size());
+        assertEquals(answer, String.join("", chunks));
+        assertEquals(1, api.streamedRequests());
+    }
+
+    @Test
+    public void testInjectedOverloadIs429() throws Exception {
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> start("overload-rate = 1.0").complete("hello").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(LLMApiException.class, failure.getCause());
+        assertEquals(429, ((LLMApiException) failure.getCause()).getStatusCode());
+        assertEquals(1, api.injectedOverloads());
+    }
+
+    @Test
+    public void testInjectedErrorIs500() throws Exception {
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> start("error-rate = 1.0").complete("hello").get(5, TimeUnit.SECONDS));
+
+        assertEquals(500, ((LLMApiException) failure.getCause()).getStatusCode());
+        assertEquals(1, api.injectedErrors());
+    }
+
+    @Test
+    public void testLognormalLatencyMatchesMedianAndP99() {
+        LatencyDistribution latency = LatencyDistribution.fromConfig(ConfigFactory.parseString(
+                "distribution = lognormal\nmedian = 100ms\np99 = 400ms\nmin = 1ms\nmax = 10s"));
+        Random random = new Random(7);
+        long[] samples = new long[20_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = latency.sampleNanos(random);
+        }
+        Arrays.sort(samples);
+
+        assertEquals(100, samples[samples.length / 2] / 1e6, 5);
+        assertEquals(400, samples[(int) (samples.length * 0.99)] / 1e6, 40);
+    }
+}
@@ -0,0 +1,127 @@
+package com.diplomatic.metrics;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testHistogramBucketsAreCumulative() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram llm = registry.stage("llm");
+        llm.record(TimeUnit.MICROSECONDS.toNanos(50));
+        llm.record(TimeUnit.MILLISECONDS.toNanos(3));
+        llm.record(TimeUnit.SECONDS.toNanos(2));
+        llm.record(TimeUnit.SECONDS.toNanos(120));
+
+        String text = registry.scrape();
+        assertTrue(text.contains("# TYPE diplomatic_stage_latency_seconds histogram\n"));
+        assertTrue(text.contains("diplomatic_stage_latency_seconds_bucket{stage=\"llm\",le=\"0.0001\"} 1\n"));
+        assertTrue(text.contains("diplomatic_stage_latency_seconds_bucket{stage=\"llm\",le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("diplomatic_stage_latency_seconds_bucket{stage=\"llm\",le=\"2.5\"} 3\n"));
+        assertTrue(text.contains("diplomatic_stage_latency_seconds_bucket{stage=\"llm\",le=\"60\"} 3\n"));
+        assertTrue(text.contains("diplomatic_stage_latency_seconds_bucket{stage=\"llm\",le=\"+Inf\"} 4\n"));
+        assertTrue(text.contains("diplomatic_stage_latency_seconds_count{stage=\"llm\"} 4\n"));
+        assertTrue(text.contains("diplomatic_stage_latency_seconds_sum{stage=\"llm\"} 122.00305"));
+    }
+
+    @Test
+    public void testSameNameAndLabelsShareOneInstrument() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter hits = registry.counter("diplomatic_llm_requests_total", "LLM requests", "result", "cache_hit");
+        hits.increment();
+        registry.counter("diplomatic_llm_requests_total", "LLM requests", "result", "cache_hit").add(2);
+        registry.counter("diplomatic_llm_requests_total", "LLM requests", "result", "shed").increment();
+
+        assertEquals(3, hits.get());
+        String text = registry.scrape();
+        assertTrue(text.contains("diplomatic_llm_requests_total{result=\"cache_hit\"} 3\n"));
+        assertTrue(text.contains("diplomatic_llm_requests_total{result=\"shed\"} 1\n"));
+        assertEquals(1, text.split("# HELP diplomatic_llm_requests_total", -1).length - 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.histogram("diplomatic_llm_requests_total", "LLM requests"));
+    }
+
+    @Test
+    public void testSystemsWithTheSameNameGetSeparateRegistries() {
+        // The load test runs both nodes in one JVM under the same system name
+        ActorTestKit node1 = ActorTestKit.create("DiplomaticAssistantSystem");
+        ActorTestKit node2 = ActorTestKit.create("DiplomaticAssistantSystem");
+        try {
+            MetricsRegistry first = MetricsRegistry.forSystem(node1.system());
+            assertSame(first, MetricsRegistry.forSystem(node1.system()));
+            assertNotSame(first, MetricsRegistry.forSystem(node2.system()));
+        } finally {
+            node1.shutdownTestKit();
+            node2.shutdownTestKit();
+        }
+    }
+
+    @Test
+    public void testQuantileUpperBound() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram histogram = registry.stage("classifier");
+        assertEquals(0, histogram.quantileUpperBoundNanos(0.99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(200));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40));
+
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(250), histogram.quantileUpperBoundNanos(0.5));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(250), histogram.quantileUpperBoundNanos(0.99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), histogram.quantileUpperBoundNanos(1.0));
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new MetricsRegistry().stage("history_save");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i * 1_000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.count());
+        long bucketTotal = 0;
+        for (long count : histogram.bucketCounts()) {
+            bucketTotal += count;
+        }
+        assertEquals(40_000, bucketTotal);
+    }
+
+    @Test
+    public void testEndpointServesPrometheusText() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("diplomatic_sessions_total", "Session requests by outcome", "result", "created").increment();
+        try (MetricsEndpoint endpoint = new MetricsEndpoint(registry, null, "127.0.0.1", 0)) {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(endpoint.url())).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+            assertTrue(response.body().contains("diplomatic_sessions_total{result=\"created\"} 1\n"));
+
+            HttpResponse<String> post = client.send(
+                    HttpRequest.newBuilder(URI.create(endpoint.url())).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, post.statusCode());
+        }
+    }
+}
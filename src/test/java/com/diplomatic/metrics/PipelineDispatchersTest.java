@@ -0,0 +1,87 @@
+package com.diplomatic.metrics;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.javadsl.Behaviors;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipelineDispatchersTest {
+
+    @Test
+    public void testActorsRunOnTheSelectedDispatcherAndReportItsMailboxDepth() throws Exception {
+        ActorTestKit testKit = ActorTestKit.create();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> threadName = new AtomicReference<>();
+        try {
+            ActorRef<String> worker = testKit.spawn(Behaviors.receiveMessage(message -> {
+                if (message.equals("block")) {
+                    threadName.set(Thread.currentThread().getName());
+                    blocked.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                return Behaviors.same();
+            }), "worker", PipelineDispatchers.select(testKit.system(), PipelineDispatchers.BLOCKING_IO));
+
+            worker.tell("block");
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                worker.tell("queued-" + i);
+            }
+
+            DispatcherStats stats = DispatcherStats.forSystem(testKit.system(), PipelineDispatchers.BLOCKING_IO);
+            assertTrue(threadName.get().contains("blocking-io"), threadName.get());
+            assertEquals(5, stats.mailboxDepth());
+            assertEquals(1, stats.activeThreads());
+            assertEquals(4, stats.maxThreads());
+            assertEquals(0.25, stats.utilization(), 1e-9);
+
+            String text = MetricsRegistry.forSystem(testKit.system()).scrape();
+            assertTrue(text.contains("# TYPE diplomatic_dispatcher_mailbox_depth gauge\n"));
+            assertTrue(text.contains("diplomatic_dispatcher_mailbox_depth{dispatcher=\"blocking-io\"} 5.0\n"));
+            assertTrue(text.contains("diplomatic_dispatcher_utilization{dispatcher=\"blocking-io\"} 0.25\n"));
+
+            release.countDown();
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (stats.mailboxDepth() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, stats.mailboxDepth());
+        } finally {
+            release.countDown();
+            testKit.shutdownTestKit();
+        }
+    }
+
+    @Test
+    public void testSystemsWithTheSameNameKeepSeparateStats() {
+        ActorTestKit node1 = ActorTestKit.create("DiplomaticAssistantSystem");
+        ActorTestKit node2 = ActorTestKit.create("DiplomaticAssistantSystem");
+        try {
+            DispatcherStats first = DispatcherStats.forSystem(node1.system(), PipelineDispatchers.CPU);
+            assertSame(first, DispatcherStats.forSystem(node1.system(), PipelineDispatchers.CPU));
+            assertNotSame(first, DispatcherStats.forSystem(node2.system(), PipelineDispatchers.CPU));
+            assertNotSame(first, DispatcherStats.forSystem(node1.system(), PipelineDispatchers.SUPERVISOR));
+        } finally {
+            node1.shutdownTestKit();
+            node2.shutdownTestKit();
+        }
+    }
+
+    @Test
+    public void testGaugesAreReadAtScrapeTime() {
+        MetricsRegistry registry = new MetricsRegistry();
+        double[] value = {1.5};
+        registry.gauge("diplomatic_test_gauge", "Test gauge", () -> value[0], "dispatcher", "cpu");
+        assertTrue(registry.scrape().contains("diplomatic_test_gauge{dispatcher=\"cpu\"} 1.5\n"));
+        value[0] = 3;
+        assertTrue(registry.scrape().contains("diplomatic_test_gauge{dispatcher=\"cpu\"} 3.0\n"));
+    }
+}
@@ -0,0 +1,309 @@
+package com.diplomatic.serialization;
+
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.testkit.typed.javadsl.TestProbe;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.Serializers;
+import akka.serialization.jackson.JacksonCborSerializer;
+import com.diplomatic.actors.infrastructure.DiplomaticSessionActor;
+import com.diplomatic.messages.*;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.NotSerializableException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiplomaticMessageSerializerTest {
+
+    private static final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.load());
+    private static final Serialization serialization = SerializationExtension.get(testKit.system());
+
+    @AfterAll
+    static void cleanup() {
+        testKit.shutdownTestKit();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T message) {
+        Serializer serializer = serialization.findSerializerFor(message);
+        assertTrue(serializer instanceof DiplomaticMessageSerializer,
+                message.getClass().getSimpleName() + " is bound to " + serializer.getClass().getSimpleName());
+        byte[] bytes = serialization.serialize(message).get();
+        return (T) serialization.deserialize(bytes, serializer.identifier(),
+                Serializers.manifestFor(serializer, message)).get();
+    }
+
+    @Test
+    void roundTripsClassificationMessages() {
+        TestProbe<ClassificationResultMessage> probe = testKit.createTestProbe();
+        RouteToClassifierMessage route = roundTrip(
+                new RouteToClassifierMessage("c1", "s1", "How do I greet someone in Japan?", probe.getRef()));
+        assertEquals("c1", route.getCorrelationId());
+        assertEquals("s1", route.getSessionId());
+        assertEquals("How do I greet someone in Japan?", route.getQuery());
+        assertEquals(probe.getRef(), route.getReplyTo());
+
+        Map<String, Double> probabilities = new LinkedHashMap<>();
+        probabilities.put("CULTURAL", 0.75);
+        probabilities.put("PROPOSE", 0.25);
+        probabilities.put("SOMETHING_NEW", 0.0);
+        ClassificationResultMessage result = roundTrip(new ClassificationResultMessage(
+                "c1", "CULTURAL", "CulturalContextActor", 0.875, "Japan", null, probabilities));
+        assertEquals("c1", result.getCorrelationId());
+        assertEquals("CULTURAL", result.getScenario());
+        assertEquals("CulturalContextActor", result.getTargetActor());
+        assertEquals(0.875, result.getConfidence());
+        assertEquals("Japan", result.getDetectedCountry());
+        assertNull(result.getDetectedPrimitive());
+        assertEquals(probabilities, result.getProbabilities());
+
+        ClassificationResultMessage uncoded = roundTrip(new ClassificationResultMessage(
+                "c2", "GENERAL", "DiplomaticPrimitivesActor", 0.5, "Atlantis", "GENERAL"));
+        assertEquals("Atlantis", uncoded.getDetectedCountry());
+        assertNull(uncoded.getProbabilities());
+    }
+
+    @Test
+    void roundTripsIntelligenceRequestsAndResponses() {
+        TestProbe<CulturalAnalysisResponseMessage> cultural = testKit.createTestProbe();
+        TestProbe<LLMStreamMessage> stream = testKit.createTestProbe();
+        CulturalAnalysisRequest request = roundTrip(
+                new CulturalAnalysisRequest("c1", "Gift etiquette?", "Morocco", cultural.getRef(), stream.getRef()));
+        assertEquals("c1", request.getCorrelationId());
+        assertEquals("Gift etiquette?", request.getQuery());
+        assertEquals("Morocco", request.getCountry());
+        assertEquals(cultural.getRef(), request.getReplyTo());
+        assertEquals(stream.getRef(), request.getStreamTo());
+
+        CulturalAnalysisResponseMessage response = roundTrip(new CulturalAnalysisResponseMessage(
+                "c1", "Bring sweets.", LLMContext.cultural("Morocco", null)));
+        assertEquals("Bring sweets.", response.getAnalysis());
+        assertEquals(LLMContext.ScenarioType.CULTURAL, response.getContext().getScenarioType());
+        assertEquals("Morocco", response.getContext().getCountry());
+        assertNull(response.getContext().getQuery());
+
+        TestProbe<DiplomaticPrimitiveResponseMessage> primitives = testKit.createTestProbe();
+        DiplomaticPrimitiveRequestMessage primitive = roundTrip(new DiplomaticPrimitiveRequestMessage(
+                "c2", "PROPOSE", "Offer a joint committee", primitives.getRef(), null));
+        assertEquals("PROPOSE", primitive.getPrimitive());
+        assertEquals(primitives.getRef(), primitive.getReplyTo());
+        assertNull(primitive.getStreamTo());
+
+        DiplomaticPrimitiveResponseMessage primitiveResult = roundTrip(
+                new DiplomaticPrimitiveResponseMessage("c2", "PROPOSE", "Propose it at the next session."));
+        assertEquals("c2", primitiveResult.getCorrelationId());
+        assertEquals("Propose it at the next session.", primitiveResult.getResult());
+
+        TestProbe<LLMResponseMessage> llm = testKit.createTestProbe();
+        LLMRequestMessage llmRequest = roundTrip(new LLMRequestMessage(
+                "c3", "prompt", LLMContext.primitive("DEFER", "Can we wait?"), llm.getRef(), stream.getRef()));
+        assertEquals("prompt", llmRequest.getPrompt());
+        assertEquals(LLMContext.ScenarioType.DIPLOMATIC_PRIMITIVE, llmRequest.getContext().getScenarioType());
+        assertEquals("DEFER", llmRequest.getContext().getPrimitive());
+        assertEquals("Can we wait?", llmRequest.getContext().getQuery());
+        assertEquals(llm.getRef(), llmRequest.getReplyTo());
+
+        LLMResponseMessage llmResponse = roundTrip(new LLMResponseMessage("c3", "answer", false));
+        assertEquals("answer", llmResponse.getResponse());
+        assertFalse(llmResponse.isSuccess());
+
+        LLMStreamChunkMessage chunk = roundTrip(new LLMStreamChunkMessage(300, " token"));
+        assertEquals(300, chunk.getSequence());
+        assertEquals(" token", chunk.getText());
+        LLMStreamEndMessage end = roundTrip(new LLMStreamEndMessage(true, 301));
+        assertTrue(end.isSuccess());
+        assertEquals(301, end.getChunkCount());
+    }
+
+    @Test
+    void roundTripsSessionMessages() {
+        TestProbe<String> replies = testKit.createTestProbe();
+        DiplomaticSessionActor.ProcessQuery query = roundTrip(
+                new DiplomaticSessionActor.ProcessQuery("c1", "Hello", replies.getRef(), null));
+        assertEquals("c1", query.correlationId);
+        assertEquals("Hello", query.query);
+        assertEquals(replies.getRef(), query.replyTo);
+        assertNull(query.streamTo);
+
+        assertEquals("user-1", roundTrip(new DiplomaticSessionActor.StartSession("user-1")).userId);
+        assertSame(DiplomaticSessionActor.StopSession.INSTANCE, roundTrip(DiplomaticSessionActor.StopSession.INSTANCE));
+
+        SaveConversationMessage save = roundTrip(new SaveConversationMessage("s1", "q", "r"));
+        assertEquals("s1", save.getSessionId());
+        assertEquals("q", save.getQuery());
+        assertEquals("r", save.getResponse());
+        SessionCreatedMessage created = roundTrip(new SessionCreatedMessage("s1", "user-1"));
+        assertEquals("user-1", created.getUserId());
+    }
+
+    @Test
+    void roundTripsBatchEnvelopes() {
+        TestProbe<ClassificationResultMessage> probe = testKit.createTestProbe();
+        TestProbe<ClassificationBatchResult> batchProbe = testKit.createTestProbe();
+        ClassificationBatchRequest batch = roundTrip(new ClassificationBatchRequest(Arrays.asList(
+                new RouteToClassifierMessage("a", "s", "first", probe.getRef()),
+                new RouteToClassifierMessage("b", "s", "second", null)), batchProbe.getRef()));
+        assertEquals(2, batch.getRequests().size());
+        assertEquals("second", batch.getRequests().get(1).getQuery());
+        assertEquals(probe.getRef(), batch.getRequests().get(0).getReplyTo());
+        assertEquals(batchProbe.getRef(), batch.getReplyTo());
+
+        DiplomaticPrimitiveBatchResult results = roundTrip(new DiplomaticPrimitiveBatchResult(Arrays.asList(
+                new DiplomaticPrimitiveResponseMessage("a", "AGREE", "yes"),
+                new DiplomaticPrimitiveResponseMessage("b", "ESCALATE", "no"))));
+        assertEquals("ESCALATE", results.getResults().get(1).getPrimitive());
+
+        assertNull(roundTrip(new CulturalAnalysisBatchResult(null)).getResults());
+    }
+
+    @Test
+    void carriesTraceContextOnEveryHop() {
+        TraceContext sampled = TraceContext.newTrace(true);
+        TraceContext unsampled = TraceContext.newTrace(false).newChild();
+        TestProbe<ClassificationResultMessage> probe = testKit.createTestProbe();
+        TestProbe<LLMResponseMessage> llm = testKit.createTestProbe();
+
+        assertEquals(sampled, roundTrip(
+                new RouteToClassifierMessage("c1", "s1", "query", probe.getRef(), sampled)).getTrace());
+        assertEquals(unsampled, roundTrip(new CulturalAnalysisRequest(
+                "c1", "query", "Japan", null, null, unsampled)).getTrace());
+        assertEquals(sampled, roundTrip(new DiplomaticPrimitiveRequestMessage(
+                "c1", "AGREE", "query", null, null, sampled)).getTrace());
+        assertEquals(sampled, roundTrip(new LLMRequestMessage(
+                "c1", "prompt", LLMContext.cultural("Japan", "query"), llm.getRef(), null, sampled)).getTrace());
+        assertEquals(sampled, roundTrip(new LLMResponseMessage("c1", "answer", true, sampled)).getTrace());
+        assertEquals(sampled, roundTrip(new ClassificationResultMessage(
+                "c1", "CULTURAL", "CulturalContextActor", 0.9, "Japan", null, null, sampled)).getTrace());
+        assertEquals(sampled, roundTrip(new CulturalAnalysisResponseMessage("c1", "analysis", null, sampled)).getTrace());
+        assertEquals(sampled, roundTrip(new DiplomaticPrimitiveResponseMessage("c1", "AGREE", "yes", sampled)).getTrace());
+
+        assertNull(roundTrip(new RouteToClassifierMessage("c1", "s1", "query", probe.getRef())).getTrace());
+        assertTrue(sampled.sameTrace(sampled.newChild()));
+        assertFalse(sampled.sameTrace(unsampled));
+    }
+
+    @Test
+    void carriesTraceContextPerBatchItem() {
+        TraceContext first = TraceContext.newTrace(true);
+        TestProbe<ClassificationBatchResult> batchProbe = testKit.createTestProbe();
+        ClassificationBatchRequest batch = roundTrip(new ClassificationBatchRequest(Arrays.asList(
+                new RouteToClassifierMessage("a", "s", "first", null, first),
+                new RouteToClassifierMessage("b", "s", "second", null)), batchProbe.getRef()));
+        assertEquals(first, batch.getRequests().get(0).getTrace());
+        assertNull(batch.getRequests().get(1).getTrace());
+
+        DiplomaticPrimitiveBatchResult results = roundTrip(new DiplomaticPrimitiveBatchResult(Arrays.asList(
+                new DiplomaticPrimitiveResponseMessage("a", "AGREE", "yes"),
+                new DiplomaticPrimitiveResponseMessage("b", "ESCALATE", "no", first))));
+        assertNull(results.getResults().get(0).getTrace());
+        assertEquals(first, results.getResults().get(1).getTrace());
+    }
+
+    @Test
+    void readsMessagesWrittenWithoutTraceSection() throws NotSerializableException {
+        DiplomaticMessageSerializer serializer =
+                (DiplomaticMessageSerializer) serialization.serializerFor(DiplomaticPrimitiveResponseMessage.class);
+        DiplomaticPrimitiveResponseMessage message = new DiplomaticPrimitiveResponseMessage("c1", "AGREE", "yes");
+        byte[] bytes = serializer.toBinary(message);
+        // A message from a node that predates tracing ends before the trace tag byte
+        DiplomaticPrimitiveResponseMessage old = (DiplomaticPrimitiveResponseMessage) serializer.fromBinary(
+                Arrays.copyOf(bytes, bytes.length - 1), serializer.manifest(message));
+        assertEquals("yes", old.getResult());
+        assertNull(old.getTrace());
+    }
+
+    @Test
+    void encodesNonAsciiText() {
+        String text = "Gr\u00fc\u00dfe aus K\u00f6ln \u2014 \u65e5\u672c\u306e\u6328\u62f6 \ud83d\ude47 ok"; // German, Japanese, an emoji
+        SaveConversationMessage copy = roundTrip(new SaveConversationMessage("s", text, text.repeat(50)));
+        assertEquals(text, copy.getQuery());
+        assertEquals(text.repeat(50), copy.getResponse());
+    }
+
+    @Test
+    void isSmallerThanJacksonCbor() {
+        Serializer cbor = jacksonCbor();
+        ClassificationResultMessage message = new ClassificationResultMessage(
+                "4f1c2a8e-0d7b-4a55-9e9f-3c2b1a0d9e8f", "CULTURAL", "CulturalContextActor", 0.93, "Japan", null);
+        byte[] binary = serialization.serialize(message).get();
+        byte[] jackson = cbor.toBinary(message);
+        assertTrue(binary.length * 2 < jackson.length, binary.length + " vs " + jackson.length);
+    }
+
+    @Test
+    void compressesLongAnswersAboveTheThreshold() {
+        DiplomaticMessageSerializer serializer =
+                (DiplomaticMessageSerializer) serialization.findSerializerFor(new LLMResponseMessage("c", "", true));
+        long before = serializer.compressionStats().compressedFields;
+        String answer = String.join(" ", Collections.nCopies(
+                100, "Address your counterpart by title and surname until invited otherwise."));
+
+        byte[] bytes = serializer.toBinary(new LLMResponseMessage("c", answer, true));
+        assertTrue(bytes.length < answer.length() / 4, bytes.length + " bytes for " + answer.length() + " chars");
+        LLMResponseMessage copy = roundTrip(new LLMResponseMessage("c", answer, true));
+        assertEquals(answer, copy.getResponse());
+        assertEquals(answer, roundTrip(new SaveConversationMessage("s", "q", answer)).getResponse());
+        assertEquals(answer, roundTrip(new DiplomaticPrimitiveBatchResult(Collections.singletonList(
+                new DiplomaticPrimitiveResponseMessage("c", "AGREE", answer)))).getResults().get(0).getResult());
+
+        TextCompression.Stats stats = serializer.compressionStats();
+        assertTrue(stats.compressedFields >= before + 4);
+        assertTrue(stats.ratio() < 0.5, stats.toString());
+        assertTrue(stats.decompressedFields >= 3);
+    }
+
+    @Test
+    void leavesShortAndIncompressibleTextAlone() {
+        DiplomaticMessageSerializer serializer =
+                (DiplomaticMessageSerializer) serialization.findSerializerFor(new LLMResponseMessage("c", "", true));
+        String shortAnswer = "Yes, bow when greeting.";
+        byte[] bytes = serializer.toBinary(new LLMResponseMessage("c", shortAnswer, true));
+        assertTrue(new String(bytes, StandardCharsets.UTF_8).contains(shortAnswer));
+
+        StringBuilder noise = new StringBuilder();
+        Random random = new Random(7);
+        for (int i = 0; i < 4000; i++) {
+            noise.append((char) (' ' + random.nextInt(95)));
+        }
+        long skipped = serializer.compressionStats().skippedFields;
+        assertEquals(noise.toString(), roundTrip(new LLMResponseMessage("c", noise.toString(), true)).getResponse());
+        assertTrue(serializer.compressionStats().skippedFields > skipped);
+    }
+
+    @Test
+    void rejectsCorruptCompressedText() {
+        DiplomaticMessageSerializer serializer =
+                (DiplomaticMessageSerializer) serialization.findSerializerFor(new LLMResponseMessage("c", "", true));
+        byte[] bytes = serializer.toBinary(new LLMResponseMessage("c", "negotiate ".repeat(500), true));
+        bytes[bytes.length / 2] ^= 0x5A;
+        bytes[bytes.length / 2 + 1] ^= 0x3C;
+        assertThrows(NotSerializableException.class, () -> serializer.fromBinary(bytes, "LA"));
+    }
+
+    static Serializer jacksonCbor() {
+        return new JacksonCborSerializer((ExtendedActorSystem) Adapter.toClassic(testKit.system()), "jackson-cbor");
+    }
+
+    @Test
+    void rejectsTruncatedAndUnknownInput() throws NotSerializableException {
+        DiplomaticMessageSerializer serializer =
+                (DiplomaticMessageSerializer) serialization.serializerFor(SaveConversationMessage.class);
+        byte[] bytes = serializer.toBinary(new SaveConversationMessage("session", "query", "response"));
+        assertThrows(NotSerializableException.class,
+                () -> serializer.fromBinary(Arrays.copyOf(bytes, bytes.length - 3), "SV"));
+        assertThrows(NotSerializableException.class, () -> serializer.fromBinary(bytes, "??"));
+        assertThrows(IllegalArgumentException.class, () -> serializer.manifest("not a message"));
+    }
+}
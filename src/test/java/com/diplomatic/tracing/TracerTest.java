@@ -0,0 +1,137 @@
+package com.diplomatic.tracing;
+
+import com.diplomatic.messages.TraceContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TracerTest {
+
+    private static Tracer tracer(String overrides) {
+        Config config = ConfigFactory.parseString(overrides)
+                .withFallback(ConfigFactory.load().getConfig("diplomatic-assistant.tracing"));
+        return new Tracer(config);
+    }
+
+    @Test
+    public void testChildSpansShareTheTraceAndNameTheirParent() {
+        Tracer tracer = tracer("service-name = test");
+        Span root = tracer.startSpan("session.query", SpanKind.SERVER, null);
+        Span child = tracer.startSpan("classifier", SpanKind.SERVER, root.context());
+        child.setAttribute("scenario", "CULTURAL").end();
+        root.end();
+        root.end();
+
+        List<SpanData> spans = tracer.recentSpans();
+        assertEquals(2, spans.size());
+        SpanData rootData = spans.get(0);
+        SpanData childData = spans.get(1);
+        assertTrue(rootData.isRoot());
+        assertEquals("session.query", rootData.getName());
+        assertTrue(rootData.getContext().sameTrace(childData.getContext()));
+        assertEquals(rootData.getContext().getSpanId(), childData.getParentSpanId());
+        assertEquals("CULTURAL", childData.getAttribute("scenario"));
+        assertTrue(childData.getDurationNanos() >= 0);
+    }
+
+    @Test
+    public void testUnsampledAndDisabledTracesRecordNothing() {
+        Tracer unsampled = tracer("sample-rate = 0");
+        Span root = unsampled.startSpan("session.query", SpanKind.SERVER, null);
+        assertFalse(root.isRecording());
+        assertFalse(root.context().isSampled());
+        // The decision travels with the context, so downstream spans stay unsampled too
+        Span child = tracer("sample-rate = 1").startSpan("classifier", SpanKind.SERVER, root.context());
+        assertFalse(child.isRecording());
+        root.end();
+        assertTrue(unsampled.recentSpans().isEmpty());
+
+        Tracer disabled = tracer("enabled = off");
+        Span noop = disabled.startSpan("session.query", SpanKind.SERVER, null);
+        assertNull(noop.context());
+        noop.setAttribute("k", "v").setError("boom").end();
+        assertTrue(disabled.recentSpans().isEmpty());
+    }
+
+    @Test
+    public void testRingBufferKeepsTheNewestSpans() {
+        Tracer tracer = tracer("ring-buffer-size = 16");
+        for (int i = 0; i < 40; i++) {
+            tracer.startSpan("span-" + i, SpanKind.INTERNAL, null).end();
+        }
+        List<SpanData> spans = tracer.recentSpans();
+        assertEquals(16, spans.size());
+        assertEquals("span-24", spans.get(0).getName());
+        assertEquals("span-39", spans.get(15).getName());
+    }
+
+    @Test
+    public void testDumpIsOtlpJsonAndFiltersByDuration() throws Exception {
+        Tracer tracer = tracer("service-name = diplomatic-test");
+        Span fast = tracer.startSpan("fast", SpanKind.SERVER, null);
+        fast.end();
+        Span slow = tracer.startSpan("slow", SpanKind.SERVER, null);
+        Span upstream = tracer.startSpan("llm.upstream", SpanKind.CLIENT, slow.context());
+        Thread.sleep(20);
+        upstream.setError("TimeoutException").end();
+        slow.end();
+
+        JsonNode all = new ObjectMapper().readTree(tracer.dumpOtlpJson(0));
+        JsonNode resourceSpans = all.path("resourceSpans").get(0);
+        assertEquals("service.name", resourceSpans.path("resource").path("attributes").get(0).path("key").asText());
+        assertEquals("diplomatic-test",
+                resourceSpans.path("resource").path("attributes").get(0).path("value").path("stringValue").asText());
+        JsonNode scopeSpans = resourceSpans.path("scopeSpans").get(0);
+        assertEquals(Tracer.SCOPE_NAME, scopeSpans.path("scope").path("name").asText());
+        assertEquals(3, scopeSpans.path("spans").size());
+
+        JsonNode slowOnly = new ObjectMapper().readTree(tracer.dumpOtlpJson(10_000_000))
+                .path("resourceSpans").get(0).path("scopeSpans").get(0).path("spans");
+        assertEquals(2, slowOnly.size());
+        JsonNode upstreamJson = slowOnly.get(0).path("name").asText().equals("llm.upstream") ? slowOnly.get(0) : slowOnly.get(1);
+        assertEquals(slow.context().getTraceId(), upstreamJson.path("traceId").asText());
+        assertEquals(32, upstreamJson.path("traceId").asText().length());
+        assertEquals(slow.context().getSpanId(), upstreamJson.path("parentSpanId").asText());
+        assertEquals(3, upstreamJson.path("kind").asInt());
+        assertTrue(upstreamJson.path("startTimeUnixNano").isTextual());
+        assertEquals(2, upstreamJson.path("status").path("code").asInt());
+        assertEquals("TimeoutException", upstreamJson.path("status").path("message").asText());
+    }
+
+    @Test
+    public void testFileExportAppendsOneRequestPerFlush() throws Exception {
+        Path file = Files.createTempFile("spans", ".jsonl");
+        try {
+            Tracer tracer = tracer("export { file = \"" + file.toString().replace("\\", "\\\\")
+                    + "\", flush-interval = 1h }");
+            tracer.startSpan("one", SpanKind.SERVER, null).end();
+            tracer.startSpan("two", SpanKind.SERVER, null).end();
+            tracer.close();
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(1, lines.size());
+            JsonNode spans = new ObjectMapper().readTree(lines.get(0))
+                    .path("resourceSpans").get(0).path("scopeSpans").get(0).path("spans");
+            assertEquals(2, spans.size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testTraceContextJsonForm() throws Exception {
+        TraceContext context = new TraceContext(1L, -1L, 255L, true);
+        assertEquals("00-0000000000000001ffffffffffffffff-00000000000000ff-01", context.toString());
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(context, mapper.readValue(mapper.writeValueAsString(context), TraceContext.class));
+    }
+}